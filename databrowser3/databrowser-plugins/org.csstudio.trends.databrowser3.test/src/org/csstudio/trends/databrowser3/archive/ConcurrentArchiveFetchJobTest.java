@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.archive;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.reader.ArchiveInfo;
+import org.csstudio.archive.reader.ArchiveReader;
+import org.csstudio.archive.reader.UnknownChannelException;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.trends.databrowser3.model.ArchiveDataSource;
+import org.csstudio.trends.databrowser3.model.PVItem;
+import org.csstudio.trends.databrowser3.model.PVSamples;
+import org.csstudio.trends.databrowser3.model.TestHelper;
+import org.csstudio.trends.databrowser3.preferences.Preferences;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of ArchiveFetchJob with several data sources,
+ *  using archive readers that simulate a slow archive.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ConcurrentArchiveFetchJobTest
+{
+    /** Latency of each simulated archive request */
+    private static final long LATENCY_MS = 1000;
+
+    /** Latency used by the readers */
+    private volatile long latency_ms = LATENCY_MS;
+
+    /** Archive key that is delayed by the latency, -1 to delay all keys */
+    private volatile int slow_key = -1;
+
+    /** Do all archive keys return samples for the same time range? */
+    private volatile boolean same_times = false;
+
+    /** Number of samples returned by each request */
+    private volatile int samples_per_request = 10;
+
+    /** Number of consecutive samples that share a time stamp */
+    private volatile int samples_per_time = 1;
+
+    /** Index of sample where readers wait for {@link #release} */
+    private volatile int hold_at = -1;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /** Number of readers that are currently busy */
+    private final AtomicInteger busy = new AtomicInteger();
+
+    /** Maximum number of concurrently busy readers */
+    private final AtomicInteger max_busy = new AtomicInteger();
+
+    /** Number of archive requests */
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /** Readers that have been cancelled */
+    private final Set<ArchiveReader> cancelled = ConcurrentHashMap.newKeySet();
+
+    /** Archive reader that waits before returning samples
+     *  which are offset by the archive key
+     */
+    private class DelayedArchiveReader implements ArchiveReader
+    {
+        private final String url;
+        private final CountDownLatch cancel = new CountDownLatch(1);
+
+        DelayedArchiveReader(final String url)
+        {
+            this.url = url;
+        }
+
+        @Override
+        public String getServerName()
+        {
+            return url;
+        }
+
+        @Override
+        public String getURL()
+        {
+            return url;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "Delayed test archive";
+        }
+
+        @Override
+        public int getVersion()
+        {
+            return 1;
+        }
+
+        @Override
+        public ArchiveInfo[] getArchiveInfos()
+        {
+            return new ArchiveInfo[0];
+        }
+
+        @Override
+        public String[] getNamesByPattern(final int key, final String glob_pattern) throws Exception
+        {
+            return new String[0];
+        }
+
+        @Override
+        public String[] getNamesByRegExp(final int key, final String reg_exp) throws Exception
+        {
+            return new String[0];
+        }
+
+        @Override
+        public ValueIterator getRawValues(final int key, final String name,
+                final Instant start, final Instant end) throws UnknownChannelException, Exception
+        {
+            if (key < 0)
+                throw new UnknownChannelException(name);
+            requests.incrementAndGet();
+            max_busy.accumulateAndGet(busy.incrementAndGet(), Math::max);
+            try
+            {
+                final long delay = (slow_key < 0  ||  key == slow_key) ? latency_ms : 0;
+                if (cancel.await(delay, TimeUnit.MILLISECONDS))
+                    throw new Exception("Cancelled");
+            }
+            finally
+            {
+                busy.decrementAndGet();
+            }
+            return new ValueIterator()
+            {
+                private int i = 0;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return i < samples_per_request;
+                }
+
+                @Override
+                public VType next() throws Exception
+                {
+                    if (i == hold_at)
+                        release.await();
+                    final int n = key*samples_per_request + i;
+                    final int t = same_times ? i : n;
+                    ++i;
+                    if (samples_per_time > 1  ||  same_times)
+                        return new ArchiveVNumber(Instant.ofEpochMilli(t / samples_per_time), AlarmSeverity.NONE, "", null, n);
+                    return TestHelper.makeValue(n);
+                }
+
+                @Override
+                public void close()
+                {
+                    // NOP
+                }
+            };
+        }
+
+        @Override
+        public ValueIterator getOptimizedValues(final int key, final String name,
+                final Instant start, final Instant end, final int count) throws UnknownChannelException, Exception
+        {
+            return getRawValues(key, name, start, end);
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled.add(this);
+            cancel.countDown();
+        }
+
+        @Override
+        public void close()
+        {
+            // NOP
+        }
+    }
+
+    /** Listener that counts calls */
+    private static class Listener implements ArchiveFetchJobListener
+    {
+        final AtomicInteger completed = new AtomicInteger(), failed = new AtomicInteger(), not_found = new AtomicInteger();
+
+        @Override
+        public void fetchCompleted(final ArchiveFetchJob job)
+        {
+            completed.incrementAndGet();
+        }
+
+        @Override
+        public void archiveFetchFailed(final ArchiveFetchJob job, final ArchiveDataSource archive, final Exception error)
+        {
+            failed.incrementAndGet();
+        }
+
+        @Override
+        public void channelNotFound(final ArchiveFetchJob job, final boolean channelFoundAtLeastOnce,
+                final ArchiveDataSource[] archivesThatFailed)
+        {
+            not_found.addAndGet(archivesThatFailed.length);
+        }
+    }
+
+    private ArchiveFetchJob createJob(final PVItem item, final Listener listener)
+    {
+        return createJob(item, Instant.ofEpochSecond(0), Instant.now(), listener);
+    }
+
+    private ArchiveFetchJob createJob(final PVItem item, final Instant start, final Instant end, final Listener listener)
+    {
+        return new ArchiveFetchJob(item, start, end, listener)
+        {
+            @Override
+            protected ArchiveReader getArchiveReader(final String url) throws Exception
+            {
+                return new DelayedArchiveReader(url);
+            }
+        };
+    }
+
+    @Test(timeout=20000)
+    public void testParallelArchives() throws Exception
+    {
+        final PVItem item = new PVItem("test", 1.0);
+        for (int i=0; i<4; ++i)
+            item.addArchiveDataSource(new ArchiveDataSource("test://server" + i, i, "Archive " + i));
+        // Channel is unknown in one more archive
+        item.addArchiveDataSource(new ArchiveDataSource("test://server4", -1, "Archive 4"));
+
+        final Listener listener = new Listener();
+        final ArchiveFetchJob job = createJob(item, listener);
+        final long start = System.currentTimeMillis();
+        job.schedule();
+        job.join();
+        final long ms = System.currentTimeMillis() - start;
+        System.out.println("Read 4 archives in " + ms + " ms");
+
+        // Archives were read in parallel, not 4 x latency
+        assertTrue(ms < 3 * LATENCY_MS);
+        assertThat(max_busy.get(), equalTo(4));
+        assertThat(listener.completed.get(), equalTo(1));
+        assertThat(listener.failed.get(), equalTo(0));
+        assertThat(listener.not_found.get(), equalTo(1));
+        // Samples from all archives were merged, plus continuation to 'now'
+        assertThat(item.getSamples().size(), equalTo(40 + 1));
+    }
+
+    @Test(timeout=20000)
+    public void testServerLimit() throws Exception
+    {
+        final int limit = Preferences.getArchiveFetchConcurrency();
+        final PVItem item = new PVItem("test", 1.0);
+        for (int i=0; i<2*limit + 1; ++i)
+            item.addArchiveDataSource(new ArchiveDataSource("test://same_server", i, "Archive " + i));
+
+        final Listener listener = new Listener();
+        final ArchiveFetchJob job = createJob(item, listener);
+        job.schedule();
+        job.join();
+
+        assertThat(max_busy.get(), equalTo(limit));
+        assertThat(listener.completed.get(), equalTo(1));
+        assertThat(item.getSamples().size(), equalTo(10 * (2*limit + 1) + 1));
+    }
+
+    @Test(timeout=20000)
+    public void testCancel() throws Exception
+    {
+        latency_ms = 60000;
+        final PVItem item = new PVItem("test", 1.0);
+        for (int i=0; i<3; ++i)
+            item.addArchiveDataSource(new ArchiveDataSource("test://cancel" + i, i, "Archive " + i));
+
+        final Listener listener = new Listener();
+        final ArchiveFetchJob job = createJob(item, listener);
+        job.schedule();
+        while (busy.get() < 3)
+            Thread.sleep(10);
+        job.cancel();
+        job.join();
+
+        // All readers that were busy have been cancelled
+        assertThat(cancelled.size(), equalTo(3));
+        assertThat(listener.completed.get(), equalTo(0));
+        assertThat(listener.failed.get(), equalTo(0));
+        assertThat(item.getSamples().size(), equalTo(0));
+    }
+
+    @Test(timeout=20000)
+    public void testChunks() throws Exception
+    {
+        latency_ms = 0;
+        samples_per_request = 25000;
+        hold_at = 15000;
+        final PVItem item = new PVItem("test", 1.0);
+        item.addArchiveDataSource(new ArchiveDataSource("test://chunks", 0, "Archive"));
+
+        final Listener listener = new Listener();
+        final ArchiveFetchJob job = createJob(item, listener);
+        job.schedule();
+
+        // Samples are merged before the request completes
+        while (item.getSamples().size() < 10000)
+            Thread.sleep(10);
+        assertThat(listener.completed.get(), equalTo(0));
+
+        release.countDown();
+        job.join();
+        assertThat(listener.completed.get(), equalTo(1));
+        assertThat(item.getSamples().size(), equalTo(25000 + 1));
+    }
+
+    /** Samples with the same time stamp as the end of a chunk are kept */
+    @Test(timeout=20000)
+    public void testChunksWithSameTime() throws Exception
+    {
+        latency_ms = 0;
+        samples_per_request = 25000;
+        samples_per_time = 3;
+        final PVItem item = new PVItem("test", 1.0);
+        item.addArchiveDataSource(new ArchiveDataSource("test://same_time", 0, "Archive"));
+
+        final Listener listener = new Listener();
+        final ArchiveFetchJob job = createJob(item, listener);
+        job.schedule();
+        job.join();
+        assertThat(listener.completed.get(), equalTo(1));
+
+        final PVSamples samples = item.getSamples();
+        assertThat(samples.size(), equalTo(25000 + 1));
+        for (int i=0; i<25000; ++i)
+            assertThat(samples.get(i).getValue(), equalTo((double) i));
+    }
+
+    /** Samples of overlapping data sources are merged in the order of the data sources,
+     *  so the last data source wins no matter which one completes first
+     */
+    @Test(timeout=20000)
+    public void testMergeOrder() throws Exception
+    {
+        latency_ms = 500;
+        same_times = true;
+        // First data source is faster, then the second one
+        for (int slow=1; slow>=0; --slow)
+        {
+            slow_key = slow;
+            final PVItem item = new PVItem("test", 1.0);
+            item.addArchiveDataSource(new ArchiveDataSource("test://order0", 0, "Archive 0"));
+            item.addArchiveDataSource(new ArchiveDataSource("test://order1", 1, "Archive 1"));
+
+            final Listener listener = new Listener();
+            final ArchiveFetchJob job = createJob(item, listener);
+            job.schedule();
+            job.join();
+            assertThat(listener.completed.get(), equalTo(1));
+
+            final PVSamples samples = item.getSamples();
+            assertThat(samples.size(), equalTo(10 + 1));
+            for (int i=0; i<10; ++i)
+                assertThat(samples.get(i).getValue(), equalTo(10.0 + i));
+        }
+    }
+
+    @Test(timeout=20000)
+    public void testCache() throws Exception
+    {
+        latency_ms = 0;
+        final PVItem item = new PVItem("test", 1.0);
+        item.addArchiveDataSource(new ArchiveDataSource("test://cache", 0, "Archive"));
+        final Instant start = Instant.ofEpochSecond(0), end = Instant.ofEpochSecond(1000);
+
+        Listener listener = new Listener();
+        ArchiveFetchJob job = createJob(item, start, end, listener);
+        job.schedule();
+        job.join();
+        assertThat(requests.get(), equalTo(1));
+        assertThat(listener.completed.get(), equalTo(1));
+        System.out.println(item.getArchiveCache());
+
+        // Same time range is served from cache
+        item.getSamples().clear();
+        listener = new Listener();
+        job = createJob(item, start, end, listener);
+        job.schedule();
+        job.join();
+        assertThat(requests.get(), equalTo(1));
+        assertThat(listener.completed.get(), equalTo(1));
+        assertThat(item.getSamples().size(), equalTo(10 + 1));
+    }
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.export;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.time.Instant;
+
+import org.csstudio.archive.vtype.TimestampHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.junit.Test;
+
+import com.jmatio.io.MatFileIncrementalWriter;
+import com.jmatio.io.MatFileReader;
+import com.jmatio.types.MLCell;
+import com.jmatio.types.MLChar;
+import com.jmatio.types.MLDouble;
+import com.jmatio.types.MLStructure;
+
+/** JUnit test of {@link MatlabChannelWriter}
+ *
+ *  <p>Compares the streamed file with one created
+ *  from jmatio's in-memory structures.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class MatlabChannelWriterTest
+{
+    private static final String[] NAMES = { "ramp", "empty", "a_channel_with_a_longer_name" };
+    private static final int[] COUNTS = { 10000, 0, 3 };
+
+    private static Instant getTime(final int i)
+    {
+        return Instant.ofEpochSecond(1500000000L + i, i * 1000);
+    }
+
+    private static AlarmSeverity getSeverity(final int i)
+    {
+        return AlarmSeverity.values()[i % AlarmSeverity.values().length];
+    }
+
+    /** Write file the way MatlabFileExportJob used to do it */
+    private void writeStructures(final File file) throws Exception
+    {
+        final MatFileIncrementalWriter writer = new MatFileIncrementalWriter(file);
+        for (int c=0; c<NAMES.length; ++c)
+        {
+            final int N = COUNTS[c];
+            final MLStructure struct = new MLStructure("channel" + c, new int[] { 1, 1 });
+            final int[] dims = new int[] { N, 1 };
+            final MLCell time = new MLCell(null, dims);
+            final MLDouble value = new MLDouble(null, dims);
+            final MLCell severity = new MLCell(null, dims);
+            for (int i=0; i<N; ++i)
+            {
+                time.set(new MLChar(null, TimestampHelper.format(getTime(i))), i);
+                value.set(0.5 * i, i);
+                severity.set(new MLChar(null, getSeverity(i).toString()), i);
+            }
+            struct.setField("name", new MLChar(null, NAMES[c]));
+            struct.setField("time", time);
+            struct.setField("value", value);
+            struct.setField("severity", severity);
+            writer.write(struct);
+        }
+        writer.close();
+    }
+
+    /** Stream the same data */
+    private void writeStreamed(final File file) throws Exception
+    {
+        try
+        (
+            final MatlabChannelWriter writer = new MatlabChannelWriter(file.getPath());
+        )
+        {
+            for (int c=0; c<NAMES.length; ++c)
+            {
+                for (int i=0; i<COUNTS[c]; ++i)
+                    writer.add(getTime(i), 0.5 * i, getSeverity(i));
+                writer.writeChannel("channel" + c, NAMES[c]);
+            }
+        }
+    }
+
+    @Test
+    public void testWriter() throws Exception
+    {
+        final File expected_file = File.createTempFile("expected", ".mat");
+        final File streamed_file = File.createTempFile("streamed", ".mat");
+        expected_file.deleteOnExit();
+        streamed_file.deleteOnExit();
+        writeStructures(expected_file);
+        writeStreamed(streamed_file);
+        System.out.println("jmatio: " + expected_file.length() + " bytes, streamed: " + streamed_file.length() + " bytes");
+
+        final MatFileReader expected = new MatFileReader(expected_file);
+        final MatFileReader streamed = new MatFileReader(streamed_file);
+        assertThat(streamed.getContent().keySet(), equalTo(expected.getContent().keySet()));
+        for (int c=0; c<NAMES.length; ++c)
+        {
+            final MLStructure exp = (MLStructure) expected.getMLArray("channel" + c);
+            final MLStructure act = (MLStructure) streamed.getMLArray("channel" + c);
+            assertThat(act.getFieldNames(), equalTo(exp.getFieldNames()));
+            assertThat(((MLChar) act.getField("name")).getString(0), equalTo(NAMES[c]));
+
+            final MLCell time = (MLCell) act.getField("time");
+            final MLDouble value = (MLDouble) act.getField("value");
+            final MLCell severity = (MLCell) act.getField("severity");
+            assertThat(time.getSize(), equalTo(COUNTS[c]));
+            assertThat(value.getSize(), equalTo(COUNTS[c]));
+            assertThat(severity.getSize(), equalTo(COUNTS[c]));
+            for (int i=0; i<COUNTS[c]; ++i)
+            {
+                assertThat(((MLChar) time.get(i)).getString(0), equalTo(TimestampHelper.format(getTime(i))));
+                assertThat(value.get(i), equalTo(0.5 * i));
+                assertThat(((MLChar) severity.get(i)).getString(0), equalTo(getSeverity(i).toString()));
+            }
+            // Same content as created by jmatio
+            assertThat(act.contentToString(), equalTo(exp.contentToString()));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.export;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.trends.databrowser3.imports.ArrayValueIterator;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of {@link ReadAheadValueIterator}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ReadAheadValueIteratorTest
+{
+    private static List<VType> createValues(final int count)
+    {
+        final Instant start = Instant.ofEpochSecond(1500000000L);
+        final List<VType> values = new ArrayList<>(count);
+        for (int i=0; i<count; ++i)
+            values.add(new ArchiveVNumber(start.plusSeconds(i), AlarmSeverity.NONE, "", null, i));
+        return values;
+    }
+
+    /** Several iterators, consumed in turn, with fewer threads than iterators */
+    @Test
+    public void testOrder() throws Exception
+    {
+        final int N = 1000, channels = 5;
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        final List<ValueIterator> iters = new ArrayList<>();
+        for (int c=0; c<channels; ++c)
+            iters.add(new ReadAheadValueIterator(() -> new ArrayValueIterator(createValues(N)), pool, 10));
+        for (int i=0; i<N; ++i)
+            for (ValueIterator iter : iters)
+            {
+                assertTrue(iter.hasNext());
+                assertThat(VTypeHelper.toDouble(iter.next()), equalTo((double) i));
+            }
+        for (ValueIterator iter : iters)
+        {
+            assertThat(iter.hasNext(), equalTo(false));
+            iter.close();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /** Slow channels are read concurrently */
+    @Test
+    public void testConcurrency() throws Exception
+    {
+        final int channels = 4;
+        final long delay_ms = 500;
+        final ExecutorService pool = Executors.newFixedThreadPool(channels);
+        final long start = System.currentTimeMillis();
+        final List<ValueIterator> iters = new ArrayList<>();
+        for (int c=0; c<channels; ++c)
+            iters.add(new ReadAheadValueIterator(() ->
+            {
+                // Simulate archive request
+                Thread.sleep(delay_ms);
+                return new ArrayValueIterator(createValues(10));
+            }, pool, 100));
+        int count = 0;
+        for (ValueIterator iter : iters)
+        {
+            while (iter.hasNext())
+            {
+                iter.next();
+                ++count;
+            }
+            iter.close();
+        }
+        final long ms = System.currentTimeMillis() - start;
+        System.out.println("Read " + count + " samples from " + channels + " channels in " + ms + " ms");
+        assertThat(count, equalTo(channels * 10));
+        assertTrue(ms < channels * delay_ms);
+        pool.shutdown();
+    }
+
+    /** Iterator that's closed before its task runs is never created */
+    @Test
+    public void testCloseBeforeRead() throws Exception
+    {
+        final ExecutorService pool = Executors.newFixedThreadPool(1);
+        // Keep the only thread busy
+        final CountDownLatch busy = new CountDownLatch(1);
+        pool.submit(() ->
+        {
+            busy.await();
+            return null;
+        });
+        final AtomicInteger created = new AtomicInteger();
+        final ValueIterator iter = new ReadAheadValueIterator(() ->
+        {
+            created.incrementAndGet();
+            return new ArrayValueIterator(createValues(10));
+        }, pool, 100);
+        iter.close();
+        busy.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertThat(created.get(), equalTo(0));
+        assertThat(iter.hasNext(), equalTo(false));
+    }
+
+    /** Error is reported after the samples read before the error */
+    @Test
+    public void testError() throws Exception
+    {
+        final ExecutorService pool = Executors.newFixedThreadPool(1);
+        final List<VType> values = createValues(3);
+        final ValueIterator failing = new ArrayValueIterator(values)
+        {
+            private int count = 0;
+
+            @Override
+            public VType next() throws Exception
+            {
+                if (++count > 2)
+                    throw new Exception("Broken archive");
+                return super.next();
+            }
+        };
+        final ValueIterator iter = new ReadAheadValueIterator(() -> failing, pool, 100);
+        assertThat(VTypeHelper.toDouble(iter.next()), equalTo(0.0));
+        assertThat(VTypeHelper.toDouble(iter.next()), equalTo(1.0));
+        assertTrue(iter.hasNext());
+        try
+        {
+            iter.next();
+            fail("Expected error");
+        }
+        catch (Exception ex)
+        {
+            assertThat(ex.getMessage(), equalTo("Broken archive"));
+        }
+        iter.close();
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.trends.databrowser3.imports;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+
+import org.diirt.vtype.VType;
+
+/** Import time of {@link CSVSampleImporter} for a large generated file
+ *
+ *  <p>Compares the parallel import with line-by-line parsing
+ *  based on regular expressions, which is how all lines
+ *  used to be parsed.
+ *
+ *  <p>Run with enough heap for the imported samples, for example -Xmx4g.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class CSVSampleImporterBenchmark
+{
+    private static final int ROWS = 3000000, RUNS = 3;
+
+    private static File createFile() throws Exception
+    {
+        final File file = File.createTempFile("benchmark", ".csv");
+        file.deleteOnExit();
+        final DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+        final Instant start = Instant.ofEpochSecond(1500000000L);
+        final Random random = new Random(42);
+        try
+        (
+            final BufferedWriter out = new BufferedWriter(new FileWriter(file));
+        )
+        {
+            out.write("# Generated beam data\n");
+            for (int i=0; i<ROWS; ++i)
+            {
+                out.write(format.format(LocalDateTime.ofInstant(start.plusMillis(i * 10L), ZoneId.systemDefault())));
+                out.write('\t');
+                out.write(String.format("%.6f", 100.0 + random.nextGaussian()));
+                out.write('\n');
+            }
+        }
+        return file;
+    }
+
+    private static void load(final File file, final boolean parallel) throws Exception
+    {
+        final CSVSampleImporter importer = new CSVSampleImporter();
+        final long start = System.nanoTime();
+        final List<VType> values;
+        try
+        (
+            final InputStream input = new BufferedInputStream(new FileInputStream(file));
+        )
+        {
+            values = parallel ? importer.importValues(input) : importer.importLines(input);
+        }
+        final double secs = (System.nanoTime() - start) / 1e9;
+        System.out.format("%-12s: %d samples in %5.2f s, %6.1f MB/s\n",
+                          parallel ? "Parallel" : "Line by line",
+                          values.size(),
+                          secs,
+                          file.length() / 1024.0 / 1024.0 / secs);
+    }
+
+    public static void main(final String[] args) throws Exception
+    {
+        final File file = createFile();
+        System.out.format("%d rows, %.1f MB\n", ROWS, file.length() / 1024.0 / 1024.0);
+        for (int run=0; run<RUNS; ++run)
+        {
+            load(file, false);
+            System.gc();
+            load(file, true);
+            System.gc();
+        }
+    }
+}
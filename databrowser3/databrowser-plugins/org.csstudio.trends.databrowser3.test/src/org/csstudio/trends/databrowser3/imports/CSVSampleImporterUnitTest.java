@@ -8,13 +8,18 @@
 package org.csstudio.trends.databrowser3.imports;
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 
 import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.VStatistics;
 import org.diirt.vtype.VType;
 import org.junit.Test;
 
@@ -40,4 +45,73 @@ public class CSVSampleImporterUnitTest
         assertThat(text, containsString("08:57:44.968"));
         assertThat(text, containsString("84.912"));
     }
+
+    /** Compare parallel import with line-by-line import using regular expressions */
+    private void checkImport(final String text) throws Exception
+    {
+        final CSVSampleImporter importer = new CSVSampleImporter();
+        final byte[] data = text.getBytes();
+        final List<VType> expected = importer.importLines(new ByteArrayInputStream(data));
+        final List<VType> values = importer.importValues(new ByteArrayInputStream(data));
+        assertThat(values.size(), equalTo(expected.size()));
+        for (int i=0; i<values.size(); ++i)
+        {
+            final VType exp = expected.get(i), value = values.get(i);
+            assertThat(value.getClass(), equalTo(exp.getClass()));
+            assertThat(VTypeHelper.getTimestamp(value), equalTo(VTypeHelper.getTimestamp(exp)));
+            assertThat(Double.valueOf(VTypeHelper.toDouble(value)), equalTo(VTypeHelper.toDouble(exp)));
+            if (exp instanceof VStatistics)
+            {
+                assertThat(((VStatistics) value).getMin(), equalTo(((VStatistics) exp).getMin()));
+                assertThat(((VStatistics) value).getMax(), equalTo(((VStatistics) exp).getMax()));
+            }
+        }
+    }
+
+    @Test
+    public void testFormats() throws Exception
+    {
+        checkImport("# Comment\n" +
+                    "\n" +
+                    "  2011-09-13 08:57:44.968   84.912  \n" +
+                    "2011/09/13 08:57:45.123456789\t1.5e3\n" +
+                    "2011-09-13 08:57:46.1 2\n" +
+                    "2011-09-13 08:57:47.000 1 0.5 0.25\n" +
+                    "2011-09-13 08:57:48.000 1 0.5 0.25 and some comment\n" +
+                    "2011-09-13 08:57:49.000 1 0.5\n" +
+                    "2011-09-13 08:57:50.000,3.5,1,2\n" +
+                    "2011-09-13 08:57:52.000 -0.0\n" +
+                    "2011-09-13 08:57:53.000 .5 degC\n" +
+                    "2011-09-13 08:57:54.000 3.14159265358979323846\n" +
+                    "2011-09-13 08:57:55.000 1e300\r\n" +
+                    "2011-09-13 08:57:56.000 4.9e-324\r\n" +
+                    "2011-09-13 08:57:57.000 123456789012345678901234567890\r" +
+                    "2011-13-01 08:57:58.000 7\n" +
+                    "2011-02-30 25:00:00.000 8\n" +
+                    "2011-09-13 08:57:59.000 x\n" +
+                    "<xml>\n" +
+                    "2011-09-13 08:58:00.000 9");
+    }
+
+    @Test
+    public void testChunks() throws Exception
+    {
+        // Enough lines for several chunks, with random numbers
+        final Random random = new Random(42);
+        final StringBuilder buf = new StringBuilder();
+        for (int i=0; i<300000; ++i)
+        {
+            buf.append(String.format(Locale.ROOT, "2018-%02d-%02d %02d:%02d:%02d.%03d",
+                                                  1 + i % 12, 1 + i % 28, i % 24, i % 60, (i / 60) % 60, i % 1000));
+            final double value = random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10);
+            if (i % 3 == 0)
+                buf.append(' ').append(value);
+            else
+                buf.append('\t').append(String.format(Locale.ROOT, "%.6f", value));
+            if (i % 7 == 0)
+                buf.append(' ').append(random.nextDouble()).append(' ').append(random.nextDouble());
+            buf.append('\n');
+        }
+        checkImport(buf.toString());
+    }
 }
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.VStatistics;
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of {@link ArchiveCache}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveCacheTest
+{
+    private static final ArchiveDataSource ARCHIVE = new ArchiveDataSource("test://archive", 1, "Test");
+
+    /** @param seconds Seconds since epoch */
+    private static Instant time(final long seconds)
+    {
+        return Instant.ofEpochSecond(seconds);
+    }
+
+    /** Add raw samples, one per second, value = time in milliseconds */
+    private static void addRaw(final ArchiveCache cache, final long start, final long end)
+    {
+        final ArchiveCache.Writer writer = cache.createWriter(ARCHIVE, time(start), time(end), 0, "Test");
+        for (long t=start; t<=end; ++t)
+            writer.add(TestHelper.makeValue((int) (t * 1000)));
+        writer.close();
+    }
+
+    @Test
+    public void testRaw()
+    {
+        final ArchiveCache cache = new ArchiveCache(100000);
+        assertThat(cache.lookup(ARCHIVE, time(0), time(100), 0), nullValue());
+        addRaw(cache, 1000, 2000);
+        System.out.println(cache);
+        assertThat(cache.size(), equalTo(1001));
+
+        // Completely covered
+        ArchiveCache.Lookup lookup = cache.lookup(ARCHIVE, time(1100), time(1200), 0);
+        assertTrue(lookup.isComplete());
+        // Includes the sample before the start
+        final List<VType> samples = lookup.getSamples();
+        assertThat(samples.size(), equalTo(102));
+        assertThat(VTypeHelper.getTimestamp(samples.get(0)), equalTo(time(1099)));
+        assertThat(VTypeHelper.getTimestamp(samples.get(101)), equalTo(time(1200)));
+
+        // Not covered at all
+        assertThat(cache.lookup(ARCHIVE, time(3000), time(4000), 0), nullValue());
+        assertThat(cache.lookup(new ArchiveDataSource("test://other", 1, "Other"), time(1100), time(1200), 0), nullValue());
+        // Optimized data can not serve raw request
+        final ArchiveCache.Writer writer = cache.createWriter(ARCHIVE, time(5000), time(6000), 10, "Test");
+        writer.add(TestHelper.makeValue(5500000));
+        writer.close();
+        assertThat(cache.lookup(ARCHIVE, time(5000), time(6000), 0), nullValue());
+
+        // Panning to later time: Need to fetch the end
+        lookup = cache.lookup(ARCHIVE, time(1500), time(2500), 0);
+        assertThat(lookup.isComplete(), equalTo(false));
+        assertThat(lookup.getFetchStart(), equalTo(time(2000)));
+        assertThat(lookup.getFetchEnd(), equalTo(time(2500)));
+
+        // Panning to earlier time: Need to fetch the start
+        lookup = cache.lookup(ARCHIVE, time(500), time(1500), 0);
+        assertThat(lookup.getFetchStart(), equalTo(time(500)));
+        assertThat(lookup.getFetchEnd(), equalTo(time(1000)));
+
+        // Fetching the missing piece combines into one section
+        addRaw(cache, 2000, 2500);
+        assertTrue(cache.lookup(ARCHIVE, time(1500), time(2500), 0).isComplete());
+        // 1000..2500, plus the optimized sample
+        assertThat(cache.size(), equalTo(1501 + 1));
+    }
+
+    @Test
+    public void testLevels()
+    {
+        final ArchiveCache cache = new ArchiveCache(100000);
+        addRaw(cache, 0, 10000);
+
+        // Optimized request is served from raw data
+        final int bins = 100;
+        final ArchiveCache.Lookup lookup = cache.lookup(ARCHIVE, time(0), time(10000), bins);
+        assertTrue(lookup.isComplete());
+        final List<VType> samples = lookup.getSamples();
+        System.out.println(samples.size() + " samples for " + bins + " bins");
+        assertTrue(samples.size() >= bins);
+        assertTrue(samples.size() <= 2 * bins + 1);
+
+        // Statistics summarize all raw samples
+        double min = Double.MAX_VALUE, max = 0;
+        int count = 0;
+        for (VType sample : samples)
+        {
+            final VStatistics stats = (VStatistics) sample;
+            assertTrue(stats.getMin() <= stats.getAverage());
+            assertTrue(stats.getAverage() <= stats.getMax());
+            min = Math.min(min, stats.getMin());
+            max = Math.max(max, stats.getMax());
+            count += stats.getNSamples();
+        }
+        assertThat(min, equalTo(0.0));
+        assertThat(max, equalTo(10000000.0));
+        assertThat(count, equalTo(10001));
+
+        // Zooming in further than the raw data resolution returns raw samples
+        final List<VType> raw = cache.lookup(ARCHIVE, time(5000), time(5010), bins).getSamples();
+        assertThat(raw.size(), equalTo(12));
+        assertThat(VTypeHelper.toDouble(raw.get(1)), equalTo(5000000.0));
+    }
+
+    @Test
+    public void testRecentData()
+    {
+        final ArchiveCache cache = new ArchiveCache(100000);
+        final Instant now = Instant.now();
+        final Instant start = now.minus(Duration.ofMinutes(10));
+        final ArchiveCache.Writer writer = cache.createWriter(ARCHIVE, start, now, 0, "Test");
+        writer.add(TestHelper.makeValue((int) (start.toEpochMilli() % 1000000)));
+        writer.close();
+
+        // The last minute needs to be fetched again
+        final ArchiveCache.Lookup lookup = cache.lookup(ARCHIVE, start, now, 0);
+        assertThat(lookup.isComplete(), equalTo(false));
+        assertTrue(lookup.getFetchStart().isBefore(now.minus(Duration.ofSeconds(59))));
+        assertThat(lookup.getFetchEnd(), equalTo(now));
+    }
+
+    @Test
+    public void testLimit()
+    {
+        final ArchiveCache cache = new ArchiveCache(1500);
+        addRaw(cache, 0, 999);
+        addRaw(cache, 5000, 5999);
+        // Oldest section was removed
+        assertThat(cache.size(), equalTo(1000));
+        assertThat(cache.lookup(ARCHIVE, time(100), time(200), 0), nullValue());
+        assertTrue(cache.lookup(ARCHIVE, time(5100), time(5200), 0).isComplete());
+
+        // Too much data for the cache
+        addRaw(cache, 10000, 12000);
+        assertThat(cache.lookup(ARCHIVE, time(10100), time(10200), 0), nullValue());
+
+        // Disabled cache
+        final ArchiveCache disabled = new ArchiveCache(0);
+        addRaw(disabled, 0, 10);
+        assertThat(disabled.size(), equalTo(0));
+    }
+}
@@ -10,6 +10,7 @@ package org.csstudio.trends.databrowser3.model;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -17,8 +18,12 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.javafx.rtplot.data.PrimitivePlotDataProvider;
+import org.diirt.util.array.ArrayDouble;
 import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
 import org.diirt.vtype.ValueUtil;
 import org.junit.Test;
 
@@ -100,4 +105,44 @@ public class PVSamplesUnitTest
         assertThat(ValueUtil.timeOf(value).isTimeValid(), equalTo(true));
     }
 
+    /** Primitive access for the plot must match the {@link PlotSample}s */
+    @Test
+    public void testPrimitiveAccess()
+    {
+        final AtomicInteger waveform_index = new AtomicInteger(0);
+        final PVSamples samples = new PVSamples(waveform_index);
+
+        final List<VType> history = new ArrayList<VType>();
+        for (int i=0; i<5; ++i)
+            history.add(TestHelper.makeValue(i));
+        history.add(new ArchiveVStatistics(Instant.ofEpochMilli(5), AlarmSeverity.NONE, "", null, 5.0, 4.0, 6.0, 0.5, 10));
+        history.add(ValueFactory.newVDoubleArray(new ArrayDouble(7.0, 8.0), ValueFactory.alarmNone(),
+                                                 ValueFactory.newTime(Instant.ofEpochMilli(6)), ValueFactory.displayNone()));
+        samples.mergeArchivedData("Test", history);
+        samples.addLiveSample(new ArchiveVNumber(Instant.now().minusSeconds(10), AlarmSeverity.NONE, "", null, 42));
+
+        final int N = samples.size();
+        // Continuation to 'now'
+        assertEquals(history.size() + 2, N);
+        for (int i=0; i<N-1; ++i)
+        {
+            final PlotSample sample = samples.get(i);
+            assertThat(samples.getPositionValue(i), equalTo(PrimitivePlotDataProvider.toPositionValue(sample.getPosition())));
+            assertThat(samples.getValue(i), equalTo(sample.getValue()));
+            assertThat(samples.getMin(i), equalTo(sample.getMin()));
+            assertThat(samples.getMax(i), equalTo(sample.getMax()));
+            assertThat(samples.getStdDev(i), equalTo(sample.getStdDev()));
+        }
+        assertThat(samples.getValue(5), equalTo(5.0));
+        assertThat(samples.getMin(5), equalTo(4.0));
+        assertThat(samples.getValue(6), equalTo(7.0));
+        assertThat(samples.getValue(N-1), equalTo(42.0));
+        assertTrue(samples.getPositionValue(N-1) > samples.getPositionValue(N-2));
+
+        // Other waveform element
+        waveform_index.set(1);
+        assertThat(samples.getValue(6), equalTo(8.0));
+        assertThat(samples.getMin(5), equalTo(Double.NaN));
+    }
+
 }
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.TimestampHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VStatistics;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of {@link SampleColumns}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class SampleColumnsTest
+{
+    private static final AtomicInteger INDEX_0 = new AtomicInteger(0);
+
+    @Test
+    public void testRingBuffer()
+    {
+        final SampleColumns samples = new SampleColumns(10);
+        for (int i=0; i<25; ++i)
+            samples.add("Test", TestHelper.makeValue(i), null);
+        assertThat(samples.size(), equalTo(10));
+        for (int i=0; i<10; ++i)
+            assertThat(samples.get(i, INDEX_0).getValue(), equalTo(15.0 + i));
+
+        // Shrinking keeps the newest samples
+        samples.setCapacity(5);
+        assertThat(samples.size(), equalTo(5));
+        assertThat(samples.get(0, INDEX_0).getValue(), equalTo(20.0));
+        assertThat(samples.get(4, INDEX_0).getValue(), equalTo(24.0));
+
+        samples.setCapacity(8);
+        for (int i=25; i<30; ++i)
+            samples.add("Test", TestHelper.makeValue(i), null);
+        assertThat(samples.size(), equalTo(8));
+        for (int i=0; i<8; ++i)
+        {
+            assertThat(samples.get(i, INDEX_0).getValue(), equalTo(22.0 + i));
+            assertThat(samples.get(i, INDEX_0).getPosition(), equalTo(TimestampHelper.fromMillisecs(22 + i)));
+        }
+    }
+
+    @Test
+    public void testValues()
+    {
+        final SampleColumns samples = new SampleColumns(100);
+        final Instant time = Instant.ofEpochSecond(1500000000L, 123456789);
+        final VType stats = new ArchiveVStatistics(time, AlarmSeverity.MINOR, "LOW", ValueFactory.displayNone(), 3.0, 1.0, 5.0, 0.5, 7);
+        final VType number = new ArchiveVNumber(time, AlarmSeverity.NONE, "", ValueFactory.displayNone(), Long.valueOf(42));
+        final VType error = TestHelper.makeError(1, "Disconnected");
+        final VType array = TestHelper.makeWaveform(2, new double[] { 1.0, 2.0, 3.0 });
+        samples.add("Stats", stats, null);
+        samples.add("Number", number, null);
+        samples.add("Error", error, "Custom Info");
+        samples.add("Array", array, null);
+
+        PlotSample sample = samples.get(0, INDEX_0);
+        assertThat(sample.getSource(), equalTo("Stats"));
+        assertThat(sample.getPosition(), equalTo(time));
+        assertThat(sample.getValue(), equalTo(3.0));
+        assertThat(sample.getMin(), equalTo(1.0));
+        assertThat(sample.getMax(), equalTo(5.0));
+        assertThat(sample.getStdDev(), equalTo(0.5));
+        assertThat(sample.getInfo(), equalTo("MINOR / LOW"));
+        assertThat(samples.getSeverity(0), equalTo(AlarmSeverity.MINOR));
+        assertThat(sample.getVType(), instanceOf(VStatistics.class));
+        assertThat(((VStatistics) sample.getVType()).getNSamples(), equalTo(7));
+
+        sample = samples.get(1, INDEX_0);
+        assertThat(sample.getValue(), equalTo(42.0));
+        assertThat(Double.isNaN(sample.getMin()), equalTo(true));
+        assertThat(((VNumber) sample.getVType()).getValue(), equalTo(Long.valueOf(42)));
+
+        sample = samples.get(2, INDEX_0);
+        assertThat(Double.isNaN(sample.getValue()), equalTo(true));
+        assertThat(sample.getInfo(), equalTo("Custom Info"));
+        assertThat(samples.getSeverity(2), equalTo(AlarmSeverity.UNDEFINED));
+
+        // Arrays are kept as they are
+        sample = samples.get(3, new AtomicInteger(2));
+        assertThat(sample.getVType(), sameInstance(array));
+        assertThat(sample.getValue(), equalTo(3.0));
+    }
+
+    @Test
+    public void testMerge()
+    {
+        // Compare with PlotSampleMerger for random sections
+        final Random random = new Random(42);
+        for (int run=0; run<1000; ++run)
+        {
+            final int old_start = random.nextInt(50), old_end = old_start + random.nextInt(50);
+            final int add_start = random.nextInt(100), add_end = add_start + random.nextInt(50);
+            final SampleColumns old = new SampleColumns(old_end - old_start);
+            for (int i=old_start; i<old_end; ++i)
+                old.add("Old", TestHelper.makeValue(i), null);
+            final SampleColumns add = new SampleColumns(add_end - add_start);
+            for (int i=add_start; i<add_end; ++i)
+                add.add("New", TestHelper.makeValue(i), null);
+
+            final PlotSample[] expected = PlotSampleMerger.merge(TestHelper.makePlotSamples(old_start, old_end),
+                                                                 TestHelper.makePlotSamples(add_start, add_end));
+            final SampleColumns merged = SampleColumns.merge(old, add);
+            assertThat(merged.size(), equalTo(expected.length));
+            for (int i=0; i<expected.length; ++i)
+                assertThat(merged.get(i, INDEX_0).getPosition(), equalTo(expected[i].getPosition()));
+            // New samples replace old ones
+            for (int i=0; i<merged.size(); ++i)
+            {
+                final PlotSample sample = merged.get(i, INDEX_0);
+                final boolean is_new = sample.getValue() >= add_start  &&  sample.getValue() < add_end;
+                assertThat(sample.getSource(), equalTo(is_new ? "New" : "Old"));
+            }
+        }
+    }
+
+    @Test
+    public void testChunks()
+    {
+        // Coarse samples for 0, 10, 20, .., 990
+        SampleColumns merged = new SampleColumns(100);
+        for (int i=0; i<1000; i+=10)
+            merged.add("Coarse", TestHelper.makeValue(i), null);
+
+        // Replace with chunks 0..99, 99..199, 199..299, ..
+        // that overlap by one sample
+        int last = 0;
+        while (last < 999)
+        {
+            final int end = Math.min(last + 100, 999);
+            final SampleColumns chunk = new SampleColumns(end - last + 1);
+            for (int i=last; i<=end; ++i)
+                chunk.add("Fine", TestHelper.makeValue(i), null);
+            merged = SampleColumns.merge(merged, chunk);
+            last = end;
+        }
+
+        assertThat(merged.size(), equalTo(1000));
+        for (int i=0; i<1000; ++i)
+        {
+            assertThat(merged.get(i, INDEX_0).getValue(), equalTo((double) i));
+            assertThat(merged.get(i, INDEX_0).getSource(), equalTo("Fine"));
+        }
+    }
+
+    @Test
+    public void testChunksBeforeTrailingSamples()
+    {
+        // Coarse samples for 0, 10, 20, .., 99990,
+        // followed by samples 100000..100099
+        final SampleColumns samples = new SampleColumns(10000 + 100);
+        for (int i=0; i<100000; i+=10)
+            samples.add("Coarse", TestHelper.makeValue(i), null);
+        for (int i=100000; i<100100; ++i)
+            samples.add("Trailing", TestHelper.makeValue(i), null);
+
+        // Remove coarse samples of the fetched range once,
+        // then merge chunks 0..99, 99..199, .. that are in front of the trailing samples
+        samples.remove(SampleColumns.toNanos(TimestampHelper.fromMillisecs(0)),
+                       SampleColumns.toNanos(TimestampHelper.fromMillisecs(99999)));
+        assertThat(samples.size(), equalTo(100));
+        int last = 0;
+        while (last < 99999)
+        {
+            final int end = Math.min(last + 100, 99999);
+            final SampleColumns chunk = new SampleColumns(end - last + 1);
+            for (int i=last; i<=end; ++i)
+                chunk.add("Fine", TestHelper.makeValue(i), null);
+            // Samples are updated in place
+            assertThat(SampleColumns.merge(samples, chunk), sameInstance(samples));
+            last = end;
+        }
+
+        assertThat(samples.size(), equalTo(100100));
+        for (int i=0; i<100100; ++i)
+        {
+            assertThat(samples.get(i, INDEX_0).getValue(), equalTo((double) i));
+            assertThat(samples.get(i, INDEX_0).getSource(), equalTo(i < 100000 ? "Fine" : "Trailing"));
+        }
+    }
+}
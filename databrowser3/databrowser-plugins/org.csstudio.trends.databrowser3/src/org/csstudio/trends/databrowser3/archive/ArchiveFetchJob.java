@@ -7,11 +7,23 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser3.archive;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import org.csstudio.apputil.time.BenchmarkTimer;
@@ -19,9 +31,12 @@ import org.csstudio.archive.reader.ArchiveReader;
 import org.csstudio.archive.reader.ArchiveRepository;
 import org.csstudio.archive.reader.UnknownChannelException;
 import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.VTypeHelper;
 import org.csstudio.display.builder.model.macros.MacroHandler;
+import org.csstudio.javafx.rtplot.util.NamedThreadFactory;
 import org.csstudio.trends.databrowser3.Activator;
 import org.csstudio.trends.databrowser3.Messages;
+import org.csstudio.trends.databrowser3.model.ArchiveCache;
 import org.csstudio.trends.databrowser3.model.ArchiveDataSource;
 import org.csstudio.trends.databrowser3.model.PVItem;
 import org.csstudio.trends.databrowser3.model.RequestType;
@@ -39,6 +54,16 @@ import org.eclipse.osgi.util.NLS;
  *  Actually spawns another thread so that the 'main' job can
  *  poll the progress monitor for cancellation and ask the secondary
  *  thread to cancel.
+ *  <p>
+ *  The archive data sources of the item are read in parallel,
+ *  limited to a number of concurrent requests per archive server URL.
+ *  Received samples are merged into the item in chunks,
+ *  so the plot can show them while more data arrives.
+ *  Where data sources overlap, samples of a later data source
+ *  replace those of an earlier one, so chunks are merged in the
+ *  order of the data sources, not in the order they arrive.
+ *  Time ranges that are in the item's {@link ArchiveCache}
+ *  are not fetched again.
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -47,6 +72,42 @@ public class ArchiveFetchJob extends Job
     /** Poll period in millisecs */
     private static final int POLL_PERIOD_MS = 1000;
 
+    /** Maximum number of samples to receive before merging them into the item */
+    private static final int CHUNK_SIZE = 10000;
+
+    /** Maximum time in millisecs to receive samples before merging them into the item */
+    private static final long CHUNK_PERIOD_MS = 500;
+
+    /** Threads that read from one archive data source.
+     *
+     *  <p>Not using the Activator's thread pool, which runs the
+     *  WorkerThread that then waits for these readers.
+     *  No upper limit for threads, idle threads are removed after 10 seconds.
+     */
+    private static final ExecutorService reader_pool;
+
+    /** Permits for concurrent requests, per archive server URL */
+    private static final Map<String, Semaphore> server_permits = new ConcurrentHashMap<>();
+
+    static
+    {
+        reader_pool = Executors.newCachedThreadPool(new NamedThreadFactory("DataBrowserArchiveReader"));
+        ((ThreadPoolExecutor)reader_pool).setKeepAliveTime(10, TimeUnit.SECONDS);
+    }
+
+    /** Chunk of samples that awaits merging */
+    private static class Chunk
+    {
+        final String server;
+        final List<VType> samples;
+
+        Chunk(final String server, final List<VType> samples)
+        {
+            this.server = server;
+            this.samples = samples;
+        }
+    }
+
     /**to manage concurrency on postgresql*/
     private final boolean concurrency;
 
@@ -72,10 +133,32 @@ public class ArchiveFetchJob extends Job
         private String message = "";
         private volatile boolean cancelled = false;
 
-        /** Archive reader that's currently queried.
+        /** Archive readers that are currently queried.
          *  Synchronize 'this' on access.
          */
-        private volatile ArchiveReader reader = null;
+        private final Set<ArchiveReader> readers = new HashSet<>();
+
+        /** Number of archive data sources that started to read */
+        private final AtomicInteger started = new AtomicInteger();
+
+        /** Total number of samples */
+        private final AtomicLong samples = new AtomicLong();
+
+        /** Index of the data source whose chunks are merged as they arrive.
+         *  Chunks of later data sources are held in {@link #pending}
+         *  until all earlier data sources are done.
+         *  Synchronize on 'pending' for access.
+         */
+        private int merging = 0;
+
+        /** Per data source: Is it done? */
+        private boolean[] done = new boolean[0];
+
+        /** Per data source: Chunks that are not merged, yet */
+        private final List<List<Chunk>> pending = new ArrayList<>();
+
+        /** Has a chunk been merged into the item? Synchronize on 'pending' */
+        private boolean merged_any = false;
 
         /** @return Message that somehow indicates progress */
         public synchronized String getMessage()
@@ -87,11 +170,8 @@ public class ArchiveFetchJob extends Job
         public synchronized void cancel()
         {
             cancelled = true;
-            synchronized (this)
-            {
-                if (reader != null)
-                    reader.cancel();
-            }
+            for (ArchiveReader reader : readers)
+                reader.cancel();
         }
 
         /** {@inheritDoc} */
@@ -100,19 +180,121 @@ public class ArchiveFetchJob extends Job
         {
             Activator.getLogger().log(Level.FINE, "Starting {0}", ArchiveFetchJob.this);
             final BenchmarkTimer timer = new BenchmarkTimer();
-            long samples = 0;
 
             // Number of bins. Negative values are scaling factor for display width
             int bins = Preferences.getPlotBins();
             if (bins < 0)
                 bins = Activator.display_pixel_width * (- bins);
+            final int request_bins = bins;
 
+            // Read all archive data sources in parallel.
+            // Samples are merged in the order of the data sources.
             final ArchiveDataSource archives[] = item.getArchiveDataSources();
+            synchronized (pending)
+            {
+                done = new boolean[archives.length];
+                for (int i=0; i<archives.length; ++i)
+                    pending.add(new ArrayList<>());
+            }
+            final List<Future<Boolean>> found = new ArrayList<>(archives.length);
+            for (int i=0; i<archives.length; ++i)
+            {
+                final int index = i;
+                found.add(reader_pool.submit(() ->
+                {
+                    try
+                    {
+                        return read(index, archives[index], archives.length, request_bins);
+                    }
+                    finally
+                    {
+                        markDone(index);
+                    }
+                }));
+            }
+
             List<ArchiveDataSource> sourcesWhereChannelDoesntExist = new ArrayList<>();
-            for (int i=0; i<archives.length && !cancelled; ++i)
+            for (int i=0; i<archives.length; ++i)
+            {
+                try
+                {
+                    if (! found.get(i).get())
+                        sourcesWhereChannelDoesntExist.add(archives[i]);
+                }
+                catch (Exception ex)
+                {
+                    Activator.getLogger().log(Level.WARNING, "Error reading " + archives[i], ex);
+                }
+            }
+            if (!sourcesWhereChannelDoesntExist.isEmpty() && !cancelled)
+            {
+                listener.channelNotFound(ArchiveFetchJob.this, sourcesWhereChannelDoesntExist.size() < archives.length,
+                        sourcesWhereChannelDoesntExist
+                        .toArray(new ArchiveDataSource[sourcesWhereChannelDoesntExist.size()]));
+            }
+            timer.stop();
+            if (!cancelled)
+                listener.fetchCompleted(ArchiveFetchJob.this);
+            Activator.getLogger().log(Level.FINE,
+                    "Ended {0} with {1} samples in {2}",
+                    new Object[] { ArchiveFetchJob.this, samples.get(), timer });
+        }
+
+        /** Read samples from one archive data source and merge them into the item
+         *  @param index Index of the data source
+         *  @param archive Archive data source
+         *  @param total Total number of data sources, used for the progress message
+         *  @param bins Number of bins for optimized requests
+         *  @return <code>false</code> if the channel is not known to the archive data source
+         */
+        private boolean read(final int index, final ArchiveDataSource archive, final int total, final int bins)
+        {
+            // Serve what's possible from the cache
+            final boolean raw = item.getRequestType() == RequestType.RAW;
+            final ArchiveCache cache = item.getArchiveCache();
+            final ArchiveCache.Lookup cached = cache.lookup(archive, start, end, raw ? 0 : bins);
+            final Instant fetch_start, fetch_end;
+            final int fetch_bins;
+            if (cached == null)
+            {
+                fetch_start = start;
+                fetch_end = end;
+                fetch_bins = bins;
+            }
+            else
             {
-                final ArchiveDataSource archive = archives[i];
-                final String url = archive.getUrl();
+                samples.addAndGet(cached.getSamples().size());
+                mergeChunk(index, cached.getServerName(), cached.getSamples());
+                if (cached.isComplete())
+                    return true;
+                // Fetch the remaining time range at the same resolution
+                fetch_start = cached.getFetchStart();
+                fetch_end = cached.getFetchEnd();
+                final double fraction = Duration.between(fetch_start, fetch_end).toMillis() /
+                                        (double) Math.max(1, Duration.between(start, end).toMillis());
+                fetch_bins = Math.max(1, (int) Math.ceil(bins * fraction));
+            }
+
+            final String url = archive.getUrl();
+            final Semaphore permits = server_permits.computeIfAbsent(url,
+                    u -> new Semaphore(Preferences.getArchiveFetchConcurrency()));
+            try
+            {
+                // Wait for permit to access the server, checking for cancellation
+                while (! permits.tryAcquire(POLL_PERIOD_MS, TimeUnit.MILLISECONDS))
+                    if (cancelled)
+                        return true;
+            }
+            catch (InterruptedException ex)
+            {
+                return true;
+            }
+
+            ArchiveReader reader = null;
+            try
+            {
+                if (cancelled)
+                    return true;
                 // Display "N/total", using '1' for the first sub-archive.
                 synchronized  (this)
                 {
@@ -120,73 +302,187 @@ public class ArchiveFetchJob extends Job
                             new Object[]
                                     {
                                             archive.getName(),
-                                            (i+1),
-                                            archives.length
+                                            started.incrementAndGet(),
+                                            total
                                     });
                 }
+                reader = getArchiveReader(url);
+                synchronized (this)
+                {
+                    readers.add(reader);
+                    // Cancelled while creating the reader?
+                    if (cancelled)
+                        return true;
+                }
+                reader.enableConcurrency(concurrency);
                 try
                 {
-                    final ArchiveReader the_reader;
-                    synchronized (this)
+                    final String server = reader.getServerName();
+                    if (raw)
                     {
-                        the_reader = reader = ArchiveRepository.getInstance().getArchiveReader(url);
+                        // Show optimized data first, then replace with raw data as it arrives
+                        if (Preferences.isProgressiveRefinement())
+                            merge(index, server,
+                                  reader.getOptimizedValues(archive.getKey(), item.getResolvedName(),
+                                                            fetch_start, fetch_end, fetch_bins),
+                                  cache.createWriter(archive, fetch_start, fetch_end, fetch_bins, server));
+                        merge(index, server,
+                              reader.getRawValues(archive.getKey(), item.getResolvedName(),
+                                                  fetch_start, fetch_end),
+                              cache.createWriter(archive, fetch_start, fetch_end, 0, server));
                     }
-                    the_reader.enableConcurrency(concurrency);
-                    final ValueIterator value_iter;
-                    try
+                    else
+                        merge(index, server,
+                              reader.getOptimizedValues(archive.getKey(), item.getResolvedName(),
+                                                        fetch_start, fetch_end, fetch_bins),
+                              cache.createWriter(archive, fetch_start, fetch_end, fetch_bins, server));
+                }
+                catch (UnknownChannelException e)
+                {
+                    // Do not immediately notify about unknown channels. First search for the data in all archive
+                    // sources and only report this kind of errors at the end
+                    return false;
+                }
+            }
+            catch (Exception ex)
+            {   // Tell listener unless it's the result of a 'cancel'?
+                if (! cancelled)
+                    listener.archiveFetchFailed(ArchiveFetchJob.this, archive, ex);
+            }
+            finally
+            {
+                if (reader != null)
+                {
+                    synchronized (this)
                     {
-                        if (item.getRequestType() == RequestType.RAW)
-                            value_iter = the_reader.getRawValues(archive.getKey(), item.getResolvedName(),
-                                    start, end);
-                        else
-                            value_iter = the_reader.getOptimizedValues(archive.getKey(), item.getResolvedName(),
-                                    start, end, bins);
+                        readers.remove(reader);
                     }
-                    catch (UnknownChannelException e)
+                    reader.close();
+                }
+                permits.release();
+            }
+            return true;
+        }
+
+        /** Merge samples into the item in chunks
+         *  @param index Index of the data source
+         *  @param server Name of archive server
+         *  @param value_iter Samples to merge, will be closed
+         *  @param cache Cache writer for the samples
+         *  @throws Exception on error
+         */
+        private void merge(final int index, final String server, final ValueIterator value_iter,
+                           final ArchiveCache.Writer cache) throws Exception
+        {
+            try
+            {
+                List<VType> chunk = new ArrayList<>();
+                int received = 0;
+                long flush = System.currentTimeMillis() + CHUNK_PERIOD_MS;
+                while (value_iter.hasNext()  &&  !cancelled)
+                {
+                    final VType value = value_iter.next();
+                    chunk.add(value);
+                    cache.add(value);
+                    ++received;
+                    if (received >= CHUNK_SIZE  ||  System.currentTimeMillis() >= flush)
                     {
-                        // Do not immediately notify about unknown channels. First search for the data in all archive
-                        // sources and only report this kind of errors at the end
-                        sourcesWhereChannelDoesntExist.add(archives[i]);
-                        continue;
+                        samples.addAndGet(received);
+                        mergeChunk(index, server, chunk);
+                        // Start next chunk with the last samples of this one,
+                        // so the merged chunks replace one contiguous time range
+                        chunk = getSamplesAtEnd(chunk);
+                        received = 0;
+                        flush = System.currentTimeMillis() + CHUNK_PERIOD_MS;
                     }
-                    // Get samples into array
-                    final List<VType> result = new ArrayList<VType>();
-                    while (value_iter.hasNext())
-                        result.add(value_iter.next());
-                    samples += result.size();
-                    item.mergeArchivedSamples(the_reader.getServerName(), result);
-                    if (cancelled)
-                        break;
-                    value_iter.close();
                 }
-                catch (Exception ex)
-                {   // Tell listener unless it's the result of a 'cancel'?
-                    if (! cancelled)
-                        listener.archiveFetchFailed(ArchiveFetchJob.this, archive, ex);
-                    // Continue with the next data source
+                if (received > 0  &&  !cancelled)
+                {
+                    samples.addAndGet(received);
+                    mergeChunk(index, server, chunk);
                 }
-                finally
+                // Only cache complete data
+                if (! cancelled)
+                    cache.close();
+            }
+            finally
+            {
+                value_iter.close();
+            }
+        }
+
+        /** Merge chunk into the item, or hold it until earlier data sources are done
+         *  @param index Index of the data source
+         *  @param server Name of archive server
+         *  @param chunk Samples, must not be modified afterwards
+         */
+        private void mergeChunk(final int index, final String server, final List<VType> chunk)
+        {
+            synchronized (pending)
+            {
+                if (index > merging)
                 {
-                    synchronized (this)
-                    {
-                        if (reader != null)
-                            reader.close();
-                        reader = null;
-                    }
+                    pending.get(index).add(new Chunk(server, chunk));
+                    return;
                 }
+                mergeIntoItem(server, chunk);
             }
-            if (!sourcesWhereChannelDoesntExist.isEmpty() && !cancelled)
+        }
+
+        /** Merge chunk into the item. Caller must synchronize on 'pending'
+         *  @param server Name of archive server
+         *  @param chunk Samples
+         */
+        private void mergeIntoItem(final String server, final List<VType> chunk)
+        {
+            if (chunk.isEmpty())
+                return;
+            if (merged_any)
+                item.mergeArchivedSamples(server, chunk);
+            else
+            {   // First chunk removes samples of an earlier fetch in the time range,
+                // so following chunks are added after it instead of
+                // being inserted before those old samples
+                merged_any = true;
+                item.mergeArchivedSamples(server, start, end, chunk);
+            }
+        }
+
+        /** Note that a data source is done, merge pending chunks of following data sources
+         *  @param index Index of the data source
+         */
+        private void markDone(final int index)
+        {
+            synchronized (pending)
             {
-                listener.channelNotFound(ArchiveFetchJob.this, sourcesWhereChannelDoesntExist.size() < archives.length,
-                        sourcesWhereChannelDoesntExist
-                        .toArray(new ArchiveDataSource[sourcesWhereChannelDoesntExist.size()]));
+                done[index] = true;
+                while (merging < done.length  &&  done[merging])
+                {
+                    ++merging;
+                    if (merging < done.length)
+                    {
+                        final List<Chunk> chunks = pending.get(merging);
+                        if (! cancelled)
+                            for (Chunk chunk : chunks)
+                                mergeIntoItem(chunk.server, chunk.samples);
+                        chunks.clear();
+                    }
+                }
             }
-            timer.stop();
-            if (!cancelled)
-                listener.fetchCompleted(ArchiveFetchJob.this);
-            Activator.getLogger().log(Level.FINE,
-                    "Ended {0} with {1} samples in {2}",
-                    new Object[] { ArchiveFetchJob.this, samples, timer });
+        }
+
+        /** @param chunk Samples
+         *  @return Samples at the end of the chunk that share the time stamp of the last sample
+         */
+        private List<VType> getSamplesAtEnd(final List<VType> chunk)
+        {
+            // Merging the next chunk replaces all existing samples
+            // at its start time, so all of them need to be included
+            final Instant last = VTypeHelper.getTimestamp(chunk.get(chunk.size() - 1));
+            int first = chunk.size() - 1;
+            while (first > 0  &&  Objects.equals(VTypeHelper.getTimestamp(chunk.get(first - 1)), last))
+                --first;
+            return new ArrayList<>(chunk.subList(first, chunk.size()));
         }
 
         @Override
@@ -232,6 +528,15 @@ public class ArchiveFetchJob extends Job
         this.concurrency = enableConcurrency;
     }
 
+    /** @param url Archive data source URL
+     *  @return {@link ArchiveReader} for that URL
+     *  @throws Exception on error
+     */
+    protected ArchiveReader getArchiveReader(final String url) throws Exception
+    {
+        return ArchiveRepository.getInstance().getArchiveReader(url);
+    }
+
     /** @return PVItem for which this job was created */
     public PVItem getPVItem()
     {
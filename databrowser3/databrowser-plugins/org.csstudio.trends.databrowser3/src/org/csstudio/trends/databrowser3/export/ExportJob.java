@@ -7,12 +7,18 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser3.export;
 
+import java.io.BufferedOutputStream;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,12 +28,14 @@ import org.csstudio.archive.reader.ArchiveRepository;
 import org.csstudio.archive.reader.LinearValueIterator;
 import org.csstudio.archive.reader.MergingValueIterator;
 import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.javafx.rtplot.util.NamedThreadFactory;
 import org.csstudio.trends.databrowser3.Activator;
 import org.csstudio.trends.databrowser3.model.ArchiveDataSource;
 import org.csstudio.trends.databrowser3.model.Model;
 import org.csstudio.trends.databrowser3.model.ModelItem;
 import org.csstudio.trends.databrowser3.model.PVItem;
 import org.csstudio.trends.databrowser3.model.TimeHelper;
+import org.csstudio.trends.databrowser3.preferences.Preferences;
 import org.diirt.util.time.TimeDuration;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -41,6 +49,12 @@ import org.eclipse.core.runtime.jobs.Job;
 abstract public class ExportJob extends Job
 {
     final protected static int PROGRESS_UPDATE_LINES = 1000;
+    /** Number of samples to read ahead per channel, see {@link #createReadAheadIterator(ModelItem)} */
+    final protected static int READ_AHEAD_SAMPLES = 5000;
+    /** Seconds to wait for read-ahead tasks to end */
+    final private static long READ_AHEAD_TIMEOUT_SECS = 5;
+    /** Size of the output buffer */
+    final private static int BUFFER_SIZE = 64*1024;
     final protected String comment;
     final protected Model model;
     final protected Instant start, end;
@@ -50,6 +64,8 @@ abstract public class ExportJob extends Job
     final protected ExportErrorHandler error_handler;
     /** Active readers, used to cancel and close them */
     final private CopyOnWriteArrayList<ArchiveReader> archive_readers = new CopyOnWriteArrayList<ArchiveReader>();
+    /** Threads that read channels concurrently, created when needed */
+    private ExecutorService read_pool = null;
 
     /** Thread that polls a progress monitor and cancels active archive readers
      *  if the user requests the export job to end via the progress monitor
@@ -126,7 +142,9 @@ abstract public class ExportJob extends Job
             final PrintStream out;
             if (filename != null)
             {
-                out = new PrintStream(filename);
+                // PrintStream(filename) would write to the file for each print().
+                // Buffer the output, writing to the file's channel in large blocks.
+                out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(filename)), BUFFER_SIZE));
                 printExportInfo(out);
             }
             else
@@ -139,7 +157,12 @@ abstract public class ExportJob extends Job
             // ask thread to exit
             cancel_poll.exit = true;
             if (out != null)
+            {
                 out.close();
+                // PrintStream doesn't throw exceptions, check for write errors
+                if (out.checkError())
+                    throw new Exception("Error writing " + filename);
+            }
             // Wait for poller to quit
             done.get();
         }
@@ -147,12 +170,40 @@ abstract public class ExportJob extends Job
         {
             error_handler.handleExportError(ex);
         }
+        stopReadAhead();
         for (ArchiveReader reader : archive_readers)
             reader.close();
         monitor.done();
         return Status.OK_STATUS;
     }
 
+    /** Stop read-ahead tasks, which might still use the archive readers */
+    private void stopReadAhead()
+    {
+        final ExecutorService pool;
+        synchronized (this)
+        {
+            pool = read_pool;
+        }
+        if (pool == null)
+            return;
+        pool.shutdownNow();
+        try
+        {
+            if (! pool.awaitTermination(READ_AHEAD_TIMEOUT_SECS, TimeUnit.SECONDS))
+            {   // Tasks are stuck in archive requests
+                for (ArchiveReader reader : archive_readers)
+                    reader.cancel();
+                if (! pool.awaitTermination(READ_AHEAD_TIMEOUT_SECS, TimeUnit.SECONDS))
+                    Logger.getLogger(getClass().getName()).log(Level.WARNING, "Export read-ahead tasks do not end");
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /** Print file header, gets invoked before <code>performExport</code> */
     protected void printExportInfo(final PrintStream out)
     {
@@ -246,4 +297,24 @@ abstract public class ExportJob extends Job
         // Return a merging iterator
         return new MergingValueIterator(iters.toArray(new ValueIterator[iters.size()]));
     }
+
+    /** Create iterator that fetches the samples of an item in the background
+     *
+     *  <p>Iterators for several items read their data concurrently,
+     *  limited by the export concurrency preference.
+     *  Caller must close the iterator.
+     *
+     *  @param item ModelItem
+     *  @return ValueIterator for samples in the item, see {@link #createValueIterator(ModelItem)}
+     */
+    protected ValueIterator createReadAheadIterator(final ModelItem item)
+    {
+        synchronized (this)
+        {
+            if (read_pool == null)
+                read_pool = Executors.newFixedThreadPool(Preferences.getExportConcurrency(),
+                                                         new NamedThreadFactory("DataBrowserExport"));
+        }
+        return new ReadAheadValueIterator(() -> createValueIterator(item), read_pool, READ_AHEAD_SAMPLES);
+    }
 }
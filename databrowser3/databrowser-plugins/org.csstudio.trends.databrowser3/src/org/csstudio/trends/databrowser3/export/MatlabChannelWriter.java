@@ -0,0 +1,430 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.export;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.csstudio.archive.vtype.TimestampHelper;
+import org.diirt.vtype.AlarmSeverity;
+
+import com.jmatio.common.MatDataTypes;
+import com.jmatio.io.MatFileHeader;
+import com.jmatio.types.MLArray;
+
+/** Write channel data to Matlab-format file
+ *
+ *  <p>Creates the same content as adding an <code>MLStructure</code>
+ *  with fields name, time, value, severity for each channel
+ *  to a <code>MatFileIncrementalWriter</code>,
+ *  but streams the samples instead of holding all of them in memory.
+ *
+ *  <p>Samples are spooled into temporary files
+ *  to determine the number of samples and the size of the matrix elements.
+ *  The structure is then deflated into the file in chunks,
+ *  and the size of the compressed element is updated once it is known.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class MatlabChannelWriter implements AutoCloseable
+{
+    /** Size of buffers used for spooling and compressing */
+    private static final int BUFFER_SIZE = 64*1024;
+
+    /** Name of (unnamed) matrix elements as written by jmatio */
+    private static final byte[] NO_NAME = toBytes("@");
+
+    /** Field names of channel structure */
+    private static final String[] FIELDS = { "name", "time", "value", "severity" };
+
+    /** Severity texts, indexed by ordinal */
+    private static final byte[][] SEVERITIES;
+
+    static
+    {
+        final AlarmSeverity[] severities = AlarmSeverity.values();
+        SEVERITIES = new byte[severities.length][];
+        for (int i=0; i<severities.length; ++i)
+            SEVERITIES[i] = toBytes(severities[i].toString());
+    }
+
+    /** Temporary file with data for one column of the channel structure */
+    private static class Spool implements AutoCloseable
+    {
+        final Path file;
+        final DataOutputStream out;
+
+        Spool() throws IOException
+        {
+            file = Files.createTempFile("databrowser_export", ".spool");
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+        }
+
+        DataInputStream read() throws IOException
+        {
+            out.close();
+            return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            out.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private final FileChannel channel;
+
+    private Spool times, values, severities;
+
+    /** Number of spooled samples */
+    private int count = 0;
+
+    /** Size of the spooled time and severity texts as matrix elements */
+    private long time_cell_size = 0, severity_cell_size = 0;
+
+    /** Create file and write header
+     *  @param filename Name of file to create
+     *  @throws IOException on error
+     */
+    public MatlabChannelWriter(final String filename) throws IOException
+    {
+        channel = FileChannel.open(Paths.get(filename),
+                                   StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                   StandardOpenOption.WRITE);
+        writeHeader();
+    }
+
+    /** Write MAT-file header, compare MatFileIncrementalWriter */
+    private void writeHeader() throws IOException
+    {
+        final MatFileHeader header = MatFileHeader.createHeader();
+        final ByteBuffer buf = ByteBuffer.allocate(128);
+        final String description = header.getDescription();
+        for (int i=0; i<116; ++i)
+            buf.put(i < description.length() ? (byte) description.charAt(i) : 0);
+        // Subsystem data offset
+        buf.position(buf.position() + 8);
+        final int version = header.getVersion();
+        buf.put((byte) (version >> 8));
+        buf.put((byte) version);
+        buf.put(header.getEndianIndicator());
+        buf.flip();
+        while (buf.hasRemaining())
+            channel.write(buf);
+    }
+
+    /** Add a sample to the current channel
+     *  @param time Time stamp
+     *  @param value Value
+     *  @param severity Severity
+     *  @throws IOException on error
+     */
+    public void add(final Instant time, final double value, final AlarmSeverity severity) throws IOException
+    {
+        if (times == null)
+        {
+            times = new Spool();
+            values = new Spool();
+            severities = new Spool();
+        }
+        final byte[] text = toBytes(TimestampHelper.format(time));
+        times.out.writeShort(text.length);
+        times.out.write(text);
+        time_cell_size += getCharMatrixSize(text.length);
+        values.out.writeDouble(value);
+        severities.out.writeByte(severity.ordinal());
+        severity_cell_size += getCharMatrixSize(SEVERITIES[severity.ordinal()].length);
+        ++count;
+    }
+
+    /** @return Number of samples added to the current channel */
+    public int getSampleCount()
+    {
+        return count;
+    }
+
+    /** Write structure for the current channel with all samples added so far
+     *  @param struct_name Name of the structure, for example "channel0"
+     *  @param name Channel name
+     *  @throws IOException on error
+     */
+    public void writeChannel(final String struct_name, final String name) throws IOException
+    {
+        final byte[] struct_name_bytes = toBytes(struct_name);
+        final byte[] name_bytes = toBytes(name);
+
+        // Field names are zero-terminated, padded to the longest name
+        int field_length = 0;
+        for (String field : FIELDS)
+            field_length = Math.max(field_length, field.length());
+        ++field_length;
+
+        // Size of structure, not including its own miMATRIX tag
+        final long struct_size = getHeaderSize(struct_name_bytes.length) - 8
+                               + 8                                          // field name length
+                               + getElementSize(FIELDS.length * field_length) // field names
+                               + getCharMatrixSize(name_bytes.length)
+                               + getHeaderSize(NO_NAME.length) + time_cell_size
+                               + getHeaderSize(NO_NAME.length) + getElementSize(8L * count)
+                               + getHeaderSize(NO_NAME.length) + severity_cell_size;
+        if (struct_size > Integer.MAX_VALUE)
+            throw new IOException("Too much data for " + name + ": " + count + " samples");
+
+        // Placeholder for the miCOMPRESSED tag
+        final long start = channel.position();
+        final ByteBuffer tag = ByteBuffer.allocate(8);
+        writeFully(tag, start);
+        channel.position(start + 8);
+
+        // Compress the structure into the file
+        final Deflater deflater = new Deflater();
+        try
+        {
+            // Don't let the streams close the channel
+            final OutputStream file = new FilterOutputStream(Channels.newOutputStream(channel))
+            {
+                @Override
+                public void write(final byte[] b, final int off, final int len) throws IOException
+                {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException
+                {
+                    flush();
+                }
+            };
+            final DeflaterOutputStream compressed = new DeflaterOutputStream(file, deflater, BUFFER_SIZE);
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(compressed, BUFFER_SIZE));
+
+            // Structure
+            out.writeInt(MatDataTypes.miMATRIX);
+            out.writeInt((int) struct_size);
+            writeMatrixHeader(out, MLArray.mxSTRUCT_CLASS, 1, 1, struct_name_bytes);
+            out.writeInt(4 << 16 | MatDataTypes.miINT32 & 0xffff);
+            out.writeInt(field_length);
+            final byte[] field_names = new byte[FIELDS.length * field_length];
+            for (int i=0; i<FIELDS.length; ++i)
+            {
+                final byte[] field = toBytes(FIELDS[i]);
+                System.arraycopy(field, 0, field_names, i*field_length, field.length);
+            }
+            writeElement(out, MatDataTypes.miINT8, field_names);
+
+            // name
+            writeCharMatrix(out, name_bytes);
+
+            // time
+            out.writeInt(MatDataTypes.miMATRIX);
+            out.writeInt((int) (getHeaderSize(NO_NAME.length) - 8 + time_cell_size));
+            writeMatrixHeader(out, MLArray.mxCELL_CLASS, count, 1, NO_NAME);
+            if (count > 0)
+                try
+                (
+                    final DataInputStream in = times.read();
+                )
+                {
+                    final byte[] text = new byte[64];
+                    for (int i=0; i<count; ++i)
+                    {
+                        final int len = in.readShort();
+                        final byte[] buf = len <= text.length ? text : new byte[len];
+                        in.readFully(buf, 0, len);
+                        writeCharMatrix(out, buf, len);
+                    }
+                }
+
+            // value
+            out.writeInt(MatDataTypes.miMATRIX);
+            out.writeInt((int) (getHeaderSize(NO_NAME.length) - 8 + getElementSize(8L * count)));
+            writeMatrixHeader(out, MLArray.mxDOUBLE_CLASS, count, 1, NO_NAME);
+            out.writeInt(MatDataTypes.miDOUBLE);
+            out.writeInt(8 * count);
+            if (count > 0)
+                try
+                (
+                    final DataInputStream in = values.read();
+                )
+                {
+                    for (int i=0; i<count; ++i)
+                        out.writeDouble(in.readDouble());
+                }
+
+            // severity
+            out.writeInt(MatDataTypes.miMATRIX);
+            out.writeInt((int) (getHeaderSize(NO_NAME.length) - 8 + severity_cell_size));
+            writeMatrixHeader(out, MLArray.mxCELL_CLASS, count, 1, NO_NAME);
+            if (count > 0)
+                try
+                (
+                    final DataInputStream in = severities.read();
+                )
+                {
+                    for (int i=0; i<count; ++i)
+                    {
+                        final byte[] text = SEVERITIES[in.readByte()];
+                        writeCharMatrix(out, text, text.length);
+                    }
+                }
+
+            out.flush();
+            compressed.finish();
+            file.flush();
+        }
+        finally
+        {
+            deflater.end();
+            clear();
+        }
+
+        // Update tag with size of compressed data
+        final long end = channel.position();
+        tag.clear();
+        tag.putInt(MatDataTypes.miCOMPRESSED);
+        tag.putInt((int) (end - start - 8));
+        tag.flip();
+        writeFully(tag, start);
+    }
+
+    /** @param buf Buffer to write at position
+     *  @param position Position in file
+     */
+    private void writeFully(final ByteBuffer buf, final long position) throws IOException
+    {
+        long pos = position;
+        while (buf.hasRemaining())
+            pos += channel.write(buf, pos);
+    }
+
+    /** Remove spooled samples */
+    private void clear() throws IOException
+    {
+        if (times != null)
+        {
+            times.close();
+            values.close();
+            severities.close();
+            times = values = severities = null;
+        }
+        count = 0;
+        time_cell_size = severity_cell_size = 0;
+    }
+
+    /** @param text Text
+     *  @return One byte per character, like jmatio's MLChar
+     */
+    private static byte[] toBytes(final String text)
+    {
+        final int len = text.length();
+        final byte[] bytes = new byte[len];
+        for (int i=0; i<len; ++i)
+            bytes[i] = (byte) text.charAt(i);
+        return bytes;
+    }
+
+    /** @param size Number of data bytes
+     *  @return Size of element with tag and padding to 8 bytes
+     */
+    private static long getElementSize(final long size)
+    {
+        return 8 + (size + 7) / 8 * 8;
+    }
+
+    /** @param name_length Length of matrix name
+     *  @return Size of miMATRIX tag, flags, dimensions and name
+     */
+    private static long getHeaderSize(final int name_length)
+    {
+        return 8 + getElementSize(8) + getElementSize(8) + getElementSize(name_length);
+    }
+
+    /** @param length Number of characters
+     *  @return Size of unnamed 1 x length char matrix
+     */
+    private static long getCharMatrixSize(final int length)
+    {
+        return getHeaderSize(NO_NAME.length) + getElementSize(length);
+    }
+
+    /** Write flags, dimensions and name of a matrix, compare MatFileIncrementalWriter */
+    private static void writeMatrixHeader(final DataOutputStream out, final int type,
+                                          final int rows, final int cols, final byte[] name) throws IOException
+    {
+        out.writeInt(MatDataTypes.miUINT32);
+        out.writeInt(8);
+        out.writeInt(type);
+        out.writeInt(0);
+        out.writeInt(MatDataTypes.miUINT32);
+        out.writeInt(8);
+        out.writeInt(rows);
+        out.writeInt(cols);
+        writeElement(out, MatDataTypes.miUTF8, name);
+    }
+
+    /** Write data element with tag and padding */
+    private static void writeElement(final DataOutputStream out, final int type, final byte[] data) throws IOException
+    {
+        writeElement(out, type, data, data.length);
+    }
+
+    private static void writeElement(final DataOutputStream out, final int type, final byte[] data, final int length) throws IOException
+    {
+        out.writeInt(type);
+        out.writeInt(length);
+        out.write(data, 0, length);
+        for (int pad = (int) (getElementSize(length) - 8 - length);  pad > 0;  --pad)
+            out.write(0);
+    }
+
+    private static void writeCharMatrix(final DataOutputStream out, final byte[] text) throws IOException
+    {
+        writeCharMatrix(out, text, text.length);
+    }
+
+    /** Write unnamed 1 x length char matrix */
+    private static void writeCharMatrix(final DataOutputStream out, final byte[] text, final int length) throws IOException
+    {
+        out.writeInt(MatDataTypes.miMATRIX);
+        out.writeInt((int) (getCharMatrixSize(length) - 8));
+        writeMatrixHeader(out, MLArray.mxCHAR_CLASS, 1, length, NO_NAME);
+        writeElement(out, MatDataTypes.miUTF8, text, length);
+    }
+
+    /** Close the file, removing any spooled samples that were not written */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            clear();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+}
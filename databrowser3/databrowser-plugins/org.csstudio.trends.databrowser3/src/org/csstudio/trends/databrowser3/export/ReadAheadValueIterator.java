@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.export;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.diirt.vtype.VType;
+
+/** {@link ValueIterator} that reads ahead in a thread pool
+ *
+ *  <p>Creates the actual iterator and reads samples from it
+ *  in a background task while the caller handles previously read samples.
+ *  Several of these iterators allow fetching the data of several channels
+ *  at the same time.
+ *
+ *  <p>The background task does not wait for the caller:
+ *  When the buffer is full, it ends,
+ *  and a new task is submitted once the caller consumed half of the buffer.
+ *  A thread pool with fewer threads than iterators
+ *  can thus not deadlock when the caller waits for one specific iterator.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ReadAheadValueIterator implements ValueIterator
+{
+    /** Pool for read-ahead tasks */
+    private final ExecutorService pool;
+
+    /** Creates the actual iterator */
+    private final Callable<ValueIterator> creator;
+
+    /** Maximum number of samples to read ahead */
+    private final int capacity;
+
+    /** Samples that have been read ahead. Synchronize on 'this' */
+    private final ArrayDeque<VType> buffer = new ArrayDeque<>();
+
+    /** Actual iterator, <code>null</code> until created by read-ahead task */
+    private ValueIterator iter = null;
+
+    /** Is a read-ahead task submitted or running? Synchronize on 'this' */
+    private boolean reading = false;
+
+    /** Has actual iterator reached its end? Synchronize on 'this' */
+    private boolean done = false;
+
+    /** Error from actual iterator, reported after the samples read before the error */
+    private Exception error = null;
+
+    /** Has the caller closed this iterator? Synchronize on 'this' */
+    private boolean closed = false;
+
+    /** Start reading ahead
+     *  @param creator Creates the actual iterator, will be called in the pool
+     *  @param pool Pool for read-ahead tasks
+     *  @param capacity Maximum number of samples to read ahead
+     */
+    public ReadAheadValueIterator(final Callable<ValueIterator> creator,
+                                  final ExecutorService pool, final int capacity)
+    {
+        this.creator = creator;
+        this.pool = pool;
+        this.capacity = Math.max(1, capacity);
+        synchronized (this)
+        {
+            startReading();
+        }
+    }
+
+    /** Submit read-ahead task. Caller must synchronize on 'this' */
+    private void startReading()
+    {
+        reading = true;
+        pool.submit(this::readAhead);
+    }
+
+    /** Read-ahead task: Read until buffer is full or end of samples */
+    private void readAhead()
+    {
+        try
+        {
+            // Don't create the iterator, which may start an archive request, once closed
+            if (iter == null  &&  ! isClosed())
+                iter = creator.call();
+            while (iter != null)
+            {
+                synchronized (this)
+                {
+                    if (closed  ||  buffer.size() >= capacity)
+                        break;
+                }
+                // Read without holding the lock
+                if (! iter.hasNext())
+                {
+                    synchronized (this)
+                    {
+                        done = true;
+                        notifyAll();
+                    }
+                    break;
+                }
+                final VType value = iter.next();
+                synchronized (this)
+                {
+                    buffer.add(value);
+                    notifyAll();
+                }
+            }
+        }
+        catch (Throwable ex)
+        {
+            synchronized (this)
+            {
+                error = ex instanceof Exception ? (Exception) ex : new Exception(ex);
+                done = true;
+            }
+        }
+        synchronized (this)
+        {
+            reading = false;
+            if (closed  &&  iter != null)
+                iter.close();
+            notifyAll();
+        }
+    }
+
+    /** @return Has the caller closed this iterator? */
+    private synchronized boolean isClosed()
+    {
+        return closed;
+    }
+
+    /** {@inheritDoc}
+     *  <p>Waits for the next sample to be read.
+     *  Returns <code>true</code> when there was an error, which is then thrown by <code>next()</code>.
+     */
+    @Override
+    public synchronized boolean hasNext()
+    {
+        while (buffer.isEmpty()  &&  !done  &&  !closed)
+        {
+            if (! reading)
+                startReading();
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return !buffer.isEmpty()  ||  error != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized VType next() throws Exception
+    {
+        if (! hasNext())
+            throw new Exception("End of samples");
+        if (buffer.isEmpty())
+            throw error;
+        final VType value = buffer.poll();
+        // Read more once half the buffer has been consumed
+        if (!reading  &&  !done  &&  !closed  &&  buffer.size() <= capacity / 2)
+            startReading();
+        return value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close()
+    {
+        if (closed)
+            return;
+        closed = true;
+        buffer.clear();
+        // A running read-ahead task closes the iterator when it ends
+        if (!reading  &&  iter != null)
+            iter.close();
+        notifyAll();
+    }
+}
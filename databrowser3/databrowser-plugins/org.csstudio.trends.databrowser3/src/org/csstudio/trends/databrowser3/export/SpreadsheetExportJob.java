@@ -52,31 +52,38 @@ public class SpreadsheetExportJob extends PlainExportJob
             out.print(Messages.Export_Delimiter + item.getName() + " " + formatter.getHeader());
         out.println();
 
-        // Create speadsheet interpolation
+        // Fetch data for all channels concurrently,
+        // merged by time in the speadsheet interpolation
         final List<ValueIterator> iters = new ArrayList<>();
         for (ModelItem item : model.getItems())
+            iters.add(createReadAheadIterator(item));
+        monitor.subTask(NLS.bind("Fetching data for {0} channels", iters.size()));
+        try
         {
-            monitor.subTask(NLS.bind("Fetching data for {0}", item.getName()));
-            iters.add(createValueIterator(item));
-        }
-        final SpreadsheetIterator sheet = new SpreadsheetIterator(iters.toArray(new ValueIterator[iters.size()]));
-        // Dump the spreadsheet lines
-        long line_count = 0;
+            final SpreadsheetIterator sheet = new SpreadsheetIterator(iters.toArray(new ValueIterator[iters.size()]));
+            // Dump the spreadsheet lines
+            long line_count = 0;
 
-        while (sheet.hasNext()  &&  !monitor.isCanceled())
-        {
-            final Instant time = sheet.getTime();
-            final VType line[] = sheet.next();
-            out.print(TimestampHelper.format(time));
+            while (sheet.hasNext()  &&  !monitor.isCanceled())
+            {
+                final Instant time = sheet.getTime();
+                final VType line[] = sheet.next();
+                out.print(TimestampHelper.format(time));
 
-            for (int i=0; i<line.length; ++i)
-                out.print(Messages.Export_Delimiter + formatter.format(line[i]));
-            out.println();
-            ++line_count;
-            if ((line_count % PROGRESS_UPDATE_LINES) == 0)
-                monitor.subTask(NLS.bind("Wrote {0} samples", line_count));
-            if (monitor.isCanceled())
-                break;
+                for (int i=0; i<line.length; ++i)
+                    out.print(Messages.Export_Delimiter + formatter.format(line[i]));
+                out.println();
+                ++line_count;
+                if ((line_count % PROGRESS_UPDATE_LINES) == 0)
+                    monitor.subTask(NLS.bind("Wrote {0} samples", line_count));
+                if (monitor.isCanceled())
+                    break;
+            }
+        }
+        finally
+        {
+            for (ValueIterator iter : iters)
+                iter.close();
         }
     }
 }
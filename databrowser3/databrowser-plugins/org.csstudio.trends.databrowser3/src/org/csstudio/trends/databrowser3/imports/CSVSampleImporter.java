@@ -10,13 +10,26 @@ package org.csstudio.trends.databrowser3.imports;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -31,12 +44,47 @@ import org.diirt.vtype.VType;
 import org.diirt.vtype.ValueFactory;
 
 /** {@link SampleImporter} for Command (space, tab) separated value file of time, value
+ *
+ *  <p>The input is read in large chunks that end at line boundaries.
+ *  Chunks are parsed in parallel, and their values are then
+ *  combined in the original order.
+ *  Lines of plain time stamp and numbers are parsed directly from the bytes,
+ *  other lines use regular expressions.
+ *
  *  @author Jaka Bobnar - Parse min, max
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 public class CSVSampleImporter implements SampleImporter
 {
+    /** Size of the chunks that are parsed in parallel */
+    final private static int CHUNK_SIZE = 4*1024*1024;
+
+    /** Maximum number of chunks that are parsed or wait to be parsed */
+    final private static int MAX_PENDING_CHUNKS = 2*Runtime.getRuntime().availableProcessors();
+
+    /** Powers of ten that are exact as double */
+    final private static double[] POWERS_OF_TEN = new double[23];
+
+    static
+    {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i=1; i<POWERS_OF_TEN.length; ++i)
+            POWERS_OF_TEN[i] = 10.0 * POWERS_OF_TEN[i-1];
+    }
+
+    //    YYYY-MM-DD HH:MM:SS.SSS   value  ignore
+    // or
+    //    YYYY/MM/DD HH:MM:SS.SSSSSSSSS   value  ignore
+    final private static Pattern pattern = Pattern.compile(
+            "\\s*([0-9][0-9][0-9][0-9][-/][0-9][0-9][-/][0-9][0-9] [0-9][0-9]:[0-9][0-9]:[0-9][0-9]\\.[0-9]*)[ \\t,]+([-+0-9.,eE]+)\\s*.*");
+
+    //    YYYY-MM-DD HH:MM:SS.SSS   value    negativeError    positiveError    ignore
+    // or
+    //    YYYY/MM/DD HH:MM:SS.SSSSSSSSS   value    negativeError    positiveError    ignore
+    final private static Pattern statisticsPattern = Pattern.compile(
+            "\\s*([0-9][0-9][0-9][0-9][-/][0-9][0-9][-/][0-9][0-9] [0-9][0-9]:[0-9][0-9]:[0-9][0-9]\\.[0-9]*)[ \\t,]+([-+0-9.,eE]+)[ \\t,]+([-+0-9.,eE]+)[ \\t,]+([-+0-9.,eE]+)\\s*.*");
+
     final private Logger logger = Logger.getLogger(getClass().getName());
     final private Display meta_data = ValueFactory.displayNone();
 
@@ -44,36 +92,322 @@ public class CSVSampleImporter implements SampleImporter
     @Override
     public List<VType> importValues(final InputStream input) throws Exception
     {
-        // To be reentrant, need per-call parsers
-        final DateFormat date_parser = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-        final Pattern pattern = Pattern.compile(
-                //    YYYY-MM-DD HH:MM:SS.SSS   value  ignore
-                // or
-                //    YYYY/MM/DD HH:MM:SS.SSSSSSSSS   value  ignore
-                "\\s*([0-9][0-9][0-9][0-9][-/][0-9][0-9][-/][0-9][0-9] [0-9][0-9]:[0-9][0-9]:[0-9][0-9]\\.[0-9]*)[ \\t,]+([-+0-9.,eE]+)\\s*.*");
-
-        final Pattern statisticsPattern = Pattern.compile(
-                //    YYYY-MM-DD HH:MM:SS.SSS   value    negativeError    positiveError    ignore
-                // or
-                //    YYYY/MM/DD HH:MM:SS.SSSSSSSSS   value    negativeError    positiveError    ignore
-                "\\s*([0-9][0-9][0-9][0-9][-/][0-9][0-9][-/][0-9][0-9] [0-9][0-9]:[0-9][0-9]:[0-9][0-9]\\.[0-9]*)[ \\t,]+([-+0-9.,eE]+)[ \\t,]+([-+0-9.,eE]+)[ \\t,]+([-+0-9.,eE]+)\\s*.*");
+        try
+        {
+            final Charset charset = Charset.defaultCharset();
+            if (isAsciiCompatible(charset))
+                return importChunks(input, charset);
+            return importLines(input);
+        }
+        finally
+        {
+            input.close();
+        }
+    }
 
+    /** @param charset Character set
+     *  @return <code>true</code> if line ends, time stamps and numbers are plain ASCII bytes
+     */
+    private static boolean isAsciiCompatible(final Charset charset)
+    {
+        final String ascii = "\t\n\r #+-,./0123456789:eE";
+        if (! Arrays.equals(ascii.getBytes(charset), ascii.getBytes(StandardCharsets.US_ASCII)))
+            return false;
+        return charset.equals(StandardCharsets.UTF_8)  ||
+               charset.newEncoder().maxBytesPerChar() == 1;
+    }
 
+    /** Import line by line
+     *  @param input Input stream
+     *  @return Values
+     *  @throws Exception on error
+     */
+    List<VType> importLines(final InputStream input) throws Exception
+    {
         final List<VType> values = new ArrayList<VType>();
-
+        final LineParser parser = new LineParser(Charset.defaultCharset());
         final BufferedReader reader =
                 new BufferedReader(new InputStreamReader(input));
         String line;
-        char groupingSeparator = DecimalFormatSymbols.getInstance().getGroupingSeparator();
-        char decimalSeparator = DecimalFormatSymbols.getInstance().getDecimalSeparator();
-        boolean statistics = true;
         while ((line = reader.readLine()) != null)
+            parser.parse(line, values);
+        reader.close();
+        return values;
+    }
+
+    /** Import chunks of the input in parallel
+     *  @param input Input stream
+     *  @param charset Character set of the input
+     *  @return Values
+     *  @throws Exception on error
+     */
+    private List<VType> importChunks(final InputStream input, final Charset charset) throws Exception
+    {
+        final List<VType> values = new ArrayList<VType>();
+        final Deque<Future<List<VType>>> pending = new ArrayDeque<>();
+        try
+        {
+            byte[] buf = new byte[CHUNK_SIZE];
+            int len = 0;
+            boolean eof = false;
+            while (! eof)
+            {
+                // Fill buffer
+                while (len < buf.length)
+                {
+                    final int got = input.read(buf, len, buf.length - len);
+                    if (got < 0)
+                    {
+                        eof = true;
+                        break;
+                    }
+                    len += got;
+                }
+
+                // Parse complete lines, keep partial last line for next chunk
+                final int end = eof ? len : getLastLineEnd(buf, len);
+                if (end <= 0)
+                {
+                    if (! eof)  // Line longer than buffer
+                        buf = Arrays.copyOf(buf, 2*buf.length);
+                    continue;
+                }
+                final byte[] chunk = buf;
+                pending.add(ForkJoinPool.commonPool().submit(() -> new LineParser(charset).parse(chunk, end)));
+
+                buf = new byte[Math.max(CHUNK_SIZE, 2*(len - end))];
+                System.arraycopy(chunk, end, buf, 0, len - end);
+                len -= end;
+
+                // Limit memory used by chunks that were read ahead
+                if (pending.size() >= MAX_PENDING_CHUNKS)
+                    values.addAll(getChunk(pending.poll()));
+            }
+            while (! pending.isEmpty())
+                values.addAll(getChunk(pending.poll()));
+        }
+        finally
+        {
+            for (Future<List<VType>> chunk : pending)
+                chunk.cancel(true);
+        }
+        return values;
+    }
+
+    /** @param buf Buffer
+     *  @param len Number of valid bytes in buffer
+     *  @return Index after the last line end in buffer, 0 if there is none
+     */
+    private static int getLastLineEnd(final byte[] buf, final int len)
+    {
+        for (int i=len-1; i>=0; --i)
+            if (buf[i] == '\n'  ||  buf[i] == '\r')
+                return i+1;
+        return 0;
+    }
+
+    /** @param chunk Values of parsed chunk
+     *  @return Values
+     *  @throws Exception on error while parsing the chunk
+     */
+    private static List<VType> getChunk(final Future<List<VType>> chunk) throws Exception
+    {
+        try
+        {
+            return chunk.get();
+        }
+        catch (ExecutionException ex)
+        {
+            // Report the original parser error
+            if (ex.getCause() instanceof Exception)
+                throw (Exception) ex.getCause();
+            throw ex;
+        }
+    }
+
+    /** Parser for lines of input, to be used by one thread */
+    private class LineParser
+    {
+        final private Charset charset;
+
+        /** Handle numbers with '.' as decimal separator without regular expressions? */
+        final private boolean plain_numbers;
+
+        final private char groupingSeparator = DecimalFormatSymbols.getInstance().getGroupingSeparator();
+        final private char decimalSeparator = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+
+        /** Time zone used by the date parser */
+        final private ZoneRules zone = TimeZone.getDefault().toZoneId().getRules();
+
+        private DateFormat date_parser = null;
+
+        /** Year, month, day, hour of cached_hour_millis */
+        private long cached_hour = -1;
+
+        /** Epoch millisecs for start of cached_hour, or Long.MIN_VALUE if the hour has a zone offset transition */
+        private long cached_hour_millis;
+
+        LineParser(final Charset charset)
+        {
+            this.charset = charset;
+            plain_numbers = decimalSeparator == '.'  &&  "+-.0123456789eE".indexOf(groupingSeparator) < 0;
+        }
+
+        /** @param buf Buffer with complete lines
+         *  @param end Index after the last line in buffer
+         *  @return Values
+         *  @throws Exception on error
+         */
+        List<VType> parse(final byte[] buf, final int end) throws Exception
+        {
+            final List<VType> values = new ArrayList<VType>();
+            int start = 0;
+            while (start < end)
+            {
+                int eol = start;
+                while (eol < end  &&  buf[eol] != '\n'  &&  buf[eol] != '\r')
+                    ++eol;
+                parse(buf, start, eol, values);
+                start = eol + 1;
+            }
+            return values;
+        }
+
+        /** Parse one line
+         *  @param buf Buffer
+         *  @param start Start of line in buffer
+         *  @param end End of line in buffer
+         *  @param values Values to which the value of the line is added
+         *  @throws Exception on error
+         */
+        private void parse(final byte[] buf, int start, int end, final List<VType> values) throws Exception
+        {
+            // Trim, skip empty lines, comments
+            while (start < end  &&  buf[start] >= 0  &&  buf[start] <= ' ')
+                ++start;
+            while (end > start  &&  buf[end-1] >= 0  &&  buf[end-1] <= ' ')
+                --end;
+            if (start >= end  ||  buf[start] == '#')
+                return;
+            // Only handle lines of plain ASCII without ',' directly
+            boolean plain = plain_numbers;
+            for (int i=start; plain && i<end; ++i)
+                if (buf[i] < 0  ||  buf[i] == ',')
+                    plain = false;
+            if (! (plain  &&  parsePlain(buf, start, end, values)))
+                parse(new String(buf, start, end - start, charset), values);
+        }
+
+        /** Parse line of time stamp and numbers without regular expressions
+         *  @param buf Buffer
+         *  @param start Start of trimmed line in buffer
+         *  @param end End of trimmed line in buffer
+         *  @param values Values to which the value of the line is added
+         *  @return <code>true</code> if line was parsed,
+         *          <code>false</code> if it requires the regular expressions
+         */
+        private boolean parsePlain(final byte[] buf, final int start, final int end, final List<VType> values)
+        {
+            // YYYY-MM-DD HH:MM:SS.SSS, ignoring digits beyond millisecs
+            if (end - start < 23)
+                return false;
+            final int year = getDigits(buf, start, 4);
+            final int month = getDigits(buf, start+5, 2);
+            final int day = getDigits(buf, start+8, 2);
+            final int hour = getDigits(buf, start+11, 2);
+            final int minute = getDigits(buf, start+14, 2);
+            final int second = getDigits(buf, start+17, 2);
+            final int millis = getDigits(buf, start+20, 3);
+            if (year < 1900  ||  month < 1  ||  month > 12  ||  day < 1  ||  day > 31  ||
+                hour < 0  ||  hour > 23  ||  minute < 0  ||  minute > 59  ||
+                second < 0  ||  second > 59  ||  millis < 0  ||
+                (buf[start+4] != '-'  &&  buf[start+4] != '/')  ||
+                (buf[start+7] != '-'  &&  buf[start+7] != '/')  ||
+                buf[start+10] != ' '  ||  buf[start+13] != ':'  ||
+                buf[start+16] != ':'  ||  buf[start+19] != '.')
+                return false;
+            int i = start + 23;
+            while (i < end  &&  buf[i] >= '0'  &&  buf[i] <= '9')
+                ++i;
+            final long hour_millis = getHourMillis(year, month, day, hour);
+            if (hour_millis == Long.MIN_VALUE)
+                return false;
+            final Instant time = TimestampHelper.fromMillisecs(hour_millis + (minute*60 + second)*1000L + millis);
+
+            // value, or value negativeError positiveError
+            if (i >= end  ||  !isSeparator(buf[i]))
+                return false;
+            final int value_start = skipSeparators(buf, i, end);
+            final int value_end = skipNumber(buf, value_start, end);
+            if (value_end <= value_start)
+                return false;
+            final double number = parseNumber(buf, value_start, value_end);
+            if (Double.isNaN(number))
+                return false;
+
+            // Statistics need the value and two more numbers, each followed by separator
+            if (value_end < end  &&  isSeparator(buf[value_end]))
+            {
+                final int min_start = skipSeparators(buf, value_end, end);
+                final int min_end = skipNumber(buf, min_start, end);
+                if (min_end > min_start  &&  min_end < end  &&  isSeparator(buf[min_end]))
+                {
+                    final int max_start = skipSeparators(buf, min_end, end);
+                    final int max_end = skipNumber(buf, max_start, end);
+                    if (max_end > max_start)
+                    {
+                        final double min = parseNumber(buf, min_start, min_end);
+                        final double max = parseNumber(buf, max_start, max_end);
+                        if (Double.isNaN(min)  ||  Double.isNaN(max))
+                            return false;
+                        values.add(new ArchiveVStatistics(time, AlarmSeverity.NONE, "", meta_data, number, number-min, number+max, 0, 1));
+                        return true;
+                    }
+                }
+            }
+            values.add(new ArchiveVNumber(time, AlarmSeverity.NONE, "", meta_data, number));
+            return true;
+        }
+
+        /** Get epoch millisecs for the start of a local hour,
+         *  as the date parser would determine them
+         *  @return Millisecs or Long.MIN_VALUE if the zone offset changes within that hour
+         */
+        private long getHourMillis(final int year, final int month, final int day, final int hour)
+        {
+            final long key = ((year*16L + month)*32L + day)*32L + hour;
+            if (key != cached_hour)
+            {
+                cached_hour = key;
+                cached_hour_millis = Long.MIN_VALUE;
+                if (day <= LocalDateTime.of(year, month, 1, 0, 0).toLocalDate().lengthOfMonth())
+                {
+                    final LocalDateTime local = LocalDateTime.of(year, month, day, hour, 0);
+                    final List<ZoneOffset> offsets = zone.getValidOffsets(local);
+                    if (offsets.size() == 1)
+                    {
+                        final long seconds = local.toEpochSecond(offsets.get(0));
+                        final ZoneOffsetTransition next = zone.nextTransition(Instant.ofEpochSecond(seconds));
+                        if (next == null  ||  next.toEpochSecond() >= seconds + 3600)
+                            cached_hour_millis = seconds * 1000L;
+                    }
+                }
+            }
+            return cached_hour_millis;
+        }
+
+        /** Parse line with regular expressions
+         *  @param line Line of input
+         *  @param values Values to which the value of the line is added
+         *  @throws Exception on error
+         */
+        void parse(String line, final List<VType> values) throws Exception
         {
             line = line.trim();
             // Skip empty lines, comments
             if (line.length() <= 0  ||  line.startsWith("#"))
-                continue;
-            statistics = true;
+                return;
+            boolean statistics = true;
             // Locate time and value
             // Is statistical data?
             Matcher matcher = statisticsPattern.matcher(line);
@@ -84,18 +418,19 @@ public class CSVSampleImporter implements SampleImporter
                 if (! matcher.matches())
                 {
                     logger.log(Level.INFO, "Ignored input: {0}", line);
-                    continue;
+                    return;
                 }
                 statistics = false;
             }
 
-
             // Parse
             // Date may use '-' or '/' as separator. Force '-'
             String date_text = matcher.group(1).replace('/', '-');
             // Can only parse up to millisecs, so limit length
             if (date_text.length() > 23)
                 date_text = date_text.substring(0, 23);
+            if (date_parser == null)
+                date_parser = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
             final Date date = date_parser.parse(date_text);
             //Double.parseDouble only parses numbers in format #.#... or #.#...#E0, meaning
             //that you cannot have any grouping separators, and the decimal separator must be '.'
@@ -113,9 +448,136 @@ public class CSVSampleImporter implements SampleImporter
                 values.add(new ArchiveVNumber(time, AlarmSeverity.NONE, "", meta_data, number));
             }
         }
-        reader.close();
+    }
 
-        return values;
+    /** @param buf Buffer
+     *  @param start Start of digits
+     *  @param count Number of digits
+     *  @return Value of digits, -1 if there is a non-digit
+     */
+    private static int getDigits(final byte[] buf, final int start, final int count)
+    {
+        int value = 0;
+        for (int i=start; i<start+count; ++i)
+        {
+            final int digit = buf[i] - '0';
+            if (digit < 0  ||  digit > 9)
+                return -1;
+            value = value*10 + digit;
+        }
+        return value;
+    }
+
+    /** @return <code>true</code> for space, tab */
+    private static boolean isSeparator(final byte c)
+    {
+        return c == ' '  ||  c == '\t';
+    }
+
+    /** @return Index of first non-separator */
+    private static int skipSeparators(final byte[] buf, int i, final int end)
+    {
+        while (i < end  &&  isSeparator(buf[i]))
+            ++i;
+        return i;
+    }
+
+    /** @return Index of first character that can't be part of a number */
+    private static int skipNumber(final byte[] buf, int i, final int end)
+    {
+        while (i < end)
+        {
+            final byte c = buf[i];
+            if ((c >= '0'  &&  c <= '9')  ||  c == '.'  ||  c == '-'  ||  c == '+'  ||  c == 'e'  ||  c == 'E')
+                ++i;
+            else
+                break;
+        }
+        return i;
+    }
+
+    /** Parse number like Double.parseDouble
+     *
+     *  <p>Numbers of up to 15 digits with small exponents are
+     *  computed directly, which is exact since both the digits
+     *  and the power of ten are exact as double.
+     *  Other numbers use Double.parseDouble.
+     *
+     *  @param buf Buffer
+     *  @param start Start of number
+     *  @param end End of number
+     *  @return Number or {@link Double#NaN} if the text is not a valid number
+     */
+    private static double parseNumber(final byte[] buf, final int start, final int end)
+    {
+        int i = start;
+        boolean negative = false;
+        if (buf[i] == '-'  ||  buf[i] == '+')
+            negative = buf[i++] == '-';
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean any_digits = false, exact = true;
+        // Integer part
+        for (;  i < end  &&  buf[i] >= '0'  &&  buf[i] <= '9';  ++i)
+        {
+            any_digits = true;
+            if (digits < 18)
+            {
+                mantissa = mantissa*10 + (buf[i] - '0');
+                if (mantissa > 0)
+                    ++digits;
+            }
+            else
+            {
+                exact = false;
+                ++exponent;
+            }
+        }
+        // Fraction
+        if (i < end  &&  buf[i] == '.')
+            for (++i;  i < end  &&  buf[i] >= '0'  &&  buf[i] <= '9';  ++i)
+            {
+                any_digits = true;
+                if (digits < 18)
+                {
+                    mantissa = mantissa*10 + (buf[i] - '0');
+                    if (mantissa > 0)
+                        ++digits;
+                    --exponent;
+                }
+                else
+                    exact = false;
+            }
+        if (! any_digits)
+            return Double.NaN;
+        // Exponent
+        if (i < end  &&  (buf[i] == 'e'  ||  buf[i] == 'E'))
+        {
+            ++i;
+            boolean negative_exponent = false;
+            if (i < end  &&  (buf[i] == '-'  ||  buf[i] == '+'))
+                negative_exponent = buf[i++] == '-';
+            if (i >= end)
+                return Double.NaN;
+            int value = 0;
+            for (;  i < end  &&  buf[i] >= '0'  &&  buf[i] <= '9';  ++i)
+                if (value < 100000)
+                    value = value*10 + (buf[i] - '0');
+            exponent += negative_exponent ? -value : value;
+        }
+        if (i != end)
+            return Double.NaN;
+
+        if (mantissa == 0)
+            return negative ? -0.0 : 0.0;
+        if (exact  &&  digits <= 15  &&  exponent >= -22  &&  exponent <= 22)
+        {
+            final double number = exponent < 0
+                                ? mantissa / POWERS_OF_TEN[-exponent]
+                                : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -number : number;
+        }
+        return Double.parseDouble(new String(buf, start, end - start, StandardCharsets.US_ASCII));
     }
 
     /**
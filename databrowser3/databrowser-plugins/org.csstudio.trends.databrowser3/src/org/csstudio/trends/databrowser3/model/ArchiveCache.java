@@ -0,0 +1,544 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.trends.databrowser3.preferences.Preferences;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+
+/** Cache of archived samples for one {@link PVItem}
+ *
+ *  <p>Keeps the samples received from each archive data source
+ *  in sections of time ranges, separately for raw data and each
+ *  resolution of optimized data.
+ *  For each section, levels of min/max/average buckets are computed,
+ *  where each level uses twice the bucket width of the previous one.
+ *
+ *  <p>Requests for time ranges that are covered by a section are served
+ *  from the cache, aggregated to the requested resolution.
+ *  When a section covers only the start or end of a requested range,
+ *  just the remaining time range needs to be fetched from the archive.
+ *
+ *  <p>Recent data is not cached because the archive might still
+ *  be missing samples that have not been written, yet.
+ *
+ *  @author Kay Kasemir
+ */
+public class ArchiveCache
+{
+    /** Time before 'now' in nanoseconds where archived data is considered complete */
+    private static final long HOLDOFF_NANOS = 60L * 1000000000L;
+
+    /** Minimum bucket width in nanoseconds */
+    private static final long MIN_BUCKET_WIDTH = 1000000L;
+
+    /** Levels are computed until they reach this number of buckets */
+    private static final int MIN_BUCKETS = 100;
+
+    /** Tolerance for treating optimized data as the same resolution */
+    private static final double RESOLUTION_TOLERANCE = 1.25;
+
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+
+    private static final AtomicInteger INDEX_0 = new AtomicInteger(0);
+
+    /** Min/max/average of samples in buckets of a fixed width */
+    private static class Level
+    {
+        final long width;
+        int size = 0;
+        long[] buckets, first, last;
+        double[] sum, sumsq, min, max;
+        int[] count;
+        byte[] severity;
+
+        Level(final long width, final int capacity)
+        {
+            this.width = width;
+            buckets = new long[capacity];
+            first = new long[capacity];
+            last = new long[capacity];
+            sum = new double[capacity];
+            sumsq = new double[capacity];
+            min = new double[capacity];
+            max = new double[capacity];
+            count = new int[capacity];
+            severity = new byte[capacity];
+        }
+
+        /** Add data to the bucket for a time range.
+         *  Time range must not be before previously added data.
+         */
+        void add(final long time_first, final long time_last, final double add_sum, final double add_sumsq,
+                 final double add_min, final double add_max, final int add_count, final int add_severity)
+        {
+            final long bucket = Math.floorDiv(time_first, width);
+            if (size > 0  &&  buckets[size-1] == bucket)
+            {
+                final int i = size-1;
+                last[i] = time_last;
+                sum[i] += add_sum;
+                sumsq[i] += add_sumsq;
+                min[i] = Math.min(min[i], add_min);
+                max[i] = Math.max(max[i], add_max);
+                count[i] += add_count;
+                severity[i] = (byte) Math.max(severity[i], add_severity);
+                return;
+            }
+            final int i = size++;
+            buckets[i] = bucket;
+            first[i] = time_first;
+            last[i] = time_last;
+            sum[i] = add_sum;
+            sumsq[i] = add_sumsq;
+            min[i] = add_min;
+            max[i] = add_max;
+            count[i] = add_count;
+            severity[i] = (byte) add_severity;
+        }
+
+        /** @return Level with twice the bucket width */
+        Level reduce()
+        {
+            final Level result = new Level(2*width, size);
+            for (int i=0; i<size; ++i)
+                result.add(first[i], last[i], sum[i], sumsq[i], min[i], max[i], count[i], severity[i]);
+            return result;
+        }
+
+        /** @return Index of the first bucket at or after time */
+        int find(final long time)
+        {
+            final long bucket = Math.floorDiv(time, width);
+            int low = 0, high = size - 1;
+            while (low <= high)
+            {
+                final int mid = (low + high) >>> 1;
+                if (buckets[mid] < bucket)
+                    low = mid + 1;
+                else
+                    high = mid - 1;
+            }
+            return low;
+        }
+
+        /** @return Statistics for a bucket */
+        VType get(final int i, final Display display)
+        {
+            final int n = count[i];
+            final double mean = sum[i] / n;
+            final double stddev = Math.sqrt(Math.max(0.0, sumsq[i] / n - mean*mean));
+            // Time stamp in the middle of the samples within the bucket
+            final long time = first[i] + (last[i] - first[i]) / 2;
+            return new ArchiveVStatistics(SampleColumns.toInstant(time), SEVERITIES[severity[i]], "", //$NON-NLS-1$
+                                          display, mean, min[i], max[i], stddev, n);
+        }
+    }
+
+    /** Samples for one time range */
+    private static class Section
+    {
+        /** Resolution of optimized data in nanoseconds, 0 for raw data */
+        final long resolution;
+
+        /** Covered time range, epoch nanoseconds */
+        final long start, end;
+
+        /** Name of the archive server */
+        final String server;
+
+        final SampleColumns samples;
+
+        /** Levels with increasing bucket width, empty if samples cannot be aggregated */
+        final List<Level> levels = new ArrayList<>();
+
+        /** Display info for aggregated samples */
+        Display display = ValueFactory.displayNone();
+
+        /** Counter of last access, used to remove the least recently used sections */
+        long access;
+
+        Section(final long resolution, final long start, final long end,
+                final String server, final SampleColumns samples)
+        {
+            this.resolution = resolution;
+            this.start = start;
+            this.end = end;
+            this.server = server;
+            this.samples = samples;
+            computeLevels();
+        }
+
+        private void computeLevels()
+        {
+            final int N = samples.size();
+            if (N <= 0)
+                return;
+            // Bucket width that results in about one sample per bucket
+            final long span = samples.getTime(N-1) - samples.getTime(0);
+            long width = MIN_BUCKET_WIDTH;
+            while (width < span / N)
+                width *= 2;
+            Level level = new Level(width, N);
+            for (int i=0; i<N; ++i)
+            {
+                final double value = samples.getValue(i);
+                // Cannot aggregate strings, disconnected samples, ...
+                if (! Double.isFinite(value))
+                    return;
+                final long time = samples.getTime(i);
+                final int severity = samples.getSeverity(i).ordinal();
+                final int n = samples.getCount(i);
+                if (n > 0)
+                {
+                    final double stddev = samples.getStdDev(i);
+                    level.add(time, time, n*value, n*(stddev*stddev + value*value),
+                              samples.getMinimum(i), samples.getMaximum(i), n, severity);
+                }
+                else
+                    level.add(time, time, value, value*value, value, value, 1, severity);
+            }
+            final Display sample_display = samples.getDisplay(0);
+            if (sample_display != null)
+                display = sample_display;
+            levels.add(level);
+            while (level.size > MIN_BUCKETS)
+            {
+                level = level.reduce();
+                levels.add(level);
+            }
+        }
+
+        /** @param requested Requested resolution, 0 for raw data
+         *  @return <code>true</code> if this section can serve the request
+         */
+        boolean canServe(final long requested)
+        {
+            if (requested == 0)
+                return resolution == 0;
+            return resolution <= requested * RESOLUTION_TOLERANCE;
+        }
+
+        /** @param other Other section
+         *  @return <code>true</code> if sections can be combined
+         */
+        boolean canCombine(final Section other)
+        {
+            if ((resolution == 0) != (other.resolution == 0))
+                return false;
+            if (resolution > 0  &&
+                (double) Math.max(resolution, other.resolution) / Math.min(resolution, other.resolution) > RESOLUTION_TOLERANCE)
+                return false;
+            return start <= other.end  &&  other.start <= end;
+        }
+
+        /** @param from Start time, epoch nanoseconds
+         *  @param to End time, epoch nanoseconds
+         *  @param requested Requested resolution, 0 for raw data
+         *  @return Samples for the time range
+         */
+        List<VType> get(final long from, final long to, final long requested)
+        {
+            final List<VType> result = new ArrayList<>();
+            // Use the coarsest level that still has the requested resolution
+            Level level = null;
+            if (requested > 0)
+                for (Level l : levels)
+                    if (l.width <= requested  &&  l.width > 2*resolution)
+                        level = l;
+            if (level != null)
+            {
+                for (int i=level.find(from);  i<level.size  &&  level.buckets[i] <= Math.floorDiv(to, level.width);  ++i)
+                    result.add(level.get(i, display));
+                return result;
+            }
+            // Include the sample before the start, as received from the archive
+            final int first = Math.max(0, samples.findSampleLessThan(from));
+            int last = samples.findSampleGreaterThan(to);
+            if (last < 0)
+                last = samples.size();
+            for (int i=first; i<last; ++i)
+                result.add(samples.get(i, INDEX_0).getVType());
+            return result;
+        }
+    }
+
+    /** Result of looking up samples in the cache */
+    public static class Lookup
+    {
+        private final String server;
+        private final List<VType> samples;
+        private final Instant fetch_start, fetch_end;
+
+        Lookup(final String server, final List<VType> samples, final Instant fetch_start, final Instant fetch_end)
+        {
+            this.server = server;
+            this.samples = samples;
+            this.fetch_start = fetch_start;
+            this.fetch_end = fetch_end;
+        }
+
+        /** @return Name of archive server that originally provided the samples */
+        public String getServerName()
+        {
+            return server;
+        }
+
+        /** @return Samples from the cache */
+        public List<VType> getSamples()
+        {
+            return samples;
+        }
+
+        /** @return <code>true</code> if the complete request was served from the cache */
+        public boolean isComplete()
+        {
+            return fetch_start == null;
+        }
+
+        /** @return Start of time range that still needs to be fetched */
+        public Instant getFetchStart()
+        {
+            return fetch_start;
+        }
+
+        /** @return End of time range that still needs to be fetched */
+        public Instant getFetchEnd()
+        {
+            return fetch_end;
+        }
+    }
+
+    /** Collects samples received from the archive for the cache */
+    public class Writer
+    {
+        private final ArchiveDataSource archive;
+        private final long resolution, start, end;
+        private final String server;
+        private SampleColumns samples;
+
+        Writer(final ArchiveDataSource archive, final long resolution, final long start, final long end,
+               final String server)
+        {
+            this.archive = archive;
+            this.resolution = resolution;
+            this.start = start;
+            this.end = end;
+            this.server = server;
+            samples = new SampleColumns(max_samples);
+        }
+
+        /** @param value Sample received from the archive */
+        public void add(final VType value)
+        {
+            if (samples == null)
+                return;
+            if (samples.size() >= max_samples)
+            {   // Too much data for the cache
+                samples = null;
+                return;
+            }
+            samples.add(server, value, null);
+        }
+
+        /** Add the collected samples to the cache.
+         *  Only call when all samples for the time range have been received.
+         */
+        public void close()
+        {
+            if (samples == null)
+                return;
+            // Only cache data that the archive should have completely written
+            final long cache_end = Math.min(end, SampleColumns.toNanos(Instant.now()) - HOLDOFF_NANOS);
+            if (cache_end > start)
+                ArchiveCache.this.add(archive, new Section(resolution, start, cache_end, server, samples));
+            samples = null;
+        }
+    }
+
+    /** Maximum number of samples to keep */
+    private final int max_samples;
+
+    /** Sections for each archive data source.
+     *  Synchronize on 'this'.
+     */
+    private final Map<ArchiveDataSource, List<Section>> sections = new HashMap<>();
+
+    /** Total number of samples in all sections */
+    private int size = 0;
+
+    /** Counter for section access */
+    private long access = 0;
+
+    /** Create cache with size from preferences */
+    public ArchiveCache()
+    {
+        this(Preferences.getArchiveCacheSize());
+    }
+
+    /** @param max_samples Maximum number of samples to keep, 0 to disable */
+    public ArchiveCache(final int max_samples)
+    {
+        this.max_samples = max_samples;
+    }
+
+    /** @param start Start time
+     *  @param end End time
+     *  @param bins Number of bins for optimized data, 0 for raw data
+     *  @return Resolution in nanoseconds, 0 for raw data
+     */
+    private static long getResolution(final Instant start, final Instant end, final int bins)
+    {
+        if (bins <= 0)
+            return 0;
+        return Math.max(1, (SampleColumns.toNanos(end) - SampleColumns.toNanos(start)) / bins);
+    }
+
+    /** Look for cached samples
+     *  @param archive Archive data source
+     *  @param start Start time
+     *  @param end End time
+     *  @param bins Number of bins for optimized data, 0 for raw data
+     *  @return Cached samples, or <code>null</code> if nothing can be served from the cache
+     */
+    public synchronized Lookup lookup(final ArchiveDataSource archive, final Instant start, final Instant end, final int bins)
+    {
+        final List<Section> candidates = sections.get(archive);
+        if (candidates == null)
+            return null;
+        final long requested = getResolution(start, end, bins);
+        final long from = SampleColumns.toNanos(start), to = SampleColumns.toNanos(end);
+
+        // Find section that covers the most of the requested range
+        // and either the start or end
+        Section best = null;
+        long best_coverage = 0;
+        for (Section section : candidates)
+        {
+            if (! section.canServe(requested))
+                continue;
+            if (section.start > from  &&  section.end < to)
+                continue;
+            final long coverage = Math.min(to, section.end) - Math.max(from, section.start);
+            if (coverage > best_coverage  ||
+                (coverage == best_coverage  &&  best != null  &&  section.resolution > best.resolution))
+            {
+                best = section;
+                best_coverage = coverage;
+            }
+        }
+        if (best == null)
+            return null;
+        best.access = ++access;
+
+        final List<VType> samples = best.get(Math.max(from, best.start), Math.min(to, best.end), requested);
+        if (best.start <= from  &&  best.end >= to)
+            return new Lookup(best.server, samples, null, null);
+        if (best.start <= from)
+            return new Lookup(best.server, samples, SampleColumns.toInstant(best.end), end);
+        return new Lookup(best.server, samples, start, SampleColumns.toInstant(best.start));
+    }
+
+    /** Start collecting samples for the cache
+     *  @param archive Archive data source
+     *  @param start Start time of the request
+     *  @param end End time of the request
+     *  @param bins Number of bins for optimized data, 0 for raw data
+     *  @param server Name of archive server
+     *  @return {@link Writer} for the received samples
+     */
+    public Writer createWriter(final ArchiveDataSource archive, final Instant start, final Instant end, final int bins,
+                               final String server)
+    {
+        return new Writer(archive, getResolution(start, end, bins),
+                          SampleColumns.toNanos(start), SampleColumns.toNanos(end), server);
+    }
+
+    /** @param archive Archive data source
+     *  @param section Section to add, combining it with existing sections
+     */
+    private synchronized void add(final ArchiveDataSource archive, Section section)
+    {
+        final List<Section> list = sections.computeIfAbsent(archive, a -> new ArrayList<>());
+        // Combine with overlapping sections of same resolution,
+        // where the new samples replace the old ones
+        for (Iterator<Section> iter = list.iterator();  iter.hasNext();  /**/)
+        {
+            final Section old = iter.next();
+            if (! old.canCombine(section))
+                continue;
+            iter.remove();
+            size -= old.samples.size();
+            section = new Section(Math.max(old.resolution, section.resolution),
+                                  Math.min(old.start, section.start), Math.max(old.end, section.end),
+                                  section.server, SampleColumns.merge(old.samples, section.samples));
+        }
+        if (section.samples.size() > max_samples)
+            return;
+        section.access = ++access;
+        list.add(section);
+        size += section.samples.size();
+
+        // Remove least recently used sections
+        while (size > max_samples)
+        {
+            List<Section> oldest_list = null;
+            Section oldest = null;
+            for (List<Section> l : sections.values())
+                for (Section s : l)
+                    if (oldest == null  ||  s.access < oldest.access)
+                    {
+                        oldest_list = l;
+                        oldest = s;
+                    }
+            oldest_list.remove(oldest);
+            size -= oldest.samples.size();
+        }
+    }
+
+    /** @return Number of cached samples */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /** @return Debug representation of cached sections */
+    @Override
+    public synchronized String toString()
+    {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("Archive cache, ").append(size).append(" samples"); //$NON-NLS-1$ //$NON-NLS-2$
+        for (Map.Entry<ArchiveDataSource, List<Section>> entry : sections.entrySet())
+            for (Section section : entry.getValue())
+                buf.append("\n").append(entry.getKey().getName()) //$NON-NLS-1$
+                   .append(": ").append(SampleColumns.toInstant(section.start)) //$NON-NLS-1$
+                   .append(" - ").append(SampleColumns.toInstant(section.end)) //$NON-NLS-1$
+                   .append(section.resolution == 0 ? ", raw" : ", resolution " + section.resolution + " ns") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                   .append(", ").append(section.samples.size()).append(" samples, ") //$NON-NLS-1$ //$NON-NLS-2$
+                   .append(section.levels.size()).append(" levels"); //$NON-NLS-1$
+        return buf.toString();
+    }
+
+    /** Remove all cached samples */
+    public synchronized void clear()
+    {
+        sections.clear();
+        size = 0;
+    }
+}
@@ -12,7 +12,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.csstudio.javafx.rtplot.data.TimeDataSearch;
+import org.csstudio.javafx.rtplot.data.PrimitivePlotDataProvider;
+import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.VType;
 
 /** Holder for 'historic' samples.
@@ -32,27 +33,12 @@ import org.diirt.vtype.VType;
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed HistoricSamples to handle waveform index.
  */
-public class HistoricSamples extends PlotSamples
+public class HistoricSamples extends PlotSamples implements PrimitivePlotDataProvider<Instant>
 {
-    private class HistoricSampleAccess extends PlotSamples
-    {
-        @Override
-        public int size()
-        {
-            return samples.length;
-        }
-
-        @Override
-        public PlotSample get(int index)
-        {
-            return samples[index];
-        }
-    };
-
     // No locking in here, all access is via PVSamples
 
     /** "All" historic samples */
-    private PlotSample samples[] = new PlotSample[0];
+    private SampleColumns samples = new SampleColumns(0);
 
     /** If set, samples beyond this time are hidden from access */
     private Optional<Instant> border_time = Optional.empty();
@@ -65,8 +51,6 @@ public class HistoricSamples extends PlotSamples
     /** Waveform index */
     final private AtomicInteger waveform_index;
 
-    final private TimeDataSearch searcher = new TimeDataSearch();
-
     HistoricSamples(final AtomicInteger waveform_index)
     {
         this.waveform_index = waveform_index;
@@ -90,11 +74,11 @@ public class HistoricSamples extends PlotSamples
     {
         if (border_time.isPresent())
         {
-            final int last_index = searcher.findSampleLessThan(new HistoricSampleAccess(), border_time.get());
+            final int last_index = samples.findSampleLessThan(SampleColumns.toNanos(border_time.get()));
             visible_size = (last_index < 0)   ?   0   :   last_index + 1;
         }
         else
-            visible_size = samples.length;
+            visible_size = samples.size();
     }
 
     /** {@inheritDoc} */
@@ -104,7 +88,7 @@ public class HistoricSamples extends PlotSamples
     {
         if (i >= visible_size)
             throw new IndexOutOfBoundsException("Index " + i + " exceeds visible size " + visible_size);
-        return samples[i];
+        return samples.get(i, waveform_index);
     }
 
     /** {@inheritDoc} */
@@ -114,11 +98,46 @@ public class HistoricSamples extends PlotSamples
         return visible_size;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public double getPositionValue(final int i)
+    {
+        return samples.getPositionValue(i);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getValue(final int i)
+    {
+        return samples.getPlotValue(i, waveform_index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getStdDev(final int i)
+    {
+        return samples.getPlotStdDev(i, waveform_index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMin(final int i)
+    {
+        return samples.getPlotMinimum(i, waveform_index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMax(final int i)
+    {
+        return samples.getPlotMaximum(i, waveform_index);
+    }
+
     /**
      * @return the number of samples, ignoring the border time
      */
     public int getRawSize() {
-        return samples.length;
+        return samples.size();
     }
 
     /**
@@ -128,7 +147,15 @@ public class HistoricSamples extends PlotSamples
      * @return the plot sample
      */
     public PlotSample getRawSample(int i) {
-        return samples[i];
+        return samples.get(i, waveform_index);
+    }
+
+    /** @param i Sample index
+     *  @return Alarm severity of the sample
+     */
+    AlarmSeverity getSeverity(final int i)
+    {
+        return samples.getSeverity(i);
     }
 
     /** Merge newly received archive data into historic samples
@@ -136,19 +163,32 @@ public class HistoricSamples extends PlotSamples
      *  @param result Samples to add/merge
      */
     public void mergeArchivedData(final String source, final List<VType> result)
+    {
+        mergeArchivedData(source, null, null, result);
+    }
+
+    /** Merge newly received archive data into historic samples
+     *  @param source Info about data source
+     *  @param start Start of time range where existing samples are removed, or <code>null</code>
+     *  @param end End of that time range
+     *  @param result Samples to add/merge
+     */
+    public void mergeArchivedData(final String source, final Instant start, final Instant end,
+                                  final List<VType> result)
     {
         // Anything new at all?
         if (result.size() <= 0)
             return;
-        // Turn IValues into PlotSamples
-        final PlotSample new_samples[] = new PlotSample[result.size()];
-        for (int i=0; i<new_samples.length; ++i)
-            new_samples[i] = new PlotSample(waveform_index, source, result.get(i));
+        // Remove older samples of the time range once,
+        // so following chunks are added without moving them
+        if (start != null)
+            samples.remove(SampleColumns.toNanos(start), SampleColumns.toNanos(end));
+        // Turn IValues into sample columns
+        final SampleColumns new_samples = new SampleColumns(result.size());
+        for (VType value : result)
+            new_samples.add(source, value, null);
         // Merge with existing samples
-        final PlotSample merged[] = PlotSampleMerger.merge(samples, new_samples);
-        if (merged == samples)
-            return;
-        samples = merged;
+        samples = SampleColumns.merge(samples, new_samples);
         have_new_samples.set(true);
         computeVisibleSize();
     }
@@ -157,6 +197,6 @@ public class HistoricSamples extends PlotSamples
     public void clear()
     {
         visible_size = 0;
-        samples = new PlotSample[0];
+        samples = new SampleColumns(0);
     }
 }
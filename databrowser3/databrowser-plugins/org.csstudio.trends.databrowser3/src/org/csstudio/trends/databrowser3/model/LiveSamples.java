@@ -7,24 +7,27 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser3.model;
 
+import java.time.Instant;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.csstudio.apputil.ringbuffer.RingBuffer;
+import org.csstudio.javafx.rtplot.data.PrimitivePlotDataProvider;
 import org.csstudio.trends.databrowser3.preferences.Preferences;
+import org.diirt.vtype.AlarmSeverity;
 
 /** Ring buffer for 'live' samples.
  *  <p>
- *  New samples are always added to the end of a ring buffer.
+ *  New samples are always added to the end of a ring buffer,
+ *  which keeps them in {@link SampleColumns}.
  *
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed LiveSamples to handle waveform index.
  */
-public class LiveSamples extends PlotSamples
+public class LiveSamples extends PlotSamples implements PrimitivePlotDataProvider<Instant>
 {
     // No locking in here, all access is via PVSamples
 
-    private RingBuffer<PlotSample> samples =
-        new RingBuffer<PlotSample>(Preferences.getLiveSampleBufferSize());
+    final private SampleColumns samples =
+        new SampleColumns(Preferences.getLiveSampleBufferSize());
 
     /** Waveform index */
     final private AtomicInteger waveform_index;
@@ -56,8 +59,7 @@ public class LiveSamples extends PlotSamples
     /** @param sample Sample to add to ring buffer */
     void add(final PlotSample sample)
     {
-        sample.setWaveformIndex(waveform_index);
-        samples.add(sample);
+        samples.add(sample.getSource(), sample.getVType(), sample.getInfo());
         have_new_samples.set(true);
     }
 
@@ -70,7 +72,45 @@ public class LiveSamples extends PlotSamples
     @Override
     public PlotSample get(final int i)
     {
-        return samples.get(i);
+        return samples.get(i, waveform_index);
+    }
+
+    @Override
+    public double getPositionValue(final int i)
+    {
+        return samples.getPositionValue(i);
+    }
+
+    @Override
+    public double getValue(final int i)
+    {
+        return samples.getPlotValue(i, waveform_index);
+    }
+
+    @Override
+    public double getStdDev(final int i)
+    {
+        return samples.getPlotStdDev(i, waveform_index);
+    }
+
+    @Override
+    public double getMin(final int i)
+    {
+        return samples.getPlotMinimum(i, waveform_index);
+    }
+
+    @Override
+    public double getMax(final int i)
+    {
+        return samples.getPlotMaximum(i, waveform_index);
+    }
+
+    /** @param i Sample index
+     *  @return Alarm severity of the sample
+     */
+    AlarmSeverity getSeverity(final int i)
+    {
+        return samples.getSeverity(i);
     }
 
     /** Delete all samples */
@@ -8,6 +8,7 @@
 package org.csstudio.trends.databrowser3.model;
 
 import java.io.PrintWriter;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executors;
@@ -55,6 +56,9 @@ public class PVItem extends ModelItem
     /** Historic and 'live' samples for this PV */
     private PVSamples samples = new PVSamples(waveform_index);
 
+    /** Cache of archived data for this PV */
+    final private ArchiveCache archive_cache = new ArchiveCache();
+
     /** Where to get archived data for this item. */
     private ArrayList<ArchiveDataSource> archives
     = new ArrayList<ArchiveDataSource>();
@@ -158,6 +162,7 @@ public class PVItem extends ModelItem
         if (running)
             stop();
         samples.clear();
+        archive_cache.clear();
         // Create new PV, maybe start it
         if (running)
             start();
@@ -225,10 +230,17 @@ public class PVItem extends ModelItem
         return archives.toArray(new ArchiveDataSource[archives.size()]);
     }
 
+    /** @return Cache of archived data */
+    public ArchiveCache getArchiveCache()
+    {
+        return archive_cache;
+    }
+
     /** Replace archives with settings from preferences */
     public void useDefaultArchiveDataSources()
     {
         archives.clear();
+        archive_cache.clear();
         for (ArchiveDataSource arch : Preferences.getArchives())
             archives.add(arch);
         fireItemDataConfigChanged();
@@ -274,7 +286,10 @@ public class PVItem extends ModelItem
     public void removeArchiveDataSource(final ArchiveDataSource archive)
     {
         if (archives.remove(archive))
+        {
+            archive_cache.clear();
             fireItemDataConfigChanged();
+        }
     }
 
     /** @param archive Archives to remove as a source from this item. Ignored when not used. */
@@ -285,7 +300,10 @@ public class PVItem extends ModelItem
             if (archives.remove(archive))
                 change = true;
         if (change)
+        {
+            archive_cache.clear();
             fireItemDataConfigChanged();
+        }
     }
 
     /** Replace existing archive data sources with given archives
@@ -308,6 +326,7 @@ public class PVItem extends ModelItem
         }
         // Different archives
         archives.clear();
+        archive_cache.clear();
         for (ArchiveDataSource arch : archs)
             archives.add(arch);
         fireItemDataConfigChanged();
@@ -425,13 +444,29 @@ public class PVItem extends ModelItem
      */
     public void mergeArchivedSamples(final String server_name,
             final List<VType> new_samples)
+    {
+        mergeArchivedSamples(server_name, null, null, new_samples);
+    }
+
+    /** Add data retrieved from an archive to the 'historic' section
+     *
+     *  <p>Called with the first chunk of a fetch to remove
+     *  historic samples of an earlier fetch in the fetched time range.
+     *
+     *  @param server_name Archive server that provided these samples
+     *  @param start Start of time range where existing historic samples are removed, or <code>null</code>
+     *  @param end End of that time range
+     *  @param new_samples Historic data
+     */
+    public void mergeArchivedSamples(final String server_name, final Instant start, final Instant end,
+            final List<VType> new_samples)
     {
         final boolean need_refresh;
         if (! samples.lockForWriting())
             return;
         try
         {
-            samples.mergeArchivedData(server_name, new_samples);
+            samples.mergeArchivedData(server_name, start, end, new_samples);
             need_refresh = automaticRefresh && model.isPresent() &&
                     samples.isHistoryRefreshNeeded(model.get().getStartTime(), model.get().getEndTime());
         }
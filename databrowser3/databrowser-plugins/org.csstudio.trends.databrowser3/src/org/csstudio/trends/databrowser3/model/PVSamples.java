@@ -18,6 +18,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.javafx.rtplot.data.PrimitivePlotDataProvider;
 import org.csstudio.trends.databrowser3.Messages;
 import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.VType;
@@ -33,11 +34,14 @@ import org.diirt.vtype.ValueUtil;
  *  extended to 'now' assuming no new data means
  *  that the last value is still valid.
  *
+ *  The plot reads position and value of the samples
+ *  as primitives, without creating {@link PlotSample}s.
+ *
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed PVSamples to handle waveform index.
  */
 @SuppressWarnings("nls")
-public class PVSamples extends PlotSamples
+public class PVSamples extends PlotSamples implements PrimitivePlotDataProvider<Instant>
 {
     /* history and live are each PlotSamples, i.e. they
      * have a read/write lock, but those are never used.
@@ -88,8 +92,7 @@ public class PVSamples extends PlotSamples
         final int raw = getRawSize();
         if (raw <= 0)
             return raw;
-        final PlotSample last = get(raw-1);
-        if (VTypeHelper.getSeverity(last.getVType()) == AlarmSeverity.UNDEFINED)
+        if (getRawSeverity(raw-1) == AlarmSeverity.UNDEFINED)
             return raw;
         // Last sample is valid, so it should still apply 'now'
         return raw+1;
@@ -132,6 +135,84 @@ public class PVSamples extends PlotSamples
         return live.get(index - num_old);
     }
 
+    /** @param index 0... getSize()-1
+     *  @return Index of the 'raw' sample, where the continuation to 'now' uses the last sample
+     */
+    private int getRawIndex(final int index)
+    {
+        return Math.min(index, getRawSize()-1);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getPositionValue(final int index)
+    {
+        final int raw = getRawIndex(index);
+        final int num_old = history.size();
+        final double position = raw < num_old
+                              ? history.getPositionValue(raw)
+                              : live.getPositionValue(raw - num_old);
+        if (raw == index)
+            return position;
+        // Last sample is valid, so it should still apply 'now'
+        return Math.max(position, PrimitivePlotDataProvider.toPositionValue(Instant.now()));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getValue(final int index)
+    {
+        final int raw = getRawIndex(index);
+        final int num_old = history.size();
+        if (raw < num_old)
+            return history.getValue(raw);
+        return live.getValue(raw - num_old);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getStdDev(final int index)
+    {
+        final int raw = getRawIndex(index);
+        final int num_old = history.size();
+        if (raw < num_old)
+            return history.getStdDev(raw);
+        return live.getStdDev(raw - num_old);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMin(final int index)
+    {
+        final int raw = getRawIndex(index);
+        final int num_old = history.size();
+        if (raw < num_old)
+            return history.getMin(raw);
+        return live.getMin(raw - num_old);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMax(final int index)
+    {
+        final int raw = getRawIndex(index);
+        final int num_old = history.size();
+        if (raw < num_old)
+            return history.getMax(raw);
+        return live.getMax(raw - num_old);
+    }
+
+    /** @param index 0... getRawSize()-1
+     *  @return Alarm severity of sample, without creating the sample
+     */
+    private AlarmSeverity getRawSeverity(final int index)
+    {
+        final int num_old = history.size();
+        if (index < num_old)
+            return history.getSeverity(index);
+        return live.getSeverity(index - num_old);
+    }
+
     /** Test if samples changed since the last time
      *  <code>testAndClearNewSamplesFlag</code> was called.
      *  @return <code>true</code> if there were new samples
@@ -162,6 +243,18 @@ public class PVSamples extends PlotSamples
      */
     public void mergeArchivedData(final String source,
             final List<VType> result)
+    {
+        mergeArchivedData(source, null, null, result);
+    }
+
+    /** Add data retrieved from an archive to the 'historic' section
+     *  @param source Source of the samples
+     *  @param start Start of time range where existing historic samples are removed, or <code>null</code>
+     *  @param end End of that time range
+     *  @param result Historic data
+     */
+    public void mergeArchivedData(final String source, final Instant start, final Instant end,
+            final List<VType> result)
     {
         if (! lockForWriting())
             return;
@@ -172,7 +265,7 @@ public class PVSamples extends PlotSamples
                 emptyHistoryOnAdd = false;
                 history.clear();
             }
-            history.mergeArchivedData(source, result);
+            history.mergeArchivedData(source, start, end, result);
         }
         finally
         {
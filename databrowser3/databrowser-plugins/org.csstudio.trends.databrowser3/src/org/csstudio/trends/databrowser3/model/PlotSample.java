@@ -41,7 +41,7 @@ public class PlotSample implements PlotDataItem<Instant>
     private String info;
 
     /** Waveform index */
-    private AtomicInteger waveform_index;
+    final private AtomicInteger waveform_index;
 
     /** Initialize with valid control system value
      *  @param waveform_index Waveform index
@@ -60,7 +60,10 @@ public class PlotSample implements PlotDataItem<Instant>
             this.info = info;
     }
 
-    private static String decodeAlarm(VType value)
+    /** @param value Value
+     *  @return Info text for the alarm of the value
+     */
+    static String decodeAlarm(final VType value)
     {
         if (value instanceof Alarm)
         {
@@ -108,12 +111,6 @@ public class PlotSample implements PlotDataItem<Instant>
                 ValueFactory.newVDouble(y, ValueFactory.newTime(Instant.ofEpochSecond((int) x, 0))));
     }
 
-    /** @param index Waveform index to plot */
-    void setWaveformIndex(final AtomicInteger index)
-    {
-        this.waveform_index = index;
-    }
-
     /** @return Source of the data */
     public String getSource()
     {
@@ -133,6 +130,7 @@ public class PlotSample implements PlotDataItem<Instant>
         // because that actually takes quite some time.
         // We just plot what we have, and that includes
         // the case where the time stamp is invalid.
+        final VType value = getVType();
         if (value instanceof Time)
             return ((Time) value).getTimestamp();
         return Instant.now();
@@ -149,7 +147,7 @@ public class PlotSample implements PlotDataItem<Instant>
     @Override
     public double getValue()
     {
-        return VTypeHelper.toDouble(value, waveform_index.get());
+        return VTypeHelper.toDouble(getVType(), waveform_index.get());
     }
 
     /** @return {@link VStatistics} or <code>null</code> */
@@ -163,6 +161,7 @@ public class PlotSample implements PlotDataItem<Instant>
         // is not 0.
         if (waveform_index.get() != 0)
             return null;
+        final VType value = getVType();
         if (value instanceof VStatistics)
             return (VStatistics) value;
         return null;
@@ -199,9 +198,15 @@ public class PlotSample implements PlotDataItem<Instant>
         return info;
     }
 
+    /** @return Alarm severity */
+    AlarmSeverity getSeverity()
+    {
+        return VTypeHelper.getSeverity(getVType());
+    }
+
     @Override
     public String toString()
     {
-        return VTypeHelper.toString(value);
+        return VTypeHelper.toString(getVType());
     }
 }
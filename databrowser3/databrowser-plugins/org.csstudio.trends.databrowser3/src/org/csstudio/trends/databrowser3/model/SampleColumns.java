@@ -0,0 +1,803 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.Alarm;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VStatistics;
+import org.diirt.vtype.VType;
+
+/** Column-oriented storage of samples
+ *
+ *  <p>Time stamp, value, statistics and alarm severity of numeric samples
+ *  are kept in primitive arrays.
+ *  Source, alarm status and display info, which are shared by many samples,
+ *  are kept in a table of interned {@link Meta} entries.
+ *  Samples that cannot be represented by the columns,
+ *  for example arrays or strings, are kept as their original {@link VType}.
+ *
+ *  <p>{@link PlotSample}s and their {@link VType} are created on demand.
+ *  The plot reads position, value and statistics directly from the columns.
+ *
+ *  <p>New samples are added to the end.
+ *  Once the capacity is reached, the oldest samples are replaced.
+ *
+ *  <p>Not thread-safe, access is controlled via {@link PVSamples}.
+ *
+ *  @author Kay Kasemir
+ */
+class SampleColumns
+{
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /** Limit of epoch seconds that fit into nanoseconds */
+    private static final long MAX_SECONDS = Long.MAX_VALUE / NANOS_PER_SECOND - 1;
+
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+
+    /** Type of value kept in the columns */
+    private enum Kind { DOUBLE, FLOAT, LONG, INTEGER, SHORT, BYTE, STATISTICS }
+
+    /** Info that's shared by many samples */
+    private static class Meta
+    {
+        final String source, status, info;
+        final Display display;
+        final Kind kind;
+
+        Meta(final String source, final String status, final String info, final Display display, final Kind kind)
+        {
+            this.source = source;
+            this.status = status;
+            this.info = info;
+            this.display = display;
+            this.kind = kind;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(source, status, info, kind);
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (! (obj instanceof Meta))
+                return false;
+            final Meta other = (Meta) obj;
+            return kind == other.kind                     &&
+                   Objects.equals(source, other.source)   &&
+                   Objects.equals(status, other.status)   &&
+                   Objects.equals(info, other.info)       &&
+                   isSameDisplay(display, other.display);
+        }
+    }
+
+    /** @return <code>true</code> if displays have the same content */
+    private static boolean isSameDisplay(final Display a, final Display b)
+    {
+        if (a == b)
+            return true;
+        if (a == null  ||  b == null)
+            return false;
+        return Objects.equals(a.getUnits(), b.getUnits())                     &&
+               Objects.equals(a.getFormat(), b.getFormat())                   &&
+               Objects.equals(a.getLowerDisplayLimit(), b.getLowerDisplayLimit()) &&
+               Objects.equals(a.getUpperDisplayLimit(), b.getUpperDisplayLimit()) &&
+               Objects.equals(a.getLowerCtrlLimit(), b.getLowerCtrlLimit())   &&
+               Objects.equals(a.getUpperCtrlLimit(), b.getUpperCtrlLimit())   &&
+               Objects.equals(a.getLowerAlarmLimit(), b.getLowerAlarmLimit()) &&
+               Objects.equals(a.getUpperAlarmLimit(), b.getUpperAlarmLimit()) &&
+               Objects.equals(a.getLowerWarningLimit(), b.getLowerWarningLimit()) &&
+               Objects.equals(a.getUpperWarningLimit(), b.getUpperWarningLimit());
+    }
+
+    /** {@link PlotSample} that reads its data from a snapshot of the columns */
+    private static class ColumnSample extends PlotSample
+    {
+        private final AtomicInteger waveform_index;
+        private final Meta meta;
+        private final long time;
+        private final double value, min, max, stddev;
+        private final int count;
+        private final AlarmSeverity severity;
+        private VType vtype = null;
+
+        ColumnSample(final AtomicInteger waveform_index, final Meta meta, final long time,
+                     final double value, final double min, final double max, final double stddev, final int count,
+                     final AlarmSeverity severity)
+        {
+            super(waveform_index, meta.source, null, meta.info);
+            this.waveform_index = waveform_index;
+            this.meta = meta;
+            this.time = time;
+            this.value = value;
+            this.min = min;
+            this.max = max;
+            this.stddev = stddev;
+            this.count = count;
+            this.severity = severity;
+        }
+
+        @Override
+        public VType getVType()
+        {
+            // Benign race: Threads might each create an identical VType
+            VType result = vtype;
+            if (result == null)
+            {
+                final Instant stamp = getPosition();
+                if (meta.kind == Kind.STATISTICS)
+                    result = new ArchiveVStatistics(stamp, severity, meta.status, meta.display, value, min, max, stddev, count);
+                else
+                    result = new ArchiveVNumber(stamp, severity, meta.status, meta.display, getNumber());
+                vtype = result;
+            }
+            return result;
+        }
+
+        /** @return Value as the original type of number */
+        private Number getNumber()
+        {
+            switch (meta.kind)
+            {
+            case FLOAT:   return Float.valueOf((float) value);
+            case LONG:    return Long.valueOf((long) value);
+            case INTEGER: return Integer.valueOf((int) value);
+            case SHORT:   return Short.valueOf((short) value);
+            case BYTE:    return Byte.valueOf((byte) value);
+            default:      return Double.valueOf(value);
+            }
+        }
+
+        @Override
+        AlarmSeverity getSeverity()
+        {
+            return severity;
+        }
+
+        @Override
+        public Instant getPosition()
+        {
+            return toInstant(time);
+        }
+
+        @Override
+        public double getValue()
+        {
+            final int index = waveform_index.get();
+            if (index == 0)
+                return value;
+            return VTypeHelper.toDouble(getVType(), index);
+        }
+
+        // As in PlotSample, statistics only apply to waveform index 0
+
+        @Override
+        public double getStdDev()
+        {
+            return waveform_index.get() == 0 ? stddev : Double.NaN;
+        }
+
+        @Override
+        public double getMin()
+        {
+            return waveform_index.get() == 0 ? min : Double.NaN;
+        }
+
+        @Override
+        public double getMax()
+        {
+            return waveform_index.get() == 0 ? max : Double.NaN;
+        }
+    }
+
+    /** Interned meta data */
+    private final List<Meta> meta_list = new ArrayList<>();
+    private final Map<Meta, Integer> meta_index = new HashMap<>();
+
+    /** Maximum number of samples */
+    private int capacity;
+
+    /** Index of the oldest sample in the arrays */
+    private int start = 0;
+
+    /** Number of samples */
+    private int size = 0;
+
+    /** Columns for all samples */
+    private long[] times = new long[0];
+    private double[] values = new double[0];
+    private byte[] severities = new byte[0];
+    private int[] metas = new int[0];
+
+    /** Statistics columns, <code>null</code> until a sample has statistics */
+    private double[] mins = null, maxs = null, stddevs = null;
+    private int[] counts = null;
+
+    /** Samples that are not held in the columns, <code>null</code> until there is such a sample */
+    private VType[] others = null;
+
+    /** @param capacity Maximum number of samples */
+    SampleColumns(final int capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    /** @param time Epoch nanoseconds
+     *  @return {@link Instant}
+     */
+    static Instant toInstant(final long time)
+    {
+        return Instant.ofEpochSecond(Math.floorDiv(time, NANOS_PER_SECOND), Math.floorMod(time, NANOS_PER_SECOND));
+    }
+
+    /** @param time {@link Instant}
+     *  @return Epoch nanoseconds, clamped to the supported range
+     */
+    static long toNanos(final Instant time)
+    {
+        final long secs = time.getEpochSecond();
+        if (secs > MAX_SECONDS)
+            return Long.MAX_VALUE;
+        if (secs < -MAX_SECONDS)
+            return Long.MIN_VALUE;
+        return secs * NANOS_PER_SECOND + time.getNano();
+    }
+
+    /** @return Maximum number of samples */
+    int getCapacity()
+    {
+        return capacity;
+    }
+
+    /** Set new capacity, preserving the newest samples
+     *  @param new_capacity New capacity
+     */
+    void setCapacity(final int new_capacity)
+    {
+        final int keep = Math.min(size, new_capacity);
+        reallocate(keep, size - keep);
+        capacity = new_capacity;
+    }
+
+    /** @return Number of samples */
+    int size()
+    {
+        return size;
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Index into the arrays
+     */
+    private int index(final int i)
+    {
+        final int index = start + i;
+        return index < times.length ? index : index - times.length;
+    }
+
+    /** Re-allocate the arrays, moving samples to start at 0
+     *  @param length New array length
+     *  @param first First sample to keep
+     */
+    private void reallocate(final int length, final int first)
+    {
+        final int keep = Math.min(size - first, length);
+        final int from = index(first);
+        // Part of the samples that's before the end of the current arrays
+        final int part = Math.min(keep, times.length - from);
+        times = copy(times, new long[length], from, part, keep);
+        values = copy(values, new double[length], from, part, keep);
+        severities = copy(severities, new byte[length], from, part, keep);
+        metas = copy(metas, new int[length], from, part, keep);
+        if (mins != null)
+        {
+            mins = copy(mins, new double[length], from, part, keep);
+            maxs = copy(maxs, new double[length], from, part, keep);
+            stddevs = copy(stddevs, new double[length], from, part, keep);
+            counts = copy(counts, new int[length], from, part, keep);
+        }
+        if (others != null)
+            others = copy(others, new VType[length], from, part, keep);
+        start = 0;
+        size = keep;
+    }
+
+    /** Copy samples from one column into a new array
+     *  @param src Column
+     *  @param dest New array
+     *  @param from Array index of first sample to copy
+     *  @param part Number of samples up to the end of the array
+     *  @param count Total number of samples to copy, wrapping around to the start of the array
+     *  @return New array
+     */
+    private static <T> T copy(final T src, final T dest, final int from, final int part, final int count)
+    {
+        if (count <= 0)
+            return dest;
+        System.arraycopy(src, from, dest, 0, part);
+        if (part < count)
+            System.arraycopy(src, 0, dest, part, count - part);
+        return dest;
+    }
+
+    /** @return Array index for a new sample */
+    private int allocate()
+    {
+        if (size < capacity)
+        {
+            if (size >= times.length)
+                reallocate(Math.min(capacity, Math.max(16, times.length * 2)), 0);
+            return index(size++);
+        }
+        // Replace oldest sample
+        final int index = start;
+        start = index(1);
+        return index;
+    }
+
+    /** @param value Value
+     *  @return Kind of value for the columns, <code>null</code> if it's not a plain number
+     */
+    private static Kind getKind(final VType value)
+    {
+        if (value instanceof VStatistics)
+            return Kind.STATISTICS;
+        if (! (value instanceof VNumber))
+            return null;
+        final Number number = ((VNumber) value).getValue();
+        if (number instanceof Double)
+            return Kind.DOUBLE;
+        if (number instanceof Float)
+            return Kind.FLOAT;
+        if (number instanceof Integer)
+            return Kind.INTEGER;
+        if (number instanceof Short)
+            return Kind.SHORT;
+        if (number instanceof Byte)
+            return Kind.BYTE;
+        // Long only if the double value is exact
+        if (number instanceof Long  &&  (long) number.doubleValue() == number.longValue())
+            return Kind.LONG;
+        return null;
+    }
+
+    /** @param source Source of the sample
+     *  @param value Value
+     *  @param info Info text. If <code>null</code>, info is based on alarm
+     */
+    void add(final String source, final VType value, String info)
+    {
+        if (info == null)
+            info = PlotSample.decodeAlarm(value);
+        final AlarmSeverity severity = VTypeHelper.getSeverity(value);
+        Kind kind = getKind(value);
+        Instant stamp = null;
+        if (kind != null)
+        {   // Is the time stamp within the range of the time column?
+            stamp = VTypeHelper.getTimestamp(value);
+            if (stamp == null  ||  Math.abs(stamp.getEpochSecond()) > MAX_SECONDS)
+                kind = null;
+        }
+
+        final int index = allocate();
+        severities[index] = (byte) severity.ordinal();
+        if (kind == null)
+        {   // Keep original value
+            if (others == null)
+                others = new VType[times.length];
+            others[index] = value;
+            metas[index] = intern(new Meta(source, null, info, null, null));
+            // Time column used to search, keep in sync with PlotSample.getPosition()
+            times[index] = toNanos(new PlotSample(source, value).getPosition());
+            values[index] = Double.NaN;
+            if (mins != null)
+                clearStatistics(index);
+            return;
+        }
+
+        if (others != null)
+            others[index] = null;
+        final Alarm alarm = (Alarm) value;
+        metas[index] = intern(new Meta(source, alarm.getAlarmName(), info, (Display) value, kind));
+        times[index] = toNanos(stamp);
+        values[index] = VTypeHelper.toDouble(value, 0);
+        if (kind == Kind.STATISTICS)
+        {
+            if (mins == null)
+                createStatistics();
+            final VStatistics stats = (VStatistics) value;
+            mins[index] = stats.getMin();
+            maxs[index] = stats.getMax();
+            stddevs[index] = stats.getStdDev();
+            counts[index] = stats.getNSamples();
+        }
+        else if (mins != null)
+            clearStatistics(index);
+    }
+
+    /** @param meta Meta data
+     *  @return Index of the interned meta data
+     */
+    private int intern(final Meta meta)
+    {
+        Integer index = meta_index.get(meta);
+        if (index == null)
+        {
+            index = meta_list.size();
+            meta_list.add(meta);
+            meta_index.put(meta, index);
+        }
+        return index;
+    }
+
+    private void createStatistics()
+    {
+        final int length = times.length;
+        mins = new double[length];
+        maxs = new double[length];
+        stddevs = new double[length];
+        counts = new int[length];
+        Arrays.fill(mins, Double.NaN);
+        Arrays.fill(maxs, Double.NaN);
+        Arrays.fill(stddevs, Double.NaN);
+    }
+
+    private void clearStatistics(final int index)
+    {
+        mins[index] = maxs[index] = stddevs[index] = Double.NaN;
+        counts[index] = 0;
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Epoch nanoseconds of the sample
+     */
+    long getTime(final int i)
+    {
+        return times[index(i)];
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Alarm severity of the sample
+     */
+    AlarmSeverity getSeverity(final int i)
+    {
+        return SEVERITIES[severities[index(i)]];
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Value of the sample, NaN if it's not held in the columns
+     */
+    double getValue(final int i)
+    {
+        final int index = index(i);
+        if (others != null  &&  others[index] != null)
+            return Double.NaN;
+        return values[index];
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Number of samples summarized in the sample, 0 if it has no statistics
+     */
+    int getCount(final int i)
+    {
+        return counts == null ? 0 : counts[index(i)];
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Minimum of a sample with statistics
+     */
+    double getMinimum(final int i)
+    {
+        return mins[index(i)];
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Maximum of a sample with statistics
+     */
+    double getMaximum(final int i)
+    {
+        return maxs[index(i)];
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Standard deviation of a sample with statistics
+     */
+    double getStdDev(final int i)
+    {
+        return stddevs[index(i)];
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Position of the sample as epoch seconds,
+     *          same as the position of the {@link PlotSample}
+     */
+    double getPositionValue(final int i)
+    {
+        final long time = times[index(i)];
+        return Math.floorDiv(time, NANOS_PER_SECOND) + 1e-9*Math.floorMod(time, NANOS_PER_SECOND);
+    }
+
+    /** @param index Array index
+     *  @param waveform_index Waveform index to use for the sample
+     *  @return <code>true</code> if the plot data of the sample is held in the columns
+     */
+    private boolean isPlainColumn(final int index, final AtomicInteger waveform_index)
+    {
+        return waveform_index.get() == 0  &&  (others == null  ||  others[index] == null);
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @param waveform_index Waveform index to use for the sample
+     *  @return Value of the {@link PlotSample}
+     */
+    double getPlotValue(final int i, final AtomicInteger waveform_index)
+    {
+        final int index = index(i);
+        if (isPlainColumn(index, waveform_index))
+            return values[index];
+        // Array, string, ..., or element of a waveform
+        return get(i, waveform_index).getValue();
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @param waveform_index Waveform index to use for the sample
+     *  @return Minimum of the {@link PlotSample}
+     */
+    double getPlotMinimum(final int i, final AtomicInteger waveform_index)
+    {
+        final int index = index(i);
+        if (isPlainColumn(index, waveform_index))
+            return mins == null ? Double.NaN : mins[index];
+        return get(i, waveform_index).getMin();
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @param waveform_index Waveform index to use for the sample
+     *  @return Maximum of the {@link PlotSample}
+     */
+    double getPlotMaximum(final int i, final AtomicInteger waveform_index)
+    {
+        final int index = index(i);
+        if (isPlainColumn(index, waveform_index))
+            return maxs == null ? Double.NaN : maxs[index];
+        return get(i, waveform_index).getMax();
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @param waveform_index Waveform index to use for the sample
+     *  @return Standard deviation of the {@link PlotSample}
+     */
+    double getPlotStdDev(final int i, final AtomicInteger waveform_index)
+    {
+        final int index = index(i);
+        if (isPlainColumn(index, waveform_index))
+            return stddevs == null ? Double.NaN : stddevs[index];
+        return get(i, waveform_index).getStdDev();
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Display info of the sample
+     */
+    Display getDisplay(final int i)
+    {
+        return meta_list.get(metas[index(i)]).display;
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @param waveform_index Waveform index to use for the sample
+     *  @return {@link PlotSample}
+     */
+    PlotSample get(final int i, final AtomicInteger waveform_index)
+    {
+        if (i < 0  ||  i >= size)
+            throw new IndexOutOfBoundsException("Index " + i + " exceeds size " + size); //$NON-NLS-1$ //$NON-NLS-2$
+        final int index = index(i);
+        final Meta meta = meta_list.get(metas[index]);
+        if (others != null  &&  others[index] != null)
+            return new PlotSample(waveform_index, meta.source, others[index], meta.info);
+        if (mins == null)
+            return new ColumnSample(waveform_index, meta, times[index], values[index],
+                                    Double.NaN, Double.NaN, Double.NaN, 0, SEVERITIES[severities[index]]);
+        return new ColumnSample(waveform_index, meta, times[index], values[index],
+                                mins[index], maxs[index], stddevs[index], counts[index], SEVERITIES[severities[index]]);
+    }
+
+    /** Binary search, assuming samples are sorted by time
+     *  @param time Epoch nanoseconds
+     *  @return Index of the last sample before time, or -1
+     */
+    int findSampleLessThan(final long time)
+    {
+        int low = 0, high = size - 1;
+        while (low <= high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (getTime(mid) < time)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return high;
+    }
+
+    /** Binary search, assuming samples are sorted by time
+     *  @param time Epoch nanoseconds
+     *  @return Index of the first sample after time, or -1
+     */
+    int findSampleGreaterThan(final long time)
+    {
+        int low = 0, high = size - 1;
+        while (low <= high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (getTime(mid) <= time)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return low < size ? low : -1;
+    }
+
+    /** @param src Samples to append
+     *  @param first First sample to append
+     *  @param count Number of samples to append
+     */
+    private void append(final SampleColumns src, final int first, final int count)
+    {
+        for (int i=first; i<first+count; ++i)
+        {
+            final int from = src.index(i);
+            final int index = allocate();
+            times[index] = src.times[from];
+            values[index] = src.values[from];
+            severities[index] = src.severities[from];
+            final Meta meta = src.meta_list.get(src.metas[from]);
+            metas[index] = intern(meta);
+            if (src.mins != null  &&  meta.kind == Kind.STATISTICS)
+            {
+                if (mins == null)
+                    createStatistics();
+                mins[index] = src.mins[from];
+                maxs[index] = src.maxs[from];
+                stddevs[index] = src.stddevs[from];
+                counts[index] = src.counts[from];
+            }
+            else if (mins != null)
+                clearStatistics(index);
+            final VType other = src.others == null ? null : src.others[from];
+            if (other != null  &&  others == null)
+                others = new VType[times.length];
+            if (others != null)
+                others[index] = other;
+        }
+    }
+
+    /** Move samples within the arrays, which must start at index 0
+     *  @param from Index of first sample to move
+     *  @param to New index of that sample
+     *  @param count Number of samples to move
+     */
+    private void move(final int from, final int to, final int count)
+    {
+        System.arraycopy(times, from, times, to, count);
+        System.arraycopy(values, from, values, to, count);
+        System.arraycopy(severities, from, severities, to, count);
+        System.arraycopy(metas, from, metas, to, count);
+        if (mins != null)
+        {
+            System.arraycopy(mins, from, mins, to, count);
+            System.arraycopy(maxs, from, maxs, to, count);
+            System.arraycopy(stddevs, from, stddevs, to, count);
+            System.arraycopy(counts, from, counts, to, count);
+        }
+        if (others != null)
+            System.arraycopy(others, from, others, to, count);
+    }
+
+    /** Remove samples in a time range
+     *  @param start_time Epoch nanoseconds of first sample to remove
+     *  @param end_time Epoch nanoseconds of last sample to remove
+     */
+    void remove(final long start_time, final long end_time)
+    {
+        final int l = findSampleLessThan(start_time);
+        final int r = findSampleGreaterThan(end_time);
+        final int Nl = l + 1;
+        final int Nr = (r < 0) ? 0 : size - r;
+        if (Nl + Nr >= size)
+            return;
+        if (Nr > 0)
+        {
+            if (start != 0)
+                reallocate(times.length, 0);
+            move(r, Nl, Nr);
+        }
+        size = Nl + Nr;
+    }
+
+    /** Add newly received samples to existing samples.
+     *
+     *  <p>Where the time ranges overlap, the new samples replace the old ones,
+     *  same as the {@link PlotSampleMerger}.
+     *
+     *  <p>The old samples are updated in place.
+     *  Old samples that follow the new ones are moved within the arrays,
+     *  which grow with spare capacity,
+     *  so merging consecutive chunks does not copy the preceding samples.
+     *
+     *  @param old Existing data, may be updated
+     *  @param add Newly received data
+     *  @return Samples that combine new and old data
+     */
+    static SampleColumns merge(final SampleColumns old, final SampleColumns add)
+    {
+        // If one is empty, return the other as is:
+        if (old == null  ||  old.size <= 0)
+            return add;
+        if (add == null  ||  add.size <= 0)
+            return old;
+        final int No = old.size;
+        final int Na = add.size;
+        final long add_start = add.getTime(0);
+        final long add_end = add.getTime(Na-1);
+
+        // Determine the old samples before and after the new ones
+        final int l = old.findSampleLessThan(add_start);
+        final int r = old.findSampleGreaterThan(add_end);
+        final int Nl = (l < 0) ? 0 : l + 1;
+        final int Nr = (r < 0) ? 0 : No - r;
+        if (Nl == 0  &&  Nr == 0)
+            return add;
+
+        final int needed = Nl + Na + Nr;
+        if (needed > old.times.length)
+            old.reallocate(Math.max(needed, old.times.length * 2), 0);
+        else if (old.start != 0)
+            old.reallocate(old.times.length, 0);
+        old.capacity = Math.max(old.capacity, needed);
+        // Move old samples that follow the new ones out of the way,
+        // then write the new samples into the gap
+        if (Nr > 0)
+            old.move(r, Nl + Na, Nr);
+        old.size = Nl;
+        old.append(add, 0, Na);
+        old.size = needed;
+        return old;
+    }
+
+    /** Delete all samples */
+    void clear()
+    {
+        start = size = 0;
+        times = new long[0];
+        values = new double[0];
+        severities = new byte[0];
+        metas = new int[0];
+        mins = maxs = stddevs = null;
+        counts = null;
+        others = null;
+        meta_list.clear();
+        meta_index.clear();
+    }
+}
@@ -54,6 +54,10 @@ public class Preferences
             OPACITY = "opacity",
             TRACE_TYPE = "trace_type",
             ARCHIVE_FETCH_DELAY = "archive_fetch_delay",
+            ARCHIVE_FETCH_CONCURRENCY = "archive_fetch_concurrency",
+            EXPORT_CONCURRENCY = "export_concurrency",
+            ARCHIVE_PROGRESSIVE_REFINEMENT = "archive_progressive_refinement",
+            ARCHIVE_CACHE_SIZE = "archive_cache_size",
             PLOT_BINS = "plot_bins", URLS = "urls", ARCHIVES = "archives",
             USE_DEFAULT_ARCHIVES = "use_default_archives",
             PROMPT_FOR_ERRORS = "prompt_for_errors",
@@ -161,6 +165,44 @@ public class Preferences
         return delay;
     }
 
+    /** @return Number of concurrent requests to one archive server */
+    public static int getArchiveFetchConcurrency()
+    {
+        int concurrency = 2;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs != null)
+            concurrency = prefs.getInt(Activator.PLUGIN_ID, ARCHIVE_FETCH_CONCURRENCY, concurrency, null);
+        return Math.max(1, concurrency);
+    }
+
+    /** @return Number of channels to read concurrently for an export */
+    public static int getExportConcurrency()
+    {
+        int concurrency = 8;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs != null)
+            concurrency = prefs.getInt(Activator.PLUGIN_ID, EXPORT_CONCURRENCY, concurrency, null);
+        return Math.max(1, concurrency);
+    }
+
+    /** @return <code>true</code> to show optimized data while fetching raw data */
+    public static boolean isProgressiveRefinement()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return false;
+        return prefs.getBoolean(Activator.PLUGIN_ID, ARCHIVE_PROGRESSIVE_REFINEMENT, false, null);
+    }
+
+    /** @return Number of archived samples to cache per item, 0 to disable */
+    public static int getArchiveCacheSize()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return 100000;
+        return Math.max(0, prefs.getInt(Activator.PLUGIN_ID, ARCHIVE_CACHE_SIZE, 100000, null));
+    }
+
     public static int getPlotBins()
     {
         final IPreferencesService prefs = Platform.getPreferencesService();
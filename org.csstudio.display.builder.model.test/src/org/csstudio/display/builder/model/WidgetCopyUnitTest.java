@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.csstudio.display.builder.model.macros.Macros;
+import org.csstudio.display.builder.model.properties.Points;
+import org.csstudio.display.builder.model.properties.WidgetColor;
+import org.csstudio.display.builder.model.widgets.LabelWidget;
+import org.csstudio.display.builder.model.widgets.PolylineWidget;
+import org.csstudio.display.builder.model.widgets.TabsWidget;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** JUnit test of copying widgets
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class WidgetCopyUnitTest
+{
+    @BeforeClass
+    public static void setup()
+    {
+        WidgetFactoryUnitTest.initializeFactory();
+    }
+
+    @Test
+    public void testMacros() throws Exception
+    {
+        final DisplayModel model = new DisplayModel();
+        model.setUserData(DisplayModel.USER_DATA_INPUT_FILE, "/some/file.bob");
+        Macros macros = new Macros();
+        macros.add("S", "Original");
+        model.propMacros().setValue(macros);
+
+        final LabelWidget label = new LabelWidget();
+        ((MacroizedWidgetProperty<String>) label.propText()).setSpecification("Text of $(S)");
+        label.propForegroundColor().setValue(new WidgetColor(1, 2, 3));
+        model.runtimeChildren().addChild(label);
+        assertThat(label.propText().getValue(), equalTo("Text of Original"));
+
+        final DisplayModel copy = model.copy();
+        assertThat(copy.getUserData(DisplayModel.USER_DATA_INPUT_FILE), equalTo("/some/file.bob"));
+        assertThat(copy.runtimeChildren().getValue().size(), equalTo(1));
+        final LabelWidget label_copy = (LabelWidget) copy.runtimeChildren().getValue().get(0);
+        assertThat(label_copy, not(sameInstance(label)));
+        assertThat(label_copy.getParent().get(), sameInstance(copy));
+
+        // Immutable values are shared
+        assertThat(label_copy.propForegroundColor().getValue(), sameInstance(label.propForegroundColor().getValue()));
+
+        // Macros are expanded in the copy
+        macros = new Macros();
+        macros.add("S", "Copy");
+        copy.propMacros().setValue(macros);
+        assertThat(label_copy.propText().getValue(), equalTo("Text of Copy"));
+        assertThat(label.propText().getValue(), equalTo("Text of Original"));
+
+        // Copied macros can be changed without affecting the original
+        copy.propMacros().getValue().add("X", "Y");
+        assertThat(model.propMacros().getValue().getValue("X"), equalTo(null));
+    }
+
+    @Test
+    public void testModifiableValues() throws Exception
+    {
+        final PolylineWidget line = new PolylineWidget();
+        final Points points = new Points();
+        points.add(1, 2);
+        line.propPoints().setValue(points);
+
+        final PolylineWidget copy = (PolylineWidget) line.copy();
+        assertThat(copy.propPoints().getValue().size(), equalTo(1));
+        copy.propPoints().getValue().add(3, 4);
+        assertThat(copy.propPoints().getValue().size(), equalTo(2));
+        assertThat(line.propPoints().getValue().size(), equalTo(1));
+    }
+
+    @Test
+    public void testArrayAndStructure() throws Exception
+    {
+        final TabsWidget tabs = new TabsWidget();
+        // Widget starts out with two tabs
+        tabs.propTabs().getElement(1).name().setValue("Second");
+        final LabelWidget label = new LabelWidget();
+        tabs.propTabs().getElement(1).children().addChild(label);
+
+        final TabsWidget copy = (TabsWidget) tabs.copy();
+        assertThat(copy.propTabs().size(), equalTo(2));
+        assertThat(copy.propTabs().getElement(1).name().getValue(), equalTo("Second"));
+        assertThat(copy.propTabs().getElement(1).children().getValue().size(), equalTo(1));
+        final Widget label_copy = copy.propTabs().getElement(1).children().getValue().get(0);
+        assertThat(label_copy, instanceOf(LabelWidget.class));
+        assertThat(label_copy, not(sameInstance(label)));
+
+        // Arrays are independent
+        copy.propTabs().removeElement();
+        assertThat(copy.propTabs().size(), equalTo(1));
+        assertThat(tabs.propTabs().size(), equalTo(2));
+    }
+}
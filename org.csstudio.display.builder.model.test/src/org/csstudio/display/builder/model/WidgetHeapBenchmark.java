@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.display.builder.model.persist.ModelLoader;
+import org.csstudio.display.builder.model.widgets.GroupWidget;
+import org.csstudio.display.builder.model.widgets.LEDWidget;
+import org.csstudio.display.builder.model.widgets.LabelWidget;
+import org.csstudio.display.builder.model.widgets.TextUpdateWidget;
+
+/** Heap used per widget
+ *
+ *  <p>Loads the display files passed as arguments,
+ *  or creates a display with many widgets,
+ *  and reports the heap used by the display models.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class WidgetHeapBenchmark
+{
+    private static final int WIDGETS = 20000;
+
+    private static long getUsedHeap()
+    {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i=0; i<3; ++i)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static int countWidgets(final Widget widget)
+    {
+        int count = 1;
+        final ChildrenProperty children = ChildrenProperty.getChildren(widget);
+        if (children != null)
+            for (Widget child : children.getValue())
+                count += countWidgets(child);
+        return count;
+    }
+
+    private static DisplayModel createDisplay()
+    {
+        final DisplayModel model = new DisplayModel();
+        GroupWidget group = null;
+        for (int i=0; i<WIDGETS; ++i)
+        {
+            final Widget widget;
+            switch (i % 10)
+            {
+            case 0:
+                group = new GroupWidget();
+                model.runtimeChildren().addChild(group);
+                continue;
+            case 1:
+            case 2:
+            case 3:
+                widget = new LabelWidget();
+                break;
+            case 4:
+            case 5:
+                widget = new LEDWidget();
+                break;
+            default:
+                widget = new TextUpdateWidget();
+            }
+            widget.propX().setValue(i % 1000);
+            group.runtimeChildren().addChild(widget);
+        }
+        return model;
+    }
+
+    public static void main(final String[] args) throws Exception
+    {
+        WidgetFactoryUnitTest.initializeFactory();
+
+        final long start = getUsedHeap();
+        final List<DisplayModel> models = new ArrayList<>();
+        if (args.length > 0)
+            for (String file : args)
+                models.add(ModelLoader.loadModel(file));
+        else
+            models.add(createDisplay());
+        final long end = getUsedHeap();
+
+        int widgets = 0;
+        for (DisplayModel model : models)
+            widgets += countWidgets(model);
+        System.out.format("%d widgets use %.1f MB, %d bytes per widget\n",
+                          widgets, (end - start) / 1024.0 / 1024.0, (end - start) / widgets);
+        // Keep models reachable until heap has been measured
+        System.out.println(models.size() + " displays");
+    }
+}
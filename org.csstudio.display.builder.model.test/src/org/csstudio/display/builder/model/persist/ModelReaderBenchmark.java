@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.WidgetFactoryUnitTest;
+import org.csstudio.display.builder.model.widgets.GroupWidget;
+import org.csstudio.display.builder.model.widgets.LabelWidget;
+import org.csstudio.display.builder.model.widgets.TextUpdateWidget;
+
+/** Compare load time and peak heap of streaming vs. DOM {@link ModelReader}
+ *
+ *  <p>Run with a fixed heap size, for example -Xms1g -Xmx1g,
+ *  so peak heap usage is comparable between runs.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ModelReaderBenchmark
+{
+    private static final int GROUPS = 500, WIDGETS_PER_GROUP = 100, RUNS = 5;
+
+    private static byte[] createDisplay() throws Exception
+    {
+        final DisplayModel model = new DisplayModel();
+        for (int g=0; g<GROUPS; ++g)
+        {
+            final GroupWidget group = new GroupWidget();
+            group.propName().setValue("Group " + g);
+            group.propY().setValue(g * 20);
+            for (int i=0; i<WIDGETS_PER_GROUP; ++i)
+            {
+                final LabelWidget label = new LabelWidget();
+                label.propText().setValue("Label " + i);
+                label.propX().setValue(i * 10);
+                group.runtimeChildren().addChild(label);
+
+                final TextUpdateWidget text = new TextUpdateWidget();
+                text.propPVName().setValue("sim://sine(" + g + ", " + i + ", 1)");
+                text.propX().setValue(i * 10);
+                text.propY().setValue(10);
+                group.runtimeChildren().addChild(text);
+            }
+            model.runtimeChildren().addChild(group);
+        }
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try
+        (
+            final ModelWriter writer = new ModelWriter(buf);
+        )
+        {
+            writer.writeModel(model);
+        }
+        return buf.toByteArray();
+    }
+
+    private static void resetPeakHeap()
+    {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+    }
+
+    /** @return Sum of the peak usage of all heap pools */
+    private static long getPeakHeap()
+    {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        return peak;
+    }
+
+    private static void load(final byte[] xml, final boolean streaming) throws Exception
+    {
+        resetPeakHeap();
+        final long start = System.nanoTime();
+        final DisplayModel model = new ModelReader(new ByteArrayInputStream(xml), streaming).readModel();
+        final long end = System.nanoTime();
+        final long peak = getPeakHeap();
+        System.out.format("%-9s: %4d widgets in %6.1f ms, peak heap %6.1f MB\n",
+                          streaming ? "Streaming" : "DOM",
+                          model.runtimeChildren().getValue().size(),
+                          (end - start) / 1e6,
+                          peak / 1024.0 / 1024.0);
+    }
+
+    public static void main(final String[] args) throws Exception
+    {
+        WidgetFactoryUnitTest.initializeFactory();
+
+        final byte[] xml = createDisplay();
+        System.out.format("Display with %d widgets, %.1f MB of XML\n",
+                          GROUPS * (1 + 2*WIDGETS_PER_GROUP), xml.length / 1024.0 / 1024.0);
+        for (int run=0; run<RUNS; ++run)
+        {
+            load(xml, false);
+            load(xml, true);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.rules;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.csstudio.display.builder.model.WidgetProperty;
+import org.csstudio.display.builder.model.properties.ScriptPV;
+import org.csstudio.display.builder.model.properties.WidgetColor;
+import org.csstudio.display.builder.model.widgets.LabelWidget;
+import org.csstudio.display.builder.model.widgets.plots.ImageWidget;
+import org.junit.Test;
+
+/** JUnit test of compiled rule expressions
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RuleExpressionTest
+{
+    /** Inputs with fixed values */
+    private static class TestInputs implements RuleInputs
+    {
+        final double[] values;
+        final String[] texts;
+        final int[] severities;
+
+        TestInputs(final double[] values, final String[] texts, final int[] severities)
+        {
+            this.values = values;
+            this.texts = texts;
+            this.severities = severities;
+        }
+
+        @Override
+        public double getDouble(final int index)
+        {
+            return values[index];
+        }
+
+        @Override
+        public long getLong(final int index)
+        {
+            return (long) values[index];
+        }
+
+        @Override
+        public String getString(final int index)
+        {
+            return texts[index];
+        }
+
+        @Override
+        public int getSeverity(final int index)
+        {
+            return severities[index];
+        }
+
+        @Override
+        public int getLegacySeverity(final int index)
+        {
+            return severities[index];
+        }
+    }
+
+    private static final TestInputs inputs = new TestInputs(new double[] { 3.5, 10 },
+                                                            new String[] { "Fred", "On" },
+                                                            new int[] { 0, 2 });
+
+    private boolean isTrue(final String expression) throws Exception
+    {
+        return RuleExpression.parse(expression, 2).isTrue(inputs);
+    }
+
+    private Object value(final String expression) throws Exception
+    {
+        return RuleExpression.parse(expression, 2).getValue(inputs);
+    }
+
+    private void assertUnsupported(final String expression)
+    {
+        try
+        {
+            RuleExpression.parse(expression, 2);
+            fail("Parsed " + expression);
+        }
+        catch (Exception ex)
+        {
+            System.out.println(ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testComparisons() throws Exception
+    {
+        assertThat(isTrue("pv0 > 2"), equalTo(true));
+        assertThat(isTrue("pv0>5"), equalTo(false));
+        assertThat(isTrue("pv1 == 10"), equalTo(true));
+        assertThat(isTrue("pv1 = 10"), equalTo(true));
+        assertThat(isTrue("pv1 != 10"), equalTo(false));
+        assertThat(isTrue("pvInt1 >= 10"), equalTo(true));
+        assertThat(isTrue("pvSev1 == 2"), equalTo(true));
+        assertThat(isTrue("pvStr0 == \"Fred\""), equalTo(true));
+        assertThat(isTrue("pvStr1 == 'Off'"), equalTo(false));
+        assertThat(isTrue("0 < pv0 < 4"), equalTo(true));
+        assertThat(isTrue("0 < pv0 < 3"), equalTo(false));
+    }
+
+    @Test
+    public void testLogic() throws Exception
+    {
+        assertThat(isTrue("true"), equalTo(true));
+        assertThat(isTrue("False"), equalTo(false));
+        assertThat(isTrue("pv0 > 2 && pv1 < 5"), equalTo(false));
+        assertThat(isTrue("pv0 > 2 || pv1 < 5"), equalTo(true));
+        assertThat(isTrue("pv0 > 2 and not pv1 < 5"), equalTo(true));
+        assertThat(isTrue("!(pv0 > 2)"), equalTo(false));
+        assertThat(isTrue("!pv0 == 3.5"), equalTo(false));
+        assertThat(isTrue("(pv0>=0) && (pv0<=10)"), equalTo(true));
+        // Python truth values
+        assertThat(isTrue("pv0"), equalTo(true));
+        assertThat(isTrue("pv0 - 3.5"), equalTo(false));
+        assertThat(isTrue("pvStr0"), equalTo(true));
+    }
+
+    @Test
+    public void testArithmetic() throws Exception
+    {
+        assertThat(value("pv0 * 2 + 1"), equalTo(8.0));
+        assertThat(value("-pv1 / 4"), equalTo(-2.5));
+        assertThat(value("pvInt1 / 4"), equalTo(2L));
+        assertThat(value("-pvInt1 / 4"), equalTo(-3L));
+        assertThat(value("-7 % 3"), equalTo(2L));
+        assertThat(value("-7.0 % 3"), equalTo(2.0));
+        assertThat(value("pvStr0 + \"!\""), equalTo("Fred!"));
+        assertThat(value("1e3"), equalTo(1000.0));
+    }
+
+    @Test
+    public void testUnsupported() throws Exception
+    {
+        assertUnsupported("len(pvStr0) > 2");
+        assertUnsupported("pvStr0 == 2");
+        assertUnsupported("pv0 or 5");
+        assertUnsupported("pv5 > 2");
+        assertUnsupported("pv0 > 010");
+        assertUnsupported("pv0 > ");
+        assertUnsupported("pvStr0.startswith('F')");
+    }
+
+    @Test
+    public void testCompiledRule() throws Exception
+    {
+        final ImageWidget widget = new ImageWidget();
+        widget.propDataWidth().setValue(10);
+        final WidgetProperty<Integer> width = widget.propDataWidth().clone();
+        width.setValue(47);
+        RuleInfo rule = new RuleInfo("WidthBasedOnPV", "data_width", false,
+                Arrays.asList(new RuleInfo.ExprInfoValue<Integer>("pv0>10", width)),
+                Arrays.asList(new ScriptPV("XSize")));
+        CompiledRule compiled = CompiledRule.compile(widget, rule);
+        System.out.println(compiled);
+
+        compiled.apply(widget, new TestInputs(new double[] { 20 }, null, null));
+        assertThat(widget.propDataWidth().getValue(), equalTo(47));
+        compiled.apply(widget, new TestInputs(new double[] { 5 }, null, null));
+        assertThat(widget.propDataWidth().getValue(), equalTo(10));
+
+        // Value as expression
+        rule = new RuleInfo("WidthFromPV", "data_width", true,
+                Arrays.asList(new RuleInfo.ExprInfoString("true", "pvInt0 * 2")),
+                Arrays.asList(new ScriptPV("XSize")));
+        compiled = CompiledRule.compile(widget, rule);
+        compiled.apply(widget, new TestInputs(new double[] { 21 }, null, null));
+        assertThat(widget.propDataWidth().getValue(), equalTo(42));
+
+        // Color
+        final LabelWidget label = new LabelWidget();
+        final WidgetProperty<WidgetColor> color = label.propForegroundColor().clone();
+        color.setValue(new WidgetColor(1, 2, 3));
+        rule = new RuleInfo("Color", "foreground_color", false,
+                Arrays.asList(new RuleInfo.ExprInfoValue<WidgetColor>("pvSev0 == 2", color)),
+                Arrays.asList(new ScriptPV("Whatever")));
+        compiled = CompiledRule.compile(label, rule);
+        compiled.apply(label, new TestInputs(null, null, new int[] { 2 }));
+        assertThat(label.propForegroundColor().getValue(), equalTo(new WidgetColor(1, 2, 3)));
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.util;
+
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.csstudio.display.builder.model.properties.FormatOption;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+
+/** Throughput and allocations of {@link FormatOptionHandler}
+ *
+ *  <p>Compares the current implementation with the
+ *  previous one, which used shared {@link NumberFormat}s
+ *  and String.format for each value.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class FormatOptionHandlerBenchmark
+{
+    private static final int VALUES = 1000, RUNS = 2000;
+    private static final int PRECISION = 3;
+
+    private static final FormatOption[] OPTIONS =
+    {
+        FormatOption.DECIMAL, FormatOption.EXPONENTIAL, FormatOption.ENGINEERING,
+        FormatOption.HEX, FormatOption.SEXAGESIMAL
+    };
+
+    private static final NumberFormat decimal = NumberFormat.getNumberInstance(Locale.ROOT);
+    private static final NumberFormat exponential = new DecimalFormat("0.000E0", DecimalFormatSymbols.getInstance(Locale.ROOT));
+
+    static
+    {
+        decimal.setGroupingUsed(false);
+        decimal.setMinimumFractionDigits(PRECISION);
+        decimal.setMaximumFractionDigits(PRECISION);
+    }
+
+    /** Previous implementation, for PRECISION */
+    private static String formatPrevious(final VType value, final FormatOption option)
+    {
+        final VNumber number = (VNumber) value;
+        final double num = number.getValue().doubleValue();
+        final String text;
+        switch (option)
+        {
+        case EXPONENTIAL:
+            text = exponential.format(number.getValue());
+            break;
+        case ENGINEERING:
+        {
+            final int power = 3 * (int) Math.floor(Math.log10(Math.abs(num)) / 3);
+            text = String.format(Locale.ROOT, "%." + PRECISION + "fE%d", num / Math.pow(10, power), power);
+            break;
+        }
+        case HEX:
+        {
+            final StringBuilder buf = new StringBuilder();
+            buf.append(Integer.toHexString(number.getValue().intValue()).toUpperCase());
+            for (int i=buf.length(); i<PRECISION; ++i)
+                buf.insert(0, '0');
+            buf.insert(0, "0x");
+            text = buf.toString();
+            break;
+        }
+        case SEXAGESIMAL:
+        {   // SexagesimalFormat for precision 3
+            double rest = num + 0.5 / 360.0;
+            String sign = "";
+            if (rest < 0.0)
+            {
+                sign = "-";
+                rest = -rest + 1.0 / 360.0;
+            }
+            final double hrs = Math.floor(rest);
+            rest = (rest - hrs) * 60.0;
+            final int min = (int) rest;
+            final int sec = (int) ((rest - min) * 60.0);
+            text = sign + String.format("%.0f:%02d:%d", hrs, min, sec / 10);
+            break;
+        }
+        default:
+            text = decimal.format(number.getValue());
+        }
+        return text + " " + number.getUnits();
+    }
+
+    private static long getAllocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void run(final String title, final VType[] values, final Function<VType, String> format)
+    {
+        int length = 0;
+        final long start_bytes = getAllocatedBytes();
+        final long start = System.nanoTime();
+        for (int run=0; run<RUNS; ++run)
+            for (VType value : values)
+                length += format.apply(value).length();
+        final long nanos = System.nanoTime() - start;
+        final long bytes = getAllocatedBytes() - start_bytes;
+        final long calls = (long) RUNS * values.length;
+        System.out.format("%-30s: %8.0f calls/ms, %6.1f bytes/call (%d chars)\n",
+                          title, calls / (nanos / 1e6), bytes / (double) calls, length);
+    }
+
+    public static void main(final String[] args)
+    {
+        final Display display = ValueFactory.newDisplay(-10.0, -9.0, -8.0, "V", decimal, 8.0, 9.0, 10.0, -10.0, 10.0);
+        final Random random = new Random(42);
+        final VType[] values = new VType[VALUES];
+        for (int i=0; i<VALUES; ++i)
+            values[i] = ValueFactory.newVDouble((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 4),
+                                                display);
+
+        // Warm up, then measure
+        for (int pass=0; pass<2; ++pass)
+        {
+            System.out.println(pass == 0 ? "Warmup:" : "Result:");
+            for (FormatOption option : OPTIONS)
+            {
+                run(option + " previous", values, value -> formatPrevious(value, option));
+                run(option + " current", values, value -> FormatOptionHandler.format(value, option, PRECISION, true));
+            }
+        }
+    }
+}
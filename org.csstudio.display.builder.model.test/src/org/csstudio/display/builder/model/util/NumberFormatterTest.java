@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+/** JUnit test of {@link NumberFormatter}
+ *
+ *  <p>Compares the result with the JDK formats
+ *  that {@link FormatOptionHandler} used before.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class NumberFormatterTest
+{
+    private static final double[] SPECIAL =
+    {
+        0.0, -0.0, 0.5, 1.5, 2.5, -2.5, 0.125, 0.375, 1.005, 0.1, 0.7, 3.16, -3.16,
+        9.995, 9.9999999, 99.5, 1e-5, 1e-320, Double.MIN_VALUE, 123456789.0,
+        9007199254740991.0, 9007199254740993.0, 1e22, 1e300, Double.MAX_VALUE
+    };
+
+    private static NumberFormat createDecimalFormat(final int precision)
+    {
+        final NumberFormat fmt = NumberFormat.getNumberInstance(Locale.ROOT);
+        fmt.setGroupingUsed(false);
+        fmt.setMinimumFractionDigits(precision);
+        fmt.setMaximumFractionDigits(precision);
+        return fmt;
+    }
+
+    private static NumberFormat createExponentialFormat(final int precision)
+    {
+        final StringBuilder pattern = new StringBuilder("0");
+        if (precision > 0)
+            pattern.append('.');
+        for (int i=0; i<precision; ++i)
+            pattern.append('0');
+        pattern.append("E0");
+        return new DecimalFormat(pattern.toString(), DecimalFormatSymbols.getInstance(Locale.ROOT));
+    }
+
+    /** @return Random values across a wide range of exponents */
+    private static double[] getValues()
+    {
+        final Random random = new Random(42);
+        final double[] values = new double[SPECIAL.length + 20000];
+        System.arraycopy(SPECIAL, 0, values, 0, SPECIAL.length);
+        for (int i=SPECIAL.length; i<values.length; ++i)
+        {
+            double value = random.nextDouble() * Math.pow(10, random.nextInt(40) - 20);
+            if (i % 3 == 0)  // Values with few digits, where ties are likely
+                value = Math.round(value * 1000) / 1000.0;
+            values[i] = random.nextBoolean() ? value : -value;
+        }
+        return values;
+    }
+
+    /** @param value Value
+     *  @return Is value in the range typically shown in displays?
+     */
+    private static boolean isTypical(final double value)
+    {
+        final double abs = Math.abs(value);
+        return abs > 1e-6  &&  abs < 1e6;
+    }
+
+    @Test
+    public void testDecimal()
+    {
+        final double[] values = getValues();
+        final StringBuilder buf = new StringBuilder();
+        int typical = 0, fallback = 0;
+        for (int precision=0; precision<=10; ++precision)
+        {
+            final NumberFormat fmt = createDecimalFormat(precision);
+            for (double value : values)
+            {
+                buf.setLength(0);
+                if (isTypical(value))
+                    ++typical;
+                if (NumberFormatter.appendDecimal(buf, value, precision))
+                    assertThat(value + " @ " + precision, buf.toString(), equalTo(fmt.format(value)));
+                else if (isTypical(value))
+                    ++fallback;
+            }
+            for (long value : new long[] { 0, 1, -1, 42, Long.MAX_VALUE, Long.MIN_VALUE })
+            {
+                buf.setLength(0);
+                assertTrue(NumberFormatter.appendDecimal(buf, value, precision));
+                assertThat(buf.toString(), equalTo(fmt.format(value)));
+            }
+        }
+        System.out.println("Decimal: " + fallback + " of " + typical + " typical values need fallback");
+        assertTrue(fallback < typical / 10);
+    }
+
+    @Test
+    public void testFixed()
+    {
+        final StringBuilder buf = new StringBuilder();
+        for (int precision=0; precision<=10; ++precision)
+            for (double value : getValues())
+            {
+                buf.setLength(0);
+                if (NumberFormatter.appendFixed(buf, value, precision))
+                    assertThat(value + " @ " + precision, buf.toString(),
+                               equalTo(String.format(Locale.ROOT, "%." + precision + "f", value)));
+            }
+    }
+
+    @Test
+    public void testExponential()
+    {
+        final double[] values = getValues();
+        final StringBuilder buf = new StringBuilder();
+        int typical = 0, fallback = 0;
+        for (int precision=0; precision<=10; ++precision)
+        {
+            final NumberFormat fmt = createExponentialFormat(precision);
+            for (double value : values)
+            {
+                buf.setLength(0);
+                if (isTypical(value))
+                    ++typical;
+                if (NumberFormatter.appendExponential(buf, value, precision))
+                    assertThat(value + " @ " + precision, buf.toString(), equalTo(fmt.format(value)));
+                else if (isTypical(value))
+                    ++fallback;
+            }
+            for (long value : new long[] { 0, 1, -1, 42, 123456789, -9007199254740991L })
+            {
+                buf.setLength(0);
+                assertTrue(NumberFormatter.appendExponential(buf, value, precision));
+                assertThat(buf.toString(), equalTo(fmt.format(value)));
+            }
+        }
+        System.out.println("Exponential: " + fallback + " of " + typical + " typical values need fallback");
+        assertTrue(fallback < typical / 10);
+    }
+
+    /** Previous implementation of SexagesimalFormat, based on String.format */
+    private static String formatSexagesimal(double value, final int precision)
+    {
+        final double prec_frac = 1.0 / new double[] { 1.0, 6.0, 60.0, 360.0, 3.6E3, 3.6E4, 3.6E5, 3.6E6, 3.6E7 }[precision];
+        value = value + 0.5 * prec_frac;
+        final StringBuilder builder = new StringBuilder();
+        if (value < 0.0)
+        {
+            builder.append('-');
+            value = -value + prec_frac;
+        }
+        final double hrs = Math.floor(value);
+        value = (value - hrs) * 60.0;
+        final int min = (int) value;
+        value = (value - min) * 60.0;
+        final int sec = (int) value;
+        if (precision == 0)
+            builder.append(String.format("%.0f", hrs));
+        else if (precision == 1)
+            builder.append(String.format("%.0f:%d", hrs, (min / 10)));
+        else if (precision == 2)
+            builder.append(String.format("%.0f:%02d", hrs, min));
+        else if (precision == 3)
+            builder.append(String.format("%.0f:%02d:%d", hrs, min, sec / 10));
+        else if (precision == 4)
+            builder.append(String.format("%.0f:%02d:%02d", hrs, min, sec));
+        else
+        {
+            final double frac = Math.floor((value - sec) / (prec_frac * 3600.0));
+            builder.append(String.format("%.0f:%02d:%02d.%0" + (precision - 4) + ".0f", hrs, min, sec, frac));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testSexagesimal()
+    {
+        final StringBuilder buf = new StringBuilder();
+        for (double value : getValues())
+            for (int precision=0; precision<=8; ++precision)
+            {
+                buf.setLength(0);
+                SexagesimalFormat.format(buf, value, precision);
+                assertThat(buf.toString(), equalTo(formatSexagesimal(value, precision)));
+            }
+        for (double value : new double[] { Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY })
+            for (int precision=0; precision<=8; ++precision)
+                assertThat(SexagesimalFormat.format(value, precision), equalTo(formatSexagesimal(value, precision)));
+        assertThat(SexagesimalFormat.format(12.5824414, 8), equalTo("12:34:56.7890"));
+        assertThat(SexagesimalFormat.format(-0.5, 4), equalTo("-0:30:00"));
+        assertThat(SexagesimalFormat.format(1.0/60, 3), equalTo("0:01:0"));
+    }
+}
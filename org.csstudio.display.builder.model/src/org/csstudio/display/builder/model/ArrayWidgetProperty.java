@@ -199,6 +199,23 @@ public class ArrayWidgetProperty<WPE extends WidgetProperty<?>> extends WidgetPr
         return element;
     }
 
+    /** Copy the elements of another array */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void copyFrom(final WidgetProperty<?> other) throws Exception
+    {
+        final List<WPE> other_elements = ((ArrayWidgetProperty<WPE>) other).value;
+        final List<WPE> elements = new ArrayList<>(other_elements.size());
+        for (WPE other_element : other_elements)
+        {
+            final WPE element =
+                ((Descriptor<WPE>)descriptor).factory.newElement(widget, elements.size());
+            element.copyFrom(other_element);
+            elements.add(element);
+        }
+        value = new CopyOnWriteArrayList<>(elements);
+    }
+
     @Override
     public void setValueFromObject(final Object value) throws Exception
     {
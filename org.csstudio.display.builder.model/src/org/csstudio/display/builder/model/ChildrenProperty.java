@@ -114,6 +114,14 @@ public class ChildrenProperty extends RuntimeWidgetProperty<List<Widget>>
         return Collections.unmodifiableList(super.getValue());
     }
 
+    /** Add copies of the other property's child widgets */
+    @Override
+    public void copyFrom(final WidgetProperty<?> other) throws Exception
+    {
+        for (Widget child : ((ChildrenProperty) other).value)
+            addChild(child.copy());
+    }
+
     @Override
     public void setValueFromObject(final Object value) throws Exception
     {
@@ -123,6 +123,26 @@ public class DisplayModel extends Widget
         return VERSION;
     }
 
+    /** @return Copy of the display model, including its input file and version */
+    @Override
+    public DisplayModel copy() throws Exception
+    {
+        final DisplayModel copy = (DisplayModel) super.copy();
+        for (String key : new String[] { USER_DATA_INPUT_FILE, USER_DATA_INPUT_VERSION })
+        {
+            final Object data = getUserData(key);
+            if (data != null)
+                copy.setUserData(key, data);
+        }
+        return copy;
+    }
+
+    @Override
+    protected Widget createInstance()
+    {
+        return new DisplayModel();
+    }
+
     /** Get display name
      *
      *  <p>Provides the configured 'name',
@@ -54,7 +54,7 @@ abstract public class MacroizedWidgetProperty<T> extends WidgetProperty<T>
     {
         super(descriptor, widget, default_value);
         // XXX Should null become "null" or ""?
-        specification = computeSpecification(default_value);
+        specification = descriptor.getDefaultSpecification(default_value, this::computeSpecification);
         // If specification contains macro,
         // clear value to force evaluation of macro on first value request.
         // Can't evaluate now because macros may not be available.
@@ -68,6 +68,21 @@ abstract public class MacroizedWidgetProperty<T> extends WidgetProperty<T>
         return specification;
     }
 
+    /** Copy the specification of another property
+     *
+     *  <p>Macros in the specification are expanded
+     *  when the value of this property is fetched.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void copyFrom(final WidgetProperty<?> other) throws Exception
+    {
+        final MacroizedWidgetProperty<T> macroized = (MacroizedWidgetProperty<T>) other;
+        use_class = macroized.use_class;
+        specification = macroized.specification;
+        value = MacroHandler.containsMacros(specification) ? null : macroized.value;
+    }
+
     /** Update the specification.
      *
      *  <p>If specification contains macros,
@@ -27,6 +27,7 @@ public class Preferences
     public static final String LEGACY_FONT_CALIBRATION = "legacy_font_calibration";
     public static final String MACROS = "macros";
     public static final String MAX_REPARSE_ITERATIONS = "max_reparse_iterations";
+    public static final String PARALLEL_LOAD = "parallel_load";
     public static final String SUPPORT_STANDALONE_WINDOW = "support_standalone_window";
 
     public static String[] getClassFiles()
@@ -110,6 +111,12 @@ public class Preferences
         return max_reparse;
     }
 
+    /** @return Create the top-level widgets of a display in parallel? */
+    public static boolean isParallelLoading()
+    {
+        return Boolean.parseBoolean(getPreference(PARALLEL_LOAD, "true"));
+    }
+
     /** @return Do support standalone window option? */
     public static boolean isStandaloneWindowSupported()
     {
@@ -123,6 +123,20 @@ public class StructuredWidgetProperty extends WidgetProperty<List<WidgetProperty
         throw new IllegalArgumentException("Structure has no element named " + element_name);
     }
 
+    /** Copy the elements of another structure */
+    @Override
+    public void copyFrom(final WidgetProperty<?> other) throws Exception
+    {
+        final List<WidgetProperty<?>> other_elements = ((StructuredWidgetProperty) other).value;
+        for (int i=0; i<value.size(); ++i)
+        {   // Like writeToXML, skip runtime properties except for 'children'
+            final WidgetProperty<?> element = value.get(i);
+            if ( element.getCategory() != WidgetPropertyCategory.RUNTIME  ||
+                 element instanceof ChildrenProperty )
+                element.copyFrom(other_elements.get(i));
+        }
+    }
+
     @Override
     public void setValue(final List<WidgetProperty<?>> value)
     {
@@ -19,17 +19,20 @@ import static org.csstudio.display.builder.model.properties.CommonWidgetProperti
 import static org.csstudio.display.builder.model.properties.CommonWidgetProperties.propX;
 import static org.csstudio.display.builder.model.properties.CommonWidgetProperties.propY;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import org.csstudio.display.builder.model.macros.MacroOrPropertyProvider;
 import org.csstudio.display.builder.model.macros.MacroValueProvider;
@@ -117,6 +120,149 @@ public class Widget
     /** Parent widget */
     private volatile Widget parent = null;
 
+    /** Layout of the properties of a widget class
+     *
+     *  <p>All widgets of a class define the same properties,
+     *  so the sort order and the name lookup are computed once
+     *  and then shared by all widgets of that class.
+     */
+    private static class PropertyLayout
+    {
+        /** Names and categories in order of definition */
+        private final String[] names;
+        private final WidgetPropertyCategory[] categories;
+
+        /** Index into order of definition for each sorted property */
+        private final int[] definition_index;
+
+        /** Index of sorted property by name */
+        private final Map<String, Integer> index;
+
+        PropertyLayout(final List<WidgetProperty<?>> definition)
+        {
+            final int N = definition.size();
+            names = new String[N];
+            categories = new WidgetPropertyCategory[N];
+            final List<Integer> sorted = new ArrayList<>(N);
+            for (int i=0; i<N; ++i)
+            {
+                names[i] = definition.get(i).getName();
+                categories[i] = definition.get(i).getCategory();
+                sorted.add(i);
+            }
+
+            // Sort by category, then order of definition.
+            final Comparator<Integer> byCategory = Comparator.comparing(i -> categories[i]);
+            Collections.sort(sorted, byCategory.thenComparing(Comparator.naturalOrder()));
+            definition_index = new int[N];
+            index = new HashMap<>(N*4/3+1);
+            for (int i=0; i<N; ++i)
+            {
+                definition_index[i] = sorted.get(i);
+                index.put(names[definition_index[i]], i);
+            }
+        }
+
+        /** @param definition Properties in order of definition
+         *  @return <code>true</code> if the properties match this layout
+         */
+        boolean matches(final List<WidgetProperty<?>> definition)
+        {
+            final int N = names.length;
+            if (definition.size() != N)
+                return false;
+            for (int i=0; i<N; ++i)
+                if (definition.get(i).getCategory() != categories[i]  ||
+                    ! definition.get(i).getName().equals(names[i]))
+                    return false;
+            return true;
+        }
+    }
+
+    /** Property layouts by widget class */
+    private static final Map<Class<?>, PropertyLayout> layouts = new ConcurrentHashMap<>();
+
+    /** Unmodifiable set of sorted properties */
+    private static class PropertySet extends AbstractSet<WidgetProperty<?>>
+    {
+        private final WidgetProperty<?>[] sorted;
+
+        PropertySet(final WidgetProperty<?>[] sorted)
+        {
+            this.sorted = sorted;
+        }
+
+        @Override
+        public Iterator<WidgetProperty<?>> iterator()
+        {
+            return new Iterator<WidgetProperty<?>>()
+            {
+                private int i = 0;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return i < sorted.length;
+                }
+
+                @Override
+                public WidgetProperty<?> next()
+                {
+                    if (i >= sorted.length)
+                        throw new NoSuchElementException();
+                    return sorted[i++];
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return sorted.length;
+        }
+    }
+
+    /** Unmodifiable map of property names to sorted properties */
+    private static class PropertyMap extends AbstractMap<String, WidgetProperty<?>>
+    {
+        private final PropertyLayout layout;
+        private final WidgetProperty<?>[] sorted;
+
+        PropertyMap(final PropertyLayout layout, final WidgetProperty<?>[] sorted)
+        {
+            this.layout = layout;
+            this.sorted = sorted;
+        }
+
+        @Override
+        public WidgetProperty<?> get(final Object name)
+        {
+            final Integer i = layout.index.get(name);
+            return i == null ? null : sorted[i];
+        }
+
+        @Override
+        public boolean containsKey(final Object name)
+        {
+            return layout.index.containsKey(name);
+        }
+
+        @Override
+        public int size()
+        {
+            return sorted.length;
+        }
+
+        @Override
+        public Set<Entry<String, WidgetProperty<?>>> entrySet()
+        {
+            final Set<Entry<String, WidgetProperty<?>>> entries = new LinkedHashSet<>();
+            for (WidgetProperty<?> property : sorted)
+                entries.add(new SimpleImmutableEntry<>(property.getName(), property));
+            return Collections.unmodifiableSet(entries);
+        }
+    }
+
     /** All properties, ordered by category, then sequence of definition */
     protected final Set<WidgetProperty<?>> properties;
 
@@ -139,7 +285,9 @@ public class Widget
     /** Map of property names to properties */
     // Map is final, all properties are collected in widget constructor.
     // Values of properties can change, but the list of properties itself
-    // is thread safe
+    // is thread safe.
+    // Both 'properties' and 'property_map' are views of the same array,
+    // with the sort order and name lookup shared by all widgets of a class.
     protected final Map<String, WidgetProperty<?>> property_map;
 
     // Actual properties
@@ -173,7 +321,8 @@ public class Widget
     public Widget(final String type, final int default_width, final int default_height)
     {
         // Collect properties
-        final List<WidgetProperty<?>> prelim_properties = new ArrayList<>();
+        PropertyLayout layout = layouts.get(getClass());
+        final List<WidgetProperty<?>> prelim_properties = new ArrayList<>(layout == null ? 20 : layout.names.length);
 
         // -- Mandatory properties --
         prelim_properties.add(this.type = propType.createProperty(this, type));
@@ -196,20 +345,20 @@ public class Widget
         // Prelim_properties has the original order of definition,
         // which we want to preserve as a secondary sorting criteria
         // after property category.
-        final List<WidgetProperty<?>> sorted = new ArrayList<>(prelim_properties.size());
-        sorted.addAll(prelim_properties);
-
-        final Comparator<WidgetProperty<?>> byCategory =
-                Comparator.comparing(WidgetProperty::getCategory);
-        final Comparator<WidgetProperty<?>> byOrder =
-                Comparator.comparingInt(p -> prelim_properties.indexOf(p));
-        Collections.sort(sorted, byCategory.thenComparing(byOrder));
-        // Capture as constant sorted set
-        properties = Collections.unmodifiableSet(new LinkedHashSet<>(sorted));
-
-        // Map for faster lookup by property name
-        property_map = properties.stream().collect(
-                Collectors.toMap(WidgetProperty::getName, Function.identity()));
+        // Widget classes normally define the same properties for each instance,
+        // but check and update the layout in case they don't.
+        if (layout == null  ||  ! layout.matches(prelim_properties))
+        {
+            layout = new PropertyLayout(prelim_properties);
+            layouts.put(getClass(), layout);
+        }
+        final WidgetProperty<?>[] sorted = new WidgetProperty<?>[prelim_properties.size()];
+        for (int i=0; i<sorted.length; ++i)
+            sorted[i] = prelim_properties.get(layout.definition_index[i]);
+        // Capture as constant sorted set,
+        // with map for faster lookup by property name
+        properties = new PropertySet(sorted);
+        property_map = new PropertyMap(layout, sorted);
     }
 
     /** Unique runtime identifier of a widget
@@ -239,6 +388,49 @@ public class Widget
         return new Version(2, 0, 0);
     }
 
+    /** Create a copy of the widget
+     *
+     *  <p>Copies the properties that are persisted in a display file,
+     *  including child widgets, but no runtime properties or user data.
+     *  Macro-based properties copy their specification,
+     *  so macros are expanded for the copy, based on its location
+     *  in the widget tree.
+     *
+     *  <p>Faster than writing the widget to XML and reading it back,
+     *  and shares the immutable property values with the original.
+     *
+     *  @return Copy of this widget
+     *  @throws Exception on error
+     */
+    public Widget copy() throws Exception
+    {
+        final Widget copy = createInstance();
+        for (WidgetProperty<?> property : properties)
+        {
+            if (property.isReadonly())
+                continue;
+            if (property.getCategory() == WidgetPropertyCategory.RUNTIME  &&
+                ! (property instanceof ChildrenProperty))
+                continue;
+            copy.getProperty(property.getName()).copyFrom(property);
+        }
+        return copy;
+    }
+
+    /** @return New instance of this widget's class, with default property values
+     *  @throws Exception on error
+     */
+    protected Widget createInstance() throws Exception
+    {
+        for (WidgetDescriptor desc : WidgetFactory.getInstance().getAllWidgetDescriptors(getType()))
+        {
+            final Widget widget = desc.createWidget();
+            if (widget.getClass() == getClass())
+                return widget;
+        }
+        throw new Exception("Cannot create copy of " + this);
+    }
+
     /** @return Widget Type */
     public final String getType()
     {
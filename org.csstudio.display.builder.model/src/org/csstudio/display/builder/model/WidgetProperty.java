@@ -103,6 +103,23 @@ public abstract class WidgetProperty<T extends Object> extends PropertyChangeHan
         return ret;
     }
 
+    /** Copy value from another property
+     *
+     *  <p>Used to copy widgets, see {@link Widget#copy()}.
+     *  Since property values are generally immutable,
+     *  like colors or fonts, the value is shared with the other property.
+     *  Properties with modifiable values must override.
+     *
+     *  @param other Property of same type from which to copy
+     *  @throws Exception on error
+     */
+    @SuppressWarnings("unchecked")
+    public void copyFrom(final WidgetProperty<?> other) throws Exception
+    {
+        use_class = other.use_class;
+        value = (T) other.value;
+    }
+
     /** @return Widget that has this property */
     public Widget getWidget()
     {
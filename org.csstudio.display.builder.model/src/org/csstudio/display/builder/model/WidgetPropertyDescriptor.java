@@ -8,6 +8,7 @@
 package org.csstudio.display.builder.model;
 
 import java.util.Objects;
+import java.util.function.Function;
 
 /** Widget property descriptor.
  *
@@ -30,6 +31,11 @@ public abstract class WidgetPropertyDescriptor<T extends Object>
 
     final private boolean readonly;
 
+    /** Most recent default value and its specification,
+     *  shared by the macro-based properties created from this descriptor
+     */
+    private volatile Object[] default_specification = null;
+
     /** Constructor
      *  @param category Category
      *  @param name Internal name of the property
@@ -83,6 +89,25 @@ public abstract class WidgetPropertyDescriptor<T extends Object>
         return readonly;
     }
 
+    /** Get specification for the default value of a macro-based property
+     *
+     *  <p>Properties created with the same default value
+     *  share one specification text instead of each holding a copy.
+     *
+     *  @param default_value Default value
+     *  @param compute Computes specification for the default value
+     *  @return Specification
+     */
+    String getDefaultSpecification(final T default_value, final Function<T, String> compute)
+    {
+        final Object[] cached = default_specification;
+        if (cached != null  &&  Objects.equals(cached[0], default_value))
+            return (String) cached[1];
+        final String specification = compute.apply(default_value);
+        default_specification = new Object[] { default_value, specification };
+        return specification;
+    }
+
     /** Create property.
      *  @param widget Widget that holds the property and handles listeners
      *  @param default_value Default and initial value
@@ -7,10 +7,14 @@
  *******************************************************************************/
 package org.csstudio.display.builder.model.persist;
 
+import java.io.File;
 import java.io.InputStream;
+import java.time.Duration;
 
 import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.Preferences;
 import org.csstudio.display.builder.model.WidgetClassSupport;
+import org.csstudio.display.builder.model.util.Cache;
 import org.csstudio.display.builder.model.util.ModelResourceUtil;
 
 /** Helper for loading a display model
@@ -22,8 +26,12 @@ import org.csstudio.display.builder.model.util.ModelResourceUtil;
  *
  *  @author Kay Kasemir
  */
+@SuppressWarnings("nls")
 public class ModelLoader
 {
+    /** Cache of loaded models, used as templates for copies */
+    private static final Cache<DisplayModel> template_cache = new Cache<>(Duration.ofSeconds(Preferences.getCacheTimeout()));
+
     /** Load model, resolved relative to parent, with classes applied (except for *.bcf itself)
      *
      *  <p>Selects *.bob over *.opi.
@@ -39,6 +47,46 @@ public class ModelLoader
         return loadModel(resolved_name);
     }
 
+    /** Load model, resolved relative to parent, from cache
+     *
+     *  <p>Meant for displays that are embedded many times,
+     *  typically with different macros.
+     *  The file is read once into a template that remains cached,
+     *  and each call returns a copy of that template.
+     *  Macros are not expanded in the template,
+     *  so each copy expands them for its own location.
+     *
+     *  <p>The cache expires like other cached resources,
+     *  and local files are read again when they are modified.
+     *
+     *  @param parent_display Path to a 'parent' file, may be <code>null</code>
+     *  @param display_file Model file
+     *  @return {@link DisplayModel}
+     *  @throws Exception on error
+     */
+    public static DisplayModel resolveAndLoadCachedModel(final String parent_display, final String display_file) throws Exception
+    {
+        final String resolved_name = ModelResourceUtil.resolveResource(parent_display, display_file);
+        final DisplayModel template = template_cache.getCachedOrNew(getTemplateKey(resolved_name),
+                                                                    key -> loadModel(resolved_name));
+        return template.copy();
+    }
+
+    /** @param resolved_name Display file
+     *  @return Key for the template cache, with modification time of local files
+     */
+    private static String getTemplateKey(final String resolved_name)
+    {
+        final String local = ModelResourceUtil.getLocalPath(resolved_name);
+        if (local != null)
+        {
+            final File file = new File(local);
+            if (file.exists())
+                return resolved_name + "@" + file.lastModified();
+        }
+        return resolved_name;
+    }
+
     /** Load model, with classes applied (except for *.bcf itself)
      *
      *  @param display_file Model file
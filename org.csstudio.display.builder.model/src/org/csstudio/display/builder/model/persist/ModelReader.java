@@ -12,11 +12,18 @@ import static org.csstudio.display.builder.model.ModelPlugin.logger;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Level;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
 import org.csstudio.display.builder.model.ChildrenProperty;
 import org.csstudio.display.builder.model.DisplayModel;
 import org.csstudio.display.builder.model.Preferences;
@@ -26,6 +33,7 @@ import org.csstudio.display.builder.model.WidgetDescriptor;
 import org.csstudio.display.builder.model.WidgetFactory;
 import org.csstudio.display.builder.model.WidgetFactory.WidgetTypeException;
 import org.osgi.framework.Version;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 /** Read model from XML.
@@ -67,14 +75,53 @@ import org.w3c.dom.Element;
  *  .. but widget can provide a custom WidgetConfigurator
  *  and handle legacy properties in a different way.
  *
+ *  Streaming
+ *  =========
+ *  A WidgetConfigurator needs all the properties of its widget,
+ *  but not the complete document.
+ *  Current displays are thus read via StAX:
+ *  The property elements of a widget are collected into a small DOM
+ *  that only holds the &lt;widget> and its properties.
+ *  When reaching the first child widget or the end of the widget,
+ *  the widget is created and configured from that DOM,
+ *  then child widgets are streamed in the same way.
+ *  Once a widget has been read, its DOM is released.
+ *  Configurators that add sibling widgets to the XML
+ *  or request to parse again are still supported:
+ *  Such XML is read via the DOM at the end of the parent widget.
+ *
+ *  Older displays, version 1.x, are read into a complete DOM
+ *  because their configurators may restructure the XML.
+ *
+ *  Parallel Loading
+ *  ================
+ *  The top-level widgets of a streamed display are each read
+ *  into their own small DOM, and the widget subtree is then created
+ *  on the fork/join pool while the stream reader continues.
+ *  Widgets are added to the display in the order of the XML.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 public class ModelReader
 {
     private final static int MAX_PARSE_AGAIN = Preferences.getMaxReparse();
-    private final Element root;
+    private final static boolean PARALLEL = Preferences.isParallelLoading();
+
+    /** Configure display or widget from its XML */
+    @FunctionalInterface
+    private interface Configure
+    {
+        Widget configure(Element xml) throws Exception;
+    }
+
+    private final InputStream stream;
+    /** Reader, positioned on the root element until the model is read */
+    private final XMLStreamReader reader;
+    /** Document for the XML of the display and its widgets */
+    private final Document doc;
     private final Version version;
+    private final boolean streaming;
 
     /** Parse display from XML
      *  @param xml XML text
@@ -94,8 +141,48 @@ public class ModelReader
      */
     public ModelReader(final InputStream stream) throws Exception
     {
-        root = XMLUtil.openXMLDocument(stream, XMLTags.DISPLAY);
-        version = readVersion(root);
+        this(stream, true);
+    }
+
+    /** Create reader.
+     *  @param stream Input stream to read, will be closed
+     *  @param streaming Create widgets while reading the XML?
+     *                   Otherwise the complete XML document is read before creating widgets.
+     *                   Older displays are always read as a complete document.
+     *  @throws Exception on error
+     */
+    public ModelReader(final InputStream stream, final boolean streaming) throws Exception
+    {
+        this.stream = stream;
+        try
+        {
+            final XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            // Like the SAX parser used for other files, don't handle namespaces
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+            reader = factory.createXMLStreamReader(stream);
+            doc = createDocument();
+
+            // Check root element
+            while (reader.hasNext()  &&  reader.next() != XMLStreamConstants.START_ELEMENT)
+                ;
+            if (! reader.isStartElement())
+                throw new Exception("Missing <" + XMLTags.DISPLAY + ">");
+            if (! XMLTags.DISPLAY.equals(reader.getLocalName()))
+                throw new Exception("Wrong document type. Expected <" +
+                        XMLTags.DISPLAY + "> but found <" +
+                        reader.getLocalName() + ">");
+            final String text = reader.getAttributeValue(null, XMLTags.VERSION);
+            version = text == null  ||  text.isEmpty()
+                    ? new Version(0, 0, 0)
+                    : new Version(text);
+        }
+        catch (Exception ex)
+        {
+            stream.close();
+            throw ex;
+        }
+        this.streaming = streaming  &&  version.getMajor() >= 2;
     }
 
     /** @return Version of the file that's being read.
@@ -116,14 +203,254 @@ public class ModelReader
 
         model.setUserData(DisplayModel.USER_DATA_INPUT_VERSION, version);
 
-        // Read display's own properties
-        model.getConfigurator(version).configureFromXML(this, model, root);
-        // Read widgets of model
-        readWidgets(model.runtimeChildren(), root);
+        try
+        {
+            if (streaming)
+                streamWidgetContent(startElement(doc), PARALLEL, xml ->
+                {
+                    // Read display's own properties
+                    model.getConfigurator(version).configureFromXML(this, model, xml);
+                    return model;
+                });
+            else
+            {
+                final Element root = readElement(doc);
+                // Read display's own properties
+                model.getConfigurator(version).configureFromXML(this, model, root);
+                // Read widgets of model
+                readWidgets(model.runtimeChildren(), root);
+            }
+        }
+        finally
+        {
+            reader.close();
+            stream.close();
+        }
         return model;
     }
 
-    final private Set<String> unknown_widget_type = new HashSet<>();
+    /** @return New, empty document
+     *  @throws Exception on error
+     */
+    private static Document createDocument() throws Exception
+    {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    }
+
+    /** Stream the properties and child widgets of a display or widget
+     *
+     *  @param xml Element for the display or widget, reader positioned at its start.
+     *             Receives the property elements.
+     *  @param fork Read child widgets on the fork/join pool?
+     *  @param configure Creates or configures the widget from the property elements
+     *  @return Widget
+     *  @throws Exception on error, after reading the remaining XML of the widget into <code>xml</code>
+     */
+    private Widget streamWidgetContent(final Element xml, final boolean fork, final Configure configure) throws Exception
+    {
+        Widget widget = null;
+        ChildrenProperty children = null;
+        Element late_properties = null;
+        // Child widgets that are read in parallel, in order of the XML
+        final List<ForkJoinTask<List<Widget>>> forked = new ArrayList<>();
+        while (reader.hasNext())
+        {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+            {
+                if (XMLTags.WIDGET.equals(reader.getLocalName()))
+                {   // Configure widget from properties read so far
+                    if (widget == null)
+                    {
+                        try
+                        {
+                            widget = configure.configure(xml);
+                        }
+                        catch (Exception ex)
+                        {
+                            xml.appendChild(readElement(doc));
+                            readContent(xml);
+                            throw ex;
+                        }
+                        children = ChildrenProperty.getChildren(widget);
+                    }
+                    if (children == null)
+                        skipElement();
+                    else if (fork)
+                        forked.add(forkWidget());
+                    else
+                    {
+                        final Widget child = streamWidget(xml);
+                        if (child != null)
+                            children.addChild(child);
+                    }
+                }
+                else if (widget == null)
+                    xml.appendChild(readElement(doc));
+                else
+                {   // Property that follows child widgets
+                    if (late_properties == null)
+                        late_properties = (Element) xml.cloneNode(false);
+                    late_properties.appendChild(readElement(doc));
+                }
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                break;
+        }
+
+        if (widget == null)
+            widget = configure.configure(xml);
+        else if (late_properties != null)
+            widget.getConfigurator(readVersion(xml)).configureFromXML(this, widget, late_properties);
+
+        for (ForkJoinTask<List<Widget>> task : forked)
+            for (Widget child : task.join())
+                children.addChild(child);
+
+        // Read widgets that configurators added to the XML,
+        // or which need to be parsed again
+        if (children != null  &&  XMLUtil.getChildElement(xml, XMLTags.WIDGET) != null)
+            readWidgets(children, xml);
+
+        return widget;
+    }
+
+    /** Stream a widget
+     *  @param parent_xml XML of the parent, reader positioned at start of widget
+     *  @return Widget or <code>null</code> on error
+     *  @throws Exception on error in XML
+     */
+    private Widget streamWidget(final Element parent_xml) throws Exception
+    {
+        // Add to parent while reading the widget,
+        // since configurators may access the parent
+        final Element widget_xml = startElement(doc);
+        parent_xml.appendChild(widget_xml);
+        try
+        {
+            final Widget widget = streamWidgetContent(widget_xml, false, xml -> createWidget(getType(xml), xml));
+            parent_xml.removeChild(widget_xml);
+            return widget;
+        }
+        catch (ParseAgainException ex)
+        {   // Leave updated XML in parent, to be read again at end of parent
+            return null;
+        }
+        catch (WidgetTypeException ex)
+        {
+            logUnknownType(ex, widget_xml);
+        }
+        catch (final Throwable ex)
+        {
+            logger.log(Level.WARNING,
+                       "Widget configuration file error, line " + XMLUtil.getLineInfo(widget_xml), ex);
+        }
+        // Continue with next widget
+        if (widget_xml.getParentNode() == parent_xml)
+            parent_xml.removeChild(widget_xml);
+        return null;
+    }
+
+    /** Read a widget on the fork/join pool
+     *
+     *  <p>Reads the complete widget into its own document,
+     *  then creates the widget and its children in parallel
+     *  to reading the remaining XML.
+     *
+     *  @return Task for the widget, may result in several widgets when configurators add
+     *          sibling widgets, or none on error
+     *  @throws Exception on error in XML
+     */
+    private ForkJoinTask<List<Widget>> forkWidget() throws Exception
+    {
+        // The widget is read like a display with just that one widget,
+        // so configurators that re-arrange the XML of the parent only
+        // affect this copy
+        final Document widget_doc = createDocument();
+        final Element parent_xml = widget_doc.createElement(XMLTags.DISPLAY);
+        parent_xml.appendChild(readElement(widget_doc));
+        return ForkJoinPool.commonPool().submit(() -> readWidgetList(parent_xml));
+    }
+
+    /** @param doc Document for the element
+     *  @return Element for current start element, with attributes but no content
+     */
+    private Element startElement(final Document doc)
+    {
+        final Element element = doc.createElement(reader.getLocalName());
+        for (int i=0; i<reader.getAttributeCount(); ++i)
+            element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        element.setUserData(PositionalXMLReader.LINE_NUMBER, reader.getLocation().getLineNumber(), null);
+        return element;
+    }
+
+    /** @param doc Document for the element
+     *  @return Complete element for current start element
+     *  @throws Exception on error
+     */
+    private Element readElement(final Document doc) throws Exception
+    {
+        final Element element = startElement(doc);
+        readContent(element);
+        return element;
+    }
+
+    /** Read content up to the end of the current element
+     *  @param element Element to which content is added
+     *  @throws Exception on error
+     */
+    private void readContent(final Element element) throws Exception
+    {
+        final StringBuilder text = new StringBuilder();
+        while (reader.hasNext())
+        {
+            switch (reader.next())
+            {
+            case XMLStreamConstants.START_ELEMENT:
+                addText(element, text);
+                element.appendChild(readElement(element.getOwnerDocument()));
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                addText(element, text);
+                return;
+            default:
+                // Ignore comments, processing instructions
+            }
+        }
+        throw new Exception("Missing end of <" + element.getNodeName() + ">");
+    }
+
+    private void addText(final Element element, final StringBuilder text)
+    {
+        if (text.length() > 0)
+        {
+            element.appendChild(element.getOwnerDocument().createTextNode(text.toString()));
+            text.setLength(0);
+        }
+    }
+
+    /** Skip current element and its content
+     *  @throws Exception on error
+     */
+    private void skipElement() throws Exception
+    {
+        int depth = 1;
+        while (depth > 0  &&  reader.hasNext())
+        {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                ++depth;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                --depth;
+        }
+    }
+
+    final private Set<String> unknown_widget_type = ConcurrentHashMap.newKeySet();
 
     /** Read all '&lt;widget>..' child entries
      *
@@ -134,17 +461,27 @@ public class ModelReader
      *  @param parent_xml XML of the parent widget from which child entries are read
      */
     public void readWidgets(final ChildrenProperty children, final Element parent_xml)
+    {
+        for (Widget child : readWidgetList(parent_xml))
+            children.addChild(child);
+    }
+
+    /** Read all '&lt;widget>..' child entries
+     *
+     *  <p>Continues to read the same parent_xml
+     *  if one of the widget configurators throws a ParseAgainException
+     *
+     *  @param parent_xml XML of the parent widget from which child entries are read
+     *  @return List of widgets
+     */
+    private List<Widget> readWidgetList(final Element parent_xml)
     {
         // Limit the number of retries to avoid infinite loop
         for (int retries=0; retries < MAX_PARSE_AGAIN; ++retries)
         {
             final List<Widget> widgets = readWidgetsAllowingRetry(parent_xml);
             if (widgets != null)
-            {
-                for (Widget child : widgets)
-                    children.addChild(child);
-                return;
-            }
+                return widgets;
         }
 
         throw new IllegalStateException("Too many requests to parse again, limited to " + MAX_PARSE_AGAIN + " requests");
@@ -175,12 +512,7 @@ public class ModelReader
             }
             catch (WidgetTypeException ex)
             {
-                // Mention missing widget only once per reader
-                if (! unknown_widget_type.contains(ex.getType()))
-                {
-                    logger.log(Level.WARNING, ex.getMessage() + ", line " + XMLUtil.getLineInfo(widget_xml));
-                    unknown_widget_type.add(ex.getType());
-                }
+                logUnknownType(ex, widget_xml);
                 // Continue with next widget
             }
             catch (final Throwable ex)
@@ -199,6 +531,34 @@ public class ModelReader
      *  @throws Exception on error
      */
     private Widget readWidget(final Element widget_xml) throws Exception
+    {
+        final Widget widget = createWidget(getType(widget_xml), widget_xml);
+
+        final ChildrenProperty children = ChildrenProperty.getChildren(widget);
+        if (children != null)
+            readWidgets(children, widget_xml);
+
+        return widget;
+    }
+
+    /** @param ex Exception for unknown widget type
+     *  @param widget_xml XML of the widget
+     */
+    private void logUnknownType(final WidgetTypeException ex, final Element widget_xml)
+    {
+        // Mention missing widget only once per reader
+        if (! unknown_widget_type.contains(ex.getType()))
+        {
+            logger.log(Level.WARNING, ex.getMessage() + ", line " + XMLUtil.getLineInfo(widget_xml));
+            unknown_widget_type.add(ex.getType());
+        }
+    }
+
+    /** @param widget_xml Widget's XML element
+     *  @return Widget type
+     *  @throws Exception on error
+     */
+    private static String getType(final Element widget_xml) throws Exception
     {
         String type = widget_xml.getAttribute(XMLTags.TYPE);
         if (type.isEmpty())
@@ -209,13 +569,7 @@ public class ModelReader
             if (type.isEmpty())
                 throw new Exception("Missing widget type");
         }
-        final Widget widget = createWidget(type, widget_xml);
-
-        final ChildrenProperty children = ChildrenProperty.getChildren(widget);
-        if (children != null)
-            readWidgets(children, widget_xml);
-
-        return widget;
+        return type;
     }
 
     /** Create widget
@@ -38,6 +38,13 @@ public class MacrosWidgetProperty extends WidgetProperty<Macros>
         super(descriptor, widget, default_value);
     }
 
+    @Override
+    public void copyFrom(final WidgetProperty<?> other) throws Exception
+    {
+        use_class = other.isUsingWidgetClass();
+        value = new Macros(((MacrosWidgetProperty) other).value);
+    }
+
     /** @param value Must be ActionInfo array(!), not List */
     @Override
     public void setValueFromObject(final Object value) throws Exception
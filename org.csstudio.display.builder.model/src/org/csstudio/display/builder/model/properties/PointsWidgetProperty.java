@@ -39,6 +39,13 @@ public class PointsWidgetProperty extends WidgetProperty<Points>
         value = default_value.clone();
     }
 
+    @Override
+    public void copyFrom(final WidgetProperty<?> other) throws Exception
+    {
+        use_class = other.isUsingWidgetClass();
+        value = ((PointsWidgetProperty) other).value.clone();
+    }
+
     @Override
     public void setValueFromObject(final Object value) throws Exception
     {
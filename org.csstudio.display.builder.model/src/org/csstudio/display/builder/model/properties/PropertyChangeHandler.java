@@ -11,7 +11,7 @@ import static org.csstudio.display.builder.model.ModelPlugin.logger;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.logging.Level;
 
 import org.csstudio.display.builder.model.BaseWidgetPropertyListener;
@@ -75,8 +75,13 @@ import org.csstudio.display.builder.model.WidgetPropertyListener;
 @SuppressWarnings("nls")
 public abstract class PropertyChangeHandler<T extends Object>
 {
+    /** Updater for recursions, avoiding an AtomicInteger per property */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<PropertyChangeHandler> RECURSIONS =
+        AtomicIntegerFieldUpdater.newUpdater(PropertyChangeHandler.class, "recursions");
+
     /** Track recursions of calls to listener */
-    private final AtomicInteger recursions = new AtomicInteger();
+    private volatile int recursions = 0;
 
     /** Lazily initialized list of listeners.
      *  Read-only access must make thread safe copy.
@@ -147,7 +152,7 @@ public abstract class PropertyChangeHandler<T extends Object>
        // If a property listener changes the property,
        // that triggers a recursive listener invocation.
        // Not necessarily a problem, but likely better avoided.
-       final int recursion_level = recursions.incrementAndGet();
+       final int recursion_level = RECURSIONS.incrementAndGet(this);
        if (recursion_level > 1)
            logger.log(Level.WARNING,
                       "Recursive update of property " + property.getWidget() + " " + property.getName() + ", " +
@@ -167,6 +172,6 @@ public abstract class PropertyChangeHandler<T extends Object>
                logger.log(Level.WARNING, "Property update error for " +  property, ex);
            }
        }
-       recursions.decrementAndGet();
+       RECURSIONS.decrementAndGet(this);
    }
 }
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.WidgetProperty;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExpressionInfo;
+
+/** Rule compiled into {@link RuleExpression}s
+ *
+ *  <p>Alternative to the script generated by {@link RuleToScript}
+ *  for rules whose expressions can be handled by {@link RuleExpression}.
+ *  Checks the boolean expressions in order and
+ *  sets the property to the value of the first one that's true,
+ *  or to the value that the property had when the rule was compiled.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class CompiledRule
+{
+    private final String name;
+    private final String prop_id;
+    private final List<RuleExpression> conditions;
+    /** Values for the conditions, either fixed values or {@link RuleExpression}s */
+    private final List<Object> values;
+    private final Object default_value;
+
+    /** Compile rule
+     *  @param attached_widget Widget to which the rule applies
+     *  @param rule {@link RuleInfo}
+     *  @return {@link CompiledRule}
+     *  @throws Exception if the rule cannot be compiled,
+     *          in which case the script from {@link RuleToScript} must be used
+     */
+    public static CompiledRule compile(final Widget attached_widget, final RuleInfo rule) throws Exception
+    {
+        final WidgetProperty<?> prop = attached_widget.getProperty(rule.getPropID());
+        final int pv_count = rule.getPVs().size();
+        final List<RuleExpression> conditions = new ArrayList<>(rule.getExpressions().size());
+        final List<Object> values = new ArrayList<>(rule.getExpressions().size());
+        for (ExpressionInfo<?> expr : rule.getExpressions())
+        {
+            conditions.add(RuleExpression.parse(expr.getBoolExp(), pv_count));
+            if (rule.getPropAsExprFlag())
+                values.add(RuleExpression.parse(expr.getPropVal().toString(), pv_count));
+            else
+                values.add(((WidgetProperty<?>) expr.getPropVal()).getValue());
+        }
+        return new CompiledRule(rule.getName(), rule.getPropID(), conditions, values, prop.getValue());
+    }
+
+    private CompiledRule(final String name, final String prop_id,
+                         final List<RuleExpression> conditions, final List<Object> values,
+                         final Object default_value)
+    {
+        this.name = name;
+        this.prop_id = prop_id;
+        this.conditions = conditions;
+        this.values = values;
+        this.default_value = default_value;
+    }
+
+    /** Evaluate rule and update the widget property
+     *  @param widget Widget on which the rule is invoked
+     *  @param inputs Values of the rule's PVs
+     *  @throws Exception on error
+     */
+    public void apply(final Widget widget, final RuleInputs inputs) throws Exception
+    {
+        widget.setPropertyValue(prop_id, evaluate(inputs));
+    }
+
+    /** Evaluate rule
+     *  @param inputs Values of the rule's PVs
+     *  @return Value for the property
+     *  @throws Exception on error
+     */
+    public Object evaluate(final RuleInputs inputs) throws Exception
+    {
+        final int N = conditions.size();
+        for (int i=0; i<N; ++i)
+            if (conditions.get(i).isTrue(inputs))
+            {
+                final Object value = values.get(i);
+                if (value instanceof RuleExpression)
+                    return ((RuleExpression) value).getValue(inputs);
+                return value;
+            }
+        return default_value;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("CompiledRule '").append(name).append("': ");
+        for (int i=0; i<conditions.size(); ++i)
+            buf.append("if (").append(conditions.get(i)).append(") ")
+               .append(prop_id).append(" = ").append(values.get(i)).append("; else ");
+        buf.append(prop_id).append(" = ").append(default_value);
+        return buf.toString();
+    }
+}
@@ -0,0 +1,725 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.rules;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Compiled expression of a rule
+ *
+ *  <p>Parses the boolean expressions and value expressions of rules
+ *  like <code>pv0 > 5 && pvSev1 == 2</code> once
+ *  into a tree of Java evaluators.
+ *
+ *  <p>Evaluation follows the python semantics of the script
+ *  generated by {@link RuleToScript}:
+ *  Both the javascript-type '&&', '||', '!', 'true', '='
+ *  and the python-type 'and', 'or', 'not', 'True', '=='
+ *  are understood,
+ *  integer division rounds down,
+ *  comparisons can be chained as in <code>0 < pv0 < 10</code>.
+ *
+ *  <p>The type of each sub-expression is determined while parsing.
+ *  Expressions that cannot be handled with the exact same result
+ *  as the generated script, for example function calls,
+ *  comparisons of strings and numbers,
+ *  or 'and', 'or' applied to non-boolean values,
+ *  are rejected with an exception
+ *  so that the caller can fall back to the script.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RuleExpression
+{
+    /** Type of an expression */
+    public enum Type
+    {
+        BOOLEAN, LONG, DOUBLE, STRING
+    }
+
+    @FunctionalInterface
+    private interface BooleanNode
+    {
+        boolean evaluate(RuleInputs inputs) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface LongNode
+    {
+        long evaluate(RuleInputs inputs) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface DoubleNode
+    {
+        double evaluate(RuleInputs inputs) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface StringNode
+    {
+        String evaluate(RuleInputs inputs) throws Exception;
+    }
+
+    /** Node of the expression tree
+     *
+     *  <p>Exactly one of the evaluators is set, based on the type.
+     *  Separate factory methods instead of overloaded constructors
+     *  since the lambdas would otherwise be ambiguous.
+     */
+    private static class Node
+    {
+        final Type type;
+        final BooleanNode b;
+        final LongNode l;
+        final DoubleNode d;
+        final StringNode s;
+
+        static Node ofBoolean(final BooleanNode b)
+        {
+            return new Node(Type.BOOLEAN, b, null, null, null);
+        }
+
+        static Node ofLong(final LongNode l)
+        {
+            return new Node(Type.LONG, null, l, null, null);
+        }
+
+        static Node ofDouble(final DoubleNode d)
+        {
+            return new Node(Type.DOUBLE, null, null, d, null);
+        }
+
+        static Node ofString(final StringNode s)
+        {
+            return new Node(Type.STRING, null, null, null, s);
+        }
+
+        private Node(final Type type, final BooleanNode b, final LongNode l, final DoubleNode d, final StringNode s)
+        {
+            this.type = type;
+            this.b = b;
+            this.l = l;
+            this.d = d;
+            this.s = s;
+        }
+
+        boolean isNumeric()
+        {
+            return type == Type.LONG  ||  type == Type.DOUBLE;
+        }
+
+        /** @return Evaluator for numeric value as double */
+        DoubleNode asDouble()
+        {
+            if (type == Type.DOUBLE)
+                return d;
+            final LongNode l = this.l;
+            return inputs -> l.evaluate(inputs);
+        }
+
+        /** @return Evaluator for python-type truth value */
+        BooleanNode asTruth()
+        {
+            switch (type)
+            {
+            case LONG:
+            {
+                final LongNode l = this.l;
+                return inputs -> l.evaluate(inputs) != 0;
+            }
+            case DOUBLE:
+            {
+                final DoubleNode d = this.d;
+                return inputs -> d.evaluate(inputs) != 0.0;
+            }
+            case STRING:
+            {
+                final StringNode s = this.s;
+                return inputs -> ! s.evaluate(inputs).isEmpty();
+            }
+            default:
+                return b;
+            }
+        }
+    }
+
+    /** Variables 'pv0', 'pvInt0', .. */
+    private static final Pattern VARIABLE = Pattern.compile("(pv|pvInt|pvStr|pvSev|pvLegacySev)([0-9]+)");
+
+    private final String text;
+    private final Node root;
+    private final BooleanNode truth;
+
+    /** Parse expression
+     *  @param text Text of the expression
+     *  @param pv_count Number of PVs that the expression may use
+     *  @return {@link RuleExpression}
+     *  @throws Exception if the expression cannot be parsed
+     */
+    public static RuleExpression parse(final String text, final int pv_count) throws Exception
+    {
+        return new RuleExpression(text, new Parser(text, pv_count).parse());
+    }
+
+    private RuleExpression(final String text, final Node root)
+    {
+        this.text = text;
+        this.root = root;
+        truth = root.asTruth();
+    }
+
+    /** @return Type of the expression's value */
+    public Type getType()
+    {
+        return root.type;
+    }
+
+    /** @param inputs {@link RuleInputs}
+     *  @return Truth value of the expression, using python rules for non-boolean values
+     *  @throws Exception on error
+     */
+    public boolean isTrue(final RuleInputs inputs) throws Exception
+    {
+        return truth.evaluate(inputs);
+    }
+
+    /** @param inputs {@link RuleInputs}
+     *  @return Value of the expression: Boolean, Long, Double or String
+     *  @throws Exception on error
+     */
+    public Object getValue(final RuleInputs inputs) throws Exception
+    {
+        switch (root.type)
+        {
+        case BOOLEAN:
+            return root.b.evaluate(inputs);
+        case LONG:
+            return root.l.evaluate(inputs);
+        case DOUBLE:
+            return root.d.evaluate(inputs);
+        default:
+            return root.s.evaluate(inputs);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return text;
+    }
+
+    /** Recursive descent parser
+     *
+     *  <pre>
+     *  or_expr    := and_expr { ('||' | 'or') and_expr }
+     *  and_expr   := not_expr { ('&&' | 'and') not_expr }
+     *  not_expr   := ('!' | 'not') not_expr | comparison
+     *  comparison := sum { ('==' | '=' | '!=' | '<' | '<=' | '>' | '>=') sum }
+     *  sum        := product { ('+' | '-') product }
+     *  product    := unary { ('*' | '/' | '%') unary }
+     *  unary      := ('-' | '+') unary | primary
+     *  primary    := number | string | true | false | variable | '(' or_expr ')'
+     *  </pre>
+     */
+    private static class Parser
+    {
+        private final String text;
+        private final int pv_count;
+        private int pos = 0;
+
+        Parser(final String text, final int pv_count)
+        {
+            this.text = text;
+            this.pv_count = pv_count;
+        }
+
+        Node parse() throws Exception
+        {
+            final Node result = orExpression();
+            skipSpace();
+            if (pos < text.length())
+                throw error("Unexpected '" + text.substring(pos) + "'");
+            return result;
+        }
+
+        private Exception error(final String message)
+        {
+            return new Exception("Cannot compile rule expression '" + text + "': " + message);
+        }
+
+        private void skipSpace()
+        {
+            while (pos < text.length()  &&  Character.isWhitespace(text.charAt(pos)))
+                ++pos;
+        }
+
+        /** @param symbol Operator
+         *  @return <code>true</code> if symbol was found and skipped
+         */
+        private boolean skip(final String symbol)
+        {
+            skipSpace();
+            if (! text.startsWith(symbol, pos))
+                return false;
+            pos += symbol.length();
+            return true;
+        }
+
+        /** @param keyword Keyword
+         *  @return <code>true</code> if keyword was found and skipped
+         */
+        private boolean skipKeyword(final String keyword)
+        {
+            skipSpace();
+            final int end = pos + keyword.length();
+            if (! text.startsWith(keyword, pos)  ||
+                (end < text.length()  &&  isIdentifierPart(text.charAt(end))))
+                return false;
+            pos = end;
+            return true;
+        }
+
+        private static boolean isIdentifierPart(final char c)
+        {
+            return Character.isLetterOrDigit(c)  ||  c == '_';
+        }
+
+        private Node orExpression() throws Exception
+        {
+            Node result = andExpression();
+            while (skip("||")  ||  skipKeyword("or"))
+            {
+                final Node other = andExpression();
+                checkBoolean(result, other, "or");
+                final BooleanNode a = result.b, b = other.b;
+                result = Node.ofBoolean(inputs -> a.evaluate(inputs) || b.evaluate(inputs));
+            }
+            return result;
+        }
+
+        private Node andExpression() throws Exception
+        {
+            Node result = notExpression();
+            while (skip("&&")  ||  skipKeyword("and"))
+            {
+                final Node other = notExpression();
+                checkBoolean(result, other, "and");
+                final BooleanNode a = result.b, b = other.b;
+                result = Node.ofBoolean(inputs -> a.evaluate(inputs) && b.evaluate(inputs));
+            }
+            return result;
+        }
+
+        /** Python 'and', 'or' return one of the operands,
+         *  which is only the same as the logical result for boolean operands
+         */
+        private void checkBoolean(final Node a, final Node b, final String op) throws Exception
+        {
+            if (a.type != Type.BOOLEAN  ||  b.type != Type.BOOLEAN)
+                throw error("'" + op + "' of " + a.type + " and " + b.type);
+        }
+
+        private Node notExpression() throws Exception
+        {
+            skipSpace();
+            boolean negate = false;
+            if (text.startsWith("!", pos)  &&  ! text.startsWith("!=", pos))
+            {
+                ++pos;
+                negate = true;
+            }
+            else
+                negate = skipKeyword("not");
+            if (negate)
+            {
+                final BooleanNode a = notExpression().asTruth();
+                return Node.ofBoolean(inputs -> ! a.evaluate(inputs));
+            }
+            return comparison();
+        }
+
+        private Node comparison() throws Exception
+        {
+            final Node first = sum();
+            Node left = first;
+            Node result = null;
+            String op;
+            while ((op = comparisonOperator()) != null)
+            {
+                final Node right = sum();
+                final BooleanNode compare = compare(left, op, right);
+                if (result == null)
+                    result = Node.ofBoolean(compare);
+                else
+                {   // Chained 'a < b < c' means 'a < b and b < c'
+                    final BooleanNode previous = result.b;
+                    result = Node.ofBoolean(inputs -> previous.evaluate(inputs) && compare.evaluate(inputs));
+                }
+                left = right;
+            }
+            return result == null ? first : result;
+        }
+
+        private String comparisonOperator()
+        {
+            skipSpace();
+            for (String op : new String[] { "==", "!=", "<=", ">=", "<", ">" })
+                if (skip(op))
+                    return op;
+            // Single '=' is treated as '=='
+            if (skip("="))
+                return "==";
+            return null;
+        }
+
+        private BooleanNode compare(final Node a, final String op, final Node b) throws Exception
+        {
+            if (a.type == Type.LONG  &&  b.type == Type.LONG)
+            {
+                final LongNode x = a.l, y = b.l;
+                switch (op)
+                {
+                case "==": return inputs -> x.evaluate(inputs) == y.evaluate(inputs);
+                case "!=": return inputs -> x.evaluate(inputs) != y.evaluate(inputs);
+                case "<":  return inputs -> x.evaluate(inputs) <  y.evaluate(inputs);
+                case "<=": return inputs -> x.evaluate(inputs) <= y.evaluate(inputs);
+                case ">":  return inputs -> x.evaluate(inputs) >  y.evaluate(inputs);
+                default:   return inputs -> x.evaluate(inputs) >= y.evaluate(inputs);
+                }
+            }
+            if (a.isNumeric()  &&  b.isNumeric())
+            {
+                final DoubleNode x = a.asDouble(), y = b.asDouble();
+                switch (op)
+                {
+                case "==": return inputs -> x.evaluate(inputs) == y.evaluate(inputs);
+                case "!=": return inputs -> x.evaluate(inputs) != y.evaluate(inputs);
+                case "<":  return inputs -> x.evaluate(inputs) <  y.evaluate(inputs);
+                case "<=": return inputs -> x.evaluate(inputs) <= y.evaluate(inputs);
+                case ">":  return inputs -> x.evaluate(inputs) >  y.evaluate(inputs);
+                default:   return inputs -> x.evaluate(inputs) >= y.evaluate(inputs);
+                }
+            }
+            if (a.type == Type.STRING  &&  b.type == Type.STRING)
+            {
+                final StringNode x = a.s, y = b.s;
+                switch (op)
+                {
+                case "==": return inputs -> x.evaluate(inputs).equals(y.evaluate(inputs));
+                case "!=": return inputs -> ! x.evaluate(inputs).equals(y.evaluate(inputs));
+                case "<":  return inputs -> x.evaluate(inputs).compareTo(y.evaluate(inputs)) <  0;
+                case "<=": return inputs -> x.evaluate(inputs).compareTo(y.evaluate(inputs)) <= 0;
+                case ">":  return inputs -> x.evaluate(inputs).compareTo(y.evaluate(inputs)) >  0;
+                default:   return inputs -> x.evaluate(inputs).compareTo(y.evaluate(inputs)) >= 0;
+                }
+            }
+            if (a.type == Type.BOOLEAN  &&  b.type == Type.BOOLEAN)
+            {
+                final BooleanNode x = a.b, y = b.b;
+                if (op.equals("=="))
+                    return inputs -> x.evaluate(inputs) == y.evaluate(inputs);
+                if (op.equals("!="))
+                    return inputs -> x.evaluate(inputs) != y.evaluate(inputs);
+            }
+            throw error("Cannot compare " + a.type + " " + op + " " + b.type);
+        }
+
+        private Node sum() throws Exception
+        {
+            Node result = product();
+            while (true)
+            {
+                if (skip("+"))
+                    result = add(result, product());
+                else if (skip("-"))
+                    result = subtract(result, product());
+                else
+                    return result;
+            }
+        }
+
+        private Node add(final Node a, final Node b) throws Exception
+        {
+            if (a.type == Type.LONG  &&  b.type == Type.LONG)
+            {
+                final LongNode x = a.l, y = b.l;
+                return Node.ofLong(inputs -> Math.addExact(x.evaluate(inputs), y.evaluate(inputs)));
+            }
+            if (a.isNumeric()  &&  b.isNumeric())
+            {
+                final DoubleNode x = a.asDouble(), y = b.asDouble();
+                return Node.ofDouble(inputs -> x.evaluate(inputs) + y.evaluate(inputs));
+            }
+            if (a.type == Type.STRING  &&  b.type == Type.STRING)
+            {
+                final StringNode x = a.s, y = b.s;
+                return Node.ofString(inputs -> x.evaluate(inputs) + y.evaluate(inputs));
+            }
+            throw error("Cannot add " + a.type + " + " + b.type);
+        }
+
+        private Node subtract(final Node a, final Node b) throws Exception
+        {
+            checkNumeric(a, "-", b);
+            if (a.type == Type.LONG  &&  b.type == Type.LONG)
+            {
+                final LongNode x = a.l, y = b.l;
+                return Node.ofLong(inputs -> Math.subtractExact(x.evaluate(inputs), y.evaluate(inputs)));
+            }
+            final DoubleNode x = a.asDouble(), y = b.asDouble();
+            return Node.ofDouble(inputs -> x.evaluate(inputs) - y.evaluate(inputs));
+        }
+
+        private void checkNumeric(final Node a, final String op, final Node b) throws Exception
+        {
+            if (! (a.isNumeric()  &&  b.isNumeric()))
+                throw error("Cannot compute " + a.type + " " + op + " " + b.type);
+        }
+
+        private Node product() throws Exception
+        {
+            Node result = unary();
+            while (true)
+            {
+                if (skip("*"))
+                    result = multiply(result, unary());
+                else if (skip("/"))
+                    result = divide(result, unary());
+                else if (skip("%"))
+                    result = modulo(result, unary());
+                else
+                    return result;
+            }
+        }
+
+        private Node multiply(final Node a, final Node b) throws Exception
+        {
+            checkNumeric(a, "*", b);
+            if (a.type == Type.LONG  &&  b.type == Type.LONG)
+            {
+                final LongNode x = a.l, y = b.l;
+                return Node.ofLong(inputs -> Math.multiplyExact(x.evaluate(inputs), y.evaluate(inputs)));
+            }
+            final DoubleNode x = a.asDouble(), y = b.asDouble();
+            return Node.ofDouble(inputs -> x.evaluate(inputs) * y.evaluate(inputs));
+        }
+
+        private Node divide(final Node a, final Node b) throws Exception
+        {
+            checkNumeric(a, "/", b);
+            if (a.type == Type.LONG  &&  b.type == Type.LONG)
+            {   // Python 2 integer division rounds down
+                final LongNode x = a.l, y = b.l;
+                return Node.ofLong(inputs -> Math.floorDiv(x.evaluate(inputs), y.evaluate(inputs)));
+            }
+            final DoubleNode x = a.asDouble(), y = b.asDouble();
+            return Node.ofDouble(inputs ->
+            {
+                final double divisor = y.evaluate(inputs);
+                if (divisor == 0.0)
+                    throw new ArithmeticException("float division by zero");
+                return x.evaluate(inputs) / divisor;
+            });
+        }
+
+        private Node modulo(final Node a, final Node b) throws Exception
+        {
+            checkNumeric(a, "%", b);
+            if (a.type == Type.LONG  &&  b.type == Type.LONG)
+            {
+                final LongNode x = a.l, y = b.l;
+                return Node.ofLong(inputs -> Math.floorMod(x.evaluate(inputs), y.evaluate(inputs)));
+            }
+            final DoubleNode x = a.asDouble(), y = b.asDouble();
+            return Node.ofDouble(inputs ->
+            {
+                final double divisor = y.evaluate(inputs);
+                if (divisor == 0.0)
+                    throw new ArithmeticException("float modulo");
+                // Python result has the sign of the divisor
+                double mod = x.evaluate(inputs) % divisor;
+                if (mod != 0.0  &&  (divisor < 0) != (mod < 0))
+                    mod += divisor;
+                return mod;
+            });
+        }
+
+        private Node unary() throws Exception
+        {
+            if (skip("-"))
+            {
+                final Node a = unary();
+                if (a.type == Type.LONG)
+                {
+                    final LongNode x = a.l;
+                    return Node.ofLong(inputs -> Math.negateExact(x.evaluate(inputs)));
+                }
+                if (a.type == Type.DOUBLE)
+                {
+                    final DoubleNode x = a.d;
+                    return Node.ofDouble(inputs -> - x.evaluate(inputs));
+                }
+                throw error("Cannot negate " + a.type);
+            }
+            if (skip("+"))
+            {
+                final Node a = unary();
+                if (! a.isNumeric())
+                    throw error("Cannot apply '+' to " + a.type);
+                return a;
+            }
+            return primary();
+        }
+
+        private Node primary() throws Exception
+        {
+            skipSpace();
+            if (pos >= text.length())
+                throw error("Missing operand");
+            final char c = text.charAt(pos);
+            if (c == '(')
+            {
+                ++pos;
+                final Node result = orExpression();
+                if (! skip(")"))
+                    throw error("Missing ')'");
+                return result;
+            }
+            if (c == '"'  ||  c == '\'')
+                return string(c);
+            if (Character.isDigit(c)  ||  c == '.')
+                return number();
+            if (Character.isLetter(c)  ||  c == '_')
+                return identifier();
+            throw error("Unexpected '" + text.substring(pos) + "'");
+        }
+
+        private Node string(final char quote) throws Exception
+        {
+            final StringBuilder buf = new StringBuilder();
+            ++pos;
+            while (pos < text.length())
+            {
+                char c = text.charAt(pos++);
+                if (c == quote)
+                {
+                    final String value = buf.toString();
+                    return Node.ofString(inputs -> value);
+                }
+                if (c == '\\'  &&  pos < text.length())
+                {
+                    c = text.charAt(pos++);
+                    switch (c)
+                    {
+                    case '\\':
+                    case '\'':
+                    case '"':
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    default:
+                        throw error("Unsupported escape sequence '\\" + c + "'");
+                    }
+                }
+                buf.append(c);
+            }
+            throw error("Unterminated string");
+        }
+
+        private Node number() throws Exception
+        {
+            final int start = pos;
+            boolean is_double = false;
+            while (pos < text.length()  &&  Character.isDigit(text.charAt(pos)))
+                ++pos;
+            if (pos < text.length()  &&  text.charAt(pos) == '.')
+            {
+                is_double = true;
+                ++pos;
+                while (pos < text.length()  &&  Character.isDigit(text.charAt(pos)))
+                    ++pos;
+            }
+            if (pos < text.length()  &&  (text.charAt(pos) == 'e'  ||  text.charAt(pos) == 'E'))
+            {
+                is_double = true;
+                ++pos;
+                if (pos < text.length()  &&  (text.charAt(pos) == '+'  ||  text.charAt(pos) == '-'))
+                    ++pos;
+                while (pos < text.length()  &&  Character.isDigit(text.charAt(pos)))
+                    ++pos;
+            }
+            // Python suffixes like '10L', hex '0x10'
+            if (pos < text.length()  &&  isIdentifierPart(text.charAt(pos)))
+                throw error("Unsupported number format");
+            final String spec = text.substring(start, pos);
+            try
+            {
+                if (is_double)
+                {
+                    final double value = Double.parseDouble(spec);
+                    return Node.ofDouble(inputs -> value);
+                }
+                // Python 2 treats '010' as octal
+                if (spec.length() > 1  &&  spec.charAt(0) == '0')
+                    throw error("Unsupported octal number " + spec);
+                final long value = Long.parseLong(spec);
+                return Node.ofLong(inputs -> value);
+            }
+            catch (NumberFormatException ex)
+            {
+                throw error("Invalid number " + spec);
+            }
+        }
+
+        private Node identifier() throws Exception
+        {
+            final int start = pos;
+            while (pos < text.length()  &&  isIdentifierPart(text.charAt(pos)))
+                ++pos;
+            final String name = text.substring(start, pos);
+            if (name.equals("true")  ||  name.equals("True"))
+                return Node.ofBoolean(inputs -> true);
+            if (name.equals("false")  ||  name.equals("False"))
+                return Node.ofBoolean(inputs -> false);
+
+            final Matcher matcher = VARIABLE.matcher(name);
+            if (! matcher.matches())
+                throw error("Unknown variable '" + name + "'");
+            final int index;
+            try
+            {
+                index = Integer.parseInt(matcher.group(2));
+            }
+            catch (NumberFormatException ex)
+            {
+                throw error("Invalid variable '" + name + "'");
+            }
+            if (index >= pv_count)
+                throw error("No PV for variable '" + name + "'");
+            switch (matcher.group(1))
+            {
+            case "pvInt":
+                return Node.ofLong(inputs -> inputs.getLong(index));
+            case "pvStr":
+                return Node.ofString(inputs -> inputs.getString(index));
+            case "pvSev":
+                return Node.ofLong(inputs -> inputs.getSeverity(index));
+            case "pvLegacySev":
+                return Node.ofLong(inputs -> inputs.getLegacySeverity(index));
+            default:
+                return Node.ofDouble(inputs -> inputs.getDouble(index));
+            }
+        }
+    }
+}
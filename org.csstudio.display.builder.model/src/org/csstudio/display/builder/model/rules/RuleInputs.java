@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.rules;
+
+/** Access to the input PVs of a rule
+ *
+ *  <p>Provides the values of the 'pv0', 'pvInt0', 'pvStr0', ..
+ *  variables that a {@link RuleExpression} may use.
+ *  Mirrors the PVUtil calls of the generated rule script.
+ *
+ *  @author Kay Kasemir
+ */
+public interface RuleInputs
+{
+    /** @param index Index of PV
+     *  @return Value of PV as double, NaN if not numeric or no value
+     *  @throws Exception on error
+     */
+    public double getDouble(int index) throws Exception;
+
+    /** @param index Index of PV
+     *  @return Value of PV as long
+     *  @throws Exception on error, including no value
+     */
+    public long getLong(int index) throws Exception;
+
+    /** @param index Index of PV
+     *  @return Value of PV as string
+     *  @throws Exception on error, including no value
+     */
+    public String getString(int index) throws Exception;
+
+    /** @param index Index of PV
+     *  @return Alarm severity of PV
+     *  @throws Exception on error
+     */
+    public int getSeverity(int index) throws Exception;
+
+    /** @param index Index of PV
+     *  @return Legacy alarm severity of PV
+     *  @throws Exception on error
+     */
+    public int getLegacySeverity(int index) throws Exception;
+}
@@ -34,6 +34,12 @@ import org.diirt.vtype.VTable;
 import org.diirt.vtype.VType;
 
 /** Utility for formatting data as string.
+ *
+ *  <p>Numbers are formatted by {@link NumberFormatter} and {@link SexagesimalFormat}
+ *  into a per-thread buffer, falling back to {@link NumberFormat}
+ *  only for the rare values that those cannot handle.
+ *  The result is the same as from the {@link NumberFormat} for each {@link FormatOption}.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -45,12 +51,25 @@ public class FormatOptionHandler
     /** Use 'E' for exponential notation, not 'x10' */
     private static final DecimalFormatSymbols SYMBOLS = DecimalFormatSymbols.getInstance(LOCALE);
 
-    /** Cached formats for DECIMAL by precision */
+    /** Buffer that's re-used by each thread */
+    private static final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
+    /** Buffers that grew beyond this size are not re-used */
+    private static final int MAX_BUFFER = 4096;
+
+    /** Cached formats for DECIMAL by precision.
+     *  Shared by threads, SYNC on the format
+     */
     private final static ConcurrentHashMap<Integer, NumberFormat> decimal_formats = new ConcurrentHashMap<>();
 
-    /** Cached formats for EXPONENTIAL by precision */
+    /** Cached formats for EXPONENTIAL by precision.
+     *  Shared by threads, SYNC on the format
+     */
     private final static ConcurrentHashMap<Integer, NumberFormat> exponential_formats = new ConcurrentHashMap<>();
 
+    /** Digits for HEX */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     /** [85, 84, 70, 45, 56] */
     private static final Charset UTF8 = Charset.forName("UTF-8");
 
@@ -95,69 +114,97 @@ public class FormatOptionHandler
      *  @return Formatted value
      */
     public static String format(final VType value, final FormatOption option,
-                                int precision, final boolean show_units)
+                                final int precision, final boolean show_units)
+    {
+        if (value instanceof VString)
+            return ((VString)value).getValue();
+        StringBuilder buf = buffer.get();
+        if (buf.capacity() > MAX_BUFFER)
+        {   // Don't hold on to buffer that grew for a huge array
+            buf = new StringBuilder(64);
+            buffer.set(buf);
+        }
+        buf.setLength(0);
+        format(value, option, precision, show_units, buf);
+        return buf.toString();
+    }
+
+    /** Format value into buffer
+     *
+     *  @param value Value to format
+     *  @param option How to format the value
+     *  @param precision Precision to use. -1 will try to fetch precision from VType
+     *  @param show_units Include units?
+     *  @param buf Buffer to which formatted value is appended
+     */
+    public static void format(final VType value, final FormatOption option,
+                              int precision, final boolean show_units,
+                              final StringBuilder buf)
     {
 
         precision = actualPrecision(value, precision);
 
         if (value == null)
-            return "<null>";
-        if (value instanceof VNumber)
+            buf.append("<null>");
+        else if (value instanceof VNumber)
         {
             final VNumber number = (VNumber) value;
-            final String text = formatNumber(number.getValue(), number, option, precision);
+            formatNumber(buf, number.getValue(), number, option, precision);
             if (show_units  &&  !number.getUnits().isEmpty())
-                return text + " " + number.getUnits();
-            return text;
+                buf.append(' ').append(number.getUnits());
         }
         else if (value instanceof VString)
-            return ((VString)value).getValue();
+            buf.append(((VString)value).getValue());
         else if (value instanceof VEnum)
-            return formatEnum((VEnum) value, option);
+            buf.append(formatEnum((VEnum) value, option));
         else if (value instanceof VNumberArray)
         {
             final VNumberArray array = (VNumberArray) value;
             if (option == FormatOption.STRING)
-                return getLongString(array);
+            {
+                buf.append(getLongString(array));
+                return;
+            }
             final ListNumber data = array.getData();
             if (data.size() <= 0)
-                return "[]";
-            final StringBuilder buf = new StringBuilder("[");
-            buf.append(formatNumber(data.getDouble(0), array, option, precision));
+            {
+                buf.append("[]");
+                return;
+            }
+            buf.append('[');
+            formatNumber(buf, data.getDouble(0), array, option, precision);
             for (int i=1; i<data.size(); ++i)
             {
                 buf.append(", ");
-                buf.append(formatNumber(data.getDouble(i), array, option, precision));
+                formatNumber(buf, data.getDouble(i), array, option, precision);
             }
-            buf.append("]");
+            buf.append(']');
             if (show_units  &&  !array.getUnits().isEmpty())
-                buf.append(" ").append(array.getUnits());
-            return buf.toString();
+                buf.append(' ').append(array.getUnits());
         }
         else if (value instanceof VEnumArray)
         {
             final List<String> labels = ((VEnumArray)value).getLabels();
-            final StringBuilder buf = new StringBuilder("[");
+            buf.append('[');
             for (int i=0; i<labels.size(); ++i)
             {
                 if (i > 0)
                     buf.append(", ");
                 buf.append(labels.get(i));
             }
-            buf.append("]");
-            return buf.toString();
+            buf.append(']');
         }
         else if (value instanceof VStringArray)
-            return StringList.join(((VStringArray)value).getData());
+            buf.append(StringList.join(((VStringArray)value).getData()));
         else if (value instanceof VImage)
         {
             final VImage image = (VImage) value;
-            return "VImage(" + image.getWidth() + " x " + image.getHeight() + ")";
+            buf.append("VImage(").append(image.getWidth()).append(" x ").append(image.getHeight()).append(')');
         }
         else if (value instanceof VTable)
-            return formatTable((VTable) value);
-
-        return "<" + value.getClass().getName() + ">";
+            buf.append(formatTable((VTable) value));
+        else
+            buf.append('<').append(value.getClass().getName()).append('>');
     }
 
     private static NumberFormat getDecimalFormat(final int precision)
@@ -192,59 +239,99 @@ public class FormatOptionHandler
         return new DecimalFormat(pattern.toString(), SYMBOLS);
     }
 
-    private static String formatNumber(final Number value, final Display display,
-                                       final FormatOption option, final int precision)
+    /** @param buf Buffer to which formatted number is appended
+     *  @param fmt Shared {@link NumberFormat}, which is not thread-safe
+     *  @param value Number to format
+     */
+    private static void appendFormatted(final StringBuilder buf, final NumberFormat fmt, final Number value)
+    {
+        synchronized (fmt)
+        {
+            buf.append(fmt.format(value));
+        }
+    }
+
+    private static void formatNumber(final StringBuilder buf, final Number value, final Display display,
+                                     final FormatOption option, final int precision)
     {
         // Handle invalid numbers
         if (Double.isNaN(value.doubleValue()))
-            return "NaN";
+        {
+            buf.append("NaN");
+            return;
+        }
         if (Double.isInfinite(value.doubleValue()))
-            return Double.toString(value.doubleValue());
+        {
+            buf.append(value.doubleValue());
+            return;
+        }
 
         if (option == FormatOption.EXPONENTIAL)
-            return getExponentialFormat(precision).format(value);
-        if (option == FormatOption.ENGINEERING)
+        {
+            if (! NumberFormatter.appendExponential(buf, value, precision))
+                appendFormatted(buf, getExponentialFormat(precision), value);
+        }
+        else if (option == FormatOption.ENGINEERING)
         {   // DecimalFormat "##0." can create 'engineering' notation,
             // but then allows no control over the precision.
             // Using Nick Battam's idea from BOY simplepv.VTypeHelper
             final double num = value.doubleValue();
             if (num == 0.0)
-                return formatNumber(value, display, FormatOption.EXPONENTIAL, precision);
+            {
+                formatNumber(buf, value, display, FormatOption.EXPONENTIAL, precision);
+                return;
+            }
             final double log10 = Math.log10(Math.abs(num));
             final int power = 3 * (int) Math.floor(log10 / 3);
-            return String.format(LOCALE, "%." + precision + "fE%d", num / Math.pow(10, power), power);
+            final double mantissa = num / Math.pow(10, power);
+            if (NumberFormatter.appendFixed(buf, mantissa, precision))
+                buf.append('E').append(power);
+            else
+                buf.append(String.format(LOCALE, "%." + precision + "fE%d", mantissa, power));
         }
-        if (option == FormatOption.HEX)
+        else if (option == FormatOption.HEX)
         {
-            final StringBuilder buf = new StringBuilder();
+            buf.append("0x");
             if (precision <= 8)
-                buf.append(Integer.toHexString(value.intValue()).toUpperCase());
+                appendHex(buf, value.intValue() & 0xFFFFFFFFL, precision);
             else
-                buf.append(Long.toHexString(value.longValue()).toUpperCase());
-            for (int i=buf.length(); i<precision; ++i)
-                buf.insert(0, '0');
-            buf.insert(0, "0x");
-            return buf.toString();
+                appendHex(buf, value.longValue(), precision);
         }
-        if (option == FormatOption.STRING)
-            return new String(new byte[] { value.byteValue() });
-        if (option == FormatOption.COMPACT)
+        else if (option == FormatOption.STRING)
+            buf.append(new String(new byte[] { value.byteValue() }));
+        else if (option == FormatOption.COMPACT)
         {
             final double criteria = Math.abs(value.doubleValue());
             if (criteria > 0.0001  &&  criteria < 10000)
-                return formatNumber(value, display, FormatOption.DECIMAL, precision);
+                formatNumber(buf, value, display, FormatOption.DECIMAL, precision);
             else
-                return formatNumber(value, display, FormatOption.EXPONENTIAL, precision);
+                formatNumber(buf, value, display, FormatOption.EXPONENTIAL, precision);
         }
-        if (option == FormatOption.SEXAGESIMAL)
-            return SexagesimalFormat.format(value.doubleValue(), precision);
-        if (option == FormatOption.SEXAGESIMAL_HMS)
-            return SexagesimalFormat.format(value.doubleValue() * 12.0 / Math.PI, precision);
-        if (option == FormatOption.SEXAGESIMAL_DMS)
-            return SexagesimalFormat.format(value.doubleValue() * 180.0 / Math.PI, precision);
-
-        // DEFAULT, DECIMAL
-        return getDecimalFormat(precision).format(value);
+        else if (option == FormatOption.SEXAGESIMAL)
+            SexagesimalFormat.format(buf, value.doubleValue(), precision);
+        else if (option == FormatOption.SEXAGESIMAL_HMS)
+            SexagesimalFormat.format(buf, value.doubleValue() * 12.0 / Math.PI, precision);
+        else if (option == FormatOption.SEXAGESIMAL_DMS)
+            SexagesimalFormat.format(buf, value.doubleValue() * 180.0 / Math.PI, precision);
+        else
+        {   // DEFAULT, DECIMAL
+            if (! NumberFormatter.appendDecimal(buf, value, precision))
+                appendFormatted(buf, getDecimalFormat(precision), value);
+        }
+    }
+
+    /** Append upper case hex digits, same as Long.toHexString(bits).toUpperCase()
+     *  @param buf Buffer to which hex digits are appended
+     *  @param bits Bits of the number, treated as unsigned
+     *  @param precision Minimum number of digits, padded with leading zeros
+     */
+    private static void appendHex(final StringBuilder buf, final long bits, final int precision)
+    {
+        final int digits = Math.max(1, (67 - Long.numberOfLeadingZeros(bits)) / 4);
+        for (int i=digits; i<precision; ++i)
+            buf.append('0');
+        for (int shift = 4*(digits-1);  shift >= 0;  shift -= 4)
+            buf.append(HEX_DIGITS[(int) (bits >>> shift) & 0xF]);
     }
 
     /** @param value {@link VEnum}
@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.util;
+
+/** Thread-safe number formatting without object allocation
+ *
+ *  <p>Appends the same text as {@link java.text.DecimalFormat}
+ *  or {@link java.util.Formatter}, but without their temporary
+ *  objects and without the need to synchronize.
+ *
+ *  <p>Those formats round the shortest decimal digits that
+ *  represent a double, see {@link Double#toString(double)}.
+ *  This class rounds the exact binary value, using integer arithmetic.
+ *  The results are the same, except when a rounding tie
+ *  lies within the interval of values that all map to the same double.
+ *  For these rare cases, and for values outside of the supported range,
+ *  the methods return <code>false</code> and the caller
+ *  needs to fall back to the JDK formats.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class NumberFormatter
+{
+    /** Largest supported number of fraction digits */
+    static final int MAX_PRECISION = 17;
+
+    /** Powers of 5 that fit into a long */
+    private static final long[] POW5 = new long[28];
+
+    /** Powers of 10 that fit into a long */
+    private static final long[] POW10 = new long[19];
+
+    /** Doubles below this value hold integers exactly, 2^53 */
+    private static final double EXACT_INTEGERS = 9007199254740992.0;
+
+    static
+    {
+        POW5[0] = 1;
+        for (int i=1; i<POW5.length; ++i)
+            POW5[i] = POW5[i-1] * 5;
+        POW10[0] = 1;
+        for (int i=1; i<POW10.length; ++i)
+            POW10[i] = POW10[i-1] * 10;
+    }
+
+    /** @param value Number
+     *  @return Is number formatted as long by {@link java.text.DecimalFormat}?
+     */
+    private static boolean isLong(final Number value)
+    {
+        return value instanceof Long     ||  value instanceof Integer  ||
+               value instanceof Short    ||  value instanceof Byte;
+    }
+
+    /** @param value Number
+     *  @return Is number formatted as double by {@link java.text.DecimalFormat}?
+     */
+    private static boolean isDouble(final Number value)
+    {
+        return value instanceof Double  ||  value instanceof Float;
+    }
+
+    /** Append number like {@link java.text.DecimalFormat} with fixed number of fraction digits
+     *  @param buf Buffer to which number is appended
+     *  @param value Number, finite
+     *  @param precision Number of fraction digits
+     *  @return <code>true</code> if number was appended
+     */
+    static boolean appendDecimal(final StringBuilder buf, final Number value, final int precision)
+    {
+        if (isLong(value))
+        {
+            if (precision < 0  ||  precision > MAX_PRECISION)
+                return false;
+            buf.append(value.longValue());
+            appendZeros(buf, precision);
+            return true;
+        }
+        if (isDouble(value))
+            return appendFixed(buf, value.doubleValue(), precision);
+        return false;
+    }
+
+    /** Append number like {@link java.text.DecimalFormat} with fixed number of fraction digits,
+     *  or like {@link java.util.Formatter} for "%.{precision}f"
+     *  @param buf Buffer to which number is appended
+     *  @param value Number, finite
+     *  @param precision Number of fraction digits
+     *  @return <code>true</code> if number was appended
+     */
+    static boolean appendFixed(final StringBuilder buf, final double value, final int precision)
+    {
+        if (precision < 0  ||  precision > MAX_PRECISION)
+            return false;
+        final double abs = Math.abs(value);
+        if (abs < EXACT_INTEGERS  &&  abs == Math.floor(abs))
+        {   // Integer digits are exact, no rounding
+            appendSign(buf, value);
+            buf.append((long) abs);
+            appendZeros(buf, precision);
+            return true;
+        }
+        final long scaled = round(abs, precision);
+        if (scaled < 0)
+            return false;
+        appendSign(buf, value);
+        appendScaled(buf, scaled, precision);
+        return true;
+    }
+
+    /** Append number like {@link java.text.DecimalFormat} with pattern "0.000E0"
+     *  @param buf Buffer to which number is appended
+     *  @param value Number, finite
+     *  @param precision Number of fraction digits
+     *  @return <code>true</code> if number was appended
+     */
+    static boolean appendExponential(final StringBuilder buf, final Number value, final int precision)
+    {
+        if (precision < 0  ||  precision > MAX_PRECISION)
+            return false;
+        final double number;
+        if (isLong(value))
+        {   // Long is formatted with its exact digits,
+            // which are also the digits of the double up to 2^53
+            final long l = value.longValue();
+            if (l <= -EXACT_INTEGERS  ||  l >= EXACT_INTEGERS)
+                return false;
+            number = l;
+        }
+        else if (isDouble(value))
+            number = value.doubleValue();
+        else
+            return false;
+
+        final double abs = Math.abs(number);
+        if (abs == 0.0)
+        {
+            appendSign(buf, number);
+            buf.append('0');
+            appendZeros(buf, precision);
+            buf.append("E0");
+            return true;
+        }
+
+        // Estimate exponent, then correct if rounded mantissa is outside of 1..10
+        int exponent = (int) Math.floor(Math.log10(abs));
+        for (int attempt=0; attempt<4; ++attempt)
+        {
+            long scaled = round(abs, precision - exponent);
+            if (scaled < 0)
+                return false;
+            if (scaled == POW10[precision+1])
+            {   // 9.99.. rounded up to 10.0
+                scaled = POW10[precision];
+                ++exponent;
+            }
+            else if (scaled > POW10[precision+1])
+            {
+                ++exponent;
+                continue;
+            }
+            else if (scaled < POW10[precision])
+            {
+                --exponent;
+                continue;
+            }
+            appendSign(buf, number);
+            appendScaled(buf, scaled, precision);
+            buf.append('E').append(exponent);
+            return true;
+        }
+        return false;
+    }
+
+    /** @param buf Buffer to which '-' is added for negative numbers, including -0.0
+     *  @param value Number
+     */
+    private static void appendSign(final StringBuilder buf, final double value)
+    {
+        if (Double.doubleToRawLongBits(value) < 0)
+            buf.append('-');
+    }
+
+    /** @param buf Buffer to which '.000' is added
+     *  @param precision Number of zeros, none and no '.' for 0
+     */
+    private static void appendZeros(final StringBuilder buf, final int precision)
+    {
+        if (precision <= 0)
+            return;
+        buf.append('.');
+        for (int i=0; i<precision; ++i)
+            buf.append('0');
+    }
+
+    /** @param buf Buffer to which number is added
+     *  @param scaled Number multiplied by 10^precision
+     *  @param precision Number of fraction digits
+     */
+    private static void appendScaled(final StringBuilder buf, final long scaled, final int precision)
+    {
+        if (precision <= 0)
+        {
+            buf.append(scaled);
+            return;
+        }
+        final long factor = POW10[precision];
+        final long fraction = scaled % factor;
+        buf.append(scaled / factor);
+        buf.append('.');
+        for (long limit = factor / 10;  limit > 1  &&  fraction < limit;  limit /= 10)
+            buf.append('0');
+        buf.append(fraction);
+    }
+
+    /** Round value multiplied by a power of 10 to an integer
+     *  @param abs Positive, finite number
+     *  @param digits Power of 10 for scaling the number, may be negative
+     *  @return Rounded value, or -1 if result is out of range
+     *          or a rounding tie is within the interval of the double
+     */
+    private static long round(final double abs, final int digits)
+    {
+        // abs = mantissa * 2^exponent
+        final long bits = Double.doubleToRawLongBits(abs);
+        final int biased = (int) (bits >>> 52);
+        final long mantissa;
+        final int exponent;
+        if (biased == 0)
+        {   // Subnormal
+            mantissa = bits;
+            exponent = -1074;
+        }
+        else
+        {
+            mantissa = (bits & 0xFFFFFFFFFFFFFL) | 0x10000000000000L;
+            exponent = biased - 1075;
+        }
+
+        if (digits >= 0)
+        {   // abs * 10^digits = mantissa * 5^digits / 2^shift
+            if (digits >= POW5.length)
+                return -1;
+            return roundShifted(mantissa, POW5[digits], -(exponent + digits));
+        }
+
+        // abs * 10^digits = mantissa * 2^shift / 5^-digits
+        if (-digits >= POW5.length)
+            return -1;
+        final long factor = POW5[-digits];
+        final int shift = exponent + digits;
+        // abs * 10^digits = num / den with rounding interval of +-width/2 in units of 1/den
+        final long num, den, width;
+        if (shift >= 0)
+        {
+            if (shift > 9)
+                return -1;
+            num = mantissa << shift;
+            den = factor;
+            width = 1L << shift;
+        }
+        else
+        {
+            if (-shift > 62  ||  factor > (Long.MAX_VALUE >> -shift))
+                return -1;
+            num = mantissa;
+            den = factor << -shift;
+            width = 1;
+        }
+        final long quotient = num / den;
+        final long remainder = num % den;
+        // 2*remainder - den, computed without overflow
+        final long diff = remainder - (den - remainder);
+        if (Math.abs(diff) <= width)
+            return -1;
+        return diff > 0 ? quotient + 1 : quotient;
+    }
+
+    /** Round mantissa * factor / 2^shift
+     *  @param mantissa Mantissa of double, up to 53 bits
+     *  @param factor Odd factor, the rounding interval is +-factor/2 in units of 2^-shift
+     *  @param shift Shift
+     *  @return Rounded value, or -1 if out of range or a tie is within the rounding interval
+     */
+    private static long roundShifted(final long mantissa, final long factor, final int shift)
+    {
+        if (shift <= 0)
+            return -1; // Rounding interval is larger than 1
+        if (shift > 120)
+            return 0;  // mantissa * factor < 2^116, so value is far below 0.5
+
+        // 128 bit product
+        final long lo = mantissa * factor;
+        final long hi = multiplyHigh(mantissa, factor);
+
+        // Split into quotient and remainder, get half of the divisor
+        final long quotient, rem_hi, rem_lo, half_hi, half_lo;
+        if (shift >= 64)
+        {
+            quotient = hi >>> (shift - 64);
+            rem_hi = hi & ((1L << (shift - 64)) - 1);
+            rem_lo = lo;
+            if (shift == 64)
+            {
+                half_hi = 0;
+                half_lo = Long.MIN_VALUE;
+            }
+            else
+            {
+                half_hi = 1L << (shift - 65);
+                half_lo = 0;
+            }
+        }
+        else
+        {
+            if ((hi >>> shift) != 0)
+                return -1;
+            quotient = (lo >>> shift) | (hi << (64 - shift));
+            rem_hi = 0;
+            rem_lo = lo & ((1L << shift) - 1);
+            half_hi = 0;
+            half_lo = 1L << (shift - 1);
+        }
+        if (quotient < 0  ||  quotient > Long.MAX_VALUE / 2)
+            return -1;
+
+        // Distance of remainder from half
+        final boolean above = rem_hi > half_hi  ||
+                              (rem_hi == half_hi  &&  Long.compareUnsigned(rem_lo, half_lo) > 0);
+        final long dist_hi, dist_lo;
+        if (above)
+        {
+            dist_lo = rem_lo - half_lo;
+            dist_hi = rem_hi - half_hi - (Long.compareUnsigned(rem_lo, half_lo) < 0 ? 1 : 0);
+        }
+        else
+        {
+            dist_lo = half_lo - rem_lo;
+            dist_hi = half_hi - rem_hi - (Long.compareUnsigned(half_lo, rem_lo) < 0 ? 1 : 0);
+        }
+        // Tie within rounding interval? Factor is odd, so 2*dist <= factor means dist <= factor/2
+        if (dist_hi == 0  &&  Long.compareUnsigned(dist_lo, factor >>> 1) <= 0)
+            return -1;
+        return above ? quotient + 1 : quotient;
+    }
+
+    /** @param x Positive number
+     *  @param y Positive number
+     *  @return Upper 64 bits of the 128 bit product
+     */
+    private static long multiplyHigh(final long x, final long y)
+    {   // Same as Math.multiplyHigh, which requires Java 9
+        final long x1 = x >> 32, x2 = x & 0xFFFFFFFFL;
+        final long y1 = y >> 32, y2 = y & 0xFFFFFFFFL;
+        final long z2 = x2 * y2;
+        final long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        final long z0 = t >> 32;
+        z1 += x2 * y1;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+}
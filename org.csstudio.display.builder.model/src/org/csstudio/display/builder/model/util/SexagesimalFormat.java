@@ -7,6 +7,9 @@
  *******************************************************************************/
 package org.csstudio.display.builder.model.util;
 
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
 /** Sexagesimal format
  *
  *  @author Kay Kasemir
@@ -23,6 +26,15 @@ public class SexagesimalFormat
 
     private static final int MAXPREC = prec_tab.length + 1;
 
+    /** Doubles below this value hold integers exactly, 2^53 */
+    private static final double EXACT_INTEGERS = 9007199254740992.0;
+
+    /** Locale for which zero_digit was determined */
+    private static volatile Locale digit_locale = null;
+
+    /** Zero digit of digit_locale */
+    private static volatile char zero_digit = '0';
+
     /** Format number as sexagesimal hours:minutes:seconds with fractional seconds
      *
      *  <p>Precision determines the number of digits used for
@@ -35,7 +47,21 @@ public class SexagesimalFormat
      *  @param precision Digits used for minutes, seconds, fractional seconds
      *  @return "HH:MM:SS.SSS" type text
      */
-    public static String format(double value, int precision)
+    public static String format(final double value, final int precision)
+    {
+        final StringBuilder builder = new StringBuilder();
+        format(builder, value, precision);
+        return builder.toString();
+    }
+
+    /** Format number as sexagesimal hours:minutes:seconds with fractional seconds
+     *
+     *  @param builder Buffer to which "HH:MM:SS.SSS" type text is appended
+     *  @param value Number to format
+     *  @param precision Digits used for minutes, seconds, fractional seconds
+     *  @see #format(double, int)
+     */
+    public static void format(final StringBuilder builder, double value, final int precision)
     {
         double prec_frac, frac;
 
@@ -52,8 +78,6 @@ public class SexagesimalFormat
         // Add half the maximum displayed precision to aid with rounding
         value = value + 0.5 * prec_frac;
 
-        final StringBuilder builder = new StringBuilder();
-
         // Insert a leading negative sign, if required
         if(value < 0.0)
         {
@@ -68,23 +92,79 @@ public class SexagesimalFormat
         value = (value - min) * 60.0;
         final int sec = (int) value;
 
-        if (precision == 0)
-            builder.append(String.format("%.0f", hrs));
-        else if (precision == 1)
-            builder.append(String.format("%.0f:%d", hrs, (min / 10)));
-        else if (precision == 2)
-            builder.append(String.format("%.0f:%02d", hrs, min));
-        else if (precision == 3)
-            builder.append(String.format("%.0f:%02d:%d", hrs, min, sec / 10));
-        else if (precision == 4)
-            builder.append(String.format("%.0f:%02d:%02d", hrs, min, sec));
-        else
+        // Same as String.format("%.0f:%02d:%02d.%0Nf", ...), but without allocations
+        final int start = builder.length();
+        appendWhole(builder, hrs, 0);
+        if (precision == 1)
+            builder.append(':').append(min / 10);
+        else if (precision >= 2)
+        {
+            builder.append(':');
+            appendPadded(builder, min, 2);
+        }
+        if (precision == 3)
+            builder.append(':').append(sec / 10);
+        else if (precision >= 4)
+        {
+            builder.append(':');
+            appendPadded(builder, sec, 2);
+        }
+        if (precision > 4)
         {
             frac = Math.floor((value - sec) / (prec_frac * 3600.0));
-            builder.append(String.format("%.0f:%02d:%02d.%0" + (precision - 4) + ".0f", hrs, min, sec, frac));
+            builder.append('.');
+            appendWhole(builder, frac, precision - 4);
         }
 
-        return builder.toString();
+        // String.format uses the digits of the default locale
+        final char zero = getZeroDigit();
+        if (zero != '0')
+            for (int i=start; i<builder.length(); ++i)
+            {
+                final char c = builder.charAt(i);
+                if (c >= '0'  &&  c <= '9')
+                    builder.setCharAt(i, (char) (zero + c - '0'));
+            }
+    }
+
+    /** @param builder Buffer to which number is appended
+     *  @param number Whole number
+     *  @param width Minimum width, padded with leading zeros
+     */
+    private static void appendWhole(final StringBuilder builder, final double number, final int width)
+    {
+        if (number >= 0.0  &&  number < EXACT_INTEGERS)
+            appendPadded(builder, (long) number, width);
+        else if (width > 0)
+            builder.append(String.format(Locale.ROOT, "%0" + width + ".0f", number));
+        else
+            builder.append(String.format(Locale.ROOT, "%.0f", number));
+    }
+
+    /** @param builder Buffer to which number is appended
+     *  @param number Number, must not be negative
+     *  @param width Minimum width, padded with leading zeros
+     */
+    private static void appendPadded(final StringBuilder builder, final long number, final int width)
+    {
+        int digits = 1;
+        for (long rest = number; rest >= 10; rest /= 10)
+            ++digits;
+        for (int i=digits; i<width; ++i)
+            builder.append('0');
+        builder.append(number);
+    }
+
+    /** @return Zero digit used by String.format for the default locale */
+    private static char getZeroDigit()
+    {
+        final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        if (locale != digit_locale)
+        {
+            zero_digit = DecimalFormatSymbols.getInstance(locale).getZeroDigit();
+            digit_locale = locale;
+        }
+        return zero_digit;
     }
 
     private static double parseDouble(final String text) throws NumberFormatException
@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.representation.javafx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import org.csstudio.display.builder.model.util.ModelResourceUtil;
+import org.csstudio.display.builder.model.util.ModelThreadPool;
+import org.csstudio.display.builder.representation.Preferences;
+
+import javafx.scene.image.Image;
+import se.europeanspallationsource.xaos.components.SVG;
+
+/** Process-wide cache of images used by widgets
+ *
+ *  <p>Widgets that show the same image file share one decoded {@link Image}.
+ *  Entries are keyed by the resolved resource name and the requested size.
+ *  When the pixel data of all cached images exceeds the 'image_cache_mb'
+ *  preference, the least recently used entries are dropped.
+ *
+ *  <p>A JavaFX node can only have one parent, so each widget
+ *  still needs its own {@link SVG} node.
+ *  The content of SVG files is cached, and each call
+ *  parses a new node from it without reading the file again.
+ *
+ *  <p>Concurrent requests for the same resource wait for one load.
+ *  Loading is blocking, so it must not be called on the UI thread.
+ *  Use {@link #loadImage(String)} to load in the background.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ImageCache
+{
+    private static final long max_bytes = Preferences.getImageCacheMegabytes() * 1024L * 1024L;
+
+    /** Cached item, loaded once by the first requester */
+    private static class Entry
+    {
+        final CompletableFuture<Object> value = new CompletableFuture<>();
+        /** Size of value, 0 while loading */
+        long bytes = 0;
+    }
+
+    /** Entries in least-recently-used order. SYNC on entries */
+    private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Total bytes of all loaded entries. SYNC on entries */
+    private static long total_bytes = 0;
+
+    /** Get image in its original size
+     *  @param resource_name Resolved resource name
+     *  @return {@link Image}
+     *  @throws Exception on error
+     */
+    public static Image getImage(final String resource_name) throws Exception
+    {
+        return getImage(resource_name, 0, 0);
+    }
+
+    /** Get image
+     *  @param resource_name Resolved resource name
+     *  @param width Width to which image is scaled while decoding, 0 for original width
+     *  @param height Height to which image is scaled while decoding, 0 for original height
+     *  @return {@link Image}
+     *  @throws Exception on error
+     */
+    public static Image getImage(final String resource_name, final double width, final double height) throws Exception
+    {
+        final String key = getKey(resource_name) + "@" + width + "x" + height;
+        final Image image = (Image) get(key, () ->
+        {
+            try
+            (
+                final InputStream stream = ModelResourceUtil.openResourceStream(resource_name);
+            )
+            {
+                final Image loaded = new Image(stream, width, height, true, true);
+                if (loaded.isError())
+                    throw new Exception("Cannot decode image " + resource_name, loaded.getException());
+                return loaded;
+            }
+        });
+        return image;
+    }
+
+    /** Load image in background
+     *  @param resource_name Resolved resource name
+     *  @return {@link CompletableFuture} for the {@link Image}
+     */
+    public static CompletableFuture<Image> loadImage(final String resource_name)
+    {
+        return CompletableFuture.supplyAsync(() ->
+        {
+            try
+            {
+                return getImage(resource_name);
+            }
+            catch (Exception ex)
+            {
+                throw new CompletionException(ex);
+            }
+        }, ModelThreadPool.getExecutor());
+    }
+
+    /** Get SVG
+     *  @param resource_name Resolved resource name
+     *  @return New {@link SVG} node
+     *  @throws Exception on error
+     */
+    public static SVG getSVG(final String resource_name) throws Exception
+    {
+        final byte[] content = (byte[]) get(getKey(resource_name), () ->
+        {
+            final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            try
+            (
+                final InputStream stream = ModelResourceUtil.openResourceStream(resource_name);
+            )
+            {
+                ModelResourceUtil.copyResource(stream, buf);
+            }
+            return buf.toByteArray();
+        });
+        return SVG.load(new ByteArrayInputStream(content));
+    }
+
+    /** @param resource_name Resolved resource name
+     *  @return Cache key, including modification time of local files
+     */
+    private static String getKey(final String resource_name)
+    {
+        final String local = ModelResourceUtil.getLocalPath(resource_name);
+        if (local != null)
+        {
+            final File file = new File(local);
+            if (file.exists())
+                return resource_name + "@" + file.lastModified();
+        }
+        return resource_name;
+    }
+
+    /** @param key Cache key
+     *  @param loader Loads the value if it's not cached
+     *  @return Cached or newly loaded value
+     *  @throws Exception on error
+     */
+    private static Object get(final String key, final Callable<Object> loader) throws Exception
+    {
+        final Entry entry;
+        final boolean load;
+        synchronized (entries)
+        {
+            final Entry existing = entries.get(key);
+            if (existing == null)
+            {
+                entry = new Entry();
+                entries.put(key, entry);
+                load = true;
+            }
+            else
+            {
+                entry = existing;
+                load = false;
+            }
+        }
+
+        if (load)
+        {
+            try
+            {
+                final Object value = loader.call();
+                added(key, entry, getSize(value));
+                entry.value.complete(value);
+            }
+            catch (Throwable ex)
+            {
+                // Don't cache errors, try again on next request
+                synchronized (entries)
+                {
+                    entries.remove(key, entry);
+                }
+                entry.value.completeExceptionally(ex);
+            }
+        }
+
+        try
+        {
+            return entry.value.get();
+        }
+        catch (ExecutionException ex)
+        {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw new Exception("Cannot load " + key, cause);
+        }
+    }
+
+    /** @param value Image or SVG content
+     *  @return Approximate size in bytes
+     */
+    private static long getSize(final Object value)
+    {
+        if (value instanceof Image)
+        {
+            final Image image = (Image) value;
+            return 4L * (long) image.getWidth() * (long) image.getHeight();
+        }
+        return ((byte[]) value).length;
+    }
+
+    /** Account for loaded entry, remove least recently used entries when over the limit
+     *  @param key Key of loaded entry
+     *  @param entry Loaded entry
+     *  @param bytes Size of the loaded value
+     */
+    private static void added(final String key, final Entry entry, final long bytes)
+    {
+        synchronized (entries)
+        {
+            if (bytes > max_bytes)
+            {   // Don't drop all other entries to cache this one
+                entries.remove(key, entry);
+                return;
+            }
+            entry.bytes = bytes;
+            total_bytes += bytes;
+            final Iterator<Entry> iter = entries.values().iterator();
+            while (total_bytes > max_bytes  &&  iter.hasNext())
+            {
+                final Entry oldest = iter.next();
+                if (oldest == entry  ||  oldest.bytes <= 0)
+                    continue;
+                total_bytes -= oldest.bytes;
+                iter.remove();
+            }
+        }
+    }
+}
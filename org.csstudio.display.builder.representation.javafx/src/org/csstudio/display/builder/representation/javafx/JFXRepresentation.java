@@ -368,6 +368,13 @@ public class JFXRepresentation extends ToolkitRepresentation<Parent, Node>
         model_root.widthProperty().addListener(resized);
         model_root.heightProperty().addListener(resized);
 
+        // Widgets scrolled or zoomed into view may need updates that were suppressed
+        final InvalidationListener resume = prop -> resumeSuppressedUpdates();
+        model_root.hvalueProperty().addListener(resume);
+        model_root.vvalueProperty().addListener(resume);
+        model_root.viewportBoundsProperty().addListener(resume);
+        scroll_body.boundsInParentProperty().addListener(resume);
+
         // Middle Button (Wheel press) drag panning started
         final EventHandler<MouseEvent> onMousePressedHandler = evt ->
         {
@@ -109,6 +109,16 @@ public class TableDemo extends Application
                                               Arrays.asList(null, null, Color.BLUEVIOLET)));
         });
 
+        // Same data, only the colors change
+        final Button toggle_color = new Button("Toggle Color");
+        toggle_color.setOnAction(event ->
+        {
+            final Color color = toggle_color.getUserData() == Color.RED ? Color.GREEN : Color.RED;
+            toggle_color.setUserData(color);
+            table.setCellColors(Arrays.asList(Arrays.asList(color, null),
+                                              Arrays.asList(null, color)));
+        });
+
         final CheckBox sel_row = new CheckBox("Select rows");
         sel_row.setOnAction(event ->
         {
@@ -118,7 +128,7 @@ public class TableDemo extends Application
         final BorderPane layout = new BorderPane();
         layout.setTop(label);
         layout.setCenter(table);
-        layout.setRight(new VBox(10, new_headers, new_data, set_color, sel_row));
+        layout.setRight(new VBox(10, new_headers, new_data, set_color, toggle_color, sel_row));
         BorderPane.setMargin(layout.getRight(), new Insets(10));
 
         final Scene scene = new Scene(layout, 800, 700);
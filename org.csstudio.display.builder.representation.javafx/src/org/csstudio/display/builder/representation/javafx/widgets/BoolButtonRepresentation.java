@@ -10,6 +10,8 @@ package org.csstudio.display.builder.representation.javafx.widgets;
 import static org.csstudio.display.builder.representation.ToolkitRepresentation.logger;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.csstudio.display.builder.model.DirtyFlag;
@@ -18,6 +20,7 @@ import org.csstudio.display.builder.model.WidgetProperty;
 import org.csstudio.display.builder.model.util.ModelResourceUtil;
 import org.csstudio.display.builder.model.util.VTypeUtil;
 import org.csstudio.display.builder.model.widgets.BoolButtonWidget;
+import org.csstudio.display.builder.representation.javafx.ImageCache;
 import org.csstudio.display.builder.representation.javafx.JFXUtil;
 import org.csstudio.javafx.Styles;
 import org.diirt.vtype.VEnum;
@@ -66,8 +69,13 @@ public class BoolButtonRepresentation extends RegionBaseRepresentation<ButtonBas
     private volatile Color value_color;
     private volatile String[] state_labels;
     private volatile String value_label;
-    private volatile ImageView[] state_images;
-    private volatile ImageView value_image;
+    /** Images for off/on state, <code>null</code> to show the LED */
+    private volatile Image[] state_images = new Image[2];
+    private volatile Image value_image;
+    /** Counts requests to load images, to ignore outdated ones */
+    private final AtomicInteger image_request = new AtomicInteger();
+    /** Shows the value image. Only accessed on UI thread */
+    private ImageView image_view;
 
     @Override
     public ButtonBase createJFXNode() throws Exception
@@ -192,29 +200,42 @@ public class BoolButtonRepresentation extends RegionBaseRepresentation<ButtonBas
 
     private void imagesChanged(final WidgetProperty<?> property, final Object old_value, final Object new_value)
     {
-        state_images = new ImageView[]
+        // Load in background, keep showing the current images until then
+        final int request = image_request.incrementAndGet();
+        final CompletableFuture<Image> off = loadImage(model_widget.propOffImage().getValue());
+        final CompletableFuture<Image> on = loadImage(model_widget.propOnImage().getValue());
+        off.thenAcceptBoth(on, (off_image, on_image) ->
         {
-            loadImage(model_widget.propOffImage().getValue()),
-            loadImage(model_widget.propOnImage().getValue())
-        };
+            if (request != image_request.get())
+                return;
+            state_images = new Image[] { off_image, on_image };
+            stateChanged();
+        });
     }
 
-    private ImageView loadImage(final String path)
+    /** @param path Image path, may be empty
+     *  @return {@link CompletableFuture} for the image, completes with <code>null</code> if there is none
+     */
+    private CompletableFuture<Image> loadImage(final String path)
     {
         if (path.isEmpty())
-            return null;
+            return CompletableFuture.completedFuture(null);
         try
         {
             // Resolve image file relative to the source widget model (not 'top'!)
             final DisplayModel widget_model = model_widget.getDisplayModel();
             final String resolved = ModelResourceUtil.resolveResource(widget_model, path);
-            return new ImageView(new Image(ModelResourceUtil.openResourceStream(resolved)));
+            return ImageCache.loadImage(resolved).exceptionally(ex ->
+            {
+                logger.log(Level.WARNING, model_widget + " cannot load image", ex);
+                return null;
+            });
         }
         catch (Exception ex)
         {
             logger.log(Level.WARNING, model_widget + " cannot load image", ex);
         }
-        return null;
+        return CompletableFuture.completedFuture(null);
     }
 
     private void representationChanged(final WidgetProperty<?> property, final Object old_value, final Object new_value)
@@ -280,7 +301,7 @@ public class BoolButtonRepresentation extends RegionBaseRepresentation<ButtonBas
         if (update_value)
         {
             jfx_node.setText(value_label);
-            final ImageView image = value_image;
+            final Image image = value_image;
             if (image == null)
             {
                 jfx_node.setGraphic(led);
@@ -289,7 +310,12 @@ public class BoolButtonRepresentation extends RegionBaseRepresentation<ButtonBas
                 led.setFill(value_color);
             }
             else
-                jfx_node.setGraphic(image);
+            {
+                if (image_view == null)
+                    image_view = new ImageView();
+                image_view.setImage(image);
+                jfx_node.setGraphic(image_view);
+            }
         }
     }
 }
@@ -24,6 +24,7 @@ import org.csstudio.display.builder.model.widgets.EmbeddedDisplayWidget.Resize;
 import org.csstudio.display.builder.representation.EmbeddedDisplayRepresentationUtil.DisplayAndGroup;
 import org.csstudio.display.builder.representation.javafx.JFXUtil;
 
+import javafx.beans.InvalidationListener;
 import javafx.geometry.Insets;
 import javafx.scene.Parent;
 import javafx.scene.control.ScrollPane;
@@ -103,6 +104,11 @@ public class EmbeddedDisplayRepresentation extends RegionBaseRepresentation<Scro
 
         scroll = new ScrollPane(inner);
         scroll.getStyleClass().add("embedded_display");
+        // Widgets scrolled into view may need updates that were suppressed
+        final InvalidationListener resume = p -> toolkit.resumeSuppressedUpdates();
+        scroll.hvalueProperty().addListener(resume);
+        scroll.vvalueProperty().addListener(resume);
+        scroll.viewportBoundsProperty().addListener(resume);
         // Panning tends to 'jerk' the content when clicked
         // scroll.setPannable(true);
         return scroll;
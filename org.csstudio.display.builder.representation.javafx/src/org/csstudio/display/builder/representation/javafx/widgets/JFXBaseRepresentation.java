@@ -23,8 +23,10 @@ import org.csstudio.display.builder.representation.WidgetRepresentation;
 import org.csstudio.display.builder.representation.javafx.JFXRepresentation;
 
 import javafx.event.EventHandler;
+import javafx.geometry.Bounds;
 import javafx.scene.Node;
 import javafx.scene.Parent;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.input.MouseEvent;
 
 /** Base class for all JavaFX widget representations
@@ -204,6 +206,13 @@ abstract public class JFXBaseRepresentation<JFX extends Node, MW extends Widget>
 
         if (! toolkit.isEditMode())
             attachTooltip();
+
+        // When node becomes visible, widgets inside of it may be showing again
+        jfx_node.visibleProperty().addListener((p, was_visible, is_visible) ->
+        {
+            if (is_visible)
+                toolkit.resumeSuppressedUpdates();
+        });
     }
 
     /** Attach tool tip support
@@ -225,6 +234,51 @@ abstract public class JFXBaseRepresentation<JFX extends Node, MW extends Widget>
         toolkit.scheduleUpdate(this);
     }
 
+    /** Widget is not showing when it's hidden,
+     *  a parent node is hidden (for example the content of an unselected tab),
+     *  or it has been scrolled out of view.
+     *  {@inheritDoc}
+     */
+    @Override
+    public boolean isShowing()
+    {
+        if (jfx_node == null)
+            return true;
+        // Hidden by model, and node already reflects that?
+        // If node is still visible, need to update so it gets hidden
+        if (visible != null  &&  ! visible.getValue()  &&  ! jfx_node.isVisible())
+            return false;
+        Bounds bounds = null;
+        for (Parent parent = jfx_node.getParent(); parent != null; parent = parent.getParent())
+        {
+            if (! parent.isVisible())
+                return false;
+            if (parent instanceof ScrollPane)
+            {   // Check if node is within the view port of the scroll pane
+                if (bounds == null)
+                    bounds = jfx_node.localToScene(jfx_node.getBoundsInLocal());
+                if (! parent.localToScene(parent.getLayoutBounds()).intersects(bounds))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /** Focused widgets are updated first, hidden widgets last
+     *  {@inheritDoc}
+     */
+    @Override
+    public int getUpdatePriority()
+    {
+        if (jfx_node == null)
+            return UPDATE_PRIORITY_NORMAL;
+        if (jfx_node.isFocused())
+            return UPDATE_PRIORITY_HIGH;
+        if (! jfx_node.isVisible())
+            return UPDATE_PRIORITY_LOW;
+        return UPDATE_PRIORITY_NORMAL;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void updateChanges()
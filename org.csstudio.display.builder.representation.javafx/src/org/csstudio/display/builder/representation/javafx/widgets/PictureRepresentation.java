@@ -18,6 +18,7 @@ import org.csstudio.display.builder.model.macros.MacroHandler;
 import org.csstudio.display.builder.model.util.ModelResourceUtil;
 import org.csstudio.display.builder.model.util.ModelThreadPool;
 import org.csstudio.display.builder.model.widgets.PictureWidget;
+import org.csstudio.display.builder.representation.javafx.ImageCache;
 
 import javafx.geometry.Bounds;
 import javafx.geometry.Dimension2D;
@@ -70,14 +71,14 @@ public class PictureRepresentation extends JFXBaseRepresentation<Group, PictureW
 
             if ( filename.toLowerCase().endsWith(".svg") ) {
 
-                final SVG svg = SVG.load(ModelResourceUtil.openResourceStream(filename));
+                final SVG svg = ImageCache.getSVG(filename);
                 final Bounds bounds = svg.getLayoutBounds();
 
                 return new Dimension2D(bounds.getWidth(), bounds.getHeight());
 
             } else {
 
-                final Image image = new Image(ModelResourceUtil.openResourceStream(filename));
+                final Image image = ImageCache.getImage(filename);
 
                 return new Dimension2D(image.getWidth(), image.getHeight());
 
@@ -165,8 +166,8 @@ public class PictureRepresentation extends JFXBaseRepresentation<Group, PictureW
             if ( img_path.toLowerCase().endsWith(".svg") ) {
                 try {
 
-                    // Open the image from the stream created from the resource file
-                    svg = SVG.load(ModelResourceUtil.openResourceStream(img_path));
+                    // Cached file content, parsed into a new SVG node for this widget
+                    svg = ImageCache.getSVG(img_path);
 
                     Bounds bounds = svg.getLayoutBounds();
 
@@ -181,8 +182,8 @@ public class PictureRepresentation extends JFXBaseRepresentation<Group, PictureW
                 }
             } else {
                 try {
-                    // Open the image from the stream created from the resource file
-                    img_loaded = new Image(ModelResourceUtil.openResourceStream(img_path));
+                    // Image is shared with other widgets that use the same file
+                    img_loaded = ImageCache.getImage(img_path);
                     native_ratio = img_loaded.getWidth() / img_loaded.getHeight();
                     svg = null;
                 } catch ( Exception ex ) {
@@ -197,8 +198,7 @@ public class PictureRepresentation extends JFXBaseRepresentation<Group, PictureW
             final String dflt_img = PictureWidget.default_pic;
             try
             {
-                // Open the image from the stream created from the resource file
-                img_loaded = new Image(ModelResourceUtil.openResourceStream(dflt_img));
+                img_loaded = ImageCache.getImage(dflt_img);
                 native_ratio = img_loaded.getWidth() / img_loaded.getHeight();
                 svg = null;
             }
@@ -262,7 +262,8 @@ abstract public class RegionBaseRepresentation<JFX extends Region, MW extends Vi
             alarm_border = createAlarmBorder(severity, corners);
 
         dirty_border.mark();
-        toolkit.scheduleUpdate(this);
+        // Show change in alarm state before other updates
+        toolkit.scheduleUrgentUpdate(this);
     }
 
     private CornerRadii computeCornerRadii()
@@ -38,6 +38,7 @@ import org.csstudio.display.builder.model.macros.MacroHandler;
 import org.csstudio.display.builder.model.util.ModelResourceUtil;
 import org.csstudio.display.builder.model.widgets.PVWidget;
 import org.csstudio.display.builder.model.widgets.SymbolWidget;
+import org.csstudio.display.builder.representation.javafx.ImageCache;
 import org.csstudio.display.builder.representation.javafx.JFXUtil;
 import org.csstudio.javafx.Styles;
 import org.diirt.util.array.ListInt;
@@ -666,8 +667,8 @@ public class SymbolRepresentation extends RegionBaseRepresentation<AnchorPane, S
         String imageFileName = resolveImageFile(model_widget, SymbolWidget.DEFAULT_SYMBOL);
 
         try {
-            //  Open the image from the stream created from the resource file.
-            return new Image(ModelResourceUtil.openResourceStream(imageFileName));
+            //  Shared with other widgets that use the same image.
+            return ImageCache.getImage(imageFileName);
         } catch ( Exception ex ) {
             logger.log(Level.WARNING, "Failure loading image: {0} [{1}].", new Object[] { SymbolWidget.DEFAULT_SYMBOL, ex.getMessage() });
         }
@@ -868,8 +869,8 @@ public class SymbolRepresentation extends RegionBaseRepresentation<AnchorPane, S
                 if ( imageFileName.toLowerCase().endsWith(".svg") ) {
                     try {
 
-                        // Open the image from the stream created from the resource file
-                        svg = SVG.load(ModelResourceUtil.openResourceStream(imageFileName));
+                        //  File content is cached, but each widget needs its own SVG node.
+                        svg = ImageCache.getSVG(imageFileName);
 
                         Bounds bounds = svg.getLayoutBounds();
 
@@ -883,8 +884,8 @@ public class SymbolRepresentation extends RegionBaseRepresentation<AnchorPane, S
                     }
                 } else {
                     try {
-                        //  Open the image from the stream created from the resource file.
-                        image = new Image(ModelResourceUtil.openResourceStream(imageFileName));
+                        //  Shared with other widgets that use the same image.
+                        image = ImageCache.getImage(imageFileName);
                         originalWidth = image.getWidth();
                         originalHeight = image.getHeight();
                         svg = null;
@@ -283,7 +283,14 @@ public class TableRepresentation extends RegionBaseRepresentation<StringTable, T
 
         if (dirty_columns.checkAndClear())
         {
-            jfx_node.setHeaders(headers);
+            // Changing the headers re-creates the table columns and clears the data,
+            // so only do that when the headers differ, not for each column width etc.
+            if (! headers.equals(jfx_node.getHeaders()))
+            {
+                jfx_node.setHeaders(headers);
+                dirty_data.mark();
+                dirty_cell_colors.mark();
+            }
             final List<ColumnProperty> columns = model_widget.propColumns().getValue();
             final int num = Math.min(headers.size(), columns.size());
             for (int col=0; col<num; ++col)
@@ -123,6 +123,7 @@ public class TabsRepresentation extends JFXBaseRepresentation<TabPane, TabsWidge
                 value = jfx_node.getTabs().size() - 1;
             jfx_node.getSelectionModel().select(value);
             changing_active_tab.set(false);
+            updateTabVisibility();
         };
         // Select initial tab
         track_active_model_tab.propertyChanged(model_widget.propActiveTab(), null, null);
@@ -131,6 +132,7 @@ public class TabsRepresentation extends JFXBaseRepresentation<TabPane, TabsWidge
         // Update model when UI selects a tab
         jfx_node.getSelectionModel().selectedIndexProperty().addListener((t, o, selected) ->
         {
+            updateTabVisibility();
             if (! changing_active_tab.compareAndSet(false, true))
                 return;
             model_widget.propActiveTab().setValue(selected.intValue());
@@ -141,6 +143,19 @@ public class TabsRepresentation extends JFXBaseRepresentation<TabPane, TabsWidge
         layoutChanged(null, null, null);
     }
 
+    /** Hide the content of unselected tabs
+     *
+     *  <p>Widgets on hidden tabs are then not 'showing',
+     *  so their updates are suppressed until their tab is selected.
+     */
+    private void updateTabVisibility()
+    {
+        final Tab selected = jfx_node.getSelectionModel().getSelectedItem();
+        for (Tab tab : jfx_node.getTabs())
+            tab.getContent().setVisible(tab == selected);
+        toolkit.resumeSuppressedUpdates();
+    }
+
     private void tabsChanged(final WidgetProperty<List<TabItemProperty>> property,
             final List<TabItemProperty> removed,
             final List<TabItemProperty> added)
@@ -171,6 +186,7 @@ public class TabsRepresentation extends JFXBaseRepresentation<TabPane, TabsWidge
             final int index = jfx_node.getTabs().size();
             jfx_node.getTabs().add(tab);
 
+            content.setVisible(tab == jfx_node.getSelectionModel().getSelectedItem());
             addChildren(index, item.children().getValue());
 
             item.name().addPropertyListener(tab_title_listener);
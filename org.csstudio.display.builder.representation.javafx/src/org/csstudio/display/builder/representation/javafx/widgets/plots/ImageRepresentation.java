@@ -26,7 +26,9 @@ import org.csstudio.display.builder.model.util.ModelThreadPool;
 import org.csstudio.display.builder.model.widgets.plots.ImageWidget;
 import org.csstudio.display.builder.model.widgets.plots.ImageWidget.AxisWidgetProperty;
 import org.csstudio.display.builder.model.widgets.plots.ImageWidget.ROIWidgetProperty;
+import org.csstudio.display.builder.representation.Preferences;
 import org.csstudio.display.builder.representation.RepresentationUpdateThrottle;
+import org.csstudio.display.builder.representation.javafx.ImageCache;
 import org.csstudio.display.builder.representation.javafx.JFXUtil;
 import org.csstudio.display.builder.representation.javafx.widgets.RegionBaseRepresentation;
 import org.csstudio.javafx.rtplot.Axis;
@@ -151,6 +153,7 @@ public class ImageRepresentation extends RegionBaseRepresentation<Pane, ImageWid
         image_plot = new RTImagePlot(! toolkit.isEditMode());
         image_plot.setUpdateThrottle(RepresentationUpdateThrottle.plot_update_delay, TimeUnit.MILLISECONDS);
         image_plot.setAutoscale(false);
+        image_plot.setDownsampling(Preferences.isImageDownsampling());
 
         if (! toolkit.isEditMode())
         {
@@ -229,7 +232,7 @@ public class ImageRepresentation extends RegionBaseRepresentation<Pane, ImageWid
                 // Resolve the image path using the parent model file path
                 image_name = ModelResourceUtil.resolveResource(widget_model, image_name);
 
-                image = new Image(ModelResourceUtil.openResourceStream(image_name));
+                image = ImageCache.getImage(image_name);
             }
         }
         catch (Exception ex)
@@ -12,7 +12,7 @@ import java.util.concurrent.locks.ReadWriteLock;
 
 import org.csstudio.javafx.rtplot.data.InstrumentedReadWriteLock;
 import org.csstudio.javafx.rtplot.data.PlotDataItem;
-import org.csstudio.javafx.rtplot.data.PlotDataProvider;
+import org.csstudio.javafx.rtplot.data.PrimitivePlotDataProvider;
 import org.csstudio.javafx.rtplot.data.SimpleDataItem;
 import org.diirt.util.array.ArrayDouble;
 import org.diirt.util.array.ListNumber;
@@ -33,9 +33,13 @@ import org.diirt.util.array.ListNumber;
  *  <li>One element per sample: Error bar for each sample
  *  </ul>
  *
+ *  <p>The plot reads the waveforms via the primitive accessors,
+ *  {@link PlotDataItem}s are only created when the plot
+ *  asks for a specific sample.
+ *
  *  @author Kay Kasemir
  */
-public class XYVTypeDataProvider implements PlotDataProvider<Double>
+public class XYVTypeDataProvider implements PrimitivePlotDataProvider<Double>
 {
     public static final ListNumber EMPTY = new ArrayDouble(new double[0], true);
 
@@ -45,40 +49,25 @@ public class XYVTypeDataProvider implements PlotDataProvider<Double>
     private static final ReadWriteLock lock = new InstrumentedReadWriteLock();
 
 
-    private final PlotDataItem<Double>[] items;
+    /** X data, <code>null</code> to use the array index */
+    private final ListNumber x_data;
+    private final ListNumber y_data;
+    private final ListNumber error_data;
+    private final int size;
 
     /** Set the plot's data
      *  @param x_data X data, may be <code>null</code>
      *  @param y_data Y data
-     *  @param error_data Error data
+     *  @param error_data Error data, may be <code>null</code>
      */
-    @SuppressWarnings("unchecked")
-    public XYVTypeDataProvider(ListNumber x_data, ListNumber y_data, ListNumber error_data)
+    public XYVTypeDataProvider(final ListNumber x_data, final ListNumber y_data, final ListNumber error_data)
     {
+        // Keep the (immutable) waveforms, plot reads them via the primitive accessors
+        this.x_data = x_data;
+        this.y_data = y_data;
         // In principle, error_data should have 1 element or same size as X and Y..
-        if (error_data != null)
-            error_data = EMPTY;
-
-        // Could create each PlotDataItem lazily in get(),
-        // but create array of PlotDataItems right now because
-        // plot will likely iterate over the data elements at least once to plot value,
-        // maybe again to plot outline, find value at cursor etc.
-        final int size = x_data == null ? y_data.size() : Math.min(x_data.size(), y_data.size());
-        items = new PlotDataItem[size];
-        for (int index=0; index < size; ++index)
-        {
-            final double x = x_data == null ? index : x_data.getDouble(index);
-            final double y = y_data.getDouble(index);
-
-            if (error_data.size() <= 0) // No error data
-                items[index] = new SimpleDataItem<Double>(x, y, Double.NaN, Double.NaN, Double.NaN, null);
-            else
-            {   // Use corresponding array element, or [0] for scalar error info
-                // (silently treating size(error) < size(Y) as a mix of error array and scalar)
-                final double error = (error_data.size() > index) ? error_data.getDouble(index) : error_data.getDouble(0);
-                items[index] = new SimpleDataItem<Double>(x, y, Double.NaN, y - error, y + error, null);
-            }
-        }
+        this.error_data = error_data == null ? EMPTY : error_data;
+        size = x_data == null ? y_data.size() : Math.min(x_data.size(), y_data.size());
     }
 
     public XYVTypeDataProvider()
@@ -95,13 +84,50 @@ public class XYVTypeDataProvider implements PlotDataProvider<Double>
     @Override
     public int size()
     {
-        return items.length;
+        return size;
+    }
+
+    @Override
+    public double getPositionValue(final int index)
+    {
+        return x_data == null ? index : x_data.getDouble(index);
+    }
+
+    @Override
+    public double getValue(final int index)
+    {
+        return y_data.getDouble(index);
+    }
+
+    /** @param index Sample index
+     *  @return Error for the sample, or {@link Double#NaN}
+     */
+    private double getError(final int index)
+    {
+        final int N = error_data.size();
+        if (N <= 0) // No error data
+            return Double.NaN;
+        // Use corresponding array element, or [0] for scalar error info
+        // (silently treating size(error) < size(Y) as a mix of error array and scalar)
+        return N > index ? error_data.getDouble(index) : error_data.getDouble(0);
+    }
+
+    @Override
+    public double getMin(final int index)
+    {
+        return getValue(index) - getError(index);
+    }
+
+    @Override
+    public double getMax(final int index)
+    {
+        return getValue(index) + getError(index);
     }
 
     @Override
     public PlotDataItem<Double> get(final int index)
     {
-        return items[index];
+        return new SimpleDataItem<Double>(getPositionValue(index), getValue(index), Double.NaN, getMin(index), getMax(index), null);
     }
 
     @Override
@@ -11,6 +11,8 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -38,6 +40,9 @@ public class UpdateThrottleTest
         private final String name;
         private final AtomicInteger updates;
         public volatile boolean trigger_on_update = false;
+        public volatile long update_millis = 0;
+        public volatile List<String> update_order = null;
+        public volatile boolean showing = true;
 
         public TestWidgetRepresentation(final String name, final AtomicInteger updates)
         {
@@ -56,6 +61,19 @@ public class UpdateThrottleTest
         {
             final String now = Instant.now().toString();
             System.out.println(now + ": Widget " + name + " updates: " + updates.incrementAndGet());
+            if (update_order != null)
+                update_order.add(name);
+            if (update_millis > 0)
+            {   // Simulate slow update
+                try
+                {
+                    TimeUnit.MILLISECONDS.sleep(update_millis);
+                }
+                catch (InterruptedException ex)
+                {
+                    // Ignore
+                }
+            }
 
             if (trigger_on_update)
             {   // Cause a burst of triggers right at the update
@@ -67,6 +85,12 @@ public class UpdateThrottleTest
             }
         }
 
+        @Override
+        public boolean isShowing()
+        {
+            return showing;
+        }
+
         @Override
         public void dispose()
         {
@@ -119,6 +143,77 @@ public class UpdateThrottleTest
         assertThat(updates_a.get(), equalTo(3));
         assertThat(updates_b.get(), equalTo(2));
 
+        // Each update was queued once, all further requests were coalesced
+        System.out.println("Enqueued: " + throttle.getEnqueuedUpdates() +
+                           ", coalesced: " + throttle.getCoalescedUpdates() +
+                           ", drained: " + throttle.getDrainedUpdates());
+        assertThat(throttle.getEnqueuedUpdates(), equalTo(5L));
+        assertThat(throttle.getCoalescedUpdates(), equalTo(4L));
+        assertThat(throttle.getDrainedUpdates(), equalTo(5L));
+
+        throttle.shutdown();
+    }
+
+    @Test
+    public void demonstrateUpdateBudget() throws Throwable
+    {
+        final List<String> order = new CopyOnWriteArrayList<>();
+        final AtomicInteger updates = new AtomicInteger();
+        final TestWidgetRepresentation widget_a = new TestWidgetRepresentation("A", updates);
+        final TestWidgetRepresentation widget_b = new TestWidgetRepresentation("B", updates);
+        final TestWidgetRepresentation widget_c = new TestWidgetRepresentation("C", updates);
+        for (TestWidgetRepresentation widget : new TestWidgetRepresentation[] { widget_a, widget_b, widget_c })
+        {
+            widget.update_millis = 50;
+            widget.update_order = order;
+        }
+
+        // C requests an urgent update after A and B requested normal updates
+        throttle.scheduleUpdate(widget_a);
+        throttle.scheduleUpdate(widget_b);
+        throttle.scheduleUrgentUpdate(widget_c);
+
+        // Each widget is updated once, urgent one first
+        TimeUnit.SECONDS.sleep(1);
+        System.out.println("Update order: " + order);
+        assertThat(updates.get(), equalTo(3));
+        assertThat(order.get(0), equalTo("C"));
+        assertThat(order.get(1), equalTo("A"));
+        assertThat(order.get(2), equalTo("B"));
+
+        // Slow updates exceeded the budget, so some were deferred to the next cycle
+        System.out.println("Deferred: " + throttle.getDeferredUpdates());
+        assertThat(throttle.getDeferredUpdates() > 0, equalTo(true));
+
+        throttle.shutdown();
+    }
+
+    @Test
+    public void demonstrateSuppressedUpdate() throws Throwable
+    {
+        final AtomicInteger updates = new AtomicInteger();
+        final TestWidgetRepresentation widget = new TestWidgetRepresentation("A", updates);
+
+        // Widget that is not showing is not updated
+        widget.showing = false;
+        throttle.scheduleUpdate(widget);
+        TimeUnit.SECONDS.sleep(1);
+        assertThat(updates.get(), equalTo(0));
+        assertThat(throttle.getSuppressedUpdates(), equalTo(1L));
+
+        // Widget becomes visible, for example via its own 'visible' property,
+        // and requests an update.
+        // Is updated without anybody resuming suppressed updates.
+        widget.showing = true;
+        throttle.scheduleUpdate(widget);
+        TimeUnit.SECONDS.sleep(1);
+        assertThat(updates.get(), equalTo(1));
+
+        // Resuming suppressed updates doesn't update it again
+        throttle.resumeSuppressedUpdates();
+        TimeUnit.SECONDS.sleep(1);
+        assertThat(updates.get(), equalTo(1));
+
         throttle.shutdown();
     }
 }
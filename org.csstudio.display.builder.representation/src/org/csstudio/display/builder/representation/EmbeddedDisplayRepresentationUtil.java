@@ -10,12 +10,16 @@ package org.csstudio.display.builder.representation;
 import static org.csstudio.display.builder.representation.ToolkitRepresentation.logger;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
+import org.csstudio.display.builder.model.ChildrenProperty;
 import org.csstudio.display.builder.model.DisplayModel;
 import org.csstudio.display.builder.model.Widget;
 import org.csstudio.display.builder.model.persist.ModelLoader;
@@ -38,6 +42,9 @@ public class EmbeddedDisplayRepresentationUtil
     /** Timeout used to await UI thread operations to prevent deadlock */
     private static final long TIMEOUT_MS = 5000;
 
+    /** Widget user data for the {@link Preload} of an embedded display */
+    private static final String USER_DATA_PRELOAD = "_embedded_preload";
+
     /** Display file name and optional group within that display */
     public static class DisplayAndGroup
     {
@@ -59,6 +66,22 @@ public class EmbeddedDisplayRepresentationUtil
             return group_name;
         }
 
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(display_file, group_name);
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (! (obj instanceof DisplayAndGroup))
+                return false;
+            final DisplayAndGroup other = (DisplayAndGroup) obj;
+            return display_file.equals(other.display_file)  &&
+                   group_name.equals(other.group_name);
+        }
+
         @Override
         public String toString()
         {
@@ -68,7 +91,25 @@ public class EmbeddedDisplayRepresentationUtil
         }
     }
 
+    /** Display model that is loaded ahead of time for an embedded display widget */
+    private static class Preload
+    {
+        final DisplayAndGroup display_and_group;
+        final ForkJoinTask<DisplayModel> model;
+
+        Preload(final DisplayAndGroup display_and_group, final ForkJoinTask<DisplayModel> model)
+        {
+            this.display_and_group = display_and_group;
+            this.model = model;
+        }
+    }
+
     /** Load display model, optionally trimmed to group
+     *
+     *  <p>Embedded displays within the loaded model
+     *  are then pre-loaded in parallel on the fork/join pool,
+     *  so they are available by the time their widgets are represented.
+     *
      *  @param display_file
      *  @param group_name
      *  @return {@link DisplayModel}
@@ -85,25 +126,14 @@ public class EmbeddedDisplayRepresentationUtil
         else
         {
             try
-            {   // Load model for displayFile, allowing lookup relative to this widget's model
-                final DisplayModel display = model_widget.getDisplayModel();
-                final String parent_display = display.getUserData(DisplayModel.USER_DATA_INPUT_FILE);
-                embedded_model = ModelLoader.resolveAndLoadModel(parent_display, display_and_group.getDisplayFile());
-
-                // Didn't honor the display size of legacy files,
-                // always shrunk those to wrap their widgets
-                final Version input_version = embedded_model.getUserData(DisplayModel.USER_DATA_INPUT_VERSION);
-                if (input_version.getMajor() < 2)
-                    shrinkModelToWidgets(embedded_model);
-
-                // Tell embedded model that it is held by this widget,
-                // which provides access to macros of model_widget.
-                embedded_model.setUserData(DisplayModel.USER_DATA_EMBEDDING_WIDGET, model_widget);
-                if (!display_and_group.getGroupName().isEmpty())
-                    reduceDisplayModelToGroup(model_widget, embedded_model, display_and_group);
-                // Adjust model name to reflect source file
-                embedded_model.propName().setValue("EmbeddedDisplay " + display_and_group.getDisplayFile());
+            {
+                final Preload preload = model_widget.clearUserData(USER_DATA_PRELOAD);
+                if (preload != null  &&  preload.display_and_group.equals(display_and_group))
+                    embedded_model = preload.model.get();
+                else
+                    embedded_model = prepareDisplayModel(model_widget, display_and_group);
                 model_widget.runtimePropConnected().setValue(true);
+                preloadEmbeddedDisplays(embedded_model);
             }
             catch (final Throwable ex)
             {   // Log error and show message in pseudo model
@@ -116,6 +146,67 @@ public class EmbeddedDisplayRepresentationUtil
         return embedded_model;
     }
 
+    /** Load display model and adjust it for the embedding widget
+     *  @param model_widget Widget that embeds the display
+     *  @param display_and_group Display file and optional group
+     *  @return {@link DisplayModel}
+     *  @throws Exception on error
+     */
+    private static DisplayModel prepareDisplayModel(final Widget model_widget, final DisplayAndGroup display_and_group) throws Exception
+    {
+        // Load model for displayFile, allowing lookup relative to this widget's model
+        final DisplayModel display = model_widget.getDisplayModel();
+        final String parent_display = display.getUserData(DisplayModel.USER_DATA_INPUT_FILE);
+        final DisplayModel embedded_model = ModelLoader.resolveAndLoadCachedModel(parent_display, display_and_group.getDisplayFile());
+
+        // Didn't honor the display size of legacy files,
+        // always shrunk those to wrap their widgets
+        final Version input_version = embedded_model.getUserData(DisplayModel.USER_DATA_INPUT_VERSION);
+        if (input_version.getMajor() < 2)
+            shrinkModelToWidgets(embedded_model);
+
+        // Tell embedded model that it is held by this widget,
+        // which provides access to macros of model_widget.
+        embedded_model.setUserData(DisplayModel.USER_DATA_EMBEDDING_WIDGET, model_widget);
+        if (!display_and_group.getGroupName().isEmpty())
+            reduceDisplayModelToGroup(model_widget, embedded_model, display_and_group);
+        // Adjust model name to reflect source file
+        embedded_model.propName().setValue("EmbeddedDisplay " + display_and_group.getDisplayFile());
+        return embedded_model;
+    }
+
+    /** Start loading the embedded displays of a model
+     *
+     *  <p>Only loads one level ahead:
+     *  Embedded displays of the pre-loaded models
+     *  are in turn pre-loaded once those models are used,
+     *  which avoids running away on displays that embed themselves.
+     *
+     *  @param model Model or widget where embedded display widgets are located
+     */
+    private static void preloadEmbeddedDisplays(final Widget model)
+    {
+        final ChildrenProperty children = ChildrenProperty.getChildren(model);
+        if (children == null)
+            return;
+        for (Widget child : children.getValue())
+        {
+            if (child instanceof EmbeddedDisplayWidget)
+            {
+                final EmbeddedDisplayWidget embedded = (EmbeddedDisplayWidget) child;
+                final DisplayAndGroup display_and_group =
+                    new DisplayAndGroup(embedded.propFile().getValue(), embedded.propGroupName().getValue());
+                if (display_and_group.getDisplayFile().isEmpty())
+                    continue;
+                final ForkJoinTask<DisplayModel> task =
+                    ForkJoinPool.commonPool().submit(() -> prepareDisplayModel(embedded, display_and_group));
+                embedded.setUserData(USER_DATA_PRELOAD, new Preload(display_and_group, task));
+            }
+            else
+                preloadEmbeddedDisplays(child);
+        }
+    }
+
 
     /** Reduce display model to content of one named group
      *  @param display_file Name of the display file
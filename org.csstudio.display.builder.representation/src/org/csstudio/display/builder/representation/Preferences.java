@@ -56,6 +56,15 @@ public class Preferences
         return milli;
     }
 
+    public static int getUpdateBudgetMillisec()
+    {
+        int milli = 8;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs != null)
+            milli = prefs.getInt(ID, "update_budget_ms", milli, null);
+        return milli;
+    }
+
     public static int getPlotUpdateDelayMillisec()
     {
         int milli = 100;
@@ -64,4 +73,22 @@ public class Preferences
             milli = prefs.getInt(ID, "plot_update_delay", milli, null);
         return milli;
     }
+
+    public static int getImageCacheMegabytes()
+    {
+        int mb = 100;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs != null)
+            mb = prefs.getInt(ID, "image_cache_mb", mb, null);
+        return mb;
+    }
+
+    public static boolean isImageDownsampling()
+    {
+        boolean downsample = false;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs != null)
+            downsample = prefs.getBoolean(ID, "image_downsample", downsample, null);
+        return downsample;
+    }
 }
@@ -10,12 +10,19 @@ package org.csstudio.display.builder.representation;
 import static org.csstudio.display.builder.representation.ToolkitRepresentation.logger;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 
 /** Handle throttled updates on UI thread.
@@ -33,6 +40,26 @@ import java.util.logging.Level;
  *  <p>Once there are no more updates, the thread waits until
  *  woken up again by the next requested update.
  *
+ *  <p>Requesting an update does not lock.
+ *  Each representation carries a 'queued' flag,
+ *  so only the first request since the last update
+ *  adds it to a (multi-producer, single-consumer) queue,
+ *  while further requests are coalesced.
+ *  The throttle thread drains the complete queue in one go.
+ *
+ *  <p>Updates on the UI thread are limited to a time budget.
+ *  Representations with a higher update priority,
+ *  for example focused widgets or alarm changes, are handled first.
+ *  Representations that do not fit into the budget
+ *  are carried over to the next update cycle,
+ *  leaving the UI thread free to handle user input.
+ *
+ *  <p>Representations that are not showing, for example because
+ *  they are on a hidden tab, are not updated.
+ *  Their updates are suppressed until the toolkit calls
+ *  <code>resumeSuppressedUpdates()</code>, and then
+ *  only the latest state is represented.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -53,6 +80,9 @@ public class RepresentationUpdateThrottle
     /** Pause between updates to prevent flooding the UI thread */
     private static final long update_delay = Preferences.getUpdateDelayMillisec();
 
+    /** Time budget in nanoseconds for one batch of updates on the UI thread, 0 for 'unlimited' */
+    private static final long update_budget_ns = TimeUnit.MILLISECONDS.toNanos(Preferences.getUpdateBudgetMillisec());
+
     /** Pause between updates of plots to prevent flooding the UI thread */
     public static final long plot_update_delay = Preferences.getPlotUpdateDelayMillisec();
 
@@ -70,11 +100,45 @@ public class RepresentationUpdateThrottle
 
     /** Representations that requested an update.
      *
-     *  <p>Ordered by time when representations requested an update
+     *  <p>Ordered by time when representations requested an update.
+     *  Each representation is only present once,
+     *  see {@link WidgetRepresentation#update_queued}.
+     */
+    private final Queue<WidgetRepresentation<?, ?, ?>> updateable = new ConcurrentLinkedQueue<>();
+
+    /** Number of update requests that were added to the queue */
+    private final LongAdder enqueued = new LongAdder();
+
+    /** Number of update requests that were coalesced with an already queued request */
+    private final LongAdder coalesced = new LongAdder();
+
+    /** Number of representations that were drained from the queue to be updated */
+    private final LongAdder drained = new LongAdder();
+
+    /** Number of representation updates that were deferred to the next cycle */
+    private final LongAdder deferred = new LongAdder();
+
+    /** Number of representation updates that were suppressed because representation was not showing */
+    private final LongAdder suppressed_count = new LongAdder();
+
+    /** Representations that are not showing.
      *
-     *  SYNC on access
+     *  <p>Their 'queued' flag remains set, and their 'suppressed' flag is set.
+     *  The next update request or the toolkit resuming updates
+     *  clears the 'suppressed' flag and queues them again.
+     *  Representations may thus remain in this set after they have been queued.
+     *
+     *  <p>Only accessed on UI thread
      */
-    private final Set<WidgetRepresentation<?, ?, ?>> updateable = new LinkedHashSet<>();
+    private final Set<WidgetRepresentation<?, ?, ?>> suppressed = new LinkedHashSet<>();
+
+    /** Representations that did not fit into the time budget of the last cycle.
+     *
+     *  <p>Set on UI thread before signaling that the cycle is done,
+     *  read by throttle thread after awaiting that signal.
+     *  Their 'queued' flag remains set, so they are not also in the queue.
+     */
+    private volatile List<WidgetRepresentation<?, ?, ?>> carried_over = Collections.emptyList();
 
     /** @param gui_executor Executor for UI thread */
     public RepresentationUpdateThrottle(final Executor gui_executor)
@@ -95,21 +159,105 @@ public class RepresentationUpdateThrottle
      */
     public void scheduleUpdate(final WidgetRepresentation<?, ?, ?> representation)
     {
-        synchronized (updateable)
+        if (representation.update_queued.compareAndSet(false, true))
         {
             updateable.add(representation);
-            updateable.notifyAll();
+            enqueued.increment();
+            LockSupport.unpark(throttle_thread);
+        }
+        else if (representation.update_suppressed.compareAndSet(true, false))
+        {   // Representation was not showing when last checked,
+            // but its state changed, for example its own visibility.
+            // 'queued' flag is still set, add directly to queue to check again
+            updateable.add(representation);
+            enqueued.increment();
+            LockSupport.unpark(throttle_thread);
         }
+        else
+            coalesced.increment();
+    }
+
+    /** Called by toolkit representation to request an urgent update.
+     *
+     *  <p>Similar to <code>scheduleUpdate()</code>, but the representation
+     *  will be updated before representations that requested
+     *  a normal update.
+     *
+     *  @param representation Toolkit representation that requests update
+     */
+    public void scheduleUrgentUpdate(final WidgetRepresentation<?, ?, ?> representation)
+    {
+        representation.update_urgent = true;
+        scheduleUpdate(representation);
+    }
+
+    /** Resume updates of representations that were suppressed because they were not showing.
+     *
+     *  <p>Must be called on UI thread when the visibility of representations
+     *  might have changed, for example when a different tab has been selected.
+     *  Suppressed representations are then checked again,
+     *  and those that are now showing will be updated.
+     */
+    public void resumeSuppressedUpdates()
+    {
+        if (suppressed.isEmpty())
+            return;
+        // 'queued' flag is still set, add directly to queue
+        // unless an update request already did that
+        for (WidgetRepresentation<?, ?, ?> representation : suppressed)
+            if (representation.update_suppressed.compareAndSet(true, false))
+                updateable.add(representation);
+        suppressed.clear();
+        LockSupport.unpark(throttle_thread);
+    }
+
+    /** Forget a representation that is disposed.
+     *
+     *  <p>Must be called on UI thread
+     *
+     *  @param representation Representation that will no longer need updates
+     */
+    public void forget(final WidgetRepresentation<?, ?, ?> representation)
+    {
+        representation.update_suppressed.set(false);
+        suppressed.remove(representation);
     }
 
     /** @param enable Enable updates, or pause? */
     public void enable(final boolean enable)
     {
         enabled = enable;
-        synchronized (updateable)
-        {
-            updateable.notifyAll();
-        }
+        LockSupport.unpark(throttle_thread);
+    }
+
+    /** @return Number of update requests that were queued */
+    public long getEnqueuedUpdates()
+    {
+        return enqueued.sum();
+    }
+
+    /** @return Number of update requests that were coalesced with an already queued request */
+    public long getCoalescedUpdates()
+    {
+        return coalesced.sum();
+    }
+
+    /** @return Number of representations that were drained from the queue to be updated */
+    public long getDrainedUpdates()
+    {
+        return drained.sum();
+    }
+
+    /** @return Number of representation updates that were deferred to the next cycle because of the time budget */
+    public long getDeferredUpdates()
+    {
+        return deferred.sum();
+    }
+
+    /** @return Number of representation updates that were suppressed because the representation was not showing */
+    public long getSuppressedUpdates()
+    {
+        return suppressed_count.sum();
     }
 
     private void doRun()
@@ -123,30 +271,29 @@ public class RepresentationUpdateThrottle
         {
             while (run)
             {
-                // Wait for requested updates
-                synchronized (updateable)
-                {
-                    while (run  &&  updateable.isEmpty())
-                        updateable.wait();
-                }
+                // Wait for requested updates.
+                // scheduleUpdate() unparks _after_ adding to the queue,
+                // and a pending unpark lets the next park() return,
+                // so no wake-up is lost
+                while (run  &&  updateable.isEmpty()  &&  carried_over.isEmpty())
+                    LockSupport.park(this);
                 if (! run)
                     return;
                 // Wait a little longer to allow more updates to accumulate
                 Thread.sleep(update_accumulation_time);
                 if (! enabled)
                     continue;
-                // Obtain safe copy, clear what had been accumulated
-                final WidgetRepresentation<?, ?, ?>[] representations;
-                synchronized (updateable)
-                {
-                    // Creating a direct copy, i.e. another new LinkedHashSet<>(updateable),
-                    // would be expensive, since we only need a _list_ of what's to update.
-                    // Could use type-safe
-                    //    new ArrayList<WidgetRepresentation<Pane, Node>>(updateable)
-                    // but that calls toArray() internally, so doing that directly
-                    representations = updateable.toArray(new WidgetRepresentation[updateable.size()]);
-                    updateable.clear();
-                }
+                // Start with what was carried over from last cycle,
+                // then drain what had been accumulated.
+                // The 'queued' flag is cleared on the UI thread
+                // right before each update.
+                final List<WidgetRepresentation<?, ?, ?>> representations = new ArrayList<>(carried_over);
+                carried_over = Collections.emptyList();
+                final int carried = representations.size();
+                WidgetRepresentation<?, ?, ?> representation;
+                while ((representation = updateable.poll()) != null)
+                    representations.add(representation);
+                drained.add(representations.size() - carried);
 
                 // Perform requested updates on UI thread
                 // Using CountDownLatch because that allows while (await, run).
@@ -167,14 +314,20 @@ public class RepresentationUpdateThrottle
                 else
                     update_ms = (9*update_ms + ms)/10;
 
-                // Wait a little to throttle updates
-                Thread.sleep(update_delay);
+                // Wait a little to throttle updates,
+                // unless updates were left over because of the time budget.
+                // Those are handled after the next accumulation time.
+                if (carried_over.isEmpty())
+                    Thread.sleep(update_delay);
 
                 final Instant now = Instant.now();
                 if (now.isAfter(next_update_log))
                 {
                     if (update_ms > performance_log_threshold_ms)
                         logger.log(Level.FINE, "Averange update duration: {0} ms", update_ms);
+                    if (logger.isLoggable(Level.FINER))
+                        logger.log(Level.FINER, "Updates enqueued: {0}, coalesced: {1}, drained: {2}, deferred: {3}, suppressed: {4}",
+                                   new Object[] { enqueued.sum(), coalesced.sum(), drained.sum(), deferred.sum(), suppressed_count.sum() });
                     next_update_log = now.plusSeconds(performance_log_period_secs);
                 }
             }
@@ -189,15 +342,48 @@ public class RepresentationUpdateThrottle
      *  @param representations Representations that need to be updated
      *  @param done Must be signaled when representations have been updated
      */
-    private void updateInUI(final WidgetRepresentation<?, ?, ?>[] representations,
+    private void updateInUI(final List<WidgetRepresentation<?, ?, ?>> representations,
                             final CountDownLatch done)
     {
         gui_executor.execute(() ->
         {
-            for (final WidgetRepresentation<?, ?, ?> representation : representations)
+            final List<WidgetRepresentation<?, ?, ?>> ordered = prioritize(representations);
+            final long deadline = System.nanoTime() + update_budget_ns;
+            final int N = ordered.size();
+            for (int i=0; i<N; ++i)
             {
                 if (! run)
                     break;
+                // Perform at least one update, then check budget
+                if (i > 0  &&  update_budget_ns > 0  &&  System.nanoTime() > deadline)
+                {
+                    carried_over = new ArrayList<>(ordered.subList(i, N));
+                    deferred.add(N - i);
+                    break;
+                }
+                final WidgetRepresentation<?, ?, ?> representation = ordered.get(i);
+                if (! isShowing(representation))
+                {   // Keep 'queued' flag set, check again on next update request
+                    // or when updates are resumed.
+                    // Check once more after marking as suppressed,
+                    // in case the representation changed before it was marked
+                    representation.update_suppressed.set(true);
+                    if (! isShowing(representation))
+                    {
+                        suppressed.add(representation);
+                        suppressed_count.increment();
+                        continue;
+                    }
+                    if (! representation.update_suppressed.compareAndSet(true, false))
+                        continue; // Already queued again by update request
+                }
+                // Was suppressed, then queued by an update request?
+                if (! suppressed.isEmpty())
+                    suppressed.remove(representation);
+                // Clear flags before the update,
+                // so changes that happen while updating request another update
+                representation.update_urgent = false;
+                representation.update_queued.set(false);
                 try
                 {
                     representation.updateChanges();
@@ -211,14 +397,69 @@ public class RepresentationUpdateThrottle
         });
     }
 
+    /** @param representation Representation to check on UI thread
+     *  @return <code>true</code> if representation is showing, or in case of doubt
+     */
+    private boolean isShowing(final WidgetRepresentation<?, ?, ?> representation)
+    {
+        try
+        {
+            return representation.isShowing();
+        }
+        catch (final Throwable ex)
+        {
+            logger.log(Level.WARNING, "Cannot determine if representation is showing", ex);
+            return true;
+        }
+    }
+
+    /** Order representations by update priority
+     *
+     *  <p>Called on UI thread, so representations may inspect their toolkit items.
+     *  Order of representations with the same priority is preserved.
+     *
+     *  @param representations Representations that need to be updated
+     *  @return Representations in the order in which they should be updated
+     */
+    private List<WidgetRepresentation<?, ?, ?>> prioritize(final List<WidgetRepresentation<?, ?, ?>> representations)
+    {
+        final List<WidgetRepresentation<?, ?, ?>> high = new ArrayList<>(),
+                                                  normal = new ArrayList<>(representations.size()),
+                                                  low = new ArrayList<>();
+        for (WidgetRepresentation<?, ?, ?> representation : representations)
+        {
+            final int priority;
+            try
+            {
+                priority = representation.update_urgent
+                         ? WidgetRepresentation.UPDATE_PRIORITY_HIGH
+                         : representation.getUpdatePriority();
+            }
+            catch (final Throwable ex)
+            {
+                logger.log(Level.WARNING, "Cannot determine update priority", ex);
+                normal.add(representation);
+                continue;
+            }
+            if (priority >= WidgetRepresentation.UPDATE_PRIORITY_HIGH)
+                high.add(representation);
+            else if (priority <= WidgetRepresentation.UPDATE_PRIORITY_LOW)
+                low.add(representation);
+            else
+                normal.add(representation);
+        }
+        if (high.isEmpty()  &&  low.isEmpty())
+            return normal;
+        high.addAll(normal);
+        high.addAll(low);
+        return high;
+    }
+
     /** Shutdown the throttle thread and wait for it to exit */
     public void shutdown()
     {
         run = false;
-        synchronized (updateable)
-        {
-            updateable.notifyAll();
-        }
+        LockSupport.unpark(throttle_thread);
         try
         {
             throttle_thread.join(2000);
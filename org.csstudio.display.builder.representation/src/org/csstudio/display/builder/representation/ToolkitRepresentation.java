@@ -356,6 +356,7 @@ abstract public class ToolkitRepresentation<TWP extends Object, TW> implements E
         if (representation != null)
         {
             logger.log(Level.FINE, "Disposing {0} for {1}", new Object[] { representation, widget });
+            throttle.forget(representation);
             representation.dispose();
         }
         // else: Widget has no representation because not implemented for this toolkit
@@ -372,6 +373,29 @@ abstract public class ToolkitRepresentation<TWP extends Object, TW> implements E
         throttle.scheduleUpdate(representation);
     }
 
+    /** Called by toolkit representation to request an urgent update.
+     *
+     *  <p>Like <code>scheduleUpdate</code>, but representation will be updated
+     *  before those that requested a normal update,
+     *  for example to promptly show changes in alarm state.
+     *
+     *  @param representation Toolkit representation that requests update
+     */
+    public void scheduleUrgentUpdate(final WidgetRepresentation<TWP, TW, ? extends Widget> representation)
+    {
+        throttle.scheduleUrgentUpdate(representation);
+    }
+
+    /** Resume updates of representations that were suppressed because they were not showing.
+     *
+     *  <p>To be called when the visibility of representations
+     *  might have changed, for example when a different tab has been selected.
+     */
+    public void resumeSuppressedUpdates()
+    {
+        execute(throttle::resumeSuppressedUpdates);
+    }
+
     /** @param enable Enable updates, or pause? */
     public void enable(final boolean enable)
     {
@@ -7,6 +7,8 @@
  *******************************************************************************/
 package org.csstudio.display.builder.representation;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.csstudio.display.builder.model.Widget;
 
 /** Toolkit representation for a model widget
@@ -25,6 +27,17 @@ abstract public class WidgetRepresentation<TWP, TW, MW extends Widget>
     /** Extension point ID for contributing {@link WidgetRepresentation}s */
     public static final String EXTENSION_POINT = "org.csstudio.display.builder.representation.widgets";
 
+    /** Update priority for representations that are not visible */
+    public static final int UPDATE_PRIORITY_LOW = 0;
+
+    /** Default update priority */
+    public static final int UPDATE_PRIORITY_NORMAL = 1;
+
+    /** Update priority for representations that should be updated first,
+     *  for example because they have the focus
+     */
+    public static final int UPDATE_PRIORITY_HIGH = 2;
+
     /** Toolkit helper */
     protected volatile ToolkitRepresentation<TWP, TW> toolkit;
 
@@ -33,6 +46,20 @@ abstract public class WidgetRepresentation<TWP, TW, MW extends Widget>
 
     //     ^^ volatile ^^ to assert all threads see it and not a stale null
 
+    /** Set while this representation is queued in the {@link RepresentationUpdateThrottle}.
+     *  Allows coalescing update requests without locking.
+     */
+    final AtomicBoolean update_queued = new AtomicBoolean();
+
+    /** Set while this representation is not showing and its update is suppressed
+     *  by the {@link RepresentationUpdateThrottle}.
+     *  An update request then moves it back into the queue.
+     */
+    final AtomicBoolean update_suppressed = new AtomicBoolean();
+
+    /** Set when an urgent update has been requested */
+    volatile boolean update_urgent = false;
+
     // initialize() could be a constructor, but for instantiation
     // from Eclipse registry we need a zero-argument constructor.
 
@@ -73,6 +100,36 @@ abstract public class WidgetRepresentation<TWP, TW, MW extends Widget>
      */
     abstract public void updateChanges();
 
+    /** Check if representation is showing
+     *
+     *  <p>Called on the UI thread by the update throttle.
+     *  Updates of representations that are not showing,
+     *  for example because they are on a hidden tab,
+     *  are suppressed until the toolkit resumes them.
+     *
+     *  <p>Implementations that return <code>false</code> must
+     *  call <code>ToolkitRepresentation.resumeSuppressedUpdates()</code>
+     *  when they might be showing again.
+     *
+     *  @return <code>true</code> if representation is (possibly) visible to the user
+     */
+    public boolean isShowing()
+    {
+        return true;
+    }
+
+    /** Determine update priority
+     *
+     *  <p>Called on the UI thread by the update throttle
+     *  to decide which of the pending updates to perform first.
+     *
+     *  @return {@link #UPDATE_PRIORITY_LOW}, {@link #UPDATE_PRIORITY_NORMAL} or {@link #UPDATE_PRIORITY_HIGH}
+     */
+    public int getUpdatePriority()
+    {
+        return UPDATE_PRIORITY_NORMAL;
+    }
+
     /** Remove toolkit items.
      *
      *  <p>Called when model widget has been removed.
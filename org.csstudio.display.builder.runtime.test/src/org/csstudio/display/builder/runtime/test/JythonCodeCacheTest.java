@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.csstudio.display.builder.runtime.script.internal.ScriptSupport;
+import org.junit.Test;
+
+/** JUnit test of the cache for compiled Jython code
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class JythonCodeCacheTest
+{
+    private static InputStream stream(final String text)
+    {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Identical generated scripts of different widgets share the compiled code */
+    @Test
+    public void testSharedRuleCode() throws Exception
+    {
+        System.setProperty("python.import.site", "false");
+        final ScriptSupport scripting = new ScriptSupport();
+        final String text = "x = 'cache test " + System.nanoTime() + "'\n";
+
+        final int initial = ScriptSupport.getCachedJythonCode().size();
+        scripting.compile(null, "label:Widget1:rule.rule.py", stream(text));
+        assertThat(ScriptSupport.getCachedJythonCode().size(), equalTo(initial + 1));
+
+        // Same rule text for another widget is not compiled again
+        scripting.compile(null, "label:Widget2:rule.rule.py", stream(text));
+        assertThat(ScriptSupport.getCachedJythonCode().size(), equalTo(initial + 1));
+
+        // Different rule text is
+        scripting.compile(null, "label:Widget2:rule.rule.py", stream(text + "y = 2\n"));
+        assertThat(ScriptSupport.getCachedJythonCode().size(), equalTo(initial + 2));
+
+        scripting.close();
+    }
+
+    /** Modified script file results in new compiled code */
+    @Test
+    public void testChangedFile() throws Exception
+    {
+        System.setProperty("python.import.site", "false");
+        final ScriptSupport scripting = new ScriptSupport();
+        final File file = File.createTempFile("cache_test", ".py");
+        file.deleteOnExit();
+        final String path = file.getParent();
+
+        Files.write(file.toPath(), "x = 1\n".getBytes(StandardCharsets.UTF_8));
+        final int initial = ScriptSupport.getCachedJythonCode().size();
+        try
+        (
+            InputStream input = new FileInputStream(file);
+        )
+        {
+            scripting.compile(path, file.getName(), input);
+        }
+        assertThat(ScriptSupport.getCachedJythonCode().size(), equalTo(initial + 1));
+
+        // Unchanged file uses cached code
+        try
+        (
+            InputStream input = new FileInputStream(file);
+        )
+        {
+            scripting.compile(path, file.getName(), input);
+        }
+        assertThat(ScriptSupport.getCachedJythonCode().size(), equalTo(initial + 1));
+
+        // Changed file is compiled again
+        Files.write(file.toPath(), "x = 2\n".getBytes(StandardCharsets.UTF_8));
+        try
+        (
+            InputStream input = new FileInputStream(file);
+        )
+        {
+            scripting.compile(path, file.getName(), input);
+        }
+        assertThat(ScriptSupport.getCachedJythonCode().size(), equalTo(initial + 2));
+
+        scripting.close();
+    }
+}
@@ -60,10 +60,22 @@ public class PVNameToValueBinding
      *  @param need_write_access Does the PV need write access?
      */
     public PVNameToValueBinding(final WidgetRuntime<?> runtime, final WidgetProperty<String> name, final WidgetProperty<VType> value, final boolean need_write_access)
+    {
+        this(runtime, name, value, need_write_access, false);
+    }
+
+    /** @param runtime {@link WidgetRuntime}
+     *  @param name Property with name of PV
+     *  @param value Property to which the value of the PV will be written
+     *  @param need_write_access Does the PV need write access?
+     *  @param need_every_value Does the value property need every update, even when PV updates are conflated?
+     */
+    public PVNameToValueBinding(final WidgetRuntime<?> runtime, final WidgetProperty<String> name, final WidgetProperty<VType> value,
+                                final boolean need_write_access, final boolean need_every_value)
     {
         this.runtime = runtime;
         this.name = name;
-        this.listener = new PropertyUpdater(value);
+        this.listener = new PropertyUpdater(value, need_every_value);
         this.need_write_access = need_write_access;
 
         // Fetching the PV name will resolve macros,
@@ -27,6 +27,9 @@ public class Preferences
     public static final String PYTHON_PATH = "python_path";
     public static final String PV_FACTORY = "pv_factory";
     public static final String PV_NAME_PATCHES = "pv_name_patches";
+    public static final String PV_CONFLATION = "pv_conflation_ms";
+    public static final String SCRIPT_THREADS = "script_threads";
+    public static final String COMPILE_RULES = "compile_rules";
 
     /** @return Python path */
     public static String getPythonPath()
@@ -40,6 +43,36 @@ public class Preferences
         return get(PV_FACTORY, "vtype.pv");
     }
 
+    /** @return Period in millisecs for conflating PV updates, 0 to disable */
+    public static int getPV_ConflationMillisec()
+    {
+        int milli = 0;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs != null)
+            milli = prefs.getInt(RuntimePlugin.ID, PV_CONFLATION, milli, null);
+        return milli;
+    }
+
+    /** @return Number of threads for executing the scripts of a display */
+    public static int getScriptThreads()
+    {
+        int threads = 1;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs != null)
+            threads = prefs.getInt(RuntimePlugin.ID, SCRIPT_THREADS, threads, null);
+        return threads;
+    }
+
+    /** @return Compile rules into Java expressions where possible, instead of using scripts? */
+    public static boolean isCompilingRules()
+    {
+        boolean compile = true;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs != null)
+            compile = prefs.getBoolean(RuntimePlugin.ID, COMPILE_RULES, compile, null);
+        return compile;
+    }
+
     /** @return PV {@link TextPatch}s */
     public static List<TextPatch> getPV_NamePatches()
     {
@@ -18,16 +18,32 @@ import org.diirt.vtype.VType;
 public class PropertyUpdater implements RuntimePVListener
 {
     private final WidgetProperty<VType> property;
+    private final boolean need_every_value;
 
     /** @param property Widget property to update with values received from PV */
     public PropertyUpdater(final WidgetProperty<VType> property)
+    {
+        this(property, false);
+    }
+
+    /** @param property Widget property to update with values received from PV
+     *  @param need_every_value Does the property need every value, or is the most recent value sufficient?
+     */
+    public PropertyUpdater(final WidgetProperty<VType> property, final boolean need_every_value)
     {
         this.property = property;
+        this.need_every_value = need_every_value;
         // Send initial 'disconnected' update so widget shows
         // disconnected state until the first value arrives
         disconnected(null);
     }
 
+    @Override
+    public boolean needsEveryValue()
+    {
+        return need_every_value;
+    }
+
     @Override
     public void valueChanged(final RuntimePV pv, final VType value)
     {
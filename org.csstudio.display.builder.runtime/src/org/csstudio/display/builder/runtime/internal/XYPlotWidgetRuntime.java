@@ -72,11 +72,12 @@ public class XYPlotWidgetRuntime  extends WidgetRuntime<XYPlotWidget>
     {
         super.start();
 
+        // Traces need every value, not just the most recent one when PV updates are conflated
         for (TraceWidgetProperty trace : widget.propTraces().getValue())
         {
-            bindings.add(new PVNameToValueBinding(this, trace.traceXPV(), trace.traceXValue()));
-            bindings.add(new PVNameToValueBinding(this, trace.traceYPV(), trace.traceYValue()));
-            bindings.add(new PVNameToValueBinding(this, trace.traceErrorPV(), trace.traceErrorValue()));
+            bindings.add(new PVNameToValueBinding(this, trace.traceXPV(), trace.traceXValue(), false, true));
+            bindings.add(new PVNameToValueBinding(this, trace.traceYPV(), trace.traceYValue(), false, true));
+            bindings.add(new PVNameToValueBinding(this, trace.traceErrorPV(), trace.traceErrorValue(), false, true));
         }
 
         for (MarkerProperty marker : widget.propMarkers().getValue())
@@ -30,6 +30,20 @@ public interface RuntimePVListener
      */
     public void valueChanged(RuntimePV pv, VType value);
 
+    /** Does listener need every value?
+     *
+     *  <p>When PV updates are conflated, listeners by default
+     *  only receive the most recent value once per conflation period.
+     *  Listeners that need every single value, for example
+     *  to accumulate a time series, can override to opt out.
+     *
+     *  @return <code>true</code> if listener must receive every value
+     */
+    default public boolean needsEveryValue()
+    {
+        return false;
+    }
+
     /** Notification from PV that indicates a disconnect
      *  @param pv PV that is no longer accessible
      */
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.pv;
+
+import static org.csstudio.display.builder.runtime.RuntimePlugin.logger;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import org.csstudio.display.builder.model.util.NamedDaemonPool;
+import org.csstudio.display.builder.runtime.Preferences;
+import org.diirt.vtype.VType;
+
+/** Conflates the value updates of a PV
+ *
+ *  <p>Keeps only the most recent value of the PV.
+ *  A shared dispatcher thread then delivers that value
+ *  to the listeners once per conflation period,
+ *  so a PV that updates at 1 kHz results in only
+ *  a few listener calls per second.
+ *
+ *  <p>A 'disconnected' notification is conflated in the same way,
+ *  so listeners receive it in order with the values.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ValueConflator
+{
+    /** Conflation period in millisecs, 0 if disabled */
+    private static final long period = Preferences.getPV_ConflationMillisec();
+
+    /** Thread that delivers the conflated updates of all PVs */
+    private static final ScheduledExecutorService dispatcher = period > 0 ? NamedDaemonPool.createTimer("PVConflation") : null;
+
+    /** Conflators with pending updates, each one present at most once */
+    private static final Queue<ValueConflator> pending = new ConcurrentLinkedQueue<>();
+
+    /** Has dispatch been scheduled? */
+    private static final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** Number of updates that were replaced by a more recent update */
+    private static final LongAdder conflated = new LongAdder();
+
+    /** Number of updates that were delivered */
+    private static final LongAdder delivered = new LongAdder();
+
+    /** Marker for 'disconnected' update */
+    private static final Object DISCONNECTED = new Object();
+
+    private final RuntimePV pv;
+
+    private final List<RuntimePVListener> listeners;
+
+    /** Most recent {@link VType} or DISCONNECTED, <code>null</code> when nothing is pending */
+    private final AtomicReference<Object> latest = new AtomicReference<>();
+
+    /** @return <code>true</code> if PV updates should be conflated */
+    public static boolean isEnabled()
+    {
+        return period > 0;
+    }
+
+    /** @return Number of updates that were replaced by a more recent update */
+    public static long getConflatedUpdates()
+    {
+        return conflated.sum();
+    }
+
+    /** @return Number of updates that were delivered */
+    public static long getDeliveredUpdates()
+    {
+        return delivered.sum();
+    }
+
+    /** @param pv PV for which updates are conflated
+     *  @param listeners Listeners that receive the conflated updates
+     */
+    public ValueConflator(final RuntimePV pv, final List<RuntimePVListener> listeners)
+    {
+        this.pv = pv;
+        this.listeners = listeners;
+    }
+
+    /** @param value Value received from the PV */
+    public void valueChanged(final VType value)
+    {
+        update(value);
+    }
+
+    /** Handle disconnect of the PV */
+    public void disconnected()
+    {
+        update(DISCONNECTED);
+    }
+
+    /** Drop pending update */
+    public void clear()
+    {
+        latest.set(null);
+    }
+
+    private void update(final Object value)
+    {
+        if (latest.getAndSet(value) != null)
+        {   // Replaced an update that is already pending
+            conflated.increment();
+            return;
+        }
+        pending.add(this);
+        if (scheduled.compareAndSet(false, true))
+            dispatcher.schedule(ValueConflator::dispatch, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** Deliver the pending updates of all PVs */
+    private static void dispatch()
+    {
+        // Clear before draining, so updates that arrive
+        // after the queue has been drained schedule another dispatch
+        scheduled.set(false);
+        ValueConflator conflator;
+        while ((conflator = pending.poll()) != null)
+            conflator.deliver();
+    }
+
+    /** Deliver pending update of this PV */
+    private void deliver()
+    {
+        final Object value = latest.getAndSet(null);
+        if (value == null)
+            return;
+        delivered.increment();
+        for (RuntimePVListener listener : listeners)
+        {
+            try
+            {
+                if (value == DISCONNECTED)
+                    listener.disconnected(pv);
+                else
+                    listener.valueChanged(pv, (VType) value);
+            }
+            catch (Throwable ex)
+            {
+                logger.log(Level.WARNING, "PV " + pv.getName() + " listener error", ex);
+            }
+        }
+    }
+}
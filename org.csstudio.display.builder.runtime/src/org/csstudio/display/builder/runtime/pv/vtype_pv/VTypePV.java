@@ -12,6 +12,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.csstudio.display.builder.runtime.pv.RuntimePV;
 import org.csstudio.display.builder.runtime.pv.RuntimePVListener;
+import org.csstudio.display.builder.runtime.pv.ValueConflator;
 import org.csstudio.vtype.pv.PV;
 import org.csstudio.vtype.pv.PVListener;
 import org.diirt.vtype.VType;
@@ -23,11 +24,20 @@ import org.diirt.vtype.VType;
 public class VTypePV implements RuntimePV, PVListener
 {
     private final PV pv;
+
+    /** Listeners that receive every update */
     private final List<RuntimePVListener> listeners = new CopyOnWriteArrayList<>();
 
+    /** Listeners that receive conflated updates */
+    private final List<RuntimePVListener> conflated_listeners = new CopyOnWriteArrayList<>();
+
+    /** Conflates updates for conflated_listeners, <code>null</code> when conflation is disabled */
+    private final ValueConflator conflator;
+
     VTypePV(final PV pv)
     {
         this.pv = pv;
+        conflator = ValueConflator.isEnabled() ? new ValueConflator(this, conflated_listeners) : null;
         pv.addListener(this);
     }
 
@@ -44,13 +54,17 @@ public class VTypePV implements RuntimePV, PVListener
         final VType value = pv.read();
         if (value != null)
             listener.valueChanged(this, value);
-        listeners.add(listener);
+        if (conflator == null  ||  listener.needsEveryValue())
+            listeners.add(listener);
+        else
+            conflated_listeners.add(listener);
     }
 
     @Override
     public void removeListener(final RuntimePVListener listener)
     {
-        listeners.remove(listener);
+        if (! listeners.remove(listener))
+            conflated_listeners.remove(listener);
     }
 
     @Override
@@ -83,6 +97,8 @@ public class VTypePV implements RuntimePV, PVListener
     {
         for (RuntimePVListener listener : listeners)
             listener.permissionsChanged(this, readonly);
+        for (RuntimePVListener listener : conflated_listeners)
+            listener.permissionsChanged(this, readonly);
     }
 
     @Override
@@ -90,6 +106,8 @@ public class VTypePV implements RuntimePV, PVListener
     {
         for (RuntimePVListener listener : listeners)
             listener.valueChanged(this, value);
+        if (conflator != null  &&  ! conflated_listeners.isEmpty())
+            conflator.valueChanged(value);
     }
 
     @Override
@@ -97,6 +115,8 @@ public class VTypePV implements RuntimePV, PVListener
     {
         for (RuntimePVListener listener : listeners)
             listener.disconnected(this);
+        if (conflator != null  &&  ! conflated_listeners.isEmpty())
+            conflator.disconnected();
     }
 
     PV getPV()
@@ -107,6 +127,8 @@ public class VTypePV implements RuntimePV, PVListener
     void close()
     {
         pv.removeListener(this);
+        if (conflator != null)
+            conflator.clear();
     }
 
     @Override
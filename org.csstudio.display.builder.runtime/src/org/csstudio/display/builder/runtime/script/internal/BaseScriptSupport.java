@@ -9,6 +9,8 @@ package org.csstudio.display.builder.runtime.script.internal;
 
 import static org.csstudio.display.builder.runtime.RuntimePlugin.logger;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
@@ -27,6 +29,31 @@ public class BaseScriptSupport
     // Could use Map with AtomicInteger to count queued invocations.
     private final ConcurrentHashMap<Script, Boolean> queued_scripts = new ConcurrentHashMap<>();
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** Create key for caching compiled code
+     *
+     *  <p>Based on the content, so a modified script file
+     *  results in a new key, and identical scripts,
+     *  including identical generated rule scripts, share the key.
+     *
+     *  @param name Name of the script, <code>null</code> for generated scripts
+     *  @param text Script content
+     *  @return Key for cache of compiled code
+     *  @throws Exception on error
+     */
+    static String getCacheKey(final String name, final String text) throws Exception
+    {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        final byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+        final StringBuilder key = new StringBuilder(hash.length * 2 + (name == null ? 0 : name.length() + 1));
+        if (name != null)
+            key.append(name).append(':');
+        for (byte b : hash)
+            key.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+        return key.toString();
+    }
+
     /** Note that script is to-be-executed
      *  @param script {@link Script}
      *  @return <code>true</code> to proceed, <code>false</code> if that script is already about to be executed
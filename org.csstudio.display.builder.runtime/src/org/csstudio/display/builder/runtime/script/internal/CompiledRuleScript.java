@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.script.internal;
+
+import static org.csstudio.display.builder.runtime.RuntimePlugin.logger;
+
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.rules.CompiledRule;
+import org.csstudio.display.builder.model.rules.RuleInputs;
+import org.csstudio.display.builder.runtime.pv.RuntimePV;
+import org.csstudio.display.builder.runtime.script.PVUtil;
+
+/** {@link CompiledRule} that can be used like a rule script
+ *
+ *  <p>Evaluating the compiled rule is cheap compared to
+ *  executing a script, but it is still queued on the
+ *  worker of the script support, so rules and scripts
+ *  of a widget execute one at a time and in order.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class CompiledRuleScript implements Script
+{
+    /** {@link RuleInputs} that read from PVs */
+    private static class PVInputs implements RuleInputs
+    {
+        private final RuntimePV[] pvs;
+
+        PVInputs(final RuntimePV[] pvs)
+        {
+            this.pvs = pvs;
+        }
+
+        @Override
+        public double getDouble(final int index)
+        {
+            return PVUtil.getDouble(pvs[index]);
+        }
+
+        @Override
+        public long getLong(final int index)
+        {
+            return PVUtil.getLong(pvs[index]);
+        }
+
+        @Override
+        public String getString(final int index)
+        {
+            return PVUtil.getString(pvs[index]);
+        }
+
+        @Override
+        public int getSeverity(final int index)
+        {
+            return PVUtil.getSeverity(pvs[index]);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public int getLegacySeverity(final int index)
+        {
+            return PVUtil.getLegacySeverity(pvs[index]);
+        }
+    }
+
+    private final ScriptSupport support;
+    private final String name;
+    private final CompiledRule rule;
+
+    /** @param support {@link ScriptSupport} that will evaluate this rule
+     *  @param name Name of rule
+     *  @param rule {@link CompiledRule}
+     */
+    public CompiledRuleScript(final ScriptSupport support, final String name, final CompiledRule rule)
+    {
+        this.support = support;
+        this.name = name;
+        this.rule = rule;
+    }
+
+    @Override
+    public Future<Object> submit(final Widget widget, final RuntimePV... pvs)
+    {
+        // Skip rule that's already in the queue.
+        final BaseScriptSupport scheduler = support.getRuleScheduler();
+        if (! scheduler.markAsScheduled(this))
+            return null;
+
+        return support.submit(this, widget, worker ->
+        {
+            // Rule may be queued again
+            scheduler.removeScheduleMarker(this);
+            try
+            {
+                rule.apply(widget, new PVInputs(pvs));
+            }
+            catch (final Throwable ex)
+            {
+                logger.log(Level.WARNING, "Execution of '" + this + "' failed", ex);
+            }
+        });
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Compiled rule " + name;
+    }
+}
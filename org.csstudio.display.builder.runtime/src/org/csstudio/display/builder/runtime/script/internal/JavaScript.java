@@ -8,6 +8,7 @@
 package org.csstudio.display.builder.runtime.script.internal;
 
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.script.CompiledScript;
 
@@ -22,19 +23,24 @@ class JavaScript implements Script
 {
     private final JavaScriptSupport support;
     private final String name;
-    private final CompiledScript code;
+    private final String source;
+
+    /** Script compiled for the engine of each worker */
+    private final AtomicReferenceArray<CompiledScript> code = new AtomicReferenceArray<>(ScriptSupport.getWorkerCount());
 
     /** Parse and compile script file
      *
      *  @param support {@link JavaScriptSupport} that will execute this script
      *  @param name Name of script (file name, URL)
-     *  @param code Compiled code
+     *  @param source Script source
+     *  @param code Code compiled for the first worker
      */
-    public JavaScript(final JavaScriptSupport support, final String name, final CompiledScript code)
+    public JavaScript(final JavaScriptSupport support, final String name, final String source, final CompiledScript code)
     {
         this.support = support;
         this.name = name;
-        this.code = code;
+        this.source = source;
+        this.code.set(0, code);
     }
 
     /** @return Name of script (file name, URL) */
@@ -46,7 +52,23 @@ class JavaScript implements Script
     /** @return Compiled code */
     public CompiledScript getCode()
     {
-        return code;
+        return code.get(0);
+    }
+
+    /** @param worker Index of worker
+     *  @return Code compiled for the engine of that worker
+     *  @throws Exception on error
+     */
+    CompiledScript getCode(final int worker) throws Exception
+    {
+        // Only called by the (single) thread of that worker
+        CompiledScript compiled = code.get(worker);
+        if (compiled == null)
+        {
+            compiled = support.compile(worker, source);
+            code.set(worker, compiled);
+        }
+        return compiled;
     }
 
     @Override
@@ -9,10 +9,10 @@ package org.csstudio.display.builder.runtime.script.internal;
 
 import static org.csstudio.display.builder.runtime.RuntimePlugin.logger;
 
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Level;
 
 import javax.script.Bindings;
@@ -21,7 +21,9 @@ import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 
+import org.csstudio.display.builder.model.Preferences;
 import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.util.Cache;
 import org.csstudio.display.builder.runtime.pv.RuntimePV;
 
 /** JavaScript support
@@ -31,8 +33,22 @@ import org.csstudio.display.builder.runtime.pv.RuntimePV;
 class JavaScriptSupport extends BaseScriptSupport
 {
     private final ScriptSupport support;
-    private final ScriptEngine engine;
-    private final Bindings bindings;
+
+    /** Engine for each worker of the {@link ScriptSupport}.
+     *  The first one is created right away and used to compile scripts,
+     *  the others are created when their worker first executes a script.
+     */
+    private final AtomicReferenceArray<ScriptEngine> engines = new AtomicReferenceArray<>(ScriptSupport.getWorkerCount());
+
+    /** Code compiled for the first engine
+     *
+     *  <p>Compiled code is tied to its engine,
+     *  so unlike jython code this is only shared within one display.
+     */
+    private final Cache<CompiledScript> code_cache = new Cache<>(Duration.ofSeconds(Preferences.getCacheTimeout()));
+
+    /** Bindings for each engine */
+    private final AtomicReferenceArray<Bindings> bindings = new AtomicReferenceArray<>(ScriptSupport.getWorkerCount());
 
     /** Create executor for java scripts
      *  @param support {@link ScriptSupport}
@@ -40,21 +56,48 @@ class JavaScriptSupport extends BaseScriptSupport
     public JavaScriptSupport(final ScriptSupport support) throws Exception
     {
         this.support = support;
-        engine = Objects.requireNonNull(new ScriptEngineManager().getEngineByName("nashorn"));
-        bindings = engine.createBindings();
+        getEngine(0);
+    }
+
+    /** @param worker Index of worker
+     *  @return Engine for that worker
+     */
+    private ScriptEngine getEngine(final int worker)
+    {
+        // Created in constructor or by the (single) thread of the worker,
+        // so no need to protect against concurrent creation
+        ScriptEngine engine = engines.get(worker);
+        if (engine == null)
+        {
+            engine = Objects.requireNonNull(new ScriptEngineManager().getEngineByName("nashorn"));
+            bindings.set(worker, engine.createBindings());
+            engines.set(worker, engine);
+        }
+        return engine;
     }
 
     /** Parse and compile script file
     *
     *  @param name Name of script (file name, URL)
-    *  @param stream Stream for the script content
+    *  @param text Script content
     *  @return {@link Script}
     *  @throws Exception on error
     */
-    public Script compile(final String name, final InputStream stream) throws Exception
+    public Script compile(final String name, final String text) throws Exception
     {
-        final CompiledScript code = ((Compilable) engine).compile(new InputStreamReader(stream));
-        return new JavaScript(this, name, code);
+        final CompiledScript code = code_cache.getCachedOrNew(getCacheKey(null, text), key -> compile(0, text));
+        // Keep source to compile script for the engines of other workers
+        return new JavaScript(this, name, text, code);
+    }
+
+    /** @param worker Index of worker
+     *  @param source Script source
+     *  @return Script compiled for the engine of that worker
+     *  @throws Exception on error
+     */
+    CompiledScript compile(final int worker, final String source) throws Exception
+    {
+        return ((Compilable) getEngine(worker)).compile(source);
     }
 
     /** Request that a script gets executed
@@ -69,21 +112,22 @@ class JavaScriptSupport extends BaseScriptSupport
         if (! markAsScheduled(script))
             return null;
 
-        return support.submit(() ->
+        return support.submit(script, widget, worker ->
         {
             // Script may be queued again
             removeScheduleMarker(script);
             try
             {
-                bindings.put("widget", widget);
-                bindings.put("pvs", pvs);
-                script.getCode().eval(bindings);
+                final CompiledScript code = script.getCode(worker);
+                final Bindings worker_bindings = bindings.get(worker);
+                worker_bindings.put("widget", widget);
+                worker_bindings.put("pvs", pvs);
+                code.eval(worker_bindings);
             }
             catch (final Throwable ex)
             {
                 logger.log(Level.WARNING, "Execution of '" + script + "' failed", ex);
             }
-            return null;
         });
     }
 }
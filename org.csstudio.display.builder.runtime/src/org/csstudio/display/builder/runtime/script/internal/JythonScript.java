@@ -21,18 +21,21 @@ class JythonScript implements Script
 {
     private final JythonScriptSupport support;
     private final String name;
+    private final String code_name;
     private final PyCode code;
 
     /** Parse and compile script file
      *
      *  @param support {@link JythonScriptSupport} that will execute this script
      *  @param name Name of script (file name, URL)
+     *  @param code_name Name under which the code was compiled, may be shared by several scripts
      *  @param code Compiled code
      */
-    public JythonScript(final JythonScriptSupport support, final String name, final PyCode code)
+    public JythonScript(final JythonScriptSupport support, final String name, final String code_name, final PyCode code)
     {
         this.support = support;
         this.name = name;
+        this.code_name = code_name;
         this.code = code;
     }
 
@@ -42,6 +45,12 @@ class JythonScript implements Script
         return name;
     }
 
+    /** @return Name under which the code was compiled, shown in tracebacks */
+    public String getCodeName()
+    {
+        return code_name;
+    }
+
     /** @return Compiled code */
     public PyCode getCode()
     {
@@ -10,15 +10,18 @@ package org.csstudio.display.builder.runtime.script.internal;
 import static org.csstudio.display.builder.runtime.RuntimePlugin.logger;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.net.URL;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Properties;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Level;
 
 import org.csstudio.display.builder.model.DisplayModel;
 import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.util.Cache;
 import org.csstudio.display.builder.runtime.Preferences;
 import org.csstudio.display.builder.runtime.pv.RuntimePV;
 import org.eclipse.core.runtime.FileLocator;
@@ -41,11 +44,24 @@ import org.python.util.PythonInterpreter;
 @SuppressWarnings("nls")
 class JythonScriptSupport extends BaseScriptSupport implements AutoCloseable
 {
+    /** Compiled code, shared by all displays
+     *
+     *  <p>{@link PyCode} does not depend on the interpreter,
+     *  so displays that use the same script,
+     *  or many instances of the same embedded display,
+     *  compile it only once.
+     */
+    private static final Cache<PyCode> code_cache = new Cache<>(Duration.ofSeconds(org.csstudio.display.builder.model.Preferences.getCacheTimeout()));
+
     private final ScriptSupport support;
 
     final static boolean initialized = init();
 
-    private final PythonInterpreter python;
+    /** Interpreter for each worker of the {@link ScriptSupport}.
+     *  The first one is created right away and used to compile scripts,
+     *  the others are created when their worker first executes a script.
+     */
+    private final AtomicReferenceArray<PythonInterpreter> interpreters = new AtomicReferenceArray<>(ScriptSupport.getWorkerCount());
 
     /** Perform static, one-time initialization */
     private static boolean init()
@@ -140,13 +156,19 @@ class JythonScriptSupport extends BaseScriptSupport implements AutoCloseable
     public JythonScriptSupport(final ScriptSupport support) throws Exception
     {
         this.support = support;
+        interpreters.set(0, createInterpreter());
+    }
 
+    /** @return New {@link PythonInterpreter} */
+    private static PythonInterpreter createInterpreter()
+    {
         // Concurrent creation of python interpreters has in past resulted in
         //     Lib/site.py", line 571, in <module> ..
         //     Lib/sysconfig.py", line 159, in _subst_vars AttributeError: {'userbase'}
         // or  Lib/site.py", line 122, in removeduppaths java.util.ConcurrentModificationException
         // Sync. on JythonScriptSupport to serialize the interpreter creation and avoid above errors.
         final long start = System.currentTimeMillis();
+        final PythonInterpreter python;
         synchronized (JythonScriptSupport.class)
         {
             // Could create a new 'state' for each interpreter
@@ -164,13 +186,30 @@ class JythonScriptSupport extends BaseScriptSupport implements AutoCloseable
         }
         final long end = System.currentTimeMillis();
         logger.log(Level.FINE, "Time to create jython: {0} ms", (end - start));
+        return python;
+    }
+
+    /** @param worker Index of worker
+     *  @return Interpreter for that worker
+     */
+    private PythonInterpreter getInterpreter(final int worker)
+    {
+        // Only called by the (single) thread of that worker,
+        // so no need to protect against concurrent creation
+        PythonInterpreter python = interpreters.get(worker);
+        if (python == null)
+        {
+            python = createInterpreter();
+            interpreters.set(worker, python);
+        }
+        return python;
     }
 
     /** @param path Path to add to head of python search path */
     private void addToPythonPath(final String path)
     {
         // Since using default PySystemState (see above), check if already in paths
-        final PyList paths = python.getSystemState().path;
+        final PyList paths = interpreters.get(0).getSystemState().path;
 
         // Prevent concurrent modification
         synchronized (JythonScriptSupport.class)
@@ -192,19 +231,43 @@ class JythonScriptSupport extends BaseScriptSupport implements AutoCloseable
      *
      *  @param path Path to add to search path, or <code>null</code>
      *  @param name Name of script (file name, URL)
-     *  @param stream Stream for the script content
+     *  @param text Script content
      *  @return {@link Script}
      *  @throws Exception on error
      */
-    public Script compile(final String path, final String name, final InputStream stream) throws Exception
+    public Script compile(final String path, final String name, final String text) throws Exception
     {
         if (path != null)
             addToPythonPath(path);
-        final long start = System.currentTimeMillis();
-        final PyCode code = python.compile(new InputStreamReader(stream), name);
-        final long end = System.currentTimeMillis();
-        logger.log(Level.FINE, "Time to compile {0}: {1} ms", new Object[] { name, (end - start) });
-        return new JythonScript(this, name, code);
+        // Script files are compiled under their own name.
+        // Generated scripts (rules) of different widgets
+        // share the compiled code, so use a neutral name based on the content
+        final String key, code_name;
+        if (path == null)
+        {
+            key = getCacheKey(null, text);
+            code_name = "generated_" + key.substring(0, 12) + ".py";
+        }
+        else
+        {
+            key = getCacheKey(name, text);
+            code_name = name;
+        }
+        final PyCode code = code_cache.getCachedOrNew(key, k ->
+        {
+            final long start = System.currentTimeMillis();
+            final PyCode compiled = interpreters.get(0).compile(new StringReader(text), code_name);
+            final long end = System.currentTimeMillis();
+            logger.log(Level.FINE, "Time to compile {0} as {1}: {2} ms", new Object[] { name, code_name, (end - start) });
+            return compiled;
+        });
+        return new JythonScript(this, name, code_name, code);
+    }
+
+    /** @return Keys of the compiled code cache (for unit test) */
+    static Collection<String> getCachedCode()
+    {
+        return code_cache.getKeys();
     }
 
     /** Request that a script gets executed
@@ -220,17 +283,18 @@ class JythonScriptSupport extends BaseScriptSupport implements AutoCloseable
             return null;
 
         // System.out.println("Submit on " + Thread.currentThread().getName());
-        return support.submit(() ->
+        return support.submit(script, widget, worker ->
         {
             // System.out.println("Executing " + script + " on " + Thread.currentThread().getName());
             // Script may be queued again
             removeScheduleMarker(script);
             try
             {
-                // Executor is single-threaded.
+                // Each worker is single-threaded.
                 // OK to set 'widget' etc.
-                // of the shared python interpreter
+                // of the worker's python interpreter
                 // because only one script will execute at a time.
+                final PythonInterpreter python = getInterpreter(worker);
                 python.set("widget", widget);
                 python.set("pvs", pvs);
                 python.exec(script.getCode());
@@ -249,10 +313,11 @@ class JythonScriptSupport extends BaseScriptSupport implements AutoCloseable
                     // Skip display model
                 }
                 buf.append(widget).append(", ").append(script);
+                if (! script.getCodeName().equals(script.getName()))
+                    buf.append(" (compiled as '").append(script.getCodeName()).append("')");
                 logger.log(Level.WARNING, buf.toString(), ex);
             }
             // System.out.println("Finished " + script);
-            return null;
         });
     }
 
@@ -260,6 +325,11 @@ class JythonScriptSupport extends BaseScriptSupport implements AutoCloseable
     @Override
     public void close()
     {
-        python.close();
+        for (int i=0; i<interpreters.length(); ++i)
+        {
+            final PythonInterpreter python = interpreters.getAndSet(i, null);
+            if (python != null)
+                python.close();
+        }
     }
 }
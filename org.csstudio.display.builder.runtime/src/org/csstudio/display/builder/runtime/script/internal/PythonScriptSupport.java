@@ -55,7 +55,7 @@ public class PythonScriptSupport extends BaseScriptSupport
         if (! markAsScheduled(script))
             return null;
 
-        return support.submit(() ->
+        return support.submit(script, widget, worker ->
         {
             // Script may be queued again
             removeScheduleMarker(script);
@@ -81,7 +81,6 @@ public class PythonScriptSupport extends BaseScriptSupport
             {
                 logger.log(Level.WARNING, "Execution of '" + script + "' failed for " + widget, ex);
             }
-            return null;
         });
     }
 
@@ -21,9 +21,11 @@ import org.csstudio.display.builder.model.macros.MacroHandler;
 import org.csstudio.display.builder.model.macros.MacroValueProvider;
 import org.csstudio.display.builder.model.properties.ScriptInfo;
 import org.csstudio.display.builder.model.properties.ScriptPV;
+import org.csstudio.display.builder.model.rules.CompiledRule;
 import org.csstudio.display.builder.model.rules.RuleInfo;
 import org.csstudio.display.builder.model.rules.RuleToScript;
 import org.csstudio.display.builder.model.util.ModelResourceUtil;
+import org.csstudio.display.builder.runtime.Preferences;
 import org.csstudio.display.builder.runtime.RuntimeUtil;
 import org.csstudio.display.builder.runtime.WidgetRuntime;
 import org.csstudio.display.builder.runtime.pv.PVFactory;
@@ -94,7 +96,8 @@ public class RuntimeScriptHandler implements RuntimePVListener
 
     /** Helper to compile rules script
      *
-     *  <p>Gets text of script from rules utility
+     *  <p>Compiles rule into Java expressions if possible,
+     *  otherwise gets text of script from rules utility
      *
      *  @param widget Widget on which the rule is invoked
      *  @param rule_info Rule to compile
@@ -104,12 +107,26 @@ public class RuntimeScriptHandler implements RuntimePVListener
     public static Script compileScript(final Widget widget,
             final RuleInfo rule_info) throws Exception
     {
-        // Compile script
+        String dummy_name = widget.getType() + ":" + widget.getName() + ":" + rule_info.getName() + ".rule.py";
         final ScriptSupport scripting = RuntimeUtil.getScriptSupport(widget);
 
+        if (Preferences.isCompilingRules())
+        {
+            try
+            {
+                final CompiledRule rule = CompiledRule.compile(widget, rule_info);
+                logger.log(Level.FINER, () -> "Compiled rule for " + dummy_name + ": " + rule);
+                return scripting.compile(dummy_name, rule);
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.FINE, "Using script for rule " + dummy_name + ": " + ex.getMessage());
+            }
+        }
+
+        // Compile script
         final String script = rule_info.getTextPy(widget);
         final InputStream stream = new ByteArrayInputStream(script.getBytes());
-        String dummy_name = widget.getType() + ":" + widget.getName() + ":" + rule_info.getName() + ".rule.py";
 
         logger.log(Level.FINER, () -> "Compiling rule script for " + dummy_name + "\n" + RuleToScript.addLineNumbers(script));
         try
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.script.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Execution statistics for scripts
+ *
+ *  <p>Tracks how long scripts waited in the queue
+ *  and how long they took to execute,
+ *  to help identify scripts that slow down a display.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ScriptStatistics
+{
+    /** Statistics for one script */
+    public static class Entry
+    {
+        private final String script;
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder wait_nanos = new LongAdder();
+        private final LongAdder run_nanos = new LongAdder();
+        private final LongAccumulator max_run_nanos = new LongAccumulator(Math::max, 0);
+
+        Entry(final String script)
+        {
+            this.script = script;
+        }
+
+        /** @return Script name */
+        public String getScript()
+        {
+            return script;
+        }
+
+        /** @return Number of executions */
+        public long getRuns()
+        {
+            return runs.sum();
+        }
+
+        /** @return Total time in ms spent executing the script */
+        public double getTotalMillisec()
+        {
+            return run_nanos.sum() / 1e6;
+        }
+
+        /** @return Average time in ms that script waited in queue */
+        public double getAverageWaitMillisec()
+        {
+            final long n = runs.sum();
+            return n > 0 ? wait_nanos.sum() / 1e6 / n : 0.0;
+        }
+
+        /** @return Average execution time in ms */
+        public double getAverageMillisec()
+        {
+            final long n = runs.sum();
+            return n > 0 ? run_nanos.sum() / 1e6 / n : 0.0;
+        }
+
+        /** @return Maximum execution time in ms */
+        public double getMaxMillisec()
+        {
+            return max_run_nanos.get() / 1e6;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s: %d runs, avg. %.1f ms, max. %.1f ms, avg. wait %.1f ms",
+                                 script, getRuns(), getAverageMillisec(), getMaxMillisec(), getAverageWaitMillisec());
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /** @param script Script that was executed
+     *  @param wait_nanos Time that script waited in queue
+     *  @param run_nanos Time that script took to execute
+     */
+    void record(final String script, final long wait_nanos, final long run_nanos)
+    {
+        final Entry entry = entries.computeIfAbsent(script, Entry::new);
+        entry.runs.increment();
+        entry.wait_nanos.add(wait_nanos);
+        entry.run_nanos.add(run_nanos);
+        entry.max_run_nanos.accumulate(run_nanos);
+    }
+
+    /** @param count Maximum number of entries to return
+     *  @return Scripts that used the most execution time, slowest first
+     */
+    public List<Entry> getSlowest(final int count)
+    {
+        final List<Entry> result = new ArrayList<>(entries.values());
+        result.sort(Comparator.comparingDouble(Entry::getTotalMillisec).reversed());
+        return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+    }
+
+    /** @param time Time
+     *  @param unit Unit of the time
+     *  @return Scripts that took longer than the given time in at least one execution
+     */
+    public List<Entry> getSlowerThan(final long time, final TimeUnit unit)
+    {
+        final double ms = unit.toNanos(time) / 1e6;
+        final List<Entry> result = new ArrayList<>();
+        for (Entry entry : entries.values())
+            if (entry.getMaxMillisec() > ms)
+                result.add(entry);
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder buf = new StringBuilder("Script statistics");
+        for (Entry entry : getSlowest(10))
+            buf.append("\n").append(entry);
+        return buf.toString();
+    }
+}
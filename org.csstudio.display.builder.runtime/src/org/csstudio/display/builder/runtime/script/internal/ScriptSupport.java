@@ -10,19 +10,22 @@ package org.csstudio.display.builder.runtime.script.internal;
 import static org.csstudio.display.builder.runtime.RuntimePlugin.logger;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Collection;
 import java.util.Queue;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
+import org.csstudio.display.builder.model.Widget;
 import org.csstudio.display.builder.model.properties.ScriptInfo;
+import org.csstudio.display.builder.model.rules.CompiledRule;
 import org.csstudio.display.builder.model.util.NamedDaemonPool;
+import org.csstudio.display.builder.runtime.Preferences;
 
 /** Script (Jython, Javascript) Support
  *
@@ -30,15 +33,42 @@ import org.csstudio.display.builder.model.util.NamedDaemonPool;
  *  Script files are parsed/compiled (possibly slow) and can then be executed
  *  multiple times (hopefully faster).
  *
- *  <p>Scripts are executed on one thread per support/interpreter.
+ *  <p>By default, scripts are executed on one thread per support/interpreter.
+ *  When configured to use more than one worker thread,
+ *  each worker has its own interpreter.
+ *  Scripts are assigned to workers based on their widget,
+ *  so all scripts of one widget still execute one at a time
+ *  and in the order they were submitted,
+ *  while a slow script only delays scripts of widgets
+ *  that share its worker.
+ *  Note that global variables of a script are then only
+ *  shared with scripts on the same worker.
  *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 public class ScriptSupport
 {
-    /** Single thread script executor, shared by Jython and Javascript */
-    private final ExecutorService executor = Executors.newSingleThreadExecutor(new NamedDaemonPool("ScriptSupport"));
+    /** Task that executes a script on a worker thread */
+    @FunctionalInterface
+    interface ScriptTask
+    {
+        /** @param worker Index of the worker that executes the task, 0 .. getWorkerCount()-1
+         *  @throws Exception on error
+         */
+        void execute(int worker) throws Exception;
+    }
+
+    /** Number of worker threads */
+    private static final int worker_count = Math.max(1, Preferences.getScriptThreads());
+
+    /** Single thread script executors, one per worker, shared by Jython and Javascript */
+    private final ExecutorService[] executors = new ExecutorService[worker_count];
+
+    /** Number of scripts that are queued, per worker */
+    private final AtomicInteger[] queue_depth = new AtomicInteger[worker_count];
+
+    private final ScriptStatistics statistics = new ScriptStatistics();
 
     /** Futures of submitted scripts to allow cancellation */
     private final Queue<Future<Object>> active_scripts = new ConcurrentLinkedQueue<>();
@@ -51,14 +81,27 @@ public class ScriptSupport
     private final JythonScriptSupport jython;
     private final JavaScriptSupport javascript;
 
+    /** Tracks compiled rules that are queued for evaluation */
+    private final BaseScriptSupport rules = new BaseScriptSupport();
+
     public ScriptSupport() throws Exception
     {
+        for (int i=0; i<worker_count; ++i)
+        {
+            executors[i] = Executors.newSingleThreadExecutor(new NamedDaemonPool("ScriptSupport"));
+            queue_depth[i] = new AtomicInteger();
+        }
         python = new PythonScriptSupport(this);
         jython = new JythonScriptSupport(this);
         javascript = new JavaScriptSupport(this);
     }
 
     /** Prepare script file for submission
+     *
+     *  <p>Compiled code is cached based on name and script content,
+     *  so the same script used by many widgets is only compiled once.
+     *  Generated scripts without path (rules) are cached based on
+     *  their content and compiled under a neutral name.
      *
      *  @param path Path to the script. May be <code>null</null>.
      *              Added to the script engine's search path
@@ -74,21 +117,38 @@ public class ScriptSupport
     {
         if (ScriptInfo.isPython(path, name))
             return python.compile(path, name);
-        final InputStream script_stream = patchScript(name, stream);
+        final String text = patchScript(name, stream);
         if (ScriptInfo.isJython(name))
-            return jython.compile(path, name, script_stream);
+            return jython.compile(path, name, text);
         else if (ScriptInfo.isJavaScript(name))
-            return javascript.compile(name, script_stream);
+            return javascript.compile(name, text);
         throw new Exception("Cannot compile '" + name + "'");
     }
 
+    /** Prepare compiled rule for submission
+     *
+     *  @param name Name of rule, used for messages
+     *  @param rule {@link CompiledRule}
+     *  @return {@link Script} that evaluates the rule
+     */
+    public Script compile(final String name, final CompiledRule rule)
+    {
+        return new CompiledRuleScript(this, name, rule);
+    }
+
+    /** @return Keys of the shared cache for compiled Jython code (for unit test) */
+    public static Collection<String> getCachedJythonCode()
+    {
+        return JythonScriptSupport.getCachedCode();
+    }
+
     /** Update legacy package names
      *  @param path Name of script (file name, URL)
      *  @param stream Stream for the script content
-     *  @return Patched stream
+     *  @return Patched script content
      *  @throws Exception on error
      */
-    private InputStream patchScript(final String path, final InputStream stream) throws Exception
+    private String patchScript(final String path, final InputStream stream) throws Exception
     {
         boolean warned = false;
 
@@ -123,16 +183,61 @@ public class ScriptSupport
         }
         stream.close();
 
-        return new ByteArrayInputStream(buf.toString().getBytes());
+        return buf.toString();
+    }
+
+    /** @return Tracks compiled rules that are queued for evaluation */
+    BaseScriptSupport getRuleScheduler()
+    {
+        return rules;
+    }
+
+    /** @return Number of worker threads, each with its own interpreter */
+    static int getWorkerCount()
+    {
+        return worker_count;
+    }
+
+    /** @return Number of scripts that are queued for execution */
+    public int getQueueDepth()
+    {
+        int depth = 0;
+        for (AtomicInteger count : queue_depth)
+            depth += count.get();
+        return depth;
+    }
+
+    /** @return Execution statistics */
+    public ScriptStatistics getStatistics()
+    {
+        return statistics;
     }
 
     /** Request that a script gets executed
-     *  @param callable {@link Callable} for executing the script
+     *  @param script {@link Script} to execute
+     *  @param widget Widget that requests execution, determines the worker
+     *  @param task {@link ScriptTask} for executing the script
      *  @return Future for script that was just submitted
      */
-    Future<Object> submit(final Callable<Object> callable)
+    Future<Object> submit(final Script script, final Widget widget, final ScriptTask task)
     {
-        final Future<Object> running = executor.submit(callable);
+        final int worker = worker_count == 1 ? 0 : Math.floorMod(System.identityHashCode(widget), worker_count);
+        final long queued = System.nanoTime();
+        queue_depth[worker].incrementAndGet();
+        final Future<Object> running = executors[worker].submit(() ->
+        {
+            queue_depth[worker].decrementAndGet();
+            final long start = System.nanoTime();
+            try
+            {
+                task.execute(worker);
+            }
+            finally
+            {
+                statistics.record(script.toString(), start - queued, System.nanoTime() - start);
+            }
+            return null;
+        });
         // No longer track scripts that have finished
         active_scripts.removeIf(f -> f.isDone());
         active_scripts.add(running);
@@ -143,12 +248,16 @@ public class ScriptSupport
     public void close()
     {
         // Prevent new scripts from starting
-        executor.shutdown();
+        for (ExecutorService executor : executors)
+            executor.shutdown();
         // Interrupt scripts which are still running
         // (OK to cancel() if script already finished)
         for (Future<Object> running : active_scripts)
             running.cancel(true);
 
         jython.close();
+
+        if (logger.isLoggable(Level.FINE))
+            logger.log(Level.FINE, statistics.toString());
     }
 }
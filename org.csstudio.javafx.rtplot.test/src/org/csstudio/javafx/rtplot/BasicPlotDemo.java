@@ -82,7 +82,7 @@ public class BasicPlotDemo extends Application
 
         plot.setMouseMode(MouseMode.PAN);
 
-		final Pane root = new Pane(plot);
+		final Pane root = new Pane(plot, plot.getOverlay());
 		final ChangeListener<? super Number> resize_listener = (p, o, n) -> plot.setSize(root.getWidth(), root.getHeight());
         root.widthProperty().addListener(resize_listener);
         root.heightProperty().addListener(resize_listener);
@@ -117,7 +117,7 @@ public class ImagePlotDemo extends Application
             plot.showColorMap(show_colorbar);
         }, 5000, 5000, TimeUnit.MILLISECONDS);
 
-		final Pane root = new Pane(plot);
+		final Pane root = new Pane(plot, plot.getOverlay());
 		final ChangeListener<? super Number> resize_listener = (p, o, n) -> plot.setSize(root.getWidth(), root.getHeight());
 		root.widthProperty().addListener(resize_listener);
 		root.heightProperty().addListener(resize_listener);
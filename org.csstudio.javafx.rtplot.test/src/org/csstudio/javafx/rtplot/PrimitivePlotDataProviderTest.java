@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.time.Instant;
+import java.util.concurrent.locks.Lock;
+
+import org.csstudio.javafx.rtplot.data.ArrayPlotDataProvider;
+import org.csstudio.javafx.rtplot.data.InstrumentedReadWriteLock;
+import org.csstudio.javafx.rtplot.data.PlotDataItem;
+import org.csstudio.javafx.rtplot.data.PlotDataSearch;
+import org.csstudio.javafx.rtplot.data.PrimitivePlotDataProvider;
+import org.csstudio.javafx.rtplot.data.SimpleDataItem;
+import org.csstudio.javafx.rtplot.internal.util.LinearScreenTransform;
+import org.csstudio.javafx.rtplot.internal.util.LogScreenTransform;
+import org.csstudio.javafx.rtplot.internal.util.ScreenTransform;
+import org.csstudio.javafx.rtplot.internal.util.TimeScreenTransform;
+import org.junit.Test;
+
+/** JUnit test of {@link PrimitivePlotDataProvider}
+ *  @author Kay Kasemir
+ */
+public class PrimitivePlotDataProviderTest
+{
+    /** Provider for x[], y[] */
+    private static class DoubleArrayProvider implements PrimitivePlotDataProvider<Double>
+    {
+        private final InstrumentedReadWriteLock lock = new InstrumentedReadWriteLock();
+        private final double[] x, y;
+
+        DoubleArrayProvider(final double[] x, final double[] y)
+        {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public Lock getLock()
+        {
+            return lock.readLock();
+        }
+
+        @Override
+        public int size()
+        {
+            return x.length;
+        }
+
+        @Override
+        public double getPositionValue(final int index)
+        {
+            return x[index];
+        }
+
+        @Override
+        public double getValue(final int index)
+        {
+            return y[index];
+        }
+
+        @Override
+        public PlotDataItem<Double> get(final int index)
+        {
+            throw new IllegalStateException("Should use primitive access");
+        }
+    }
+
+    @Test
+    public void testSearch() throws Exception
+    {
+        // Positions 0, 2, 2, 4, 6, .. 18
+        final double[] x = new double[] { 0, 2, 2, 4, 6, 8, 10, 12, 14, 16, 18 };
+        final double[] y = new double[x.length];
+        final ArrayPlotDataProvider<Double> items = new ArrayPlotDataProvider<>();
+        for (int i=0; i<x.length; ++i)
+            items.add(new SimpleDataItem<Double>(x[i], y[i]));
+        final DoubleArrayProvider primitive = new DoubleArrayProvider(x, y);
+
+        // Search in primitive data must not call get(), and match search of items
+        final PlotDataSearch<Double> search = new PlotDataSearch<>();
+        for (double goal = -1.0;  goal <= 20.0;  goal += 0.5)
+        {
+            assertThat(search.findSampleLessOrEqual(primitive, goal), equalTo(search.findSampleLessOrEqual(items, goal)));
+            assertThat(search.findSampleLessThan(primitive, goal), equalTo(search.findSampleLessThan(items, goal)));
+            assertThat(search.findSampleGreaterOrEqual(primitive, goal), equalTo(search.findSampleGreaterOrEqual(items, goal)));
+            assertThat(search.findSampleGreaterThan(primitive, goal), equalTo(search.findSampleGreaterThan(items, goal)));
+        }
+    }
+
+    @Test
+    public void testTransform()
+    {
+        final ScreenTransform<Double> linear = new LinearScreenTransform();
+        linear.config(0.0, 10.0, 100.0, 200.0);
+        final ScreenTransform<Double> log = new LogScreenTransform();
+        log.config(1.0, 1000.0, 100.0, 200.0);
+        for (double x : new double[] { -1.0, 0.0, 1.0, 5.0, 10.0, 500.0 })
+        {
+            assertThat(linear.transformPosition(PrimitivePlotDataProvider.toPositionValue(x)), equalTo(linear.transform(x)));
+            assertThat(log.transformPosition(PrimitivePlotDataProvider.toPositionValue(x)), equalTo(log.transform(x)));
+        }
+
+        final ScreenTransform<Instant> time = new TimeScreenTransform();
+        final Instant start = Instant.ofEpochSecond(1500000000L, 123456789);
+        time.config(start, start.plusSeconds(60), 0.0, 600.0);
+        for (int sec=0; sec<=60; sec += 15)
+        {
+            final Instant t = start.plusSeconds(sec);
+            assertThat(time.transformPosition(PrimitivePlotDataProvider.toPositionValue(t)), equalTo(time.transform(t)));
+        }
+    }
+}
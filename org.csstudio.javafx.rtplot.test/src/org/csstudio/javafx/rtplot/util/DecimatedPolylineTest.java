@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.csstudio.javafx.rtplot.internal.util.DecimatedPolyline;
+import org.csstudio.javafx.rtplot.internal.util.IntList;
+import org.junit.Test;
+
+/** JUnit test of {@link DecimatedPolyline}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class DecimatedPolylineTest
+{
+    private static final int WIDTH = 200, HEIGHT = 100;
+
+    @Test
+    public void testColumn()
+    {
+        final DecimatedPolyline poly = new DecimatedPolyline(2);
+        assertTrue(poly.isEmpty());
+        poly.add(1, 10);
+        for (int y : new int[] { 50, 5, 20, 30 })
+            poly.add(2, y);
+        poly.add(3, 10);
+        poly.flush();
+        // Column 2 is reduced to first (which is also the max), min, last
+        assertThat(poly.size(), equalTo(5));
+        assertThat(Arrays.copyOf(poly.getX(), 5), equalTo(new int[] {  1,  2, 2,  2,  3 }));
+        assertThat(Arrays.copyOf(poly.getY(), 5), equalTo(new int[] { 10, 50, 5, 30, 10 }));
+
+        poly.clear();
+        assertTrue(poly.isEmpty());
+        poly.add(1, 10);
+        poly.add(1, 10);
+        poly.flush();
+        assertThat(poly.size(), equalTo(1));
+    }
+
+    private static int[] draw(final int[] x, final int[] y, final int N)
+    {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D gc = image.createGraphics();
+        gc.setColor(Color.BLACK);
+        gc.drawPolyline(x, y, N);
+        gc.dispose();
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    @Test
+    public void testSamePixels()
+    {
+        final int N = 100000;
+        final IntList x = new IntList(N), y = new IntList(N);
+        final DecimatedPolyline poly = new DecimatedPolyline(100);
+        final Random random = new Random(42);
+        int value = HEIGHT / 2;
+        for (int i=0; i<N; ++i)
+        {
+            value = Math.max(0, Math.min(HEIGHT-1, value + random.nextInt(11) - 5));
+            final int pos = i * WIDTH / N;
+            x.add(pos);
+            y.add(value);
+            poly.add(pos, value);
+        }
+        poly.flush();
+        System.out.println(N + " points reduced to " + poly.size());
+        assertTrue(poly.size() <= 4 * WIDTH);
+        assertThat(draw(poly.getX(), poly.getY(), poly.size()),
+                   equalTo(draw(x.getArray(), y.getArray(), N)));
+    }
+}
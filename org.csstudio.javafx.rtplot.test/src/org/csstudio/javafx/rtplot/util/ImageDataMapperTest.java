@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.csstudio.javafx.rtplot.ColorMappingFunction;
+import org.csstudio.javafx.rtplot.data.ValueRange;
+import org.csstudio.javafx.rtplot.internal.util.ImageDataMapper;
+import org.diirt.util.array.ArrayByte;
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ArrayShort;
+import org.diirt.vtype.VImageType;
+import org.junit.Test;
+
+/** JUnit test of {@link ImageDataMapper}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ImageDataMapperTest
+{
+    private static final int WIDTH = 500, HEIGHT = 300;
+
+    private static final int[] LUT = ImageDataMapper.createLookupTable(ColorMappingFunction.GRAYSCALE);
+
+    /** @return Difference between gray levels */
+    private static int diff(final int rgb1, final int rgb2)
+    {
+        return Math.abs((rgb1 & 0xFF) - (rgb2 & 0xFF));
+    }
+
+    @Test
+    public void testUnsignedShort()
+    {
+        final Random random = new Random(42);
+        final short[] data = new short[WIDTH * HEIGHT];
+        for (int i=0; i<data.length; ++i)
+            data[i] = (short) (random.nextInt(60000) + 1000);
+        final ImageDataMapper mapper = new ImageDataMapper(new ArrayShort(data), true, WIDTH, HEIGHT);
+
+        final ValueRange range = mapper.getValueRange();
+        double min = Double.MAX_VALUE, max = 0;
+        for (short value : data)
+        {
+            min = Math.min(min, Short.toUnsignedInt(value));
+            max = Math.max(max, Short.toUnsignedInt(value));
+        }
+        assertThat(range.getLow(), equalTo(min));
+        assertThat(range.getHigh(), equalTo(max));
+        assertTrue(max > Short.MAX_VALUE);
+
+        // Lookup table results in at most one gray level difference
+        final int[] pixels = new int[WIDTH * HEIGHT];
+        mapper.mapValues(LUT, min, max, false, 0, 0, WIDTH, HEIGHT, 1, 1, pixels);
+        for (int i=0; i<data.length; ++i)
+        {
+            final int expected = ColorMappingFunction.GRAYSCALE.getRGB((Short.toUnsignedInt(data[i]) - min) / (max - min));
+            assertTrue(diff(pixels[i], expected) <= 1);
+        }
+    }
+
+    @Test
+    public void testLog()
+    {
+        final double[] data = new double[WIDTH * HEIGHT];
+        for (int i=0; i<data.length; ++i)
+            data[i] = Math.pow(10, 6.0 * i / data.length);
+        final ImageDataMapper mapper = new ImageDataMapper(new ArrayDouble(data), false, WIDTH, HEIGHT);
+        final int[] pixels = new int[WIDTH * HEIGHT];
+        mapper.mapValues(LUT, 1.0, 1e6, true, 0, 0, WIDTH, HEIGHT, 1, 1, pixels);
+        for (int i=0; i<data.length; ++i)
+        {
+            final int expected = ColorMappingFunction.GRAYSCALE.getRGB(Math.log10(data[i]) / 6.0);
+            assertTrue(diff(pixels[i], expected) <= 1);
+        }
+    }
+
+    @Test
+    public void testSection()
+    {
+        final double[] data = new double[WIDTH * HEIGHT];
+        for (int i=0; i<data.length; ++i)
+            data[i] = 1.0;
+        final ImageDataMapper mapper = new ImageDataMapper(new ArrayDouble(data), false, WIDTH, HEIGHT);
+        final int[] pixels = new int[WIDTH * HEIGHT];
+        mapper.mapValues(LUT, 0.0, 1.0, false, 10, 20, 30, 40, 1, 1, pixels);
+        for (int y=0; y<HEIGHT; ++y)
+            for (int x=0; x<WIDTH; ++x)
+            {
+                final boolean inside = x >= 10  &&  x < 30  &&  y >= 20  &&  y < 40;
+                assertThat(pixels[y*WIDTH + x], equalTo(inside ? 0xFFFFFFFF : 0));
+            }
+    }
+
+    @Test
+    public void testDownsample()
+    {
+        // Left half of image is 0, right half 1, one column in the middle 0.5
+        final int width = 9, height = 4;
+        final double[] data = new double[width * height];
+        for (int y=0; y<height; ++y)
+            for (int x=0; x<width; ++x)
+                data[y*width + x] = x < 4 ? 0.0 : (x == 4 ? 0.5 : 1.0);
+        final ImageDataMapper mapper = new ImageDataMapper(new ArrayDouble(data), false, width, height);
+
+        // 9 x 4 reduced to 3 x 2
+        final int[] pixels = new int[3 * 2];
+        mapper.mapValues(LUT, 0.0, 1.0, false, 0, 0, width, height, 3, 2, pixels);
+        for (int y=0; y<2; ++y)
+        {
+            assertThat(pixels[y*3 + 0] & 0xFF, equalTo(0));
+            // Average of 0, 0.5, 1
+            assertThat(pixels[y*3 + 1] & 0xFF, equalTo(128));
+            assertThat(pixels[y*3 + 2] & 0xFF, equalTo(255));
+        }
+    }
+
+    @Test
+    public void testRGB()
+    {
+        final int width = 3, height = 2, size = width * height;
+        final int[] expected = new int[size];
+        final byte[] rgb1 = new byte[3 * size], rgb2 = new byte[3 * size], rgb3 = new byte[3 * size];
+        for (int y=0; y<height; ++y)
+            for (int x=0; x<width; ++x)
+            {
+                final int i = y*width + x;
+                final int r = 10*i, g = 100 + i, b = 250 - i;
+                expected[i] = (r << 16) | (g << 8) | b;
+                rgb1[3*i] = (byte) r;
+                rgb1[3*i+1] = (byte) g;
+                rgb1[3*i+2] = (byte) b;
+                rgb2[3*y*width + x] = (byte) r;
+                rgb2[3*y*width + width + x] = (byte) g;
+                rgb2[3*y*width + 2*width + x] = (byte) b;
+                rgb3[i] = (byte) r;
+                rgb3[size + i] = (byte) g;
+                rgb3[2*size + i] = (byte) b;
+            }
+        final int[] pixels = new int[size];
+        new ImageDataMapper(new ArrayByte(rgb1), true, width, height).mapRGB(VImageType.TYPE_RGB1, pixels);
+        assertThat(pixels, equalTo(expected));
+        new ImageDataMapper(new ArrayByte(rgb2), true, width, height).mapRGB(VImageType.TYPE_RGB2, pixels);
+        assertThat(pixels, equalTo(expected));
+        new ImageDataMapper(new ArrayByte(rgb3), true, width, height).mapRGB(VImageType.TYPE_RGB3, pixels);
+        assertThat(pixels, equalTo(expected));
+
+        // Upper 8 bits of 16 bit data, signed data is offset by its minimum
+        final short[] shorts = new short[] { (short) 0xFF00, 0x1234, 0x00FF };
+        new ImageDataMapper(new ArrayShort(shorts), true, 1, 1).mapRGB(VImageType.TYPE_RGB1, pixels);
+        assertThat(pixels[0], equalTo(0xFF1200));
+        new ImageDataMapper(new ArrayShort(new short[] { Short.MIN_VALUE, 0, Short.MAX_VALUE }), false, 1, 1).mapRGB(VImageType.TYPE_RGB1, pixels);
+        assertThat(pixels[0], equalTo(0x0080FF));
+    }
+}
@@ -64,6 +64,7 @@ public class RTImagePlot extends BorderPane
         // Canvas, i.e. plot, is not directly size-manageable by a layout.
         // --> Let BorderPane resize 'center', then plot binds to is size.
         center.getChildren().add(plot);
+        center.getChildren().add(plot.getOverlay());
         final ChangeListener<? super Number> resize_listener = (p, o, n) -> plot.setSize(center.getWidth(), center.getHeight());
         center.widthProperty().addListener(resize_listener);
         center.heightProperty().addListener(resize_listener);
@@ -287,6 +288,12 @@ public class RTImagePlot extends BorderPane
         plot.setInterpolation(interpolation);
     }
 
+    /** @param downsample Average image data down to screen resolution before mapping to colors? */
+    public void setDownsampling(final boolean downsample)
+    {
+        plot.setDownsampling(downsample);
+    }
+
     /** @return Auto-scale the color mapping? */
     public boolean isAutoscale()
     {
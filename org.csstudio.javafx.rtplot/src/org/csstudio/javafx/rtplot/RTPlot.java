@@ -89,6 +89,7 @@ public class RTPlot<XTYPE extends Comparable<XTYPE>> extends BorderPane
         // Plot is not directly size-manageable by a layout.
         // --> Let BorderPane resize 'center', then plot binds to is size.
         center.getChildren().add(plot);
+        center.getChildren().add(plot.getOverlay());
         final ChangeListener<? super Number> resize_listener = (p, o, n) -> plot.setSize(center.getWidth(), center.getHeight());
         center.widthProperty().addListener(resize_listener);
         center.heightProperty().addListener(resize_listener);
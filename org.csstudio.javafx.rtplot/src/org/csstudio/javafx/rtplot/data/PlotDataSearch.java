@@ -7,6 +7,8 @@
  ******************************************************************************/
 package org.csstudio.javafx.rtplot.data;
 
+import java.time.Instant;
+
 /** Search for samples in a haystack.
  *  @author Kay Kasemir
  */
@@ -15,6 +17,26 @@ public class PlotDataSearch<XTYPE extends Comparable<XTYPE>>
     protected int cmp;
     protected int mid;
 
+    /** Compare position of a sample with goal
+     *
+     *  <p>Numeric positions of a {@link PrimitivePlotDataProvider}
+     *  are compared without fetching a {@link PlotDataItem}.
+     *  Time stamps are still compared as {@link Instant}
+     *  to keep their nanosecond resolution.
+     *
+     *  @param data Data, must already be locked
+     *  @param index Index of sample
+     *  @param x The value to look for.
+     *  @return Result of comparing the sample's position to x
+     */
+    @SuppressWarnings("rawtypes")
+    private int compare(final PlotDataProvider<XTYPE> data, final int index, final XTYPE x)
+    {
+        if ((data instanceof PrimitivePlotDataProvider)  &&  (x instanceof Double))
+            return Double.compare(((PrimitivePlotDataProvider) data).getPositionValue(index), (Double) x);
+        return data.get(index).getPosition().compareTo(x);
+    }
+
     /** Perform binary search for given value.
      *  @param data Data, must already be locked
      *  @param x The value to look for.
@@ -31,7 +53,7 @@ public class PlotDataSearch<XTYPE extends Comparable<XTYPE>>
         {
             mid = (low + high) / 2;
             // Compare 'mid' sample with goal
-            cmp = data.get(mid).getPosition().compareTo(x);
+            cmp = compare(data, mid, x);
             // See where to look next
             if (cmp == 0)
                 return true; // key found
@@ -78,7 +100,7 @@ public class PlotDataSearch<XTYPE extends Comparable<XTYPE>>
         while (i > 0)
         {
             --i;
-            if (data.get(i).getPosition().compareTo(x) < 0)
+            if (compare(data, i, x) < 0)
                 return i;
         }
         return -1;
@@ -118,7 +140,7 @@ public class PlotDataSearch<XTYPE extends Comparable<XTYPE>>
         // Look for sample > x
         while (++i < data.size())
         {
-            if (data.get(i).getPosition().compareTo(x) > 0)
+            if (compare(data, i, x) > 0)
                 return i;
         }
         return -1;
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.data;
+
+import java.time.Instant;
+
+/** {@link PlotDataProvider} with primitive access to the samples
+ *
+ *  <p>Allows the plot to paint, scale and search the data
+ *  without creating a {@link PlotDataItem} for each sample,
+ *  for example based on <code>double[]</code> arrays
+ *  or a diirt <code>ListNumber</code>.
+ *  {@link #get(int)} is still used when the plot needs
+ *  one specific sample, for example for the cursor info.
+ *
+ *  <p>Positions are accessed as <code>double</code>,
+ *  see {@link #toPositionValue(Comparable)}.
+ *
+ *  @param <XTYPE> Data type used for the position of a sample,
+ *                 {@link Double} or {@link Instant}
+ *  @author Kay Kasemir
+ */
+public interface PrimitivePlotDataProvider<XTYPE extends Comparable<XTYPE>> extends PlotDataProvider<XTYPE>
+{
+    /** @param position {@link Double} or {@link Instant} position of a sample
+     *  @return Number for the position: The {@link Double} value, or seconds since epoch for an {@link Instant}
+     */
+    public static double toPositionValue(final Comparable<?> position)
+    {
+        if (position instanceof Instant)
+        {
+            final Instant time = (Instant) position;
+            return time.getEpochSecond() + 1e-9*time.getNano();
+        }
+        return ((Number) position).doubleValue();
+    }
+
+    /** @param index Sample index, 0 .. size()-1
+     *  @return Position of the sample as per {@link #toPositionValue(Comparable)}
+     */
+    public double getPositionValue(int index);
+
+    /** @param index Sample index, 0 .. size()-1
+     *  @return Value
+     */
+    public double getValue(int index);
+
+    /** @param index Sample index, 0 .. size()-1
+     *  @return Standard deviation, or {@link Double#NaN}
+     */
+    public default double getStdDev(final int index)
+    {
+        return Double.NaN;
+    }
+
+    /** @param index Sample index, 0 .. size()-1
+     *  @return Minimum in case main value is an 'average', or {@link Double#NaN}
+     */
+    public default double getMin(final int index)
+    {
+        return Double.NaN;
+    }
+
+    /** @param index Sample index, 0 .. size()-1
+     *  @return Maximum in case main value is an 'average', or {@link Double#NaN}
+     */
+    public default double getMax(final int index)
+    {
+        return Double.NaN;
+    }
+}
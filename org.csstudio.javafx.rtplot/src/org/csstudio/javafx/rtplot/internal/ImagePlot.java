@@ -19,8 +19,6 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.function.ToDoubleFunction;
-import java.util.function.ToIntFunction;
 import java.util.logging.Level;
 
 import org.csstudio.javafx.BufferUtil;
@@ -38,12 +36,11 @@ import org.csstudio.javafx.rtplot.RegionOfInterest;
 import org.csstudio.javafx.rtplot.data.ValueRange;
 import org.csstudio.javafx.rtplot.internal.undo.ChangeImageZoom;
 import org.csstudio.javafx.rtplot.internal.util.GraphicsUtils;
+import org.csstudio.javafx.rtplot.internal.util.ImageDataMapper;
 import org.csstudio.javafx.rtplot.internal.util.LinearScreenTransform;
-import org.csstudio.javafx.rtplot.internal.util.Log10;
 import org.diirt.util.array.ArrayByte;
 import org.diirt.util.array.ArrayInt;
 import org.diirt.util.array.ArrayShort;
-import org.diirt.util.array.IteratorNumber;
 import org.diirt.util.array.ListNumber;
 import org.diirt.vtype.VImageType;
 
@@ -95,6 +92,9 @@ public class ImagePlot extends PlotCanvasBase
     /** Auto-scale the data range? */
     private volatile boolean autoscale = true;
 
+    /** Average image data down to screen resolution before mapping to colors? */
+    private volatile boolean downsample = false;
+
     /** Image data range */
     private volatile double min=0.0, max=1.0;
 
@@ -178,6 +178,13 @@ public class ImagePlot extends PlotCanvasBase
         requestUpdate();
     }
 
+    /** @param downsample Average image data down to screen resolution before mapping to colors? */
+    public void setDownsampling(final boolean downsample)
+    {
+        this.downsample = downsample;
+        requestUpdate();
+    }
+
     /** @return Auto-scale the color mapping? */
     public boolean isAutoscale()
     {
@@ -422,53 +429,6 @@ public class ImagePlot extends PlotCanvasBase
         x_axis.setBounds(image_area.x, image_area.height, image_area.width, x_axis_height);
     }
 
-    // Functionals for reading the next Number as an unsigned value
-    private static double getUnsignedByte(final IteratorNumber iter)
-    {
-        return Byte.toUnsignedInt(iter.nextByte());
-    }
-
-    private static double getUnsignedShort(final IteratorNumber iter)
-    {
-        return Short.toUnsignedInt(iter.nextShort());
-    }
-
-    private static double getUnsignedInt(final IteratorNumber iter)
-    {
-        return Integer.toUnsignedLong(iter.nextInt());
-    }
-
-    // Functionals for RGB
-    private static int getUByteForRGB(final IteratorNumber iter)
-    {
-        return Byte.toUnsignedInt(iter.nextByte());
-    }
-
-    private static int getUShortForRGB(final IteratorNumber iter)
-    {
-        return Short.toUnsignedInt(iter.nextShort());
-    }
-
-    private static int getUIntForRGB(final IteratorNumber iter)
-    {
-        return iter.nextInt();
-    }
-
-    private static int getByteForRGB(final IteratorNumber iter)
-    {
-        return Byte.toUnsignedInt((byte)(iter.nextByte()+Byte.MIN_VALUE));
-    }
-
-    private static int getShortForRGB(final IteratorNumber iter)
-    {
-        return Short.toUnsignedInt((short)(iter.nextShort()+Short.MIN_VALUE));
-    }
-
-    private static int getIntForRGB(final IteratorNumber iter)
-    {
-        return iter.nextInt()+Integer.MIN_VALUE;
-    }
-
     /** Buffers used to create the next image buffer */
     private final DoubleBuffer buffers = new DoubleBuffer();
 
@@ -509,91 +469,27 @@ public class ImagePlot extends PlotCanvasBase
         final VImageType type = this.vimage_type;
         final ColorMappingFunction color_mapping = this.color_mapping;
 
-        ToDoubleFunction<IteratorNumber> next_sample_func = IteratorNumber::nextDouble;
-    	boolean isRGB = type == VImageType.TYPE_RGB1 || type == VImageType.TYPE_RGB2 || type == VImageType.TYPE_RGB3;
-    	@SuppressWarnings("unchecked")
-		final ToIntFunction<IteratorNumber> next_rgb [] = new ToIntFunction [3];
-        if (numbers != null)
+        final boolean isRGB = type == VImageType.TYPE_RGB1 || type == VImageType.TYPE_RGB2 || type == VImageType.TYPE_RGB3;
+        final ImageDataMapper mapper = numbers == null ? null : new ImageDataMapper(numbers, unsigned, data_width, data_height);
+        if (mapper != null)
         {
             if (isRGB)
             {
-        		if (numbers instanceof ArrayShort)
-        		{
-        			if (unsigned)
-        			{
-            			next_rgb[0] = (iter) -> getUShortForRGB(iter) << 8 & 0xFF0000;
-            			next_rgb[1] = (iter) -> getUShortForRGB(iter) & 0xFF00;
-            			next_rgb[2] = (iter) -> getUShortForRGB(iter) >>> 8;
-        			}
-    				else
-    				{
-            			next_rgb[0] = (iter) -> getShortForRGB(iter) << 8 & 0xFF0000;
-            			next_rgb[1] = (iter) -> getShortForRGB(iter) & 0xFF00;
-            			next_rgb[2] = (iter) -> getShortForRGB(iter) >>> 8;
-    				}
-        		}
-        		if (numbers instanceof ArrayInt)
-        		{
-        			if (unsigned)
-        			{
-            			next_rgb[0] = (iter) -> getUIntForRGB(iter) >>> 8 & 0xFF0000;
-            			next_rgb[1] = (iter) -> getUIntForRGB(iter) >>> 16 & 0xFF00;
-            			next_rgb[2] = (iter) -> getUIntForRGB(iter) >>> 24;
-        			}
-    				else
-    				{
-            			next_rgb[0] = (iter) -> getIntForRGB(iter) >>> 8 & 0xFF0000;
-            			next_rgb[1] = (iter) -> getIntForRGB(iter) >>> 16 & 0xFF00;
-            			next_rgb[2] = (iter) -> getIntForRGB(iter) >>> 24;
-    				}
-        		}
-        		else
-        		{
-            		if (!(numbers instanceof ArrayByte))
-            			logger.log(Level.WARNING, "Cannot handle rgb1 image data of type " + numbers.getClass().getName());
-        			if (unsigned)
-        			{
-            			next_rgb[0] = (iter) -> getUByteForRGB(iter) << 16;
-            			next_rgb[1] = (iter) -> getUByteForRGB(iter) << 8;
-            			next_rgb[2] = (iter) -> getUByteForRGB(iter);
-        			}
-    				else
-    				{
-            			next_rgb[0] = (iter) -> getByteForRGB(iter) << 16;
-            			next_rgb[1] = (iter) -> getByteForRGB(iter) << 8;
-            			next_rgb[2] = (iter) -> getByteForRGB(iter);
-    				}
-        		}
+                if (! (numbers instanceof ArrayByte  ||  numbers instanceof ArrayShort  ||  numbers instanceof ArrayInt))
+                    logger.log(Level.WARNING, "Cannot handle rgb1 image data of type " + numbers.getClass().getName());
             }
-            else //is not RGB
+            else
             {
-	            if (unsigned)
-	            {
-	                if (numbers instanceof ArrayShort)
-	                    next_sample_func = ImagePlot::getUnsignedShort;
-	                else if (numbers instanceof ArrayByte)
-	                    next_sample_func = ImagePlot::getUnsignedByte;
-	                else if (numbers instanceof ArrayInt)
-	                    next_sample_func = ImagePlot::getUnsignedInt;
-	                else
-	                    logger.log(Level.WARNING, "Cannot handle unsigned data of type " + numbers.getClass().getName());
-	            }
-
-	            if (autoscale)
-	            {   // Compute min..max before layout of color bar
-	                final IteratorNumber iter = numbers.iterator();
-	                min = Double.MAX_VALUE;
-	                max = Double.NEGATIVE_INFINITY;
-	                while (iter.hasNext())
-	                {
-	                    final double sample = next_sample_func.applyAsDouble(iter);
-	                    if (sample > max)
-	                        max = sample;
-	                    if (sample < min)
-	                        min = sample;
-	                }
-	                logger.log(Level.FINE, "Autoscale range {0} .. {1}", new Object[] { min, max });
-	            }
+                if (unsigned  &&  ! mapper.canHandleUnsigned())
+                    logger.log(Level.WARNING, "Cannot handle unsigned data of type " + numbers.getClass().getName());
+
+                if (autoscale)
+                {   // Compute min..max before layout of color bar
+                    final ValueRange range = mapper.getValueRange();
+                    min = range.getLow();
+                    max = range.getHigh();
+                    logger.log(Level.FINE, "Autoscale range {0} .. {1}", new Object[] { min, max });
+                }
             }
         }
 
@@ -619,34 +515,52 @@ public class ImagePlot extends PlotCanvasBase
         {
             // Paint the image
             gc.setClip(image_area.x, image_area.y, image_area.width, image_area.height);
+
+            // Transform from full axis range into data range,
+            // using the current 'zoom' state of each axis
+            final LinearScreenTransform tx = new LinearScreenTransform();
+            AxisRange<Double> zoomed = x_axis.getValueRange();
+            tx.config(min_x, max_x, 0, data_width);
+            // Round down .. up to always cover the image_area
+            final int src_x1 = Math.max(0,          (int)tx.transform(zoomed.getLow()));
+            final int src_x2 = Math.min(data_width, (int)(tx.transform(zoomed.getHigh()) + 1));
+
+            // For Y axis, min_y == bottom == data_height
+            final LinearScreenTransform ty = new LinearScreenTransform();
+            zoomed = y_axis.getValueRange();
+            ty.config(min_y, max_y, data_height, 0);
+            final int src_y1 = Math.max(0,           (int) ty.transform(zoomed.getHigh()));
+            final int src_y2 = Math.min(data_height, (int) (ty.transform(zoomed.getLow() ) + 1));
+
+            // When there are several samples per screen pixel,
+            // optionally average them into one image pixel
+            int step_x = 1, step_y = 1;
+            if (downsample  &&  !isRGB)
+            {
+                final int screen_width = Math.abs(x_axis.getScreenCoord(tx.inverse(src_x2)) - x_axis.getScreenCoord(tx.inverse(src_x1)));
+                final int screen_height = Math.abs(y_axis.getScreenCoord(ty.inverse(src_y2)) - y_axis.getScreenCoord(ty.inverse(src_y1)));
+                step_x = Math.max(1, (src_x2 - src_x1) / Math.max(1, screen_width));
+                step_y = Math.max(1, (src_y2 - src_y1) / Math.max(1, screen_height));
+            }
+
             final Object image_or_error =  !isRGB ?
-            		drawData(data_width, data_height, numbers, next_sample_func, min, max, color_mapping) :
-        			drawDataRGB(data_width, data_height, numbers, next_rgb, type);
+                    drawData(data_width, data_height, numbers, mapper, min, max, color_mapping,
+                             src_x1, src_y1, src_x2, src_y2, step_x, step_y) :
+                    drawDataRGB(data_width, data_height, numbers, mapper, type);
             if (image_or_error instanceof BufferedImage)
             {
                 final BufferedImage unscaled = (BufferedImage) image_or_error;
-                // Transform from full axis range into data range,
-                // using the current 'zoom' state of each axis
-                final LinearScreenTransform t = new LinearScreenTransform();
-                AxisRange<Double> zoomed = x_axis.getValueRange();
-                t.config(min_x, max_x, 0, data_width);
-                // Round down .. up to always cover the image_area
-                final int src_x1 = Math.max(0,          (int)t.transform(zoomed.getLow()));
-                final int src_x2 = Math.min(data_width, (int)(t.transform(zoomed.getHigh()) + 1));
+                // Section of the (possibly down-sampled) image
+                final int img_x1 = src_x1 / step_x, img_x2 = (src_x2 + step_x - 1) / step_x;
+                final int img_y1 = src_y1 / step_y, img_y2 = (src_y2 + step_y - 1) / step_y;
 
                 // Pixels of the image need to be aligned to their axis location,
                 // especially when zoomed way in and the pixels are huge.
                 // Turn pixel back into axis value, and then determine its destination on screen.
-                final int dst_x1 = x_axis.getScreenCoord(t.inverse(src_x1));
-                final int dst_x2 = x_axis.getScreenCoord(t.inverse(src_x2));
-
-                // For Y axis, min_y == bottom == data_height
-                zoomed = y_axis.getValueRange();
-                t.config(min_y, max_y, data_height, 0);
-                final int src_y1 = Math.max(0,           (int) t.transform(zoomed.getHigh()));
-                final int src_y2 = Math.min(data_height, (int) (t.transform(zoomed.getLow() ) + 1));
-                final int dst_y1 = y_axis.getScreenCoord(t.inverse(src_y1));
-                final int dst_y2 = y_axis.getScreenCoord(t.inverse(src_y2));
+                final int dst_x1 = x_axis.getScreenCoord(tx.inverse(img_x1 * step_x));
+                final int dst_x2 = x_axis.getScreenCoord(tx.inverse(Math.min(data_width, img_x2 * step_x)));
+                final int dst_y1 = y_axis.getScreenCoord(ty.inverse(img_y1 * step_y));
+                final int dst_y2 = y_axis.getScreenCoord(ty.inverse(Math.min(data_height, img_y2 * step_y)));
 
                 switch (interpolation)
                 {
@@ -667,7 +581,7 @@ public class ImagePlot extends PlotCanvasBase
                 }
                 gc.drawImage(unscaled,
                              dst_x1, dst_y1, dst_x2, dst_y2,
-                             src_x1,  src_y1,  src_x2,  src_y2,
+                             img_x1,  img_y1,  img_x2,  img_y2,
                              /* ImageObserver */ null);
             }
             else
@@ -788,18 +702,32 @@ public class ImagePlot extends PlotCanvasBase
     /** Buffers used for the data (to be merged/scaled into the complete image) */
     private final DoubleBuffer data_buffers = new DoubleBuffer();
 
+    /** Color lookup table for 'lut_mapping', only accessed by updateImageBuffer */
+    private int[] lut = null;
+
+    /** Color mapping of the 'lut' */
+    private ColorMappingFunction lut_mapping = null;
+
     /** @param data_width
      *  @param data_height
      *  @param numbers
-     *  @param next_sample_func
+     *  @param mapper
      *  @param min
      *  @param max
      *  @param color_mapping
-     *  @return {@link BufferedImage}, sized to match data or String with error message
+     *  @param x1 First data column to draw
+     *  @param y1 First data row to draw
+     *  @param x2 End of data columns to draw
+     *  @param y2 End of data rows to draw
+     *  @param step_x Number of data columns averaged into one pixel
+     *  @param step_y Number of data rows averaged into one pixel
+     *  @return {@link BufferedImage}, sized to match data (divided by step) or String with error message
      */
     private Object drawData(final int data_width, final int data_height, final ListNumber numbers,
-                                   final ToDoubleFunction<IteratorNumber> next_sample_func,
-                                   double min, double max, final ColorMappingFunction color_mapping)
+                            final ImageDataMapper mapper,
+                            double min, double max, final ColorMappingFunction color_mapping,
+                            final int x1, final int y1, final int x2, final int y2,
+                            final int step_x, final int step_y)
     {
         // final long start = System.nanoTime();
 
@@ -809,7 +737,8 @@ public class ImagePlot extends PlotCanvasBase
             return "Cannot draw image sized " + data_width + " x " + data_height;
         }
 
-        final BufferUtil buffer = data_buffers.getBufferedImage(data_width, data_height);
+        final BufferUtil buffer = data_buffers.getBufferedImage((data_width + step_x - 1) / step_x,
+                                                                (data_height + step_y - 1) / step_y);
         if (buffer == null)
             return "Cannot get buffer";
         final BufferedImage image = buffer.getImage();
@@ -830,42 +759,19 @@ public class ImagePlot extends PlotCanvasBase
         // Creating a byte[] with one byte per pixel and ColorModel based on color map is fastest,
         // but only 8 bits per pixel instead of 8 bits each for R, G and B isn't enough resolution.
         // Rounding of values into 8 bits creates artifacts.
+        // The lookup table has 12 bits, and only the visible section of the image is mapped,
+        // with a small margin for the interpolation.
         final int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
-        final IteratorNumber iter = numbers.iterator();
-        int idx = 0;
-
-        if (colorbar_axis.isLogarithmic())
+        if (lut == null  ||  lut_mapping != color_mapping)
         {
-            final double lmin = Log10.log10(min),
-                         lmax = Log10.log10(max),
-                         span = lmax - lmin;
-            for (int y=0; y<data_height; ++y)
-                for (int x=0; x<data_width; ++x)
-                {
-                    final double sample = Log10.log10(next_sample_func.applyAsDouble(iter));
-                    double scaled = (sample - lmin) / span;
-                    if (scaled < 0.0)
-                        scaled = 0;
-                    else if (scaled > 1.0)
-                        scaled = 1.0;
-                    data[idx++] = color_mapping.getRGB(scaled);
-                }
-        }
-        else
-        {
-            final double span = max - min;
-            for (int y=0; y<data_height; ++y)
-                for (int x=0; x<data_width; ++x)
-                {
-                    final double sample = next_sample_func.applyAsDouble(iter);
-                    double scaled = (sample - min) / span;
-                    if (scaled < 0.0)
-                        scaled = 0;
-                    else if (scaled > 1.0)
-                        scaled = 1.0;
-                    data[idx++] = color_mapping.getRGB(scaled);
-                }
+            lut = ImageDataMapper.createLookupTable(color_mapping);
+            lut_mapping = color_mapping;
         }
+        mapper.mapValues(lut, min, max, colorbar_axis.isLogarithmic(),
+                         Math.max(0, x1 - 2*step_x), Math.max(0, y1 - 2*step_y),
+                         Math.min(data_width, x2 + 2*step_x), Math.min(data_height, y2 + 2*step_y),
+                         step_x, step_y, data);
+
         // final long nano = System.nanoTime() - start;
         // avg_nano = (avg_nano*3 + nano)/4;
         // if (++runs > 100)
@@ -880,12 +786,12 @@ public class ImagePlot extends PlotCanvasBase
     /** @param data_width
      *  @param data_height
      *  @param numbers
-     *  @param next_rgbs
+     *  @param mapper
      *  @param type RGB type (RGB1, RGB2, or RGB3)
      *  @return {@link BufferedImage}, sized to match data
      */
     private Object drawDataRGB(final int data_width, final int data_height, final ListNumber numbers,
-                                      final ToIntFunction<IteratorNumber> next_rgbs [], final VImageType type)
+                               final ImageDataMapper mapper, final VImageType type)
     {
         if (data_width <= 0  ||  data_height <= 0)
         {
@@ -903,46 +809,20 @@ public class ImagePlot extends PlotCanvasBase
 
         // Using direct access to 'int' pixels in data buffer for speed. See other drawData() for details.
         final int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
-        final IteratorNumber iter = numbers.iterator();
-
-        switch(type)
-        {
-	        case TYPE_RGB2:
-	        	for (int y_times_width = 0; y_times_width < data_height*data_width; y_times_width += data_width)
-	        	{
-	        		//red
-        			for (int x = 0; x < data_width; ++x)
-        				data[y_times_width + x] = next_rgbs[0].applyAsInt(iter);;
-        			//green
-        			for (int x = 0; x < data_width; ++x)
-        				data[y_times_width + x] |= next_rgbs[1].applyAsInt(iter);
-        			//blue
-        			for (int x = 0; x < data_width; ++x)
-        				data[y_times_width + x] |= next_rgbs[2].applyAsInt(iter);
-	        	}
-	        	break;
-	        case TYPE_RGB3:
-	        	//red
-        		for (int i = 0; i < data_height*data_width; ++i)
-        			data[i] = next_rgbs[0].applyAsInt(iter);
-        		//green
-        		for (int i = 0; i < data_height*data_width; ++i)
-        			data[i] |= next_rgbs[1].applyAsInt(iter);
-    			//blue
-        		for (int i = 0; i < data_height*data_width; ++i)
-        			data[i] |= next_rgbs[2].applyAsInt(iter);
-	        	break;
-        	default:
-        		throw new IllegalArgumentException("Image type must be an RGB type");
-        		//no "break;"
-	        case TYPE_RGB1:
-	        	for (int i = 0; i < data_height*data_width; ++i)
-	            	data[i] = next_rgbs[0].applyAsInt(iter) | next_rgbs[1].applyAsInt(iter) | next_rgbs[2].applyAsInt(iter);
-        }
+        if (type != VImageType.TYPE_RGB1  &&  type != VImageType.TYPE_RGB2  &&  type != VImageType.TYPE_RGB3)
+            throw new IllegalArgumentException("Image type must be an RGB type");
+        mapper.mapRGB(type, data);
 
         return image;
     }
 
+    @Override
+    protected boolean hasMouseModeFeedback()
+    {
+        return (mouse_current.isPresent()  &&  mouse_start.isPresent())  ||
+               (crosshair  &&  crosshair_position != null);
+    }
+
     /** Draw visual feedback (rubber band rectangle etc.)
      *  for current mouse mode
      *  @param gc GC
@@ -686,6 +686,17 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends PlotCanvasBase
         gc.setStroke(old_stroke);
     }
 
+    @Override
+    protected boolean hasMouseModeFeedback()
+    {
+        if (! mouse_current.isPresent())
+            return false;
+        // No feedback while panning, see drawMouseModeFeedback
+        if (mouse_mode == MouseMode.PAN_X  ||  mouse_mode == MouseMode.PAN_Y || mouse_mode == MouseMode.PAN_PLOT)
+            return false;
+        return show_crosshair  ||  mouse_start.isPresent();
+    }
+
     /** Draw visual feedback (rubber band rectangle etc.)
      *  for current mouse mode
      *  @param gc GC
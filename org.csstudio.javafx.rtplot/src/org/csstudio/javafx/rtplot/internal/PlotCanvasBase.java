@@ -7,8 +7,10 @@
  ******************************************************************************/
 package org.csstudio.javafx.rtplot.internal;
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.Composite;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
@@ -21,7 +23,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.csstudio.display.builder.util.undo.UndoableActionManager;
 import org.csstudio.javafx.BufferUtil;
-import org.csstudio.javafx.DoubleBuffer;
 import org.csstudio.javafx.rtplot.util.RTPlotUpdateThrottle;
 
 import javafx.application.Platform;
@@ -35,7 +36,8 @@ import javafx.scene.input.ScrollEvent;
 /** Base for plots
  *
  *  <p>Based on an {@link ImageView}.
- *  Container needs to call <code>setSize</code>.
+ *  Container needs to call <code>setSize</code>
+ *  and place the {@link #getOverlay()} on top of the plot.
  *
  *  @author Kay Kasemir
  */
@@ -56,6 +58,13 @@ abstract class PlotCanvasBase extends ImageView
     //
     // Overall, however, ImageView avoids memory issues because it
     // only holds a reference to the current image.
+    //
+    // The plot and the mouse feedback are separate layers.
+    // The plot image is only transferred into the JFX image when it changed,
+    // directly from the AWT buffer.
+    // Mouse feedback is drawn into a transparent overlay, which is hidden
+    // while there is no feedback, so moving the mouse only
+    // updates the overlay and not the plot.
 
     protected static final int ARROW_SIZE = 8;
 
@@ -101,6 +110,12 @@ abstract class PlotCanvasBase extends ImageView
      */
     private volatile BufferedImage plot_image = null;
 
+    /** Has 'plot_image' been updated since it was last shown? */
+    private final AtomicBoolean plot_image_changed = new AtomicBoolean();
+
+    /** Has the mouse feedback changed since it was last shown? */
+    private final AtomicBoolean overlay_changed = new AtomicBoolean();
+
     /** Listener to {@link PlotPart}s, triggering refresh of plot */
     protected final PlotPartListener plot_part_listener = new PlotPartListener()
     {
@@ -118,8 +133,13 @@ abstract class PlotCanvasBase extends ImageView
         }
     };
 
-    /** (Double) buffer used to combined the plot with mouse feedback overlays */
-    private final DoubleBuffer buffers = new DoubleBuffer();
+    /** Layer for mouse feedback, placed on top of the plot */
+    private final ImageView overlay = new ImageView();
+
+    /** Buffer for mouse feedback, only accessed on UI thread */
+    private BufferUtil overlay_buffer = null;
+
+    private WritableImage overlay_image = null;
 
     /** Has a call to redraw_runnable already been queued?
      *  Cleared when redraw_runnable is executed
@@ -128,40 +148,66 @@ abstract class PlotCanvasBase extends ImageView
 
     private WritableImage awt_jfx_convert_buffer = null;
 
-    /** Redraw the plot on UI thread by painting the 'plot_image' */
+    /** Redraw the plot on UI thread by painting the 'plot_image' and mouse feedback */
     private final Runnable redraw_runnable = () ->
     {
         // Indicate that a redraw has occurred
         pending_redraw.set(false);
         final BufferedImage copy = plot_image;
-        if (copy != null)
+        if (copy == null)
+            return;
+        if (copy.getType() != BufferedImage.TYPE_INT_ARGB)
+            throw new IllegalPathStateException("Need TYPE_INT_ARGB for direct buffer access, not " + copy.getType());
+        final int width = copy.getWidth(), height = copy.getHeight();
+
+        // Convert plot to JFX image and show, unless it's unchanged
+        final boolean plot_changed = plot_image_changed.getAndSet(false);
+        if (plot_changed)
         {
-            // Create copy of basic plot
-            if (copy.getType() != BufferedImage.TYPE_INT_ARGB)
-                throw new IllegalPathStateException("Need TYPE_INT_ARGB for direct buffer access, not " + copy.getType());
-            final int width = copy.getWidth(), height = copy.getHeight();
-            final BufferUtil buffer = buffers.getBufferedImage(width, height);
-            final BufferedImage combined = buffer.getImage();
-            final int[] src  = ((DataBufferInt)     copy.getRaster().getDataBuffer()).getData();
-            final int[] dest = ((DataBufferInt) combined.getRaster().getDataBuffer()).getData();
-            System.arraycopy(src, 0, dest, 0, width * height);
-
-            // Add mouse mode feedback
-            final Graphics2D gc = buffer.getGraphics();
-            gc.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            gc.setColor(Color.BLACK);
-            drawMouseModeFeedback(gc);
-
-            // Convert to JFX image and show
             if (awt_jfx_convert_buffer == null  ||
                 awt_jfx_convert_buffer.getWidth() != width ||
                 awt_jfx_convert_buffer.getHeight() != height)
                 awt_jfx_convert_buffer = new WritableImage(width, height);
-            // SwingFXUtils.toFXImage(combined, image);
-            awt_jfx_convert_buffer.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), dest, 0, width);
-
+            // SwingFXUtils.toFXImage(copy, image);
+            final int[] src = ((DataBufferInt) copy.getRaster().getDataBuffer()).getData();
+            awt_jfx_convert_buffer.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), src, 0, width);
             setImage(awt_jfx_convert_buffer);
         }
+
+        // Update mouse feedback when it changed,
+        // or when the plot changed because feedback may depend on the axes
+        final boolean feedback_changed = overlay_changed.getAndSet(false);
+        if (! hasMouseModeFeedback())
+        {
+            overlay.setVisible(false);
+            return;
+        }
+        if (! (plot_changed  ||  feedback_changed  ||  overlay_image == null))
+            return;
+
+        if (overlay_buffer == null  ||
+            overlay_buffer.getImage().getWidth() != width  ||
+            overlay_buffer.getImage().getHeight() != height)
+        {
+            if (overlay_buffer != null)
+                overlay_buffer.dispose();
+            overlay_buffer = BufferUtil.getBufferedImage(width, height);
+            overlay_image = new WritableImage(width, height);
+        }
+        final Graphics2D gc = overlay_buffer.getGraphics();
+        final Composite composite = gc.getComposite();
+        gc.setComposite(AlphaComposite.Clear);
+        gc.fillRect(0, 0, width, height);
+        gc.setComposite(composite);
+
+        gc.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        gc.setColor(Color.BLACK);
+        drawMouseModeFeedback(gc);
+
+        final int[] pixels = ((DataBufferInt) overlay_buffer.getImage().getRaster().getDataBuffer()).getData();
+        overlay_image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        overlay.setImage(overlay_image);
+        overlay.setVisible(true);
     };
 
     protected MouseMode mouse_mode = MouseMode.NONE;
@@ -185,12 +231,19 @@ abstract class PlotCanvasBase extends ImageView
                     // Update failed, request another
                     requestUpdate();
                 else
+                {
                     plot_image = latest;
+                    plot_image_changed.set(true);
+                }
             }
             if (!pending_redraw.getAndSet(true))
                 Platform.runLater(redraw_runnable);
         });
 
+        // Overlay shows mouse feedback, events are handled by the plot
+        overlay.setMouseTransparent(true);
+        overlay.setVisible(false);
+
         if (active)
         {
             setOnMouseEntered(this::mouseEntered);
@@ -210,6 +263,12 @@ abstract class PlotCanvasBase extends ImageView
       requestUpdate();
     }
 
+    /** @return Layer for mouse feedback that container needs to place on top of the plot */
+    public ImageView getOverlay()
+    {
+        return overlay;
+    }
+
     /** @return {@link UndoableActionManager} for this plot */
     public UndoableActionManager getUndoableActionManager()
     {
@@ -243,6 +302,7 @@ abstract class PlotCanvasBase extends ImageView
     /** Request redraw of current image and cursors */
     final void requestRedraw()
     {
+        overlay_changed.set(true);
         update_throttle.trigger();
     }
 
@@ -251,6 +311,15 @@ abstract class PlotCanvasBase extends ImageView
      */
     protected abstract BufferedImage updateImageBuffer();
 
+    /** @return Is there any mouse feedback to draw? */
+    protected boolean hasMouseModeFeedback()
+    {
+        return mouse_current.isPresent();
+    }
+
+    /** Draw visual feedback for current mouse mode
+     *  @param gc GC for the transparent overlay
+     */
     protected abstract void drawMouseModeFeedback(Graphics2D gc);
 
     /** Draw the zoom indicator for a horizontal zoom, i.e. on an X axis
@@ -164,10 +164,11 @@ public class PlotProcessor<XTYPE extends Comparable<XTYPE>>
                         // If data is completely outside the position_range,
                         // we end up using just data[0]
                         // Check [start .. stop], including stop
+                        final SampleAccess<XTYPE> samples = new SampleAccess<>(data);
                         for (int idx = start; idx <= stop; idx++)
                         {
-                            final PlotDataItem<XTYPE> item = data.get(idx);
-                            final double value = item.getValue();
+                            samples.select(idx);
+                            final double value = samples.getValue();
                             if (!Double.isFinite(value))
                                 continue;
                             if (value < low)
@@ -175,10 +176,12 @@ public class PlotProcessor<XTYPE extends Comparable<XTYPE>>
                             if (value > high)
                                 high = value;
                             // Implies Double.isFinite(min), ..(max)
-                            if (item.getMin() < low)
-                                low = item.getMin();
-                            if (item.getMax() > high)
-                                high = item.getMax();
+                            final double min = samples.getMin();
+                            if (min < low)
+                                low = min;
+                            final double max = samples.getMax();
+                            if (max > high)
+                                high = max;
                         }
                     }
                 }
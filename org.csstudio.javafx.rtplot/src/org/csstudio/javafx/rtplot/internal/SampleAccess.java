@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal;
+
+import org.csstudio.javafx.rtplot.data.PlotDataItem;
+import org.csstudio.javafx.rtplot.data.PlotDataProvider;
+import org.csstudio.javafx.rtplot.data.PrimitivePlotDataProvider;
+
+/** Access to the samples of a {@link PlotDataProvider}
+ *
+ *  <p>Uses the primitive accessors of a {@link PrimitivePlotDataProvider}.
+ *  For other data providers, each {@link PlotDataItem}
+ *  is fetched only once when selecting the sample.
+ *
+ *  <p>Caller must lock the data.
+ *
+ *  @param <XTYPE> Data type used for the position of a sample
+ *  @author Kay Kasemir
+ */
+class SampleAccess<XTYPE extends Comparable<XTYPE>>
+{
+    private final PlotDataProvider<XTYPE> data;
+    private final PrimitivePlotDataProvider<XTYPE> primitive;
+    private int index = -1;
+    private PlotDataItem<XTYPE> item = null;
+
+    /** @param data Data to access */
+    @SuppressWarnings("unchecked")
+    public SampleAccess(final PlotDataProvider<XTYPE> data)
+    {
+        this.data = data;
+        primitive = data instanceof PrimitivePlotDataProvider
+                  ? (PrimitivePlotDataProvider<XTYPE>) data
+                  : null;
+    }
+
+    /** @return Number of samples */
+    public int size()
+    {
+        return data.size();
+    }
+
+    /** @param index Index of sample to access, 0 .. size()-1 */
+    public void select(final int index)
+    {
+        this.index = index;
+        if (primitive == null)
+            item = data.get(index);
+    }
+
+    /** @return Position of selected sample, see {@link PrimitivePlotDataProvider#toPositionValue(Comparable)} */
+    public double getPosition()
+    {
+        if (primitive == null)
+            return PrimitivePlotDataProvider.toPositionValue(item.getPosition());
+        return primitive.getPositionValue(index);
+    }
+
+    /** @return Value of selected sample */
+    public double getValue()
+    {
+        if (primitive == null)
+            return item.getValue();
+        return primitive.getValue(index);
+    }
+
+    /** @return Standard deviation of selected sample, or {@link Double#NaN} */
+    public double getStdDev()
+    {
+        if (primitive == null)
+            return item.getStdDev();
+        return primitive.getStdDev(index);
+    }
+
+    /** @return Minimum of selected sample, or {@link Double#NaN} */
+    public double getMin()
+    {
+        if (primitive == null)
+            return item.getMin();
+        return primitive.getMin(index);
+    }
+
+    /** @return Maximum of selected sample, or {@link Double#NaN} */
+    public double getMax()
+    {
+        if (primitive == null)
+            return item.getMax();
+        return primitive.getMax(index);
+    }
+}
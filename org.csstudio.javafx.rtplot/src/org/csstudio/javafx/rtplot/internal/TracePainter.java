@@ -14,6 +14,7 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.Stroke;
+import java.util.BitSet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
@@ -21,8 +22,9 @@ import java.util.logging.Level;
 import org.csstudio.javafx.rtplot.PointType;
 import org.csstudio.javafx.rtplot.Trace;
 import org.csstudio.javafx.rtplot.TraceType;
-import org.csstudio.javafx.rtplot.data.PlotDataItem;
 import org.csstudio.javafx.rtplot.data.PlotDataProvider;
+import org.csstudio.javafx.rtplot.internal.util.DecimatedArea;
+import org.csstudio.javafx.rtplot.internal.util.DecimatedPolyline;
 import org.csstudio.javafx.rtplot.internal.util.GraphicsUtils;
 import org.csstudio.javafx.rtplot.internal.util.IntList;
 import org.csstudio.javafx.rtplot.internal.util.ScreenTransform;
@@ -39,6 +41,19 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
     // plus it works better when using dashed or wide lines,
     // but it requires an int[] array of varying size.
     // IntList turned out to be about 3x faster than ArrayList<Integer>.
+    //
+    // With many samples, most of them end up in the same pixel column.
+    // DecimatedPolyline and DecimatedArea reduce the points in each column
+    // to first/min/max/last, so the cost of drawing is determined by the
+    // width of the plot, not the number of samples.
+    // This works for any order of samples, including X/Y data that is not
+    // sorted by position, while searching for the first visible sample
+    // would require sorted data.
+    // Samples outside of the plot are clipped to x_min resp. x_max,
+    // so they collapse into one column.
+    //
+    // SampleAccess reads a PrimitivePlotDataProvider without
+    // creating a PlotDataItem for each sample.
 
     /** Initial {@link IntList} size */
     private static final int INITIAL_ARRAY_SIZE = 2048;
@@ -98,15 +113,6 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
         final Color tpcolor = new Color(color.getRed(), color.getGreen(), color.getBlue(), opacity);
         gc.setColor(color);
 
-        // TODO Optimize drawing
-        //
-        // Determine first sample to draw via PlotDataSearch.findSampleLessOrEqual(),
-        // then end drawing when reaching right end of area.
-        //
-        // Loop only once, performing drawMinMax, drawStdDev, drawValueStaircase in one loop
-        //
-        // For now, main point is that this happens in non-UI thread,
-        // so the slower the better to test UI responsiveness.
         final PlotDataProvider<XTYPE> data = trace.getData();
         try
         {
@@ -122,6 +128,7 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
         {
             final TraceType type = trace.getType();
             logger.log(Level.ALL, "Painting trace type " + type.toString());
+            final SampleAccess<XTYPE> samples = new SampleAccess<>(data);
 
             switch (type)
             {
@@ -129,64 +136,64 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
                 break;
             case AREA:
                 gc.setPaint(tpcolor);
-                drawMinMaxArea(gc, x_transform, y_axis, data);
+                drawMinMaxArea(gc, x_transform, y_axis, samples);
                 gc.setPaint(color);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
-                drawValueStaircase(gc, x_transform, y_axis, data, trace.getWidth());
+                drawStdDevLines(gc, x_transform, y_axis, samples, trace.getWidth());
+                drawValueStaircase(gc, x_transform, y_axis, samples, trace.getWidth());
                 break;
             case AREA_DIRECT:
                 gc.setPaint(tpcolor);
-                drawMinMaxArea(gc, x_transform, y_axis, data);
+                drawMinMaxArea(gc, x_transform, y_axis, samples);
                 gc.setPaint(color);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawStdDevLines(gc, x_transform, y_axis, samples, trace.getWidth());
+                drawValueLines(gc, x_transform, y_axis, samples, trace.getWidth());
                 break;
             case LINES:
-                drawMinMaxLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawMinMaxLines(gc, x_transform, y_axis, samples, trace.getWidth());
                 gc.setPaint(tpcolor);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawStdDevLines(gc, x_transform, y_axis, samples, trace.getWidth());
                 gc.setPaint(color);
-                drawValueStaircase(gc, x_transform, y_axis, data, trace.getWidth());
+                drawValueStaircase(gc, x_transform, y_axis, samples, trace.getWidth());
                 break;
             case LINES_DIRECT:
-                drawMinMaxLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawMinMaxLines(gc, x_transform, y_axis, samples, trace.getWidth());
                 gc.setPaint(tpcolor);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawStdDevLines(gc, x_transform, y_axis, samples, trace.getWidth());
                 gc.setPaint(color);
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawValueLines(gc, x_transform, y_axis, samples, trace.getWidth());
                 break;
             case SINGLE_LINE:
-                drawValueStaircase(gc, x_transform, y_axis, data, trace.getWidth());
+                drawValueStaircase(gc, x_transform, y_axis, samples, trace.getWidth());
                 break;
             case SINGLE_LINE_DIRECT:
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawValueLines(gc, x_transform, y_axis, samples, trace.getWidth());
                 break;
             case LINES_ERROR_BARS:
-                drawErrorBars(gc, x_transform, y_axis, data, trace.getPointSize());
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawErrorBars(gc, x_transform, y_axis, samples, trace.getPointSize());
+                drawValueLines(gc, x_transform, y_axis, samples, trace.getWidth());
                 break;
             case ERROR_BARS:
                 // Compare error bars to area and min/max lines
                 // gc.setPaint(tpcolor);
-                // drawMinMaxArea(gc, x_transform, y_axis, data);
+                // drawMinMaxArea(gc, x_transform, y_axis, samples);
                 // gc.setPaint(color);
-                // drawMinMaxLines(gc, x_transform, y_axis, data, trace.getWidth());
-                drawErrorBars(gc, x_transform, y_axis, data, trace.getPointSize());
+                // drawMinMaxLines(gc, x_transform, y_axis, samples, trace.getWidth());
+                drawErrorBars(gc, x_transform, y_axis, samples, trace.getPointSize());
                 break;
             case BARS:
                 final int width = trace.getWidth();
                 if (width > 0)
-                    drawBars(gc, x_transform, y_axis, data, width);
+                    drawBars(gc, x_transform, y_axis, samples, width);
                 else
-                    drawHistogram(gc, x_transform, y_axis, data);
+                    drawHistogram(gc, x_transform, y_axis, samples);
                 break;
             default:
-                drawValueStaircase(gc, x_transform, y_axis, data, trace.getWidth());
+                drawValueStaircase(gc, x_transform, y_axis, samples, trace.getWidth());
             }
 
             final PointType point_type = trace.getPointType();
             if (point_type != PointType.NONE)
-                drawPoints(gc, x_transform, y_axis, data, point_type, trace.getPointSize());
+                drawPoints(gc, x_transform, y_axis, samples, point_type, trace.getPointSize());
         }
         finally
         {
@@ -201,32 +208,30 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
      *  @param gc GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param samples Samples
      *  @param line_width
      */
     final private void drawValueStaircase(final Graphics2D gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+            final SampleAccess<XTYPE> samples, final int line_width)
     {
-        final IntList poly_x = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList poly_y = new IntList(INITIAL_ARRAY_SIZE);
-        final int N = data.size();
+        final DecimatedPolyline poly = new DecimatedPolyline(INITIAL_ARRAY_SIZE);
+        final int N = samples.size();
         int last_x = -1, last_y = -1;
         gc.setStroke(new BasicStroke(line_width));
         for (int i=0; i<N; ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
-            final double value = item.getValue();
-            if (poly_x.size() > 0  && x != last_x)
+            samples.select(i);
+            final int x = clipX(Math.round(x_transform.transformPosition(samples.getPosition())));
+            final double value = samples.getValue();
+            if (! poly.isEmpty()  && x != last_x)
             {   // Staircase from last 'y'..
-                poly_x.add(x);
-                poly_y.add(last_y);
+                poly.add(x, last_y);
                 last_x = x;
             }
             if (Double.isNaN(value))
             {
-                flushPolyLine(gc, poly_x, poly_y, line_width);
+                flushPolyLine(gc, poly, line_width);
                 last_x = last_y = -1;
             }
             else
@@ -234,210 +239,199 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
                 final int y = clipY(y_axis.getScreenCoord(value));
                 if (last_x == x  &&  last_y == y)
                     continue;
-                poly_x.add(x);
-                poly_y.add(y);
+                poly.add(x, y);
                 last_y = y;
             }
         }
-        flushPolyLine(gc, poly_x, poly_y, line_width);
+        flushPolyLine(gc, poly, line_width);
     }
 
     /** Draw values of data as direct line
      *  @param gc GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param samples Samples
      *  @param line_width
      */
     final private void drawValueLines(final Graphics2D gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+            final SampleAccess<XTYPE> samples, final int line_width)
     {
-        final IntList value_poly_x = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList value_poly_y = new IntList(INITIAL_ARRAY_SIZE);
-        final int N = data.size();
+        final DecimatedPolyline value_poly = new DecimatedPolyline(INITIAL_ARRAY_SIZE);
+        final int N = samples.size();
 
         gc.setStroke(new BasicStroke(line_width));
         int last_x = -1, last_y = -1;
         for (int i=0; i<N; ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
-            final double value = item.getValue();
+            samples.select(i);
+            final int x = clipX(Math.round(x_transform.transformPosition(samples.getPosition())));
+            final double value = samples.getValue();
             if (Double.isNaN(value))
-                flushPolyLine(gc, value_poly_x, value_poly_y, line_width);
+                flushPolyLine(gc, value_poly, line_width);
             else
             {
                 final int y = clipY(y_axis.getScreenCoord(value));
                 if (x == last_x  &&  y == last_y)
                     continue;
-                value_poly_x.add(x);
-                value_poly_y.add(y);
+                value_poly.add(x, y);
                 last_x = x;
                 last_y = y;
             }
         }
-        flushPolyLine(gc, value_poly_x, value_poly_y, line_width);
+        flushPolyLine(gc, value_poly, line_width);
     }
 
     /** Draw min/max outline
      *  @param graphics2D GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param samples Samples
      */
     final private void drawMinMaxArea(final Graphics2D gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data)
+            final SampleAccess<XTYPE> samples)
     {
-        final int N = data.size();
-        // Assume N, might use less because end up with sections
-        // separated by Double.NaN
-        final IntList pos = new IntList(N);
-        final IntList min = new IntList(N);
-        final IntList max = new IntList(N);
+        final int N = samples.size();
+        // At most 3 entries per pixel column, might use less because
+        // end up with sections separated by Double.NaN
+        final DecimatedArea area = new DecimatedArea(INITIAL_ARRAY_SIZE);
 
         for (int i = 0;  i < N;  ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            double ymin = item.getMin();
-            double ymax = item.getMax();
+            samples.select(i);
+            double ymin = samples.getMin();
+            double ymax = samples.getMax();
             if (Double.isNaN(ymin)  ||  Double.isNaN(ymax))
-                flushPolyFill(gc, pos, min, max);
+                flushPolyFill(gc, area);
             else
             {
-                final int x1 = clipX(x_transform.transform(item.getPosition()));
+                final int x1 = clipX(x_transform.transformPosition(samples.getPosition()));
                 final int y1min = clipY(y_axis.getScreenCoord(ymin));
                 final int y1max = clipY(y_axis.getScreenCoord(ymax));
-                pos.add(x1);
-                min.add(y1min);
-                max.add(y1max);
+                area.add(x1, y1min, y1max);
             }
         }
-        flushPolyFill(gc, pos, min, max);
+        flushPolyFill(gc, area);
     }
 
     /** Draw min/max outline
      *  @param gc GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param samples Samples
      */
     final private void drawMinMaxLines(final Graphics2D gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+            final SampleAccess<XTYPE> samples, final int line_width)
     {
-        final IntList min_x = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList max_x = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList min_y = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList max_y = new IntList(INITIAL_ARRAY_SIZE);
+        final DecimatedPolyline min_poly = new DecimatedPolyline(INITIAL_ARRAY_SIZE);
+        final DecimatedPolyline max_poly = new DecimatedPolyline(INITIAL_ARRAY_SIZE);
 
-        final int N = data.size();
+        final int N = samples.size();
         for (int i = 0;  i < N;  ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            double ymin = item.getMin();
-            double ymax = item.getMax();
+            samples.select(i);
+            double ymin = samples.getMin();
+            double ymax = samples.getMax();
             if (Double.isNaN(ymin)  ||  Double.isNaN(ymax))
             {
-                flushPolyLine(gc, min_x, min_y, line_width);
-                flushPolyLine(gc, max_x, max_y, line_width);
+                flushPolyLine(gc, min_poly, line_width);
+                flushPolyLine(gc, max_poly, line_width);
             }
             else
             {
-                final int x1 = clipX(x_transform.transform(item.getPosition()));
+                final int x1 = clipX(x_transform.transformPosition(samples.getPosition()));
                 final int y1min = clipY(y_axis.getScreenCoord(ymin));
                 final int y1max = clipY(y_axis.getScreenCoord(ymax));
-                min_x.add(x1);   min_y.add(y1min);
-                max_x.add(x1);   max_y.add(y1max);
+                min_poly.add(x1, y1min);
+                max_poly.add(x1, y1max);
             }
         }
-        flushPolyLine(gc, min_x, min_y, line_width);
-        flushPolyLine(gc, max_x, max_y, line_width);
+        flushPolyLine(gc, min_poly, line_width);
+        flushPolyLine(gc, max_poly, line_width);
     }
 
     /** Draw std. deviation outline
      *  @param gc GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param samples Samples
      *  @param line_width
      */
     final private void drawStdDevLines(final Graphics2D gc, final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+            final SampleAccess<XTYPE> samples, final int line_width)
     {
-        final IntList lower_poly_y = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList upper_poly_y = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList lower_poly_x = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList upper_poly_x = new IntList(INITIAL_ARRAY_SIZE);
+        final DecimatedPolyline lower_poly = new DecimatedPolyline(INITIAL_ARRAY_SIZE);
+        final DecimatedPolyline upper_poly = new DecimatedPolyline(INITIAL_ARRAY_SIZE);
 
-        final int N = data.size();
+        final int N = samples.size();
         for (int i = 0;  i < N;  ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            double value = item.getValue();
-            double dev = item.getStdDev();
+            samples.select(i);
+            double value = samples.getValue();
+            double dev = samples.getStdDev();
             if (Double.isNaN(value) ||  ! (dev > 0))
             {
-                flushPolyLine(gc, lower_poly_x, lower_poly_y, line_width);
-                flushPolyLine(gc, upper_poly_x, upper_poly_y, line_width);
+                flushPolyLine(gc, lower_poly, line_width);
+                flushPolyLine(gc, upper_poly, line_width);
             }
             else
             {
-                final int x = clipX(x_transform.transform(item.getPosition()));
+                final int x = clipX(x_transform.transformPosition(samples.getPosition()));
                 final int low_y = clipY(y_axis.getScreenCoord(value - dev));
                 final int upp_y = clipY(y_axis.getScreenCoord(value + dev));
-                lower_poly_x.add(x);  lower_poly_y.add(low_y);
-                upper_poly_x.add(x);  upper_poly_y.add(upp_y);
+                lower_poly.add(x, low_y);
+                upper_poly.add(x, upp_y);
             }
         }
-        flushPolyLine(gc, lower_poly_x, lower_poly_y, line_width);
-        flushPolyLine(gc, upper_poly_x, upper_poly_y, line_width);
+        flushPolyLine(gc, lower_poly, line_width);
+        flushPolyLine(gc, upper_poly, line_width);
     }
 
     /** @param gc GC
      *  @param poly Points of poly line, will be cleared
      *  @param line_width
      */
-    final private void flushPolyLine(final Graphics2D gc, final IntList poly_x, final IntList poly_y, final int line_width)
+    final private void flushPolyLine(final Graphics2D gc, final DecimatedPolyline poly, final int line_width)
     {
-        final int N = poly_x.size();
+        poly.flush();
+        final int N = poly.size();
         if (N == 1)
-            drawPoint(gc, poly_x.get(0), poly_y.get(0), line_width);
+            drawPoint(gc, poly.getX()[0], poly.getY()[0], line_width);
         else if (N > 1)
-            gc.drawPolyline(poly_x.getArray(), poly_y.getArray(), N);
-        poly_x.clear();
-        poly_y.clear();
+            gc.drawPolyline(poly.getX(), poly.getY(), N);
+        poly.clear();
     }
 
     /** Draw error bar for each value
      *  @param gc GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param samples Samples
      *  @param size
      */
     final private void drawErrorBars(final Graphics2D gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int size)
+            final SampleAccess<XTYPE> samples, final int size)
     {
-        final int N = data.size();
+        final int N = samples.size();
         for (int i=0; i<N; ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            final double value = item.getValue();
+            samples.select(i);
+            final double value = samples.getValue();
             if (!Double.isNaN(value))
             {
-                final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
+                final int x = clipX(Math.round(x_transform.transformPosition(samples.getPosition())));
                 final int y = clipY(y_axis.getScreenCoord(value));
-                final double min = item.getMin();
+                final double min = samples.getMin();
                 if (!Double.isNaN(min))
                 {
                     final int ym = clipY(y_axis.getScreenCoord(min));
                     gc.drawLine(x, y, x, ym);
                     gc.drawLine(x-size/2, ym, x+size/2, ym);
                 }
-                final double max = item.getMax();
+                final double max = samples.getMax();
                 if (!Double.isNaN(max))
                 {
                     final int ym = clipY(y_axis.getScreenCoord(max));
@@ -452,26 +446,34 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
      *  @param gc GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param samples Samples
      *  @param point_type
      *  @param size
      */
     final private void drawPoints(final Graphics2D gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, PointType point_type, final int size)
+            final SampleAccess<XTYPE> samples, PointType point_type, final int size)
     {
-        final int N = data.size();
-        int last_x = -1, last_y = -1;
+        final int N = samples.size();
+        // Draw each point only once for consecutive samples in the same pixel column
+        final BitSet column_points = new BitSet(y_max - y_min + 1);
+        int column = -1;
         for (int i=0; i<N; ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            final double value = item.getValue();
+            samples.select(i);
+            final double value = samples.getValue();
             if (!Double.isNaN(value))
             {
-                final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
+                final int x = clipX(Math.round(x_transform.transformPosition(samples.getPosition())));
                 final int y = clipY(y_axis.getScreenCoord(value));
-                if (x == last_x  &&  y == last_y)
+                if (x != column)
+                {
+                    column_points.clear();
+                    column = x;
+                }
+                else if (column_points.get(y - y_min))
                     continue;
+                column_points.set(y - y_min);
                 switch (point_type)
                 {
                 case SQUARES:
@@ -493,8 +495,6 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
                 default:
                     drawPoint(gc, x, y, size);
                 }
-                last_x = x;
-                last_y = y;
             }
         }
     }
@@ -509,17 +509,19 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
         gc.fillOval(x-size/2, y-size/2, size, size);
     }
 
-    /** Fill area. All lists will be cleared.
+    /** Fill area. Will be cleared.
      *  @param gc GC
-     *  @param pos Horizontal screen positions
-     *  @param min Minimum 'y' values in screen coords
-     *  @param max .. maximum
+     *  @param area Horizontal screen positions with minimum and maximum 'y' values in screen coords
      */
-    final private void flushPolyFill(final Graphics2D gc, final IntList pos, final IntList min, final IntList max)
+    final private void flushPolyFill(final Graphics2D gc, final DecimatedArea area)
     {
-        final int N = pos.size();
+        area.flush();
+        final int N = area.size();
         if (N <= 0)
             return;
+        final IntList pos = area.getPositions();
+        final IntList min = area.getMin();
+        final IntList max = area.getMax();
 
         // 'direct' outline, point-to-point
         // Turn pos/min/max into array required by fillPolygon:
@@ -537,40 +539,50 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
         }
         gc.fillPolygon(xpoints, ypoints, N2);
 
-        pos.clear();
-        min.clear();
-        max.clear();
+        area.clear();
     }
 
     /** Draw bar for each value
      *
      *  <p>Bars are centered on each sample.
+     *  Bars of consecutive samples at the same position
+     *  are combined into one.
      *
      *  @param gc GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param samples Samples
      *  @param width Width of each bar
      */
     final private void drawBars(final Graphics2D gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, int width)
+            final SampleAccess<XTYPE> samples, int width)
     {
-        final int N = data.size();
+        final int N = samples.size();
         final int y0 = clipY(y_axis.getScreenCoord(0.0));
+        // Bars all start at y0, so bars at the same x combine into one from 'top' to 'bottom'
+        boolean have_bar = false;
+        int column = 0, top = y0, bottom = y0;
         for (int i=0; i<N; ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            final double value = item.getValue();
+            samples.select(i);
+            final double value = samples.getValue();
             if (Double.isNaN(value))
                 continue;
-            final int x = (int) Math.round(x_transform.transform(item.getPosition()));
+            final int x = (int) Math.round(x_transform.transformPosition(samples.getPosition()));
             final int y = clipY(y_axis.getScreenCoord(value));
-            if (y0 > y)
-                gc.fillRect(x-width/2, y, width, y0-y);
-            else // Value is below zero, draw down from y0
-                gc.fillRect(x-width/2, y0, width, y-y0);
+            if (have_bar  &&  x != column)
+            {
+                gc.fillRect(column-width/2, top, width, bottom-top);
+                top = bottom = y0;
+            }
+            have_bar = true;
+            column = x;
+            top = Math.min(top, y);
+            bottom = Math.max(bottom, y);
         }
+        if (have_bar)
+            gc.fillRect(column-width/2, top, width, bottom-top);
     }
 
     /** Draw bar for each value
@@ -580,24 +592,24 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
      *  @param gc GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param samples Samples
      */
     final private void drawHistogram(final Graphics2D gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data)
+            final SampleAccess<XTYPE> samples)
     {
         // Bars need the x0, x1 center points between samples.
         // Each bar is drawn for the (last_x,last_y) while on sample (x,y):
         // Samples      :       (last_x,y)        (x,y)
         // Bar start/end:   x0              x1
-        final int N = data.size();
+        final int N = samples.size();
         final int y0 = clipY(y_axis.getScreenCoord(0.0));
         int last_x1 = -1, last_x = -1, last_y = -1;
         for (int i=0; i<N; ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            final double value = item.getValue();
-            final int x = (int) Math.round(x_transform.transform(item.getPosition()));
+            samples.select(i);
+            final double value = samples.getValue();
+            final int x = (int) Math.round(x_transform.transformPosition(samples.getPosition()));
             final int y = Double.isNaN(value) ?  -1  :  clipY(y_axis.getScreenCoord(value));
             if (last_x >= 0)
             {
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal.util;
+
+/** Outline of an area between 'min' and 'max' lines,
+ *  reduced to at most three positions per pixel column
+ *
+ *  <p>For consecutive samples with the same x coordinate,
+ *  the first and last sample are kept to connect to the neighboring columns,
+ *  and one entry in between covers the full range of all samples in the column.
+ *
+ *  @author Kay Kasemir
+ */
+public class DecimatedArea
+{
+    private final IntList pos, min, max;
+
+    /** Number of samples in the current run, 0 if there is none */
+    private int run = 0;
+
+    /** x coordinate of the current run */
+    private int column;
+
+    /** 'min' and 'max' of the first and last sample in the run */
+    private int first_min, first_max, last_min, last_max;
+
+    /** Range of all 'min' and 'max' coordinates in the run */
+    private int lowest, highest;
+
+    /** @param capacity Initial capacity */
+    public DecimatedArea(final int capacity)
+    {
+        pos = new IntList(capacity);
+        min = new IntList(capacity);
+        max = new IntList(capacity);
+    }
+
+    /** @param x Screen coordinate of sample to add
+     *  @param y_min Screen coordinate of sample's minimum
+     *  @param y_max Screen coordinate of sample's maximum
+     */
+    final public void add(final int x, final int y_min, final int y_max)
+    {
+        if (run > 0  &&  x == column)
+        {
+            lowest = Math.min(lowest, Math.min(y_min, y_max));
+            highest = Math.max(highest, Math.max(y_min, y_max));
+            last_min = y_min;
+            last_max = y_max;
+            ++run;
+            return;
+        }
+        flush();
+        column = x;
+        first_min = last_min = y_min;
+        first_max = last_max = y_max;
+        lowest = Math.min(y_min, y_max);
+        highest = Math.max(y_min, y_max);
+        run = 1;
+    }
+
+    /** Add entries for the current run to the outline */
+    final public void flush()
+    {
+        if (run <= 0)
+            return;
+        addEntry(first_min, first_max);
+        // Keep the orientation of 'min' vs. 'max', which depends on the axis
+        if (first_min >= first_max)
+            addEntry(highest, lowest);
+        else
+            addEntry(lowest, highest);
+        addEntry(last_min, last_max);
+        run = 0;
+    }
+
+    /** @param y_min Entry to add to current column unless it's a duplicate
+     *  @param y_max
+     */
+    private void addEntry(final int y_min, final int y_max)
+    {
+        final int N = pos.size();
+        if (N > 0  &&  pos.get(N-1) == column  &&  min.get(N-1) == y_min  &&  max.get(N-1) == y_max)
+            return;
+        pos.add(column);
+        min.add(y_min);
+        max.add(y_max);
+    }
+
+    /** @return Number of entries, call {@link #flush()} to include the current run */
+    final public int size()
+    {
+        return pos.size();
+    }
+
+    /** @return Horizontal screen positions, valid up to size() */
+    final public IntList getPositions()
+    {
+        return pos;
+    }
+
+    /** @return 'min' screen coordinates, valid up to size() */
+    final public IntList getMin()
+    {
+        return min;
+    }
+
+    /** @return 'max' screen coordinates, valid up to size() */
+    final public IntList getMax()
+    {
+        return max;
+    }
+
+    /** Remove all entries */
+    final public void clear()
+    {
+        pos.clear();
+        min.clear();
+        max.clear();
+        run = 0;
+    }
+}
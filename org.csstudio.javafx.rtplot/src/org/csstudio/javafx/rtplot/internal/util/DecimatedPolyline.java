@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal.util;
+
+/** Points of a poly line, reduced to at most four per pixel column
+ *
+ *  <p>Consecutive points with the same x coordinate
+ *  form a vertical line that covers all their y coordinates.
+ *  Only the first, minimum, maximum and last point of such a run
+ *  are kept, which results in the same pixels as drawing all points,
+ *  but the number of points is limited by the width of the plot
+ *  instead of the number of samples.
+ *
+ *  @author Kay Kasemir
+ */
+public class DecimatedPolyline
+{
+    private final IntList poly_x, poly_y;
+
+    /** Number of points in the current run, 0 if there is none */
+    private int run = 0;
+
+    /** x coordinate of the current run */
+    private int column;
+
+    /** y coordinates of the current run */
+    private int first, min, max, last;
+
+    /** Is the minimum of the current run before its maximum? */
+    private boolean min_before_max;
+
+    /** @param capacity Initial capacity */
+    public DecimatedPolyline(final int capacity)
+    {
+        poly_x = new IntList(capacity);
+        poly_y = new IntList(capacity);
+    }
+
+    /** @param x Screen coordinate of point to add
+     *  @param y Screen coordinate
+     */
+    final public void add(final int x, final int y)
+    {
+        if (run > 0  &&  x == column)
+        {
+            if (y < min)
+            {
+                min = y;
+                min_before_max = false;
+            }
+            if (y > max)
+            {
+                max = y;
+                min_before_max = true;
+            }
+            last = y;
+            ++run;
+            return;
+        }
+        flush();
+        column = x;
+        first = min = max = last = y;
+        min_before_max = true;
+        run = 1;
+    }
+
+    /** @return <code>true</code> if no point has been added since last {@link #clear()} */
+    final public boolean isEmpty()
+    {
+        return run == 0  &&  poly_x.size() == 0;
+    }
+
+    /** Add points of the current run to the poly line */
+    final public void flush()
+    {
+        if (run <= 0)
+            return;
+        addPoint(first);
+        if (min_before_max)
+        {
+            addPoint(min);
+            addPoint(max);
+        }
+        else
+        {
+            addPoint(max);
+            addPoint(min);
+        }
+        addPoint(last);
+        run = 0;
+    }
+
+    /** @param y Point to add to current column unless it's a duplicate */
+    private void addPoint(final int y)
+    {
+        final int N = poly_x.size();
+        if (N > 0  &&  poly_x.get(N-1) == column  &&  poly_y.get(N-1) == y)
+            return;
+        poly_x.add(column);
+        poly_y.add(y);
+    }
+
+    /** @return Number of points, call {@link #flush()} to include the current run */
+    final public int size()
+    {
+        return poly_x.size();
+    }
+
+    /** @return x coordinates, valid up to size() */
+    final public int[] getX()
+    {
+        return poly_x.getArray();
+    }
+
+    /** @return y coordinates, valid up to size() */
+    final public int[] getY()
+    {
+        return poly_y.getArray();
+    }
+
+    /** Remove all points */
+    final public void clear()
+    {
+        poly_x.clear();
+        poly_y.clear();
+        run = 0;
+    }
+}
@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal.util;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.csstudio.javafx.rtplot.ColorMappingFunction;
+import org.csstudio.javafx.rtplot.data.ValueRange;
+import org.diirt.util.array.ArrayByte;
+import org.diirt.util.array.ArrayInt;
+import org.diirt.util.array.ArrayShort;
+import org.diirt.util.array.CollectionNumbers;
+import org.diirt.util.array.ListNumber;
+import org.diirt.vtype.VImageType;
+
+/** Map image data to ARGB pixels
+ *
+ *  <p>Reads the primitive array behind a {@link ListNumber}
+ *  instead of using an iterator for each sample,
+ *  and maps values to colors via a lookup table.
+ *  Tiles of rows are processed in parallel on the fork/join common pool.
+ *
+ *  <p>For images that are larger than their area on screen,
+ *  the data can be reduced to the screen resolution before mapping,
+ *  using the average of each block of samples.
+ *
+ *  @author Kay Kasemir
+ */
+public class ImageDataMapper
+{
+    /** Number of entries in the color lookup table */
+    private static final int LUT_SIZE = 4096;
+
+    /** Approximate number of pixels handled by one parallel task */
+    private static final int TILE_PIXELS = 64 * 1024;
+
+    /** Image data */
+    private final ListNumber numbers;
+
+    /** Backing array of 'numbers', or <code>null</code> */
+    private final Object array;
+
+    /** Treat data as unsigned? */
+    private final boolean unsigned;
+
+    /** Image data size */
+    private final int data_width, data_height;
+
+    /** @param numbers Image data, starting in 'top left' corner,
+     *                 proceeding along the row, then to next rows
+     *  @param unsigned Is the data meant to be treated as 'unsigned'
+     *  @param data_width Number of elements in one 'row' of data
+     *  @param data_height Number of data rows
+     */
+    public ImageDataMapper(final ListNumber numbers, final boolean unsigned,
+                           final int data_width, final int data_height)
+    {
+        this.numbers = numbers;
+        this.array = CollectionNumbers.wrappedArray(numbers);
+        this.unsigned = unsigned;
+        this.data_width = data_width;
+        this.data_height = data_height;
+    }
+
+    /** @return Can 'unsigned' be handled for the type of data? */
+    public boolean canHandleUnsigned()
+    {
+        return numbers instanceof ArrayShort  ||
+               numbers instanceof ArrayByte   ||
+               numbers instanceof ArrayInt;
+    }
+
+    /** Read samples as double
+     *  @param start Index of first sample
+     *  @param count Number of samples to read
+     *  @param samples Array that receives the samples
+     */
+    private void read(final int start, final int count, final double[] samples)
+    {
+        if (array instanceof short[])
+        {
+            final short[] data = (short[]) array;
+            if (unsigned)
+                for (int i=0; i<count; ++i)
+                    samples[i] = data[start+i] & 0xFFFF;
+            else
+                for (int i=0; i<count; ++i)
+                    samples[i] = data[start+i];
+        }
+        else if (array instanceof byte[])
+        {
+            final byte[] data = (byte[]) array;
+            if (unsigned)
+                for (int i=0; i<count; ++i)
+                    samples[i] = data[start+i] & 0xFF;
+            else
+                for (int i=0; i<count; ++i)
+                    samples[i] = data[start+i];
+        }
+        else if (array instanceof int[])
+        {
+            final int[] data = (int[]) array;
+            if (unsigned)
+                for (int i=0; i<count; ++i)
+                    samples[i] = data[start+i] & 0xFFFFFFFFL;
+            else
+                for (int i=0; i<count; ++i)
+                    samples[i] = data[start+i];
+        }
+        else if (array instanceof float[])
+        {
+            final float[] data = (float[]) array;
+            for (int i=0; i<count; ++i)
+                samples[i] = data[start+i];
+        }
+        else if (array instanceof double[])
+            System.arraycopy(array, start, samples, 0, count);
+        else if (array instanceof long[])
+        {
+            final long[] data = (long[]) array;
+            for (int i=0; i<count; ++i)
+                samples[i] = data[start+i];
+        }
+        else if (unsigned  &&  numbers instanceof ArrayShort)
+            for (int i=0; i<count; ++i)
+                samples[i] = Short.toUnsignedInt(numbers.getShort(start+i));
+        else if (unsigned  &&  numbers instanceof ArrayByte)
+            for (int i=0; i<count; ++i)
+                samples[i] = Byte.toUnsignedInt(numbers.getByte(start+i));
+        else if (unsigned  &&  numbers instanceof ArrayInt)
+            for (int i=0; i<count; ++i)
+                samples[i] = Integer.toUnsignedLong(numbers.getInt(start+i));
+        else
+            for (int i=0; i<count; ++i)
+                samples[i] = numbers.getDouble(start+i);
+    }
+
+    /** @param pixels_per_row Number of pixels in each row
+     *  @return Number of rows handled by one parallel task
+     */
+    private static int getTileRows(final int pixels_per_row)
+    {
+        return Math.max(1, TILE_PIXELS / Math.max(1, pixels_per_row));
+    }
+
+    /** @return Range of all samples */
+    public ValueRange getValueRange()
+    {
+        final int size = numbers.size();
+        final int tiles = (size + TILE_PIXELS - 1) / TILE_PIXELS;
+        final double[][] ranges = new double[tiles][];
+        IntStream.range(0, tiles).parallel().forEach(tile ->
+        {
+            final int start = tile * TILE_PIXELS;
+            final int count = Math.min(size - start, TILE_PIXELS);
+            final double[] samples = new double[count];
+            read(start, count, samples);
+            double min = Double.MAX_VALUE, max = Double.NEGATIVE_INFINITY;
+            for (int i=0; i<count; ++i)
+            {
+                final double sample = samples[i];
+                if (sample > max)
+                    max = sample;
+                if (sample < min)
+                    min = sample;
+            }
+            ranges[tile] = new double[] { min, max };
+        });
+        double min = Double.MAX_VALUE, max = Double.NEGATIVE_INFINITY;
+        for (double[] range : ranges)
+        {
+            min = Math.min(min, range[0]);
+            max = Math.max(max, range[1]);
+        }
+        return new ValueRange(min, max);
+    }
+
+    /** @param color_mapping Color mapping
+     *  @return Colors for values 0..1
+     */
+    public static int[] createLookupTable(final ColorMappingFunction color_mapping)
+    {
+        final int[] lut = new int[LUT_SIZE];
+        for (int i=0; i<LUT_SIZE; ++i)
+            lut[i] = color_mapping.getRGB(i / (double) (LUT_SIZE-1));
+        return lut;
+    }
+
+    /** Map image data to colors
+     *
+     *  <p>Pixels are written for the requested section of the image.
+     *  With a step of 1 they are placed at the same index as the data,
+     *  otherwise into an image of size data_width/step_x x data_height/step_y.
+     *
+     *  @param lut Colors for values 0..1, see {@link #createLookupTable(ColorMappingFunction)}
+     *  @param min Value mapped to the first color
+     *  @param max Value mapped to the last color
+     *  @param log Use logarithmic mapping?
+     *  @param x1 First data column to map
+     *  @param y1 First data row to map
+     *  @param x2 End of data columns (exclusive)
+     *  @param y2 End of data rows (exclusive)
+     *  @param step_x Number of samples averaged into one pixel along the row
+     *  @param step_y Number of rows averaged into one pixel
+     *  @param pixels ARGB pixels
+     */
+    public void mapValues(final int[] lut, final double min, final double max, final boolean log,
+                          final int x1, final int y1, final int x2, final int y2,
+                          final int step_x, final int step_y, final int[] pixels)
+    {
+        final double offset = log ? Log10.log10(min) : min;
+        final double scale = (LUT_SIZE - 1) / ((log ? Log10.log10(max) : max) - offset);
+        final int out_width = (data_width + step_x - 1) / step_x;
+        final int bx1 = x1 / step_x, bx2 = (x2 + step_x - 1) / step_x;
+        final int by1 = y1 / step_y, by2 = (y2 + step_y - 1) / step_y;
+        final int rows = getTileRows((bx2 - bx1) * step_x * step_y);
+        final int tiles = (by2 - by1 + rows - 1) / rows;
+        IntStream.range(0, tiles).parallel().forEach(tile ->
+        {
+            final int sx1 = bx1 * step_x, sx2 = Math.min(data_width, bx2 * step_x);
+            final double[] samples = new double[sx2 - sx1];
+            final double[] sums = step_x * step_y > 1 ? new double[bx2 - bx1] : null;
+            final int end = Math.min(by2, by1 + (tile+1) * rows);
+            for (int by = by1 + tile * rows;  by < end;  ++by)
+            {
+                final int idx = by * out_width;
+                if (sums == null)
+                    read(by * data_width + sx1, samples.length, samples);
+                else
+                {   // Average the samples of each block
+                    Arrays.fill(sums, 0.0);
+                    final int sy1 = by * step_y, sy2 = Math.min(data_height, sy1 + step_y);
+                    for (int sy = sy1;  sy < sy2;  ++sy)
+                    {
+                        read(sy * data_width + sx1, samples.length, samples);
+                        for (int i=0; i<samples.length; ++i)
+                            sums[i / step_x] += samples[i];
+                    }
+                    for (int bx = bx1;  bx < bx2;  ++bx)
+                    {
+                        final int columns = Math.min(data_width, (bx+1) * step_x) - bx * step_x;
+                        samples[bx - bx1] = sums[bx - bx1] / (columns * (sy2 - sy1));
+                    }
+                }
+                final int N = sums == null ? samples.length : bx2 - bx1;
+                for (int i=0; i<N; ++i)
+                {
+                    final double sample = log ? Log10.log10(samples[i]) : samples[i];
+                    double scaled = (sample - offset) * scale;
+                    if (scaled < 0.0)
+                        scaled = 0;
+                    else if (scaled > LUT_SIZE - 1)
+                        scaled = LUT_SIZE - 1;
+                    pixels[idx + bx1 + i] = lut[(int) (scaled + 0.5)];
+                }
+            }
+        });
+    }
+
+    /** Read one color component
+     *  @param index Index of sample
+     *  @param shift_8 Shift for an 8 bit value into the red, green or blue position
+     *  @param shift_16 Shift for a 16 bit value, negative to shift right
+     *  @param shift_32 Right-shift for a 32 bit value
+     *  @param mask Mask for the color component
+     *  @return Color component
+     */
+    private int getComponent(final int index, final int shift_8, final int shift_16, final int shift_32, final int mask)
+    {
+        if (numbers instanceof ArrayShort)
+        {
+            final int value = array instanceof short[] ? ((short[]) array)[index] : numbers.getShort(index);
+            final int u = (unsigned ? value : value + Short.MIN_VALUE) & 0xFFFF;
+            return (shift_16 >= 0 ? u << shift_16 : u >>> -shift_16) & mask;
+        }
+        if (numbers instanceof ArrayInt)
+        {
+            final int value = array instanceof int[] ? ((int[]) array)[index] : numbers.getInt(index);
+            final int u = unsigned ? value : value + Integer.MIN_VALUE;
+            return (u >>> shift_32) & mask;
+        }
+        final int value = array instanceof byte[] ? ((byte[]) array)[index] : numbers.getByte(index);
+        final int u = (unsigned ? value : value + Byte.MIN_VALUE) & 0xFF;
+        return u << shift_8;
+    }
+
+    private int getRed(final int index)
+    {
+        return getComponent(index, 16, 8, 8, 0xFF0000);
+    }
+
+    private int getGreen(final int index)
+    {
+        return getComponent(index, 8, 0, 16, 0xFF00);
+    }
+
+    private int getBlue(final int index)
+    {
+        return getComponent(index, 0, -8, 24, 0xFF);
+    }
+
+    /** Map RGB image data to pixels
+     *
+     *  <p>Byte data holds one 8 bit value per color component,
+     *  short data 16 bits, of which the upper 8 bits are used,
+     *  int data 32 bits, using the upper 8 bits.
+     *
+     *  @param type RGB1: Red, green, blue for each pixel,
+     *              RGB2: Red, green, blue rows,
+     *              RGB3: Red, green, blue images
+     *  @param pixels ARGB pixels
+     */
+    public void mapRGB(final VImageType type, final int[] pixels)
+    {
+        final int size = data_width * data_height;
+        final int rows = getTileRows(data_width);
+        final int tiles = (data_height + rows - 1) / rows;
+        IntStream.range(0, tiles).parallel().forEach(tile ->
+        {
+            final int end = Math.min(data_height, (tile+1) * rows);
+            for (int y = tile * rows;  y < end;  ++y)
+            {
+                final int row = y * data_width;
+                for (int x=0; x<data_width; ++x)
+                {
+                    final int i = row + x;
+                    switch (type)
+                    {
+                    case TYPE_RGB2:
+                    {
+                        final int idx = 3 * row + x;
+                        pixels[i] = getRed(idx) | getGreen(idx + data_width) | getBlue(idx + 2 * data_width);
+                        break;
+                    }
+                    case TYPE_RGB3:
+                        pixels[i] = getRed(i) | getGreen(i + size) | getBlue(i + 2 * size);
+                        break;
+                    default:
+                        pixels[i] = getRed(3*i) | getGreen(3*i + 1) | getBlue(3*i + 2);
+                    }
+                }
+            }
+        });
+    }
+}
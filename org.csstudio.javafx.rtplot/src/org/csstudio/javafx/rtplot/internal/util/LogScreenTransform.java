@@ -36,10 +36,17 @@ public class LogScreenTransform implements ScreenTransform<Double>
     /** {@inheritDoc} */
     @Override
     public double transform(final Double x)
+    {
+        return transformPosition(x);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double transformPosition(final double x)
     {
         if (x <= 0)
             return base;
-        return linear.transform(Log10.log10(x));
+        return linear.transformPosition(Log10.log10(x));
     }
 
     /** {@inheritDoc} */
@@ -9,6 +9,8 @@ package org.csstudio.javafx.rtplot.internal.util;
 
 import java.time.Instant;
 
+import org.csstudio.javafx.rtplot.data.PrimitivePlotDataProvider;
+
 /** A transformation from model coordinates to display coordinates
  *
  *  @param <T> Data type, {@link Double} or {@link Instant}
@@ -37,6 +39,11 @@ public interface ScreenTransform<T>
     /** @return Returns x transformed into the y range. */
     public abstract double transform(T x);
 
+    /** @param x Position as number, see {@link PrimitivePlotDataProvider#toPositionValue(Comparable)}
+     *  @return Returns x transformed into the y range.
+     */
+    public abstract double transformPosition(double x);
+
     /** @return Returns x transformed into the y range. */
     public abstract T inverse(double y);
 
@@ -46,6 +46,13 @@ public class TimeScreenTransform implements ScreenTransform<Instant>
         return a*x + b;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public synchronized double transformPosition(final double x)
+    {
+        return a*x + b;
+    }
+
     /** {@inheritDoc} */
     @Override
     public synchronized Instant inverse(double y)
@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
@@ -66,6 +67,9 @@ import javafx.util.converter.DefaultStringConverter;
  *
  *  <p>Data can be changed at runtime, columns will
  *  then be re-created.
+ *  Updates of data are applied incrementally,
+ *  only replacing rows that actually changed,
+ *  so the table keeps its selection and scroll position.
 
  *  <p>User can edit the cells.
  *  While inefficient, the table creates a deep copy
@@ -725,31 +729,68 @@ public class StringTable extends BorderPane
     public void setData(final List<List<String>> new_data)
     {
         final int columns = getColumnCount();
-        data.clear();
-        for (List<String> new_row : new_data)
+        // Compare with current data, ignoring MAGIC_LAST_ROW,
+        // and only replace rows that changed.
+        // Clearing and re-adding all rows would cause the TableView
+        // to re-create all cells and lose the selection.
+        final int current = getDataRowCount();
+        final int rows = new_data.size();
+        final int common = Math.min(current, rows);
+        for (int r=0; r<common; ++r)
         {
-            final ArrayList<String> row;
-            if (new_row instanceof ArrayList)
-                row = (ArrayList<String>)new_row;
-            else
-                row = new ArrayList<>(new_row);
-            if (row.size() < columns)
-            {
-                logger.log(Level.WARNING, "Table needs " + columns +
-                           " columns " + getHeaders() +
-                           " but got row with just " + row.size() + ": " + row);
-                for (int i=row.size(); i<columns; ++i)
-                    row.add("");
-            }
-            data.add(row);
+            final List<String> row = createRow(new_data.get(r), columns);
+            // Same row instance might have been modified by caller
+            final List<String> old_row = data.get(r);
+            if (row == old_row  ||  ! row.equals(old_row))
+                data.set(r, row);
+        }
+        if (current > rows)
+            data.remove(rows, current);
+        else if (rows > current)
+        {
+            final List<List<String>> added = new ArrayList<>(rows - current);
+            for (int r=current; r<rows; ++r)
+                added.add(createRow(new_data.get(r), columns));
+            data.addAll(current, added);
         }
 
-        if (editable)
+        if (editable  &&  data.size() <= rows)
             data.add(MAGIC_LAST_ROW);
         // Don't fire, since external source changed data, not user
         // fireDataChanged();
     }
 
+    /** @return Number of data rows, not counting MAGIC_LAST_ROW */
+    private int getDataRowCount()
+    {
+        final int size = data.size();
+        if (size > 0  &&  data.get(size-1) == MAGIC_LAST_ROW)
+            return size - 1;
+        return size;
+    }
+
+    /** @param new_row Row of data
+     *  @param columns Number of columns
+     *  @return Row for the table data, padded to the number of columns
+     */
+    private List<String> createRow(final List<String> new_row, final int columns)
+    {
+        final ArrayList<String> row;
+        if (new_row instanceof ArrayList)
+            row = (ArrayList<String>)new_row;
+        else
+            row = new ArrayList<>(new_row);
+        if (row.size() < columns)
+        {
+            logger.log(Level.WARNING, "Table needs " + columns +
+                       " columns " + getHeaders() +
+                       " but got row with just " + row.size() + ": " + row);
+            for (int i=row.size(); i<columns; ++i)
+                row.add("");
+        }
+        return row;
+    }
+
     /** Get complete table content
      *  @return List of rows, where each row contains the list of cell strings
      */
@@ -801,8 +842,38 @@ public class StringTable extends BorderPane
      */
     public void setCellColors(final List<List<Color>> colors)
     {
+        final List<List<Color>> old_colors = cell_colors;
         cell_colors = colors;
-        table.refresh();
+        // Cannot tell what caller changed in the same list.
+        // Cells only update their style in updateItem(),
+        // which isn't called when the row data stays the same,
+        // so refresh unless the colors of all rows are unchanged
+        if (colors == old_colors  ||  haveColorsChanged(old_colors, colors))
+            table.refresh();
+    }
+
+    /** @param old_colors Previous cell colors, may be <code>null</code>
+     *  @param colors New cell colors, may be <code>null</code>
+     *  @return <code>true</code> if the colors of any data row changed
+     */
+    private boolean haveColorsChanged(final List<List<Color>> old_colors, final List<List<Color>> colors)
+    {
+        final int rows = getDataRowCount();
+        for (int r=0; r<rows; ++r)
+            if (! Objects.equals(getRowColors(old_colors, r), getRowColors(colors, r)))
+                return true;
+        return false;
+    }
+
+    /** @param colors Cell colors, may be <code>null</code>
+     *  @param row Table row
+     *  @return Colors for that row, <code>null</code> for default
+     */
+    private static List<Color> getRowColors(final List<List<Color>> colors, final int row)
+    {
+        if (colors != null  &&  row < colors.size())
+            return colors.get(row);
+        return null;
     }
 
     /** Get background color for a specific cell
@@ -812,13 +883,9 @@ public class StringTable extends BorderPane
      */
     private Color getCellColor(final int row, final int col)
     {
-        final List<List<Color>> colors = cell_colors;
-        if (colors != null  &&  row < colors.size())
-        {
-            final List<Color> row_colors = colors.get(row);
-            if (row_colors != null  &&  col < row_colors.size())
-                return row_colors.get(col);
-        }
+        final List<Color> row_colors = getRowColors(cell_colors, row);
+        if (row_colors != null  &&  col < row_colors.size())
+            return row_colors.get(col);
         return null;
     }
 